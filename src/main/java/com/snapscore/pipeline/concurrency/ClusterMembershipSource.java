@@ -0,0 +1,24 @@
+package com.snapscore.pipeline.concurrency;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Provides the ids of all nodes (service instances) that share the sequential processing of inputs.
+ * Used by {@link PartitionedSequentialProcessor} to decide which node owns which partition of input keys.
+ *
+ * Implementations must notify the registered listeners whenever the set of member nodes changes.
+ */
+public interface ClusterMembershipSource {
+
+    Set<String> getMemberNodeIds();
+
+    void addMembershipChangeListener(Consumer<Set<String>> membershipChangeListener);
+
+    /**
+     * Stops any background activity of the source (e.g. watching for changes)
+     */
+    default void close() {
+    }
+
+}
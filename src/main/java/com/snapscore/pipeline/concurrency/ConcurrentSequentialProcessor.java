@@ -1,6 +1,8 @@
 package com.snapscore.pipeline.concurrency;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Makes it possible to process any data in full parallel mode but also preserving order defined.
@@ -13,9 +15,46 @@ import java.time.Duration;
  */
 public interface ConcurrentSequentialProcessor {
 
+    /**
+     * @throws java.util.concurrent.RejectedExecutionException if the processor has been shut down
+     */
     <I, R> void processSequentiallyAsync(SequentialInput<I, R> sequentialInput);
 
     void awaitProcessingCompletion(Duration timeout) throws Exception;
 
     long getTotalUnprocessedInputs();
+
+    /**
+     * Stops accepting new inputs and waits for the already enqueued inputs to get processed.
+     * The inputs not processed within the timeout are removed from the queues; inputs being processed at that moment are left to finish.
+     *
+     * The default implementation only waits for the processing completion - it neither rejects new inputs nor removes any.
+     *
+     * @return inputs that were not processed by input queue index; each list is in the order in which the inputs were enqueued
+     */
+    default Map<Integer, List<SequentialInput<?, ?>>> shutdown(Duration timeout) {
+        try {
+            awaitProcessingCompletion(timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // the still unprocessed inputs cannot be removed by the default implementation anyway
+        }
+        return shutdownNow();
+    }
+
+    /**
+     * Stops accepting new inputs and removes all enqueued inputs that are not being processed yet
+     *
+     * The default implementation does nothing and leaves all enqueued inputs to be processed.
+     *
+     * @return inputs that were not processed by input queue index; each list is in the order in which the inputs were enqueued
+     */
+    default Map<Integer, List<SequentialInput<?, ?>>> shutdownNow() {
+        return Map.of();
+    }
+
+    default boolean isShutdown() {
+        return false;
+    }
 }
@@ -3,9 +3,7 @@ package com.snapscore.pipeline.concurrency;
 import com.snapscore.pipeline.logging.Logger;
 
 import java.time.Duration;
-import java.util.LinkedList;
-import java.util.Map;
-import java.util.Queue;
+import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -18,26 +16,55 @@ public class ConcurrentSequentialProcessorImpl implements ConcurrentSequentialPr
     public static final String UNPROCESSED_TOTAL_LOG_ANALYTICS_ID = "unprocessed_total";
 
     private final String name;
-    private final int inputQueueCount;
 
     // as we need to ensure that access to the message queues is atomic we need to lock on this object
     private final Object queueLock = new Object();
     // guarded by "queueLock"
-    private final Map<Integer, Queue<EnqueuedInput>> inputQueues = new ConcurrentHashMap<>();
+    private int inputQueueCount;
+    // guarded by "queueLock"
+    private Map<Integer, Queue<EnqueuedInput>> inputQueues;
+    // guarded by "queueLock"; count of queues before the last resize - relevant only while there are draining queues left
+    private int drainingInputQueueCount;
+    // guarded by "queueLock"; queues from before the last resize that still contained some inputs at the time of resizing
+    private final Map<Integer, Queue<EnqueuedInput>> drainingInputQueues = new HashMap<>();
     // guarded by "queueLock"
     private final AtomicLong totalEnqueuedInputs = new AtomicLong(0);
+    // guarded by "queueLock"
+    private boolean shutdown = false;
     private volatile CompletableFuture<Void> future;
+    private final InputJournal inputJournal;
+    private final InputJournalCodec inputJournalCodec;
 
     /**
      * @param inputQueueCount should be a big enough number for the passed messages to get spread out evenly
      * @param name if multiple instances are created
      */
     public ConcurrentSequentialProcessorImpl(int inputQueueCount, String name) {
+        this(inputQueueCount, name, null, null);
+    }
+
+    private ConcurrentSequentialProcessorImpl(int inputQueueCount, String name, InputJournal inputJournal, InputJournalCodec inputJournalCodec) {
         this.name = name;
         this.inputQueueCount = inputQueueCount;
-        for (int queueIdx = 0; queueIdx < this.inputQueueCount; queueIdx++) {
-            inputQueues.put(queueIdx, new LinkedList<>());
+        this.inputQueues = createInputQueues(inputQueueCount);
+        this.inputJournal = inputJournal;
+        this.inputJournalCodec = inputJournalCodec;
+    }
+
+    /**
+     * Journals every enqueued input so that after a crash / restart the inputs that were not processed yet can be replayed.
+     * Uncompleted inputs found in the journal are replayed once the processor is fully created, before it is returned, in the order in which they were originally enqueued.
+     * An input that was being processed at the time of the crash is processed again.
+     *
+     * @param inputJournalCodec serializes inputs for the journal and recreates them from it on replay
+     */
+    public static ConcurrentSequentialProcessorImpl createJournaled(int inputQueueCount, String name, InputJournal inputJournal, InputJournalCodec inputJournalCodec) {
+        if (inputJournal == null || inputJournalCodec == null) {
+            throw new IllegalArgumentException("Both input journal and input journal codec must be provided!");
         }
+        ConcurrentSequentialProcessorImpl processor = new ConcurrentSequentialProcessorImpl(inputQueueCount, name, inputJournal, inputJournalCodec);
+        processor.replayJournal();
+        return processor;
     }
 
     public ConcurrentSequentialProcessorImpl(String name) {
@@ -46,9 +73,7 @@ public class ConcurrentSequentialProcessorImpl implements ConcurrentSequentialPr
 
     @Override
     public <I, R> void processSequentiallyAsync(SequentialInput<I, R> sequentialInput) {
-        int queueIdx = sequentialInput.inputQueueResolver.getQueueIdxFor(sequentialInput.input, inputQueueCount);
-        EnqueuedInput enqueuedInput = new EnqueuedInput(queueIdx, sequentialInput.inputProcessingRunner, sequentialInput.loggingInfo);
-        enqueueAndProcess(enqueuedInput);
+        enqueueAndProcess(sequentialInput, serializeForJournal(sequentialInput), InputJournal.NOT_JOURNALED);
     }
 
     @Override
@@ -63,18 +88,208 @@ public class ConcurrentSequentialProcessorImpl implements ConcurrentSequentialPr
         return totalEnqueuedInputs.get();
     }
 
-    private void enqueueAndProcess(EnqueuedInput enqueuedInput) {
+    @Override
+    public Map<Integer, List<SequentialInput<?, ?>>> shutdown(Duration timeout) {
+        synchronized (queueLock) {
+            shutdown = true;
+        }
+        logger.info("{}: Shutting down; awaiting processing of {} enqueued inputs for up to {} ms", this.name, totalEnqueuedInputs.get(), timeout.toMillis());
+        try {
+            awaitProcessingCompletion(timeout);
+        } catch (TimeoutException e) {
+            logger.warn("{}: Timed out awaiting processing completion on shutdown; unprocessed inputs = {}", this.name, totalEnqueuedInputs.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("{}: Error awaiting processing completion on shutdown", this.name, e);
+        }
+        return shutdownNow();
+    }
+
+    /**
+     * Removed inputs that were journaled are kept in the {@link InputJournal} so they get replayed on the next start
+     */
+    @Override
+    public Map<Integer, List<SequentialInput<?, ?>>> shutdownNow() {
+        Map<Integer, List<SequentialInput<?, ?>>> unprocessedInputs = new HashMap<>();
+        int unprocessedCount = 0;
+        synchronized (queueLock) {
+            shutdown = true;
+            unprocessedCount += removeUnprocessedInputs(drainingInputQueues, unprocessedInputs);
+            unprocessedCount += removeUnprocessedInputs(inputQueues, unprocessedInputs);
+            if (unprocessedCount > 0 && totalEnqueuedInputs.addAndGet(-unprocessedCount) == 0L) {
+                this.future.complete(null);
+            }
+        }
+        for (List<SequentialInput<?, ?>> removed : unprocessedInputs.values()) {
+            for (SequentialInput<?, ?> sequentialInput : removed) {
+                sequentialInput.inputProcessingRunner.onRemovedUnprocessed();
+            }
+        }
+        logger.info("{}: Shut down; removed {} unprocessed inputs from {} queues", this.name, unprocessedCount, unprocessedInputs.size());
+        return unprocessedInputs;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        synchronized (queueLock) {
+            return shutdown;
+        }
+    }
+
+    /**
+     * must be called while holding "queueLock"
+     *
+     * @return count of removed inputs
+     */
+    private static int removeUnprocessedInputs(Map<Integer, Queue<EnqueuedInput>> queues, Map<Integer, List<SequentialInput<?, ?>>> unprocessedInputs) {
+        int removedCount = 0;
+        for (Map.Entry<Integer, Queue<EnqueuedInput>> queueEntry : queues.entrySet()) {
+            Queue<EnqueuedInput> queue = queueEntry.getValue();
+            if (queue.size() > 1) {
+                // the head of the queue is being processed -> it stays there and gets dequeued once it is finished
+                EnqueuedInput inProcessing = queue.poll();
+                List<SequentialInput<?, ?>> removed = unprocessedInputs.computeIfAbsent(queueEntry.getKey(), idx -> new ArrayList<>());
+                for (EnqueuedInput enqueuedInput : queue) {
+                    removed.add(enqueuedInput.sequentialInput);
+                }
+                removedCount += queue.size();
+                queue.clear();
+                queue.add(inProcessing);
+            }
+        }
+        return removedCount;
+    }
+
+    /**
+     * Changes the number of input queues of a live processor. The ordering of inputs is preserved:
+     * inputs that map to a queue from before the resize that still contains unprocessed inputs keep being appended to that old queue.
+     * Only after an old queue has been fully drained the inputs mapped to it start using the new queues.
+     *
+     * @return false if the resize could not be started because the specified count is invalid or a previous resize is still in progress
+     */
+    public boolean resizeInputQueues(int newInputQueueCount) {
+        if (newInputQueueCount <= 0) {
+            logger.warn("{}: Cannot resize input queues to invalid count {}", this.name, newInputQueueCount);
+            return false;
+        }
+        int prevInputQueueCount;
+        int drainingQueuesCount;
+        synchronized (queueLock) {
+            if (!drainingInputQueues.isEmpty()) {
+                logger.warn("{}: Cannot resize input queues to {} - previous resize still in progress; draining queues left = {}", this.name, newInputQueueCount, drainingInputQueues.size());
+                return false;
+            }
+            prevInputQueueCount = inputQueueCount;
+            if (newInputQueueCount == prevInputQueueCount) {
+                return true;
+            }
+            for (Map.Entry<Integer, Queue<EnqueuedInput>> queueEntry : inputQueues.entrySet()) {
+                if (!queueEntry.getValue().isEmpty()) {
+                    drainingInputQueues.put(queueEntry.getKey(), queueEntry.getValue());
+                }
+            }
+            drainingInputQueueCount = prevInputQueueCount;
+            drainingQueuesCount = drainingInputQueues.size();
+            inputQueueCount = newInputQueueCount;
+            inputQueues = createInputQueues(newInputQueueCount);
+        }
+        logger.info("{}: Resized input queues from {} to {}; draining queues = {}", this.name, prevInputQueueCount, newInputQueueCount, drainingQueuesCount);
+        return true;
+    }
+
+    public int getInputQueueCount() {
+        synchronized (queueLock) {
+            return inputQueueCount;
+        }
+    }
+
+    /**
+     * @return true if a previous call to {@link #resizeInputQueues(int)} is still waiting for some of the old queues to get drained
+     */
+    public boolean isResizeInProgress() {
+        synchronized (queueLock) {
+            return !drainingInputQueues.isEmpty();
+        }
+    }
+
+    private static Map<Integer, Queue<EnqueuedInput>> createInputQueues(int inputQueueCount) {
+        Map<Integer, Queue<EnqueuedInput>> queues = new HashMap<>();
+        for (int queueIdx = 0; queueIdx < inputQueueCount; queueIdx++) {
+            queues.put(queueIdx, new LinkedList<>());
+        }
+        return queues;
+    }
+
+    private void replayJournal() {
+        List<InputJournal.Entry> uncompletedEntries = inputJournal.readUncompleted();
+        if (uncompletedEntries.isEmpty()) {
+            return;
+        }
+        logger.info("{}: Replaying {} uncompleted inputs from journal", this.name, uncompletedEntries.size());
+        for (InputJournal.Entry entry : uncompletedEntries) {
+            SequentialInput<?, ?> sequentialInput;
+            try {
+                sequentialInput = inputJournalCodec.decode(entry.getSerializedInput());
+            } catch (Exception e) {
+                logger.error("{}: Failed to decode journaled input with entry id {} - skipping it", this.name, entry.getEntryId(), e);
+                inputJournal.complete(entry.getEntryId());
+                continue;
+            }
+            // the entry is already in the journal -> it must not be appended again
+            enqueueAndProcess(sequentialInput, null, entry.getEntryId());
+        }
+    }
+
+    private byte[] serializeForJournal(SequentialInput<?, ?> sequentialInput) {
+        if (inputJournal == null) {
+            return null;
+        }
+        try {
+            return inputJournalCodec.encode(sequentialInput);
+        } catch (Exception e) {
+            sequentialInput.loggingInfo.decorate(logger).error("{}: Failed to serialize input for journal {}", this.name, sequentialInput.loggingInfo.inputDescription, e);
+            return null;
+        }
+    }
+
+    /**
+     * @param serializedInput       to be appended to the journal; null if it should not be journaled
+     * @param existingJournalEntryId id of an already journaled entry that is being replayed
+     */
+    private <I, R> void enqueueAndProcess(SequentialInput<I, R> sequentialInput, byte[] serializedInput, long existingJournalEntryId) {
         boolean canProcessImmediately;
-        Logger loggerDecorated = enqueuedInput.loggingInfo.decorate(logger);
-        int queueIdx = enqueuedInput.queueIdx;
+        Logger loggerDecorated = sequentialInput.loggingInfo.decorate(logger);
+        EnqueuedInput enqueuedInput;
+        int queueIdx;
         int queueSize;
+        long journalEntryId;
         synchronized (queueLock) {
-            Queue<EnqueuedInput> queue = inputQueues.get(queueIdx);
+            if (shutdown) {
+                throw new RejectedExecutionException(this.name + ": Processor has been shut down; rejected input " + sequentialInput.loggingInfo.inputDescription);
+            }
+            Queue<EnqueuedInput> queue = null;
+            if (!drainingInputQueues.isEmpty()) {
+                // inputs of the same entity might still be waiting in a queue from before the last resize -> need to join them there
+                int drainingQueueIdx = sequentialInput.inputQueueResolver.getQueueIdxFor(sequentialInput.input, drainingInputQueueCount);
+                queue = drainingInputQueues.get(drainingQueueIdx);
+                queueIdx = drainingQueueIdx;
+            } else {
+                queueIdx = -1;
+            }
             if (queue == null) {
-                loggerDecorated.error("{}: Failed to find queue for queue no. {}", this.name, queueIdx);
-                queue = new LinkedList<>();
-                inputQueues.put(queueIdx, queue);
+                queueIdx = sequentialInput.inputQueueResolver.getQueueIdxFor(sequentialInput.input, inputQueueCount);
+                queue = inputQueues.get(queueIdx);
+                if (queue == null) {
+                    loggerDecorated.error("{}: Failed to find queue for queue no. {}", this.name, queueIdx);
+                    queue = new LinkedList<>();
+                    inputQueues.put(queueIdx, queue);
+                }
             }
+            // the id is taken while holding the lock so that the journal order matches the queue order - the entry is written
+            // after the lock is released as it might need to wait for the journal to be rewritten
+            journalEntryId = serializedInput != null ? inputJournal.reserveEntryId() : existingJournalEntryId;
+            enqueuedInput = new EnqueuedInput(queueIdx, queue, sequentialInput, journalEntryId);
             canProcessImmediately = queue.isEmpty();
             queue.add(enqueuedInput);
             queueSize = queue.size();
@@ -83,6 +298,9 @@ public class ConcurrentSequentialProcessorImpl implements ConcurrentSequentialPr
             }
             totalEnqueuedInputs.incrementAndGet();
         }
+        if (serializedInput != null) {
+            appendToJournal(journalEntryId, serializedInput, sequentialInput.loggingInfo);
+        }
         if (enqueuedInput.loggingInfo.logActivity) {
             loggerDecorated.decorateSetup(props -> props.analyticsId(UNPROCESSED_TOTAL_LOG_ANALYTICS_ID).exec(String.valueOf(totalEnqueuedInputs.get())))
                     .info("{}: Input queue no. {} size = {}; Enqueued inputs total = {}. Just enqueued input {}", this.name, queueIdx, queueSize, totalEnqueuedInputs.get(), enqueuedInput.loggingInfo.inputDescription);
@@ -94,6 +312,27 @@ public class ConcurrentSequentialProcessorImpl implements ConcurrentSequentialPr
         }
     }
 
+    /**
+     * The input might be processed and completed in the journal already - the journal then does not write it at all
+     */
+    private void appendToJournal(long journalEntryId, byte[] serializedInput, LoggingInfo loggingInfo) {
+        try {
+            inputJournal.append(journalEntryId, serializedInput);
+        } catch (Exception e) {
+            loggingInfo.decorate(logger).error("{}: Failed to append input to journal {}", this.name, loggingInfo.inputDescription, e);
+        }
+    }
+
+    private void completeInJournal(EnqueuedInput enqueuedInput) {
+        if (enqueuedInput.journalEntryId != InputJournal.NOT_JOURNALED) {
+            try {
+                inputJournal.complete(enqueuedInput.journalEntryId);
+            } catch (Exception e) {
+                logger.error("{}: Failed to complete journal entry {} for input {}", this.name, enqueuedInput.journalEntryId, enqueuedInput.loggingInfo.inputDescription, e);
+            }
+        }
+    }
+
     private void processNext(EnqueuedInput enqueuedInput) {
         if (enqueuedInput.loggingInfo.logActivity) {
             Logger loggerDecorated = enqueuedInput.loggingInfo.decorate(logger);
@@ -113,11 +352,13 @@ public class ConcurrentSequentialProcessorImpl implements ConcurrentSequentialPr
             if (currInput.loggingInfo.logActivity) {
                 loggerDecorated.info("{}: Entered dequeueCurrentAndProcessNext after finished processing input: {}", this.name, currInput.loggingInfo.inputDescription);
             }
+            completeInJournal(currInput);
             EnqueuedInput nextInput;
             int newQueueSize;
             int queueIdx = currInput.queueIdx;
+            boolean resizeCompleted = false;
             synchronized (queueLock) {
-                Queue<EnqueuedInput> queue = inputQueues.get(queueIdx);
+                Queue<EnqueuedInput> queue = currInput.queue;
                 queue.poll(); // dequeue the previously processed item
                 totalEnqueuedInputs.decrementAndGet();
                 if (totalEnqueuedInputs.get() == 0L) {
@@ -125,6 +366,14 @@ public class ConcurrentSequentialProcessorImpl implements ConcurrentSequentialPr
                 }
                 newQueueSize = queue.size();
                 nextInput = queue.peek();
+                if (nextInput == null && drainingInputQueues.get(queueIdx) == queue) {
+                    // old queue drained -> inputs mapped to it can go to the new queues from now on
+                    drainingInputQueues.remove(queueIdx);
+                    resizeCompleted = drainingInputQueues.isEmpty();
+                }
+            }
+            if (resizeCompleted) {
+                logger.info("{}: All input queues from before resize have been drained", this.name);
             }
             if (currInput.loggingInfo.logActivity) {
                 loggerDecorated.decorateSetup(props -> props.analyticsId(UNPROCESSED_TOTAL_LOG_ANALYTICS_ID).exec(String.valueOf(totalEnqueuedInputs.get())))
@@ -149,17 +398,25 @@ public class ConcurrentSequentialProcessorImpl implements ConcurrentSequentialPr
     private static class EnqueuedInput {
 
         private final int queueIdx;
+        // the queue this input was added to - after a resize it might not be the one currently mapped to queueIdx
+        private final Queue<EnqueuedInput> queue;
+        private final SequentialInput<?, ?> sequentialInput;
         private final InputProcessingRunner<?, ?> inputProcessingRunner;
         private final LoggingInfo loggingInfo;
         private final long enqueuedTs;
+        private final long journalEntryId;
 
         public EnqueuedInput(int queueIdx,
-                             InputProcessingRunner<?, ?> inputProcessingRunner,
-                             LoggingInfo loggingInfo) {
+                             Queue<EnqueuedInput> queue,
+                             SequentialInput<?, ?> sequentialInput,
+                             long journalEntryId) {
             this.queueIdx = queueIdx;
-            this.inputProcessingRunner = inputProcessingRunner;
-            this.loggingInfo = loggingInfo;
+            this.queue = queue;
+            this.sequentialInput = sequentialInput;
+            this.inputProcessingRunner = sequentialInput.inputProcessingRunner;
+            this.loggingInfo = sequentialInput.loggingInfo;
             this.enqueuedTs = System.currentTimeMillis();
+            this.journalEntryId = journalEntryId;
         }
     }
 
@@ -1,9 +1,10 @@
 package com.snapscore.pipeline.concurrency;
 
+import com.snapscore.pipeline.logging.Logger;
 import io.vertx.core.impl.ConcurrentHashSet;
 
-import java.util.Collections;
-import java.util.Set;
+import java.time.Duration;
+import java.util.*;
 
 /**
  * When we have multiple {@link ConcurrentSequentialProcessor} that execute code that can in turn call another {@link ConcurrentSequentialProcessor}
@@ -12,6 +13,8 @@ import java.util.Set;
  */
 public class ConcurrentSequentialProcessorRegistry {
 
+    private final static Logger logger = Logger.setup(ConcurrentSequentialProcessorRegistry.class);
+
     private final ConcurrentHashSet<ConcurrentSequentialProcessor> registeredProcessors = new ConcurrentHashSet<>();
 
     public ConcurrentSequentialProcessorRegistry() {
@@ -25,4 +28,37 @@ public class ConcurrentSequentialProcessorRegistry {
         return Collections.unmodifiableSet(registeredProcessors);
     }
 
+    /**
+     * Waits for all registered processors to finish processing (including inputs they pass to each other) and then shuts them down.
+     * As the processors might depend on each other none of them stops accepting inputs before the waiting is over -
+     * external producers should therefore be stopped before calling this.
+     *
+     * @return inputs left unprocessed after the timeout by processor and input queue index; processors with no unprocessed inputs are left out
+     */
+    public Map<ConcurrentSequentialProcessor, Map<Integer, List<SequentialInput<?, ?>>>> shutdown(Duration timeout) {
+        try {
+            ConcurrentSequentialProcessorCompletionAwaiter.awaitProcessingCompletionOf(getRegisteredProcessors(), timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("Processing of registered processors not completed within {} ms on shutdown: {}", timeout.toMillis(), e.toString());
+        }
+        return shutdownNow();
+    }
+
+    /**
+     * @return unprocessed inputs by processor and input queue index; processors with no unprocessed inputs are left out
+     * @see ConcurrentSequentialProcessor#shutdownNow()
+     */
+    public Map<ConcurrentSequentialProcessor, Map<Integer, List<SequentialInput<?, ?>>>> shutdownNow() {
+        Map<ConcurrentSequentialProcessor, Map<Integer, List<SequentialInput<?, ?>>>> unprocessedInputsByProcessor = new HashMap<>();
+        for (ConcurrentSequentialProcessor processor : registeredProcessors) {
+            Map<Integer, List<SequentialInput<?, ?>>> unprocessedInputs = processor.shutdownNow();
+            if (!unprocessedInputs.isEmpty()) {
+                unprocessedInputsByProcessor.put(processor, unprocessedInputs);
+            }
+        }
+        return unprocessedInputsByProcessor;
+    }
+
 }
@@ -0,0 +1,66 @@
+package com.snapscore.pipeline.concurrency;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Immutable consistent hash ring of node ids. Every node is placed on the ring multiple times (virtual nodes)
+ * so that the keys get spread evenly and only a small part of them moves when a node joins or leaves.
+ */
+public class ConsistentHashRing {
+
+    public static final int VIRTUAL_NODES_PER_NODE_DEFAULT = 128;
+
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+    public ConsistentHashRing(Collection<String> nodeIds, int virtualNodesPerNode) {
+        for (String nodeId : nodeIds) {
+            for (int virtualNodeNo = 0; virtualNodeNo < virtualNodesPerNode; virtualNodeNo++) {
+                ring.put(hash(nodeId + "#" + virtualNodeNo), nodeId);
+            }
+        }
+    }
+
+    public ConsistentHashRing(Collection<String> nodeIds) {
+        this(nodeIds, VIRTUAL_NODES_PER_NODE_DEFAULT);
+    }
+
+    /**
+     * @return the id of the node owning the specified key or null if the ring has no nodes
+     */
+    public String getNodeFor(String key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+        if (entry == null) {
+            entry = ring.firstEntry(); // wrap around the ring
+        }
+        return entry.getValue();
+    }
+
+    public boolean isEmpty() {
+        return ring.isEmpty();
+    }
+
+    /**
+     * 64-bit FNV-1a followed by the MurmurHash3 finalizer so that similar keys (e.g. consecutive match ids) get spread out well
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.snapscore.pipeline.concurrency;
+
+import com.snapscore.pipeline.logging.Logger;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the member node ids from a file - one node id per line; blank lines and lines starting with '#' are ignored.
+ * The file is re-read periodically so it can be shared by all nodes (e.g. on a mounted volume or distributed by config management)
+ * and updated when nodes are added or removed.
+ */
+public class FileClusterMembershipSource implements ClusterMembershipSource {
+
+    private static final Logger logger = Logger.setup(FileClusterMembershipSource.class);
+
+    private final Path membersFile;
+    private final StaticClusterMembershipSource currentMembership;
+    private final Disposable watching;
+
+    public FileClusterMembershipSource(Path membersFile, Duration refreshInterval) throws IOException {
+        this.membersFile = membersFile;
+        this.currentMembership = new StaticClusterMembershipSource(readMembers(membersFile));
+        this.watching = Flux.interval(refreshInterval, refreshInterval)
+                .doOnNext(tick -> refresh())
+                .onErrorResume(throwable -> {
+                    logger.warn("Error in scheduled refresh of cluster members from {}", membersFile, throwable);
+                    return Mono.empty();
+                })
+                .subscribe();
+    }
+
+    @Override
+    public Set<String> getMemberNodeIds() {
+        return currentMembership.getMemberNodeIds();
+    }
+
+    @Override
+    public void addMembershipChangeListener(Consumer<Set<String>> membershipChangeListener) {
+        currentMembership.addMembershipChangeListener(membershipChangeListener);
+    }
+
+    @Override
+    public void close() {
+        watching.dispose();
+    }
+
+    private void refresh() {
+        try {
+            Set<String> members = readMembers(membersFile);
+            if (members.isEmpty()) {
+                logger.warn("Cluster members file {} is empty - keeping previous members {}", membersFile, currentMembership.getMemberNodeIds());
+            } else {
+                currentMembership.setMemberNodeIds(members);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to read cluster members from {} - keeping previous members", membersFile, e);
+        }
+    }
+
+    private static Set<String> readMembers(Path membersFile) throws IOException {
+        try (var lines = Files.lines(membersFile)) {
+            return lines.map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .collect(Collectors.toSet());
+        }
+    }
+
+}
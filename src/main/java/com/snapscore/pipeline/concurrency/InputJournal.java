@@ -0,0 +1,69 @@
+package com.snapscore.pipeline.concurrency;
+
+import java.util.List;
+
+/**
+ * Append-only journal of serialized inputs enqueued in a {@link ConcurrentSequentialProcessorImpl}.
+ * Entries are marked completed once their input has been processed so that after a restart
+ * only the inputs that were still waiting or being processed get replayed.
+ *
+ * @see MemoryMappedInputJournal
+ */
+public interface InputJournal {
+
+    long NOT_JOURNALED = -1L;
+
+    /**
+     * @return id of the appended entry to be passed to {@link #complete(long)} later
+     */
+    default long append(byte[] serializedInput) {
+        final long entryId = reserveEntryId();
+        append(entryId, serializedInput);
+        return entryId;
+    }
+
+    /**
+     * Takes the id of the next entry without writing it - the entries are replayed in the order of their ids,
+     * so the id can be taken while the order is being decided and the entry written later
+     */
+    long reserveEntryId();
+
+    /**
+     * @param entryId reserved by {@link #reserveEntryId()}; the entry is not written if it has been completed already
+     */
+    void append(long entryId, byte[] serializedInput);
+
+    /**
+     * Can also be called for reserved entries that have not been appended yet
+     */
+    void complete(long entryId);
+
+    /**
+     * @return entries that were appended but not completed yet in the order in which they were appended
+     */
+    List<Entry> readUncompleted();
+
+    default void close() {
+    }
+
+
+    class Entry {
+
+        private final long entryId;
+        private final byte[] serializedInput;
+
+        public Entry(long entryId, byte[] serializedInput) {
+            this.entryId = entryId;
+            this.serializedInput = serializedInput;
+        }
+
+        public long getEntryId() {
+            return entryId;
+        }
+
+        public byte[] getSerializedInput() {
+            return serializedInput;
+        }
+    }
+
+}
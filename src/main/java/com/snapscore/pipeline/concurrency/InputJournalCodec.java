@@ -0,0 +1,17 @@
+package com.snapscore.pipeline.concurrency;
+
+/**
+ * Converts inputs to and from the form stored in an {@link InputJournal}.
+ * As the processing logic of a {@link SequentialInput} cannot be serialized, decoding must recreate the whole
+ * {@link SequentialInput} including its processing - typically via the same builder that created the original input.
+ */
+public interface InputJournalCodec {
+
+    /**
+     * @return serialized input or null if the input should not be journaled
+     */
+    byte[] encode(SequentialInput<?, ?> sequentialInput);
+
+    SequentialInput<?, ?> decode(byte[] serializedInput);
+
+}
@@ -20,8 +20,9 @@ public class InputProcessingCallableRunner<I, R> extends InputProcessingRunner<I
 
     /**
      * This scheduler will be used to subscribe the flux created from the specific Callable instance;
+     * It is also shared by {@link InputProcessingRunnableRunner} so package private visibility is intentional
      */
-    private static final Scheduler subscribeOnScheduler = Schedulers.newBoundedElastic(Runtime.getRuntime().availableProcessors(), Integer.MAX_VALUE, "seq-proc-subscription-thread");
+    static final Scheduler subscribeOnScheduler = Schedulers.newBoundedElastic(Runtime.getRuntime().availableProcessors(), Integer.MAX_VALUE, "seq-proc-subscription-thread");
 
     private final InputProcessingFluxRunner<I, R> inputProcessingFluxRunner;
 
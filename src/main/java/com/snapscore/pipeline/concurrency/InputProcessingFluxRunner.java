@@ -55,11 +55,7 @@ public class InputProcessingFluxRunner<I, R> extends InputProcessingRunner<I, R>
     private Consumer<? super R> getSubscribeConsumerWrapped(long itemEnqueuedTs) {
         return result -> {
             subscribeConsumer.accept(result);
-            final long end = System.currentTimeMillis();
-            final long processingTimeMillis = end - itemEnqueuedTs;
-            if (loggingInfo.logActivity) {
-                loggingInfo.decorate(logger).decorateSetup(props -> props.analyticsId("input_processing_time").exec(Long.toString(processingTimeMillis))).info("Input took {} ms to process: {}", processingTimeMillis, loggingInfo.inputDescription);
-            }
+            loggingInfo.logProcessingTime(logger, itemEnqueuedTs);
         };
     }
 
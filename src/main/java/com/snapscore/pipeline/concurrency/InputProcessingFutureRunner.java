@@ -0,0 +1,101 @@
+package com.snapscore.pipeline.concurrency;
+
+import com.snapscore.pipeline.logging.Logger;
+import reactor.util.annotation.Nullable;
+
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Lean implementation for async logic that already produces a {@link CompletableFuture}.
+ * No Reactor operators are created for the input - the completion hooks are invoked directly when the future completes.
+ *
+ * The supplier is invoked on the thread that hands the input over for processing (the enqueueing thread or the thread
+ * that finished processing the previous input of the same queue) so it must not block. Any blocking work needs
+ * to be done inside the returned future on a suitable executor.
+ */
+public class InputProcessingFutureRunner<I, R> extends InputProcessingRunner<I, R> {
+
+    private final static Logger logger = Logger.setup(InputProcessingFutureRunner.class);
+
+    private final Supplier<CompletableFuture<R>> inputProcessing;
+    private final Consumer<? super R> resultConsumer;
+    private final Consumer<? super Throwable> errorConsumer;
+    private final LoggingInfo loggingInfo;
+
+    public InputProcessingFutureRunner(I input,
+                                       Supplier<CompletableFuture<R>> inputProcessing,
+                                       @Nullable Consumer<? super R> resultConsumer,
+                                       @Nullable Consumer<? super Throwable> errorConsumer,
+                                       LoggingInfo loggingInfo) {
+        this.inputProcessing = inputProcessing;
+        this.resultConsumer = Objects.requireNonNullElse(resultConsumer, r -> {});
+        this.errorConsumer = Objects.requireNonNullElse(errorConsumer, e -> {
+            logger.error("Error processing input of type {}", input.getClass().getSimpleName(), e);
+        });
+        this.loggingInfo = loggingInfo;
+    }
+
+    @Override
+    protected void run(Runnable onTerminateHook, Runnable onCancelHook, long itemEnqueuedTs) {
+        final CompletableFuture<R> future;
+        try {
+            future = inputProcessing.get();
+        } catch (Exception e) {
+            handleError(e);
+            onTerminateHook.run();
+            return;
+        }
+        if (future == null) {
+            handleError(new IllegalStateException("Supplied CompletableFuture is null!"));
+            onTerminateHook.run();
+            return;
+        }
+        final BiConsumer<R, Throwable> completionHandler = (result, error) -> handleCompletion(result, error, onTerminateHook, onCancelHook, itemEnqueuedTs);
+        if (future.isDone()) {
+            // an already completed future would run the hook on this thread and the next input of the queue would
+            // get processed recursively on the same stack -> hand over to another thread to keep the stack flat
+            InputProcessingCallableRunner.subscribeOnScheduler.schedule(() -> future.whenComplete(completionHandler));
+        } else {
+            future.whenComplete(completionHandler);
+        }
+    }
+
+    private void handleCompletion(R result, Throwable error, Runnable onTerminateHook, Runnable onCancelHook, long itemEnqueuedTs) {
+        final boolean cancelled = error instanceof CancellationException;
+        try {
+            if (cancelled) {
+                if (loggingInfo.logActivity) {
+                    loggingInfo.decorate(logger).info("Processing of input was cancelled {}", loggingInfo.inputDescription);
+                }
+            } else if (error != null) {
+                handleError(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            } else {
+                resultConsumer.accept(result);
+                loggingInfo.logProcessingTime(logger, itemEnqueuedTs);
+            }
+        } catch (Exception e) {
+            handleError(e);
+        } finally {
+            if (cancelled) {
+                onCancelHook.run();
+            } else {
+                onTerminateHook.run();
+            }
+        }
+    }
+
+    private void handleError(Throwable error) {
+        try {
+            errorConsumer.accept(error);
+        } catch (Exception e) {
+            loggingInfo.decorate(logger).error("Error in errorConsumer for input {}", loggingInfo.inputDescription, e);
+        }
+    }
+
+}
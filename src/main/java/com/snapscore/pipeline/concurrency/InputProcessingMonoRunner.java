@@ -0,0 +1,116 @@
+package com.snapscore.pipeline.concurrency;
+
+import com.snapscore.pipeline.logging.Logger;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.annotation.Nullable;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Lean Reactor implementation for processing that produces a single value.
+ * Unlike {@link InputProcessingFluxRunner} the Mono is not converted to a Flux and no doOnTerminate / doOnCancel operators
+ * are added for each input. The created Mono is subscribed with a single subscriber that invokes the completion hooks directly.
+ */
+public class InputProcessingMonoRunner<I, R> extends InputProcessingRunner<I, R> {
+
+    private final static Logger logger = Logger.setup(InputProcessingMonoRunner.class);
+
+    private final I input;
+    private final Function<I, Mono<R>> processingMonoCreator;
+    private final Consumer<? super R> subscribeConsumer;
+    private final Consumer<? super Throwable> subscribeErrorConsumer;
+    private final Scheduler subscribeOnScheduler;
+    private final LoggingInfo loggingInfo;
+
+    public InputProcessingMonoRunner(I input,
+                                     Function<I, Mono<R>> processingMonoCreator,
+                                     @Nullable Consumer<? super R> subscribeConsumer,
+                                     @Nullable Consumer<? super Throwable> subscribeErrorConsumer,
+                                     LoggingInfo loggingInfo,
+                                     @Nullable Scheduler subscribeOnScheduler) {
+        this.input = input;
+        this.processingMonoCreator = processingMonoCreator;
+        this.subscribeConsumer = Objects.requireNonNullElse(subscribeConsumer, i -> {});
+        this.subscribeErrorConsumer = Objects.requireNonNullElse(subscribeErrorConsumer, e -> {
+            logger.error("Error processing input of type {}", input.getClass().getSimpleName(), e);
+        });
+        this.subscribeOnScheduler = subscribeOnScheduler;
+        this.loggingInfo = loggingInfo;
+    }
+
+    @Override
+    protected void run(Runnable onTerminateHook, Runnable onCancelHook, long itemEnqueuedTs) {
+        Mono<R> mono;
+        try {
+            mono = processingMonoCreator.apply(input);
+        } catch (Exception e) {
+            mono = Mono.error(e);
+        }
+        if (subscribeOnScheduler != null) {
+            mono = mono.subscribeOn(subscribeOnScheduler);
+        }
+        mono.subscribe(new HookInvokingSubscriber(onTerminateHook, onCancelHook, itemEnqueuedTs));
+    }
+
+
+    private class HookInvokingSubscriber extends BaseSubscriber<R> {
+
+        private final Runnable onTerminateHook;
+        private final Runnable onCancelHook;
+        private final long itemEnqueuedTs;
+
+        private HookInvokingSubscriber(Runnable onTerminateHook, Runnable onCancelHook, long itemEnqueuedTs) {
+            this.onTerminateHook = onTerminateHook;
+            this.onCancelHook = onCancelHook;
+            this.itemEnqueuedTs = itemEnqueuedTs;
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            subscription.request(1);
+        }
+
+        @Override
+        protected void hookOnNext(R result) {
+            try {
+                subscribeConsumer.accept(result);
+                loggingInfo.logProcessingTime(logger, itemEnqueuedTs);
+            } catch (Exception e) {
+                notifyError(e);
+            }
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            onTerminateHook.run();
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            try {
+                notifyError(throwable);
+            } finally {
+                onTerminateHook.run();
+            }
+        }
+
+        @Override
+        protected void hookOnCancel() {
+            onCancelHook.run();
+        }
+
+        private void notifyError(Throwable throwable) {
+            try {
+                subscribeErrorConsumer.accept(throwable);
+            } catch (Exception e) {
+                loggingInfo.decorate(logger).error("Error in subscribeErrorConsumer for input {}", loggingInfo.inputDescription, e);
+            }
+        }
+    }
+
+}
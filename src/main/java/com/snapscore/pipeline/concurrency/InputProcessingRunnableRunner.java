@@ -0,0 +1,66 @@
+package com.snapscore.pipeline.concurrency;
+
+import com.snapscore.pipeline.logging.Logger;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.annotation.Nullable;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Lean implementation for processing that produces no result.
+ * The runnable is handed directly to the scheduler as a single task and the completion hook is invoked
+ * once it finishes - no Mono/Flux is created for the input.
+ */
+public class InputProcessingRunnableRunner<I> extends InputProcessingRunner<I, Void> {
+
+    private final static Logger logger = Logger.setup(InputProcessingRunnableRunner.class);
+
+    private final Runnable inputProcessing;
+    private final Consumer<? super Throwable> errorConsumer;
+    private final Scheduler scheduler;
+    private final LoggingInfo loggingInfo;
+
+    /**
+     * @param scheduler the scheduler the runnable will be executed on. If null the scheduler shared with {@link InputProcessingCallableRunner} is used
+     */
+    public InputProcessingRunnableRunner(I input,
+                                         Runnable inputProcessing,
+                                         @Nullable Consumer<? super Throwable> errorConsumer,
+                                         LoggingInfo loggingInfo,
+                                         @Nullable Scheduler scheduler) {
+        this.inputProcessing = inputProcessing;
+        this.errorConsumer = Objects.requireNonNullElse(errorConsumer, e -> {
+            logger.error("Error processing input of type {}", input.getClass().getSimpleName(), e);
+        });
+        this.loggingInfo = loggingInfo;
+        this.scheduler = Objects.requireNonNullElse(scheduler, InputProcessingCallableRunner.subscribeOnScheduler);
+    }
+
+    @Override
+    protected void run(Runnable onTerminateHook, Runnable onCancelHook, long itemEnqueuedTs) {
+        try {
+            scheduler.schedule(() -> runAndTerminate(onTerminateHook, itemEnqueuedTs));
+        } catch (Exception e) {
+            // the task was rejected and will never run -> the queue must not get stuck
+            loggingInfo.decorate(logger).error("Failed to schedule processing of input {}", loggingInfo.inputDescription, e);
+            onCancelHook.run();
+        }
+    }
+
+    private void runAndTerminate(Runnable onTerminateHook, long itemEnqueuedTs) {
+        try {
+            inputProcessing.run();
+            loggingInfo.logProcessingTime(logger, itemEnqueuedTs);
+        } catch (Exception e) {
+            try {
+                errorConsumer.accept(e);
+            } catch (Exception e2) {
+                loggingInfo.decorate(logger).error("Error in errorConsumer for input {}", loggingInfo.inputDescription, e2);
+            }
+        } finally {
+            onTerminateHook.run();
+        }
+    }
+
+}
@@ -8,4 +8,10 @@ public abstract class InputProcessingRunner<I, R> {
      */
     protected abstract void run(Runnable onTerminateHook, Runnable onCancelHook, long itemEnqueuedTs);
 
+    /**
+     * Called instead of {@link #run(Runnable, Runnable, long)} when the input is removed from its queue without being processed - e.g. on shutdown
+     */
+    void onRemovedUnprocessed() {
+    }
+
 }
@@ -0,0 +1,167 @@
+package com.snapscore.pipeline.concurrency;
+
+import com.snapscore.pipeline.logging.Logger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Keeps track of the locks whose contention is measured by {@link LockingWrapper}.
+ * Only locks registered here are instrumented - for all others the wrapper methods work as before.
+ * The registered locks are referenced until they are unregistered so every registration must be paired with {@link #unregister(LockContentionStatistics)}
+ * once the lock is not used anymore. Lock names must be unique.
+ *
+ * The statistics can be read via {@link #getStatistics()} or via JMX once {@link #enableJmx()} has been called.
+ * Each lock is then exposed as an MXBean named "com.snapscore.pipeline:type=LockContention,name=[lock name]"
+ */
+public class LockContentionMonitor {
+
+    private static final Logger logger = Logger.setup(LockContentionMonitor.class);
+
+    public static final int SAMPLING_RATE_DEFAULT = 64;
+    private static final String JMX_DOMAIN = "com.snapscore.pipeline";
+
+    // keys are the locks and lock views passed to LockingWrapper; none of them overrides equals() so the lookup is by identity
+    private static final Map<Object, LockContentionStatistics> statisticsByLock = new ConcurrentHashMap<>();
+    private static final Map<String, LockContentionStatistics> statisticsByName = new ConcurrentHashMap<>();
+    private static volatile boolean jmxEnabled = false;
+
+    private LockContentionMonitor() {
+    }
+
+    /**
+     * @param samplingRate every n-th acquisition (on average) of the lock is measured
+     * @throws IllegalArgumentException if a lock with the same name is already registered
+     */
+    public static LockContentionStatistics register(String lockName, ReentrantReadWriteLock lock, int samplingRate) {
+        LockContentionStatistics statistics = new LockContentionStatistics(lockName, samplingRate, lock);
+        registerStatistics(statistics, lock, lock.readLock(), lock.writeLock());
+        return statistics;
+    }
+
+    public static LockContentionStatistics register(String lockName, ReentrantReadWriteLock lock) {
+        return register(lockName, lock, SAMPLING_RATE_DEFAULT);
+    }
+
+    /**
+     * @param samplingRate every n-th acquisition (on average) of the lock is measured
+     * @throws IllegalArgumentException if a lock with the same name is already registered
+     */
+    public static LockContentionStatistics register(String lockName, StampedLock lock, int samplingRate) {
+        LockContentionStatistics statistics = new LockContentionStatistics(lockName, samplingRate, null);
+        registerStatistics(statistics, lock);
+        return statistics;
+    }
+
+    public static LockContentionStatistics register(String lockName, StampedLock lock) {
+        return register(lockName, lock, SAMPLING_RATE_DEFAULT);
+    }
+
+    public static synchronized void unregister(String lockName) {
+        LockContentionStatistics statistics = statisticsByName.remove(lockName);
+        if (statistics != null) {
+            removeStatistics(statistics);
+        }
+    }
+
+    /**
+     * Unregisters the lock only if it is still registered with the specified statistics
+     */
+    public static synchronized void unregister(LockContentionStatistics statistics) {
+        if (statisticsByName.remove(statistics.getLockName(), statistics)) {
+            removeStatistics(statistics);
+        }
+    }
+
+    /**
+     * @return statistics of all registered locks by lock name
+     */
+    public static Map<String, LockContentionStatistics> getStatistics() {
+        return new TreeMap<>(statisticsByName);
+    }
+
+    /**
+     * Exposes statistics of all currently and subsequently registered locks via the platform MBean server
+     */
+    public static synchronized void enableJmx() {
+        if (!jmxEnabled) {
+            jmxEnabled = true;
+            statisticsByName.values().forEach(LockContentionMonitor::registerMBean);
+        }
+    }
+
+    /**
+     * @return null if the lock is not registered or the current acquisition is not to be sampled
+     */
+    static LockContentionStatistics getStatisticsIfSampled(Object lock) {
+        if (statisticsByLock.isEmpty()) {
+            return null;
+        }
+        LockContentionStatistics statistics = statisticsByLock.get(lock);
+        return statistics != null && statistics.shouldSample() ? statistics : null;
+    }
+
+    static LockContentionStatistics getStatistics(Object lock) {
+        return statisticsByLock.get(lock);
+    }
+
+    private static synchronized void registerStatistics(LockContentionStatistics statistics, Object... locks) {
+        if (statisticsByName.containsKey(statistics.getLockName())) {
+            throw new IllegalArgumentException("Lock with name " + statistics.getLockName() + " is already registered for contention monitoring!");
+        }
+        for (Object lock : locks) {
+            if (statisticsByLock.containsKey(lock)) {
+                throw new IllegalArgumentException("Lock " + statistics.getLockName() + " is already registered for contention monitoring under another name!");
+            }
+        }
+        statisticsByName.put(statistics.getLockName(), statistics);
+        for (Object lock : locks) {
+            statisticsByLock.put(lock, statistics);
+        }
+        if (jmxEnabled) {
+            registerMBean(statistics);
+        }
+    }
+
+    private static void removeStatistics(LockContentionStatistics statistics) {
+        statisticsByLock.values().removeIf(s -> s == statistics);
+        if (jmxEnabled) {
+            unregisterMBean(statistics);
+        }
+    }
+
+    private static void registerMBean(LockContentionStatistics statistics) {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = objectNameOf(statistics);
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(statistics, objectName);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to register lock contention MBean for lock {}", statistics.getLockName(), e);
+        }
+    }
+
+    private static void unregisterMBean(LockContentionStatistics statistics) {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = objectNameOf(statistics);
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to unregister lock contention MBean for lock {}", statistics.getLockName(), e);
+        }
+    }
+
+    private static ObjectName objectNameOf(LockContentionStatistics statistics) throws Exception {
+        return new ObjectName(JMX_DOMAIN + ":type=LockContention,name=" + ObjectName.quote(statistics.getLockName()));
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.snapscore.pipeline.concurrency;
+
+import com.snapscore.pipeline.utils.LatencyHistogram;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Contention data of a single lock collected by {@link LockingWrapper} for a sample of the lock acquisitions.
+ *
+ * A sampled acquisition first tries to get the lock without waiting - if that fails the acquisition is counted as contended.
+ * Wait time is measured from the start of the acquisition until the lock is held, hold time until the lock is released.
+ *
+ * @see LockContentionMonitor
+ */
+public class LockContentionStatistics implements LockContentionStatisticsMXBean {
+
+    private final String lockName;
+    private final int samplingRate;
+    private final ReentrantReadWriteLock reentrantReadWriteLock; // null for locks that cannot report their queue length
+
+    private final LatencyHistogram waitTimeHistogram = new LatencyHistogram();
+    private final LatencyHistogram holdTimeHistogram = new LatencyHistogram();
+    private final LongAdder sampledAcquisitions = new LongAdder();
+    private final LongAdder contendedAcquisitions = new LongAdder();
+    private final AtomicInteger maxQueuedThreads = new AtomicInteger();
+
+    LockContentionStatistics(String lockName, int samplingRate, ReentrantReadWriteLock reentrantReadWriteLock) {
+        this.lockName = lockName;
+        this.samplingRate = Math.max(1, samplingRate);
+        this.reentrantReadWriteLock = reentrantReadWriteLock;
+    }
+
+    boolean shouldSample() {
+        return samplingRate == 1 || ThreadLocalRandom.current().nextInt(samplingRate) == 0;
+    }
+
+    void recordAcquisition(long waitNanos, boolean contended, int queuedThreads) {
+        sampledAcquisitions.increment();
+        if (contended) {
+            contendedAcquisitions.increment();
+        }
+        waitTimeHistogram.recordNanos(waitNanos);
+        if (queuedThreads > maxQueuedThreads.get()) {
+            maxQueuedThreads.accumulateAndGet(queuedThreads, Math::max);
+        }
+    }
+
+    void recordHold(long holdNanos) {
+        holdTimeHistogram.recordNanos(holdNanos);
+    }
+
+    /**
+     * @return -1 if the lock does not provide the count of queued threads
+     */
+    @Override
+    public int getQueuedThreads() {
+        return reentrantReadWriteLock != null ? reentrantReadWriteLock.getQueueLength() : -1;
+    }
+
+    public LatencyHistogram getWaitTimeHistogram() {
+        return waitTimeHistogram;
+    }
+
+    public LatencyHistogram getHoldTimeHistogram() {
+        return holdTimeHistogram;
+    }
+
+    @Override
+    public String getLockName() {
+        return lockName;
+    }
+
+    @Override
+    public int getSamplingRate() {
+        return samplingRate;
+    }
+
+    @Override
+    public long getSampledAcquisitions() {
+        return sampledAcquisitions.sum();
+    }
+
+    @Override
+    public long getContendedAcquisitions() {
+        return contendedAcquisitions.sum();
+    }
+
+    @Override
+    public long getWaitTimeP50Micros() {
+        return toMicros(waitTimeHistogram.getPercentileNanos(50));
+    }
+
+    @Override
+    public long getWaitTimeP99Micros() {
+        return toMicros(waitTimeHistogram.getPercentileNanos(99));
+    }
+
+    @Override
+    public long getWaitTimeMaxMicros() {
+        return toMicros(waitTimeHistogram.getMaxNanos());
+    }
+
+    @Override
+    public long getHoldTimeP50Micros() {
+        return toMicros(holdTimeHistogram.getPercentileNanos(50));
+    }
+
+    @Override
+    public long getHoldTimeP99Micros() {
+        return toMicros(holdTimeHistogram.getPercentileNanos(99));
+    }
+
+    @Override
+    public long getHoldTimeMaxMicros() {
+        return toMicros(holdTimeHistogram.getMaxNanos());
+    }
+
+    @Override
+    public int getMaxQueuedThreads() {
+        return maxQueuedThreads.get();
+    }
+
+    @Override
+    public void reset() {
+        waitTimeHistogram.reset();
+        holdTimeHistogram.reset();
+        sampledAcquisitions.reset();
+        contendedAcquisitions.reset();
+        maxQueuedThreads.set(0);
+    }
+
+    private static long toMicros(long nanos) {
+        return nanos / 1_000L;
+    }
+
+    @Override
+    public String toString() {
+        return "LockContentionStatistics{" +
+                "lockName='" + lockName + '\'' +
+                ", sampledAcquisitions=" + getSampledAcquisitions() +
+                ", contendedAcquisitions=" + getContendedAcquisitions() +
+                ", waitTimeP50Micros=" + getWaitTimeP50Micros() +
+                ", waitTimeP99Micros=" + getWaitTimeP99Micros() +
+                ", waitTimeMaxMicros=" + getWaitTimeMaxMicros() +
+                ", holdTimeP50Micros=" + getHoldTimeP50Micros() +
+                ", holdTimeP99Micros=" + getHoldTimeP99Micros() +
+                ", holdTimeMaxMicros=" + getHoldTimeMaxMicros() +
+                ", maxQueuedThreads=" + getMaxQueuedThreads() +
+                '}';
+    }
+}
@@ -0,0 +1,37 @@
+package com.snapscore.pipeline.concurrency;
+
+/**
+ * JMX view of {@link LockContentionStatistics}. All durations are in microseconds
+ */
+public interface LockContentionStatisticsMXBean {
+
+    String getLockName();
+
+    int getSamplingRate();
+
+    long getSampledAcquisitions();
+
+    long getContendedAcquisitions();
+
+    long getWaitTimeP50Micros();
+
+    long getWaitTimeP99Micros();
+
+    long getWaitTimeMaxMicros();
+
+    long getHoldTimeP50Micros();
+
+    long getHoldTimeP99Micros();
+
+    long getHoldTimeMaxMicros();
+
+    /**
+     * @return -1 if the lock does not provide the count of queued threads
+     */
+    int getQueuedThreads();
+
+    int getMaxQueuedThreads();
+
+    void reset();
+
+}
@@ -3,85 +3,246 @@ package com.snapscore.pipeline.concurrency;
 import com.snapscore.pipeline.logging.Logger;
 
 import java.util.*;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
  * Contains wrapper methods for safe locking and unlocking (so we dont forget to unlock after locking)
+ *
+ * The optimisticGet... methods are {@link StampedLock} counterparts of the lockAndGet... methods for read-mostly data.
+ * They first run the supplier without any locking and only if a write happened in the meantime they run it again under the read lock.
+ * The supplier therefore runs concurrently with writes - they are only suitable for data that is safe to read while it is being written,
+ * e.g. concurrent collections or immutable snapshots replaced under the write lock. Validating the read afterwards only discards
+ * an inconsistent result - it does not make traversing a non thread-safe structure (HashMap, TreeMap, tries, ...) safe.
+ * The supplier must not modify anything and must not return lazy views of the guarded data.
+ *
+ * Contention of locks registered in {@link LockContentionMonitor} is measured for a sample of the acquisitions.
  */
 public class LockingWrapper {
 
     private static final Logger log = Logger.setup(LockingWrapper.class);
 
+    // System.nanoTime() can return any value so a value it is practically never going to return is used
+    private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
     public static <T> Optional<T> lockAndGetOptional(ReentrantReadWriteLock.ReadLock readLock, Supplier<Optional<T>> supplier, String errMsg, Object ... errMsgDetails) {
+        final long acquiredNanos = lock(readLock);
         try {
-            readLock.lock();
             return supplier.get();
         } catch (Exception e) {
             log.error(errMsg, errMsgDetails, e);
         } finally {
-            readLock.unlock();
+            unlock(readLock, acquiredNanos);
         }
         return Optional.empty();
     }
 
     public static <T> Collection<T> lockAndGetCollection(ReentrantReadWriteLock.ReadLock readLock, Supplier<Collection<T>> supplier, String errMsg, Object ... errMsgDetails) {
+        final long acquiredNanos = lock(readLock);
         try {
-            readLock.lock();
             return supplier.get();
         } catch (Exception e) {
             log.error(errMsg, errMsgDetails, e);
         } finally {
-            readLock.unlock();
+            unlock(readLock, acquiredNanos);
         }
         return Collections.emptyList();
     }
 
     public static <T> List<T> lockAndGetList(ReentrantReadWriteLock.ReadLock readLock, Supplier<List<T>> supplier, String errMsg, Object ... errMsgDetails) {
+        final long acquiredNanos = lock(readLock);
         try {
-            readLock.lock();
             return supplier.get();
         } catch (Exception e) {
             log.error(errMsg, errMsgDetails, e);
         } finally {
-            readLock.unlock();
+            unlock(readLock, acquiredNanos);
         }
         return Collections.emptyList();
     }
 
     public static <K, T> Map<K, Map<K, T>> lockAndGetNestedMap(ReentrantReadWriteLock.ReadLock readLock, Supplier<Map<K, Map<K, T>>> supplier, String errMsg, Object ... errMsgDetails) {
+        final long acquiredNanos = lock(readLock);
         try {
-            readLock.lock();
             return supplier.get();
         } catch (Exception e) {
             log.error(errMsg, errMsgDetails, e);
         } finally {
-            readLock.unlock();
+            unlock(readLock, acquiredNanos);
         }
         return Collections.emptyMap();
     }
 
     public static boolean lockAndWriteAndGetBoolean(ReentrantReadWriteLock.WriteLock writeLock, Supplier<Boolean> supplier, String errMsg, Object ... errMsgDetails) {
+        final long acquiredNanos = lock(writeLock);
         try {
-            writeLock.lock();
             return supplier.get();
         } catch (Exception e) {
             log.error(errMsg, errMsgDetails, e);
         } finally {
-            writeLock.unlock();
+            unlock(writeLock, acquiredNanos);
         }
         return false;
     }
 
     public static <T> void lockAndWrite(ReentrantReadWriteLock.WriteLock writeLock, Consumer<T> consumer, T data, String errMsg, Object ... errMsgDetails) {
+        final long acquiredNanos = lock(writeLock);
         try {
-            writeLock.lock();
             consumer.accept(data);
         } catch (Exception e) {
             log.error(errMsg, errMsgDetails, e);
         } finally {
-            writeLock.unlock();
+            unlock(writeLock, acquiredNanos);
         }
     }
+
+    public static <T> Optional<T> optimisticGetOptional(StampedLock stampedLock, Supplier<Optional<T>> supplier, String errMsg, Object ... errMsgDetails) {
+        return optimisticGet(stampedLock, supplier, Optional.empty(), errMsg, errMsgDetails);
+    }
+
+    public static <T> Collection<T> optimisticGetCollection(StampedLock stampedLock, Supplier<Collection<T>> supplier, String errMsg, Object ... errMsgDetails) {
+        return optimisticGet(stampedLock, supplier, Collections.emptyList(), errMsg, errMsgDetails);
+    }
+
+    public static <T> List<T> optimisticGetList(StampedLock stampedLock, Supplier<List<T>> supplier, String errMsg, Object ... errMsgDetails) {
+        return optimisticGet(stampedLock, supplier, Collections.emptyList(), errMsg, errMsgDetails);
+    }
+
+    public static <K, T> Map<K, Map<K, T>> optimisticGetNestedMap(StampedLock stampedLock, Supplier<Map<K, Map<K, T>>> supplier, String errMsg, Object ... errMsgDetails) {
+        return optimisticGet(stampedLock, supplier, Collections.emptyMap(), errMsg, errMsgDetails);
+    }
+
+    public static boolean lockAndWriteAndGetBoolean(StampedLock stampedLock, Supplier<Boolean> supplier, String errMsg, Object ... errMsgDetails) {
+        final StampedLockHold hold = writeLock(stampedLock);
+        try {
+            return supplier.get();
+        } catch (Exception e) {
+            log.error(errMsg, errMsgDetails, e);
+        } finally {
+            unlockWrite(stampedLock, hold);
+        }
+        return false;
+    }
+
+    public static <T> void lockAndWrite(StampedLock stampedLock, Consumer<T> consumer, T data, String errMsg, Object ... errMsgDetails) {
+        final StampedLockHold hold = writeLock(stampedLock);
+        try {
+            consumer.accept(data);
+        } catch (Exception e) {
+            log.error(errMsg, errMsgDetails, e);
+        } finally {
+            unlockWrite(stampedLock, hold);
+        }
+    }
+
+    private static <R> R optimisticGet(StampedLock stampedLock, Supplier<R> supplier, R fallbackResult, String errMsg, Object ... errMsgDetails) {
+        long stamp = stampedLock.tryOptimisticRead();
+        if (stamp != 0L) { // zero if write locked at the moment
+            try {
+                R result = supplier.get();
+                if (stampedLock.validate(stamp)) {
+                    return result;
+                }
+            } catch (Exception e) {
+                if (stampedLock.validate(stamp)) {
+                    // the data was consistent so the error is not caused by a concurrent write
+                    log.error(errMsg, errMsgDetails, e);
+                    return fallbackResult;
+                }
+            }
+        }
+        final StampedLockHold hold = readLock(stampedLock);
+        try {
+            return supplier.get();
+        } catch (Exception e) {
+            log.error(errMsg, errMsgDetails, e);
+        } finally {
+            unlockRead(stampedLock, hold);
+        }
+        return fallbackResult;
+    }
+
+    private static long lock(Lock lock) {
+        LockContentionStatistics statistics = LockContentionMonitor.getStatisticsIfSampled(lock);
+        if (statistics == null) {
+            lock.lock();
+            return NOT_SAMPLED;
+        }
+        int queuedThreads = statistics.getQueuedThreads();
+        long startNanos = System.nanoTime();
+        boolean contended = !lock.tryLock();
+        if (contended) {
+            lock.lock();
+        }
+        long acquiredNanos = System.nanoTime();
+        statistics.recordAcquisition(acquiredNanos - startNanos, contended, queuedThreads);
+        return acquiredNanos;
+    }
+
+    private static void unlock(Lock lock, long acquiredNanos) {
+        lock.unlock();
+        if (acquiredNanos != NOT_SAMPLED) {
+            recordHold(lock, acquiredNanos);
+        }
+    }
+
+    private static StampedLockHold readLock(StampedLock stampedLock) {
+        LockContentionStatistics statistics = LockContentionMonitor.getStatisticsIfSampled(stampedLock);
+        if (statistics == null) {
+            return new StampedLockHold(stampedLock.readLock(), NOT_SAMPLED);
+        }
+        long startNanos = System.nanoTime();
+        long stamp = stampedLock.tryReadLock();
+        boolean contended = stamp == 0L;
+        if (contended) {
+            stamp = stampedLock.readLock();
+        }
+        long acquiredNanos = System.nanoTime();
+        statistics.recordAcquisition(acquiredNanos - startNanos, contended, -1);
+        return new StampedLockHold(stamp, acquiredNanos);
+    }
+
+    private static StampedLockHold writeLock(StampedLock stampedLock) {
+        LockContentionStatistics statistics = LockContentionMonitor.getStatisticsIfSampled(stampedLock);
+        if (statistics == null) {
+            return new StampedLockHold(stampedLock.writeLock(), NOT_SAMPLED);
+        }
+        long startNanos = System.nanoTime();
+        long stamp = stampedLock.tryWriteLock();
+        boolean contended = stamp == 0L;
+        if (contended) {
+            stamp = stampedLock.writeLock();
+        }
+        long acquiredNanos = System.nanoTime();
+        statistics.recordAcquisition(acquiredNanos - startNanos, contended, -1);
+        return new StampedLockHold(stamp, acquiredNanos);
+    }
+
+    private static void unlockRead(StampedLock stampedLock, StampedLockHold hold) {
+        stampedLock.unlockRead(hold.stamp);
+        if (hold.acquiredNanos != NOT_SAMPLED) {
+            recordHold(stampedLock, hold.acquiredNanos);
+        }
+    }
+
+    private static void unlockWrite(StampedLock stampedLock, StampedLockHold hold) {
+        stampedLock.unlockWrite(hold.stamp);
+        if (hold.acquiredNanos != NOT_SAMPLED) {
+            recordHold(stampedLock, hold.acquiredNanos);
+        }
+    }
+
+    private static void recordHold(Object lock, long acquiredNanos) {
+        long holdNanos = System.nanoTime() - acquiredNanos;
+        LockContentionStatistics statistics = LockContentionMonitor.getStatistics(lock);
+        if (statistics != null) {
+            statistics.recordHold(holdNanos);
+        }
+    }
+
+    private record StampedLockHold(long stamp, long acquiredNanos) {
+    }
 }
@@ -37,6 +37,16 @@ public class LoggingInfo {
         }
     }
 
+    /**
+     * Logs the time it took from enqueueing the input until the end of its processing
+     */
+    void logProcessingTime(Logger logger, long itemEnqueuedTs) {
+        if (logActivity) {
+            final long processingTimeMillis = System.currentTimeMillis() - itemEnqueuedTs;
+            decorate(logger).decorateSetup(props -> props.analyticsId("input_processing_time").exec(Long.toString(processingTimeMillis))).info("Input took {} ms to process: {}", processingTimeMillis, inputDescription);
+        }
+    }
+
     static Builder builder() {
         return new Builder();
     }
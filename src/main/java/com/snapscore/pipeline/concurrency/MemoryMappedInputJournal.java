@@ -0,0 +1,302 @@
+package com.snapscore.pipeline.concurrency;
+
+import com.snapscore.pipeline.logging.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link InputJournal} backed by a memory-mapped file so that appending an entry is just a memory copy.
+ *
+ * Entry layout: [type: byte][entry id: long][length: int][serialized input: length bytes]
+ * <br> - the type byte is written last so that a partially written entry is never read back
+ * <br> - a completed entry is only flagged in place by rewriting its type byte
+ * <br> - once all entries are completed the journal is truncated by starting to append from the beginning of the file again
+ * <br> - when the file is full the uncompleted entries are copied to a new file (growing it if needed) which then atomically replaces the old one
+ * <br> - entry ids can be reserved up front without waiting for a rewrite in progress; the entries are replayed in the order of their ids
+ *   regardless of the order in which they were written
+ *
+ * The data is written to the OS page cache without forcing it to the disk so the journal survives a crash / restart
+ * of the process but not of the whole machine.
+ */
+public class MemoryMappedInputJournal implements InputJournal {
+
+    private static final Logger logger = Logger.setup(MemoryMappedInputJournal.class);
+
+    public static final int INITIAL_CAPACITY_BYTES_DEFAULT = 16 * 1024 * 1024;
+
+    private static final byte TYPE_END = 0;
+    private static final byte TYPE_ENQUEUED = 1;
+    private static final byte TYPE_COMPLETED = 2;
+    private static final int HEADER_BYTES = 1 + Long.BYTES + Integer.BYTES;
+    // null if mapped buffers cannot be unmapped explicitly on this JVM - they are then unmapped once garbage collected
+    private static final Method INVOKE_CLEANER;
+    private static final Object UNSAFE;
+
+    static {
+        Method invokeCleaner = null;
+        Object unsafe = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (Exception e) {
+            logger.warn("Mapped input journal files cannot be unmapped explicitly - they stay mapped until garbage collected", e);
+        }
+        INVOKE_CLEANER = invokeCleaner;
+        UNSAFE = invokeCleaner != null ? unsafe : null;
+    }
+
+    private final Path path;
+    private final AtomicLong nextEntryId = new AtomicLong(1L);
+    // all below guarded by "this"
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int writePosition;
+    // reserved entries that have not been appended yet
+    private final Set<Long> reservedEntryIds = new HashSet<>();
+    // reserved entries that got completed before they were appended -> they are not appended at all
+    private final Set<Long> completedReservedEntryIds = new HashSet<>();
+    private final Map<Long, Integer> uncompletedEntryPositions = new TreeMap<>();
+
+    /**
+     * Opens an existing journal file or creates a new one
+     *
+     * @param initialCapacityBytes must be positive; the journal grows by doubling its capacity
+     */
+    public MemoryMappedInputJournal(Path path, int initialCapacityBytes) {
+        if (initialCapacityBytes <= 0) {
+            throw new IllegalArgumentException("Initial capacity of input journal must be positive: " + initialCapacityBytes);
+        }
+        this.path = path;
+        try {
+            int capacity = (int) Math.max(initialCapacityBytes, Files.exists(path) ? Files.size(path) : 0L);
+            this.channel = openChannel(path);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open input journal " + path, e);
+        }
+        recover();
+    }
+
+    public MemoryMappedInputJournal(Path path) {
+        this(path, INITIAL_CAPACITY_BYTES_DEFAULT);
+    }
+
+    /**
+     * Does not wait for an append or a rewrite of the journal in progress
+     */
+    @Override
+    public long reserveEntryId() {
+        final long entryId = nextEntryId.getAndIncrement();
+        synchronized (reservedEntryIds) {
+            reservedEntryIds.add(entryId);
+        }
+        return entryId;
+    }
+
+    @Override
+    public synchronized void append(long entryId, byte[] serializedInput) {
+        synchronized (reservedEntryIds) {
+            if (!reservedEntryIds.remove(entryId)) {
+                throw new IllegalArgumentException("Entry id " + entryId + " has not been reserved in input journal " + path + " or it has been appended already");
+            }
+        }
+        if (completedReservedEntryIds.remove(entryId)) {
+            return; // already processed - nothing to replay
+        }
+        final int entryBytes = HEADER_BYTES + serializedInput.length;
+        if (writePosition + entryBytes > buffer.capacity()) {
+            rewrite(entryBytes);
+        }
+        final int position = writePosition;
+        writePosition += entryBytes;
+        if (writePosition < buffer.capacity()) {
+            buffer.put(writePosition, TYPE_END);
+        }
+        buffer.putLong(position + 1, entryId);
+        buffer.putInt(position + 1 + Long.BYTES, serializedInput.length);
+        buffer.put(position + HEADER_BYTES, serializedInput);
+        buffer.put(position, TYPE_ENQUEUED);
+        uncompletedEntryPositions.put(entryId, position);
+    }
+
+    @Override
+    public synchronized void complete(long entryId) {
+        Integer position = uncompletedEntryPositions.remove(entryId);
+        if (position == null) {
+            boolean reserved;
+            synchronized (reservedEntryIds) {
+                reserved = reservedEntryIds.contains(entryId);
+            }
+            if (reserved) {
+                completedReservedEntryIds.add(entryId);
+            }
+            return;
+        }
+        if (uncompletedEntryPositions.isEmpty()) {
+            // nothing left to replay -> truncate
+            buffer.put(0, TYPE_END);
+            writePosition = 0;
+        } else {
+            buffer.put(position, TYPE_COMPLETED);
+        }
+    }
+
+    @Override
+    public synchronized List<Entry> readUncompleted() {
+        List<Entry> entries = new ArrayList<>(uncompletedEntryPositions.size());
+        for (Map.Entry<Long, Integer> positionEntry : uncompletedEntryPositions.entrySet()) {
+            entries.add(new Entry(positionEntry.getKey(), readSerializedInput(positionEntry.getValue())));
+        }
+        return entries;
+    }
+
+    public synchronized int getUncompletedEntryCount() {
+        return uncompletedEntryPositions.size();
+    }
+
+    public synchronized int getCapacityBytes() {
+        return buffer.capacity();
+    }
+
+    /**
+     * The journal must not be used anymore once closed
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            logger.error("Error closing input journal {}", path, e);
+        }
+        unmap(buffer);
+        buffer = null;
+    }
+
+    private void recover() {
+        int position = 0;
+        while (position + HEADER_BYTES <= buffer.capacity()) {
+            byte type = buffer.get(position);
+            if (type != TYPE_ENQUEUED && type != TYPE_COMPLETED) {
+                break;
+            }
+            long entryId = buffer.getLong(position + 1);
+            int length = buffer.getInt(position + 1 + Long.BYTES);
+            if (length < 0 || position + HEADER_BYTES + length > buffer.capacity()) {
+                logger.warn("Found corrupted entry at position {} of input journal {} - ignoring the rest of the journal", position, path);
+                break;
+            }
+            if (type == TYPE_ENQUEUED) {
+                uncompletedEntryPositions.put(entryId, position);
+            }
+            if (entryId >= nextEntryId.get()) {
+                nextEntryId.set(entryId + 1);
+            }
+            position += HEADER_BYTES + length;
+        }
+        if (uncompletedEntryPositions.isEmpty()) {
+            buffer.put(0, TYPE_END);
+            writePosition = 0;
+        } else {
+            writePosition = position;
+            if (writePosition < buffer.capacity()) {
+                buffer.put(writePosition, TYPE_END);
+            }
+            logger.info("Recovered {} uncompleted entries from input journal {}", uncompletedEntryPositions.size(), path);
+        }
+    }
+
+    /**
+     * Copies the uncompleted entries to a new file big enough to also fit an entry of the specified size
+     */
+    private void rewrite(int nextEntryBytes) {
+        int uncompletedBytes = 0;
+        for (Integer position : uncompletedEntryPositions.values()) {
+            uncompletedBytes += entryBytesAt(position);
+        }
+        long requiredCapacity = (long) uncompletedBytes + nextEntryBytes;
+        long newCapacity = buffer.capacity();
+        while (newCapacity < 2 * requiredCapacity) {
+            newCapacity *= 2;
+        }
+        if (newCapacity > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Input journal " + path + " cannot grow beyond " + Integer.MAX_VALUE + " bytes");
+        }
+        final Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.deleteIfExists(tmpPath);
+            FileChannel newChannel = openChannel(tmpPath);
+            MappedByteBuffer newBuffer = newChannel.map(FileChannel.MapMode.READ_WRITE, 0, newCapacity);
+            Map<Long, Integer> newPositions = new TreeMap<>();
+            int newPosition = 0;
+            for (Map.Entry<Long, Integer> positionEntry : uncompletedEntryPositions.entrySet()) {
+                int entryBytes = entryBytesAt(positionEntry.getValue());
+                newBuffer.put(newPosition, buffer, positionEntry.getValue(), entryBytes);
+                newPositions.put(positionEntry.getKey(), newPosition);
+                newPosition += entryBytes;
+            }
+            newBuffer.put(newPosition, TYPE_END);
+            newBuffer.force();
+            Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel.close();
+            unmap(buffer);
+            channel = newChannel;
+            buffer = newBuffer;
+            writePosition = newPosition;
+            uncompletedEntryPositions.clear();
+            uncompletedEntryPositions.putAll(newPositions);
+            logger.info("Rewrote input journal {}; capacity = {} bytes; uncompleted entries = {}", path, newCapacity, newPositions.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to rewrite input journal " + path, e);
+        }
+    }
+
+    private int entryBytesAt(int position) {
+        return HEADER_BYTES + buffer.getInt(position + 1 + Long.BYTES);
+    }
+
+    private byte[] readSerializedInput(int position) {
+        byte[] serializedInput = new byte[buffer.getInt(position + 1 + Long.BYTES)];
+        buffer.get(position + HEADER_BYTES, serializedInput);
+        return serializedInput;
+    }
+
+    /**
+     * The buffer must not be accessed anymore - accessing an unmapped buffer crashes the JVM
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (Exception e) {
+            logger.warn("Failed to unmap input journal buffer - it stays mapped until garbage collected", e);
+        }
+    }
+
+    private static FileChannel openChannel(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.snapscore.pipeline.concurrency;
+
+/**
+ * Decides what happens with an input submitted to {@link PartitionedSequentialProcessor} on a node that does not own the input's partition.
+ * Implementations can e.g. forward the input to the owning node.
+ */
+@FunctionalInterface
+public interface NonOwnedInputHandler {
+
+    /**
+     * @param ownerNodeId the node currently owning the partition of the partitionKey; null if there are no members at all
+     * @return true if the input was accepted (e.g. forwarded); false if it was rejected
+     */
+    boolean handle(String ownerNodeId, String partitionKey, SequentialInput<?, ?> sequentialInput);
+
+}
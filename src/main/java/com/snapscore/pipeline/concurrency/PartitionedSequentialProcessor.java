@@ -0,0 +1,356 @@
+package com.snapscore.pipeline.concurrency;
+
+import com.snapscore.pipeline.logging.Logger;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Partition ownership layer on top of a {@link ConcurrentSequentialProcessor} for running multiple instances of the same service.
+ *
+ * Every input is submitted with a partition key (e.g. match id). Keys are hashed into a fixed number of partitions
+ * and the partitions are assigned to the member nodes supplied by a {@link ClusterMembershipSource} by consistent hashing.
+ * Inputs of partitions owned by the local node are processed by the wrapped processor; inputs of other partitions
+ * are passed to the {@link NonOwnedInputHandler} which can forward them to the owner or reject them.
+ *
+ * When the membership changes:
+ * <br> - partitions lost by this node stop accepting new inputs immediately while their already enqueued inputs keep being processed (draining)
+ * <br> - partitions gained by this node buffer their inputs for the handover delay so that the previous owner has time to drain them first
+ */
+public class PartitionedSequentialProcessor {
+
+    private static final Logger logger = Logger.setup(PartitionedSequentialProcessor.class);
+
+    public static final int PARTITION_COUNT_DEFAULT = 271;
+
+    private final String name;
+    private final String localNodeId;
+    private final ConcurrentSequentialProcessor processor;
+    private final NonOwnedInputHandler nonOwnedInputHandler;
+    private final int partitionCount;
+    private final Duration handoverDelay;
+
+    private final Object ownershipLock = new Object();
+    // guarded by "ownershipLock"
+    private final String[] ownerByPartition;
+    // guarded by "ownershipLock"
+    private final PartitionState[] partitionStates;
+    // guarded by "ownershipLock"; needed to ignore handovers scheduled by previous rebalancing
+    private final long[] handoverGenerationByPartition;
+    // guarded by "ownershipLock"
+    private final Map<Integer, List<PendingInput>> awaitingHandoverInputsByPartition = new HashMap<>();
+    // guarded by "ownershipLock"
+    private long rebalanceGeneration = 0L;
+
+    private final AtomicIntegerArray unprocessedInputsByPartition;
+    private final Set<Integer> drainingPartitions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param localNodeId                 id of this node as it appears in the membership source
+     * @param nonOwnedInputHandler        handles inputs of partitions not owned by this node
+     * @param partitionCount              fixed number of partitions the keys are hashed into; must be the same on all nodes
+     * @param handoverDelay               how long inputs of newly gained partitions are held back so that the previous owner can drain them
+     */
+    public PartitionedSequentialProcessor(String name,
+                                          String localNodeId,
+                                          ConcurrentSequentialProcessor processor,
+                                          ClusterMembershipSource membershipSource,
+                                          NonOwnedInputHandler nonOwnedInputHandler,
+                                          int partitionCount,
+                                          Duration handoverDelay) {
+        this.name = name;
+        this.localNodeId = localNodeId;
+        this.processor = processor;
+        this.nonOwnedInputHandler = nonOwnedInputHandler;
+        this.partitionCount = partitionCount;
+        this.handoverDelay = handoverDelay;
+        this.ownerByPartition = new String[partitionCount];
+        this.partitionStates = new PartitionState[partitionCount];
+        this.handoverGenerationByPartition = new long[partitionCount];
+        this.unprocessedInputsByPartition = new AtomicIntegerArray(partitionCount);
+        Arrays.fill(this.partitionStates, PartitionState.NOT_OWNED);
+        synchronized (ownershipLock) {
+            rebalance(membershipSource.getMemberNodeIds(), true);
+        }
+        membershipSource.addMembershipChangeListener(this::onMembershipChange);
+    }
+
+    /**
+     * Uses the default partition count and rejects all inputs that are not owned by this node
+     */
+    public PartitionedSequentialProcessor(String name,
+                                          String localNodeId,
+                                          ConcurrentSequentialProcessor processor,
+                                          ClusterMembershipSource membershipSource,
+                                          Duration handoverDelay) {
+        this(name, localNodeId, processor, membershipSource, rejectingHandler(name), PARTITION_COUNT_DEFAULT, handoverDelay);
+    }
+
+    /**
+     * @param partitionKey identifies the entity whose inputs need to be processed sequentially - e.g. a match id
+     * @return true if the input was accepted for processing by this node or by the {@link NonOwnedInputHandler}
+     * @throws java.util.concurrent.RejectedExecutionException if the input is owned by this node and the wrapped processor has been shut down
+     */
+    public <I, R> boolean processSequentiallyAsync(String partitionKey, SequentialInput<I, R> sequentialInput) {
+        final int partition = getPartitionOf(partitionKey);
+        final String ownerNodeId;
+        synchronized (ownershipLock) {
+            switch (partitionStates[partition]) {
+                case OWNED -> {
+                    unprocessedInputsByPartition.incrementAndGet(partition);
+                    ownerNodeId = localNodeId;
+                }
+                case AWAITING_HANDOVER -> {
+                    awaitingHandoverInputsByPartition.computeIfAbsent(partition, p -> new ArrayList<>()).add(new PendingInput(localNodeId, partitionKey, sequentialInput));
+                    return true;
+                }
+                default -> ownerNodeId = ownerByPartition[partition];
+            }
+        }
+        if (localNodeId.equals(ownerNodeId)) {
+            submitTracked(partition, sequentialInput);
+            return true;
+        } else {
+            return handleNonOwned(ownerNodeId, partitionKey, sequentialInput);
+        }
+    }
+
+    public int getPartitionOf(String partitionKey) {
+        return Math.floorMod(ConsistentHashRing.hash(partitionKey), partitionCount);
+    }
+
+    /**
+     * @return the id of the node owning the partition of the specified key or null if there are no members
+     */
+    public String getOwnerOf(String partitionKey) {
+        synchronized (ownershipLock) {
+            return ownerByPartition[getPartitionOf(partitionKey)];
+        }
+    }
+
+    public boolean isOwnedLocally(String partitionKey) {
+        return localNodeId.equals(getOwnerOf(partitionKey));
+    }
+
+    public int getOwnedPartitionsCount() {
+        synchronized (ownershipLock) {
+            int count = 0;
+            for (String owner : ownerByPartition) {
+                if (localNodeId.equals(owner)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * @return partitions no longer owned by this node that still have some inputs being processed
+     */
+    public Set<Integer> getDrainingPartitions() {
+        return Set.copyOf(drainingPartitions);
+    }
+
+    public ConcurrentSequentialProcessor getProcessor() {
+        return processor;
+    }
+
+    private void onMembershipChange(Set<String> memberNodeIds) {
+        List<PendingInput> inputsOfLostPartitions;
+        synchronized (ownershipLock) {
+            inputsOfLostPartitions = rebalance(memberNodeIds, false);
+        }
+        for (PendingInput pendingInput : inputsOfLostPartitions) {
+            handleNonOwned(pendingInput.ownerNodeId, pendingInput.partitionKey, pendingInput.sequentialInput);
+        }
+    }
+
+    /**
+     * must be called while holding "ownershipLock"
+     *
+     * @return inputs that were awaiting handover of partitions that are not owned by this node anymore
+     */
+    private List<PendingInput> rebalance(Set<String> memberNodeIds, boolean initial) {
+        final long generation = ++rebalanceGeneration;
+        final ConsistentHashRing ring = new ConsistentHashRing(memberNodeIds);
+        if (!memberNodeIds.contains(localNodeId)) {
+            logger.warn("{}: Local node {} is not among cluster members {} - it will not own any partitions", this.name, localNodeId, memberNodeIds);
+        }
+        final List<PendingInput> inputsOfLostPartitions = new ArrayList<>();
+        int gainedCount = 0;
+        int lostCount = 0;
+        for (int partition = 0; partition < partitionCount; partition++) {
+            final String newOwner = ring.getNodeFor("partition-" + partition);
+            final boolean ownedBefore = partitionStates[partition] != PartitionState.NOT_OWNED;
+            final boolean ownedNow = localNodeId.equals(newOwner);
+            ownerByPartition[partition] = newOwner;
+            if (ownedNow && !ownedBefore) {
+                gainedCount++;
+                if (initial || handoverDelay.isZero() || handoverDelay.isNegative()) {
+                    partitionStates[partition] = PartitionState.OWNED;
+                } else {
+                    partitionStates[partition] = PartitionState.AWAITING_HANDOVER;
+                    handoverGenerationByPartition[partition] = generation;
+                    scheduleHandover(partition, generation);
+                }
+            } else if (!ownedNow && ownedBefore) {
+                lostCount++;
+                if (partitionStates[partition] == PartitionState.AWAITING_HANDOVER) {
+                    List<PendingInput> awaitingInputs = awaitingHandoverInputsByPartition.remove(partition);
+                    if (awaitingInputs != null) {
+                        for (PendingInput awaitingInput : awaitingInputs) {
+                            inputsOfLostPartitions.add(new PendingInput(newOwner, awaitingInput.partitionKey, awaitingInput.sequentialInput));
+                        }
+                    }
+                }
+                partitionStates[partition] = PartitionState.NOT_OWNED;
+                startDraining(partition);
+            }
+        }
+        logger.info("{}: Rebalanced partitions for members {}; local node {} gained {} and lost {} partitions; draining partitions = {}", this.name, memberNodeIds, localNodeId, gainedCount, lostCount, drainingPartitions.size());
+        return inputsOfLostPartitions;
+    }
+
+    private void startDraining(int partition) {
+        if (unprocessedInputsByPartition.get(partition) > 0) {
+            drainingPartitions.add(partition);
+            // the last input might have finished in the meantime
+            if (unprocessedInputsByPartition.get(partition) == 0) {
+                drainingPartitions.remove(partition);
+            }
+        }
+    }
+
+    private void scheduleHandover(int partition, long generation) {
+        Mono.delay(handoverDelay).subscribe(tick -> completeHandover(partition, generation), error -> {
+            logger.error("{}: Error in scheduled handover of partition {}", this.name, partition, error);
+            completeHandover(partition, generation);
+        });
+    }
+
+    private void completeHandover(int partition, long generation) {
+        synchronized (ownershipLock) {
+            if (partitionStates[partition] != PartitionState.AWAITING_HANDOVER || handoverGenerationByPartition[partition] != generation) {
+                return; // ownership changed again in the meantime
+            }
+            List<PendingInput> awaitingInputs = awaitingHandoverInputsByPartition.remove(partition);
+            if (awaitingInputs != null) {
+                // submitted while holding the lock so that no newer input of this partition can overtake them
+                for (PendingInput awaitingInput : awaitingInputs) {
+                    unprocessedInputsByPartition.incrementAndGet(partition);
+                    try {
+                        submitTracked(partition, awaitingInput.sequentialInput);
+                    } catch (RuntimeException e) {
+                        logger.error("{}: Error submitting input with key {} awaiting handover of partition {}", this.name, awaitingInput.partitionKey, partition, e);
+                    }
+                }
+            }
+            partitionStates[partition] = PartitionState.OWNED;
+        }
+    }
+
+    /**
+     * The input must already be counted as unprocessed - it is uncounted again if the processor does not accept it
+     */
+    private <I, R> void submitTracked(int partition, SequentialInput<I, R> sequentialInput) {
+        try {
+            processor.processSequentiallyAsync(tracked(partition, sequentialInput));
+        } catch (RuntimeException e) {
+            onInputFinished(partition);
+            throw e;
+        }
+    }
+
+    private <I, R> SequentialInput<I, R> tracked(int partition, SequentialInput<I, R> sequentialInput) {
+        return sequentialInput.withInputProcessingRunner(new PartitionTrackingRunner<>(sequentialInput.inputProcessingRunner, () -> onInputFinished(partition)));
+    }
+
+    private void onInputFinished(int partition) {
+        if (unprocessedInputsByPartition.decrementAndGet(partition) == 0 && drainingPartitions.remove(partition)) {
+            logger.info("{}: Finished draining partition {}", this.name, partition);
+        }
+    }
+
+    private boolean handleNonOwned(String ownerNodeId, String partitionKey, SequentialInput<?, ?> sequentialInput) {
+        try {
+            return nonOwnedInputHandler.handle(ownerNodeId, partitionKey, sequentialInput);
+        } catch (Exception e) {
+            logger.error("{}: Error handling input not owned by local node {}; owner = {}; key = {}", this.name, localNodeId, ownerNodeId, partitionKey, e);
+            return false;
+        }
+    }
+
+    private static NonOwnedInputHandler rejectingHandler(String name) {
+        return (ownerNodeId, partitionKey, sequentialInput) -> {
+            logger.decorateSetup(mdc -> mdc.analyticsId("rejected_non_owned_input")).info("{}: Rejecting input with key {} owned by node {}", name, partitionKey, ownerNodeId);
+            return false;
+        };
+    }
+
+
+    private enum PartitionState {
+        OWNED,
+        AWAITING_HANDOVER,
+        NOT_OWNED
+    }
+
+    private static class PendingInput {
+
+        private final String ownerNodeId;
+        private final String partitionKey;
+        private final SequentialInput<?, ?> sequentialInput;
+
+        private PendingInput(String ownerNodeId, String partitionKey, SequentialInput<?, ?> sequentialInput) {
+            this.ownerNodeId = ownerNodeId;
+            this.partitionKey = partitionKey;
+            this.sequentialInput = sequentialInput;
+        }
+    }
+
+    /**
+     * Delegates the processing and keeps track of when the input is finished or removed from its queue unprocessed
+     */
+    private static class PartitionTrackingRunner<I, R> extends InputProcessingRunner<I, R> {
+
+        private final InputProcessingRunner<I, R> delegate;
+        private final Runnable onFinished;
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+
+        private PartitionTrackingRunner(InputProcessingRunner<I, R> delegate, Runnable onFinished) {
+            this.delegate = delegate;
+            this.onFinished = onFinished;
+        }
+
+        @Override
+        protected void run(Runnable onTerminateHook, Runnable onCancelHook, long itemEnqueuedTs) {
+            delegate.run(
+                    () -> {
+                        finish();
+                        onTerminateHook.run();
+                    },
+                    () -> {
+                        finish();
+                        onCancelHook.run();
+                    },
+                    itemEnqueuedTs
+            );
+        }
+
+        @Override
+        void onRemovedUnprocessed() {
+            finish();
+            delegate.onRemovedUnprocessed();
+        }
+
+        private void finish() {
+            if (finished.compareAndSet(false, true)) {
+                onFinished.run();
+            }
+        }
+    }
+
+}
@@ -2,11 +2,14 @@ package com.snapscore.pipeline.concurrency;
 
 import com.snapscore.pipeline.logging.Logger;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Scheduler;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Holds data that will be processed in parallel but also in a strictly sequential order defined by the specified
@@ -35,6 +38,17 @@ public class SequentialInput<I, R> {
         this.loggingInfo = loggingInfo;
     }
 
+    public I getInput() {
+        return input;
+    }
+
+    /**
+     * @return copy of this input that will be processed by the specified runner
+     */
+    SequentialInput<I, R> withInputProcessingRunner(InputProcessingRunner<I, R> inputProcessingRunnerNew) {
+        return new SequentialInput<>(this.input, this.inputQueueResolver, inputProcessingRunnerNew, this.loggingInfo);
+    }
+
     public static <I, R> BuilderForFlux<I, R> newBuilder(I input, InputQueueResolver<I> inputQueueResolver, Function<I, Flux<R>> processingFluxCreator) {
         return new BuilderForFlux<>(input, inputQueueResolver, processingFluxCreator);
     }
@@ -43,6 +57,30 @@ public class SequentialInput<I, R> {
         return new BuilderForCallable<>(input, inputQueueResolver, inputProcessing);
     }
 
+    /**
+     * Lean alternative to the Callable based builder for processing that is already async and returns a CompletableFuture
+     * @see InputProcessingFutureRunner
+     */
+    public static <I, R> BuilderForFuture<I, R> newBuilderForFuture(I input, InputQueueResolver<I> inputQueueResolver, Supplier<CompletableFuture<R>> inputProcessing) {
+        return new BuilderForFuture<>(input, inputQueueResolver, inputProcessing);
+    }
+
+    /**
+     * Lean alternative to the Flux based builder for processing that emits a single value
+     * @see InputProcessingMonoRunner
+     */
+    public static <I, R> BuilderForMono<I, R> newBuilderForMono(I input, InputQueueResolver<I> inputQueueResolver, Function<I, Mono<R>> processingMonoCreator) {
+        return new BuilderForMono<>(input, inputQueueResolver, processingMonoCreator);
+    }
+
+    /**
+     * Lean alternative for processing that does not produce any result
+     * @see InputProcessingRunnableRunner
+     */
+    public static <I> BuilderForRunnable<I> newBuilderForRunnable(I input, InputQueueResolver<I> inputQueueResolver, Runnable inputProcessing) {
+        return new BuilderForRunnable<>(input, inputQueueResolver, inputProcessing);
+    }
+
 
     private static class Builder<I, R> {
 
@@ -156,5 +194,169 @@ public class SequentialInput<I, R> {
 
     }
 
-}
 
+    public static class BuilderForFuture<I, R> extends Builder<I, R> {
+
+        private final Supplier<CompletableFuture<R>> inputProcessing;
+        private Consumer<? super R> resultConsumer;
+        private Consumer<? super Throwable> errorConsumer;
+
+        public BuilderForFuture(I input, InputQueueResolver<I> inputQueueResolver, Supplier<CompletableFuture<R>> inputProcessing) {
+            super(input, inputQueueResolver);
+            this.inputProcessing = inputProcessing;
+        }
+
+        public BuilderForFuture<I, R> setResultConsumer(Consumer<? super R> resultConsumer) {
+            this.resultConsumer = resultConsumer;
+            return this;
+        }
+
+        public BuilderForFuture<I, R> setErrorConsumer(Consumer<? super Throwable> errorConsumer) {
+            this.errorConsumer = errorConsumer;
+            return this;
+        }
+
+        public BuilderForFuture<I, R> setLogActivity(boolean logActivity) {
+            this.loggingInfoBuilder.setLogActivity(logActivity);
+            return this;
+        }
+
+        public BuilderForFuture<I, R> setInputLoggingDescription(String inputDescription) {
+            this.loggingInfoBuilder.setInputDescription(inputDescription);
+            this.setLogActivity(true);
+            return this;
+        }
+
+        public BuilderForFuture<I, R> setLoggerDecorator(Function<Logger, Logger> loggerDecorator) {
+            this.loggingInfoBuilder.setLoggerDecorator(loggerDecorator);
+            this.setLogActivity(true);
+            return this;
+        }
+
+        public SequentialInput<I, R> build() {
+            final InputProcessingRunner<I, R> inputProcessingRunner;
+            final LoggingInfo loggingInfo = this.loggingInfoBuilder.build();
+            if (this.inputProcessing != null) {
+                inputProcessingRunner = new InputProcessingFutureRunner<>(this.input, this.inputProcessing, this.resultConsumer, this.errorConsumer, loggingInfo);
+            } else {
+                throw new IllegalStateException("Cannot set inputProcessingRunner!");
+            }
+
+            return new SequentialInput<>(this.input, this.inputQueueResolver, inputProcessingRunner, loggingInfo);
+        }
+
+    }
+
+
+    public static class BuilderForMono<I, R> extends Builder<I, R> {
+
+        private final Function<I, Mono<R>> processingMonoCreator;
+        private Consumer<? super R> subscribeConsumer;
+        private Consumer<? super Throwable> subscribeErrorConsumer;
+        private Scheduler subscribeOnScheduler;
+
+        public BuilderForMono(I input, InputQueueResolver<I> inputQueueResolver, Function<I, Mono<R>> processingMonoCreator) {
+            super(input, inputQueueResolver);
+            this.processingMonoCreator = processingMonoCreator;
+        }
+
+        public BuilderForMono<I, R> setSubscribeConsumer(Consumer<? super R> subscribeConsumer) {
+            this.subscribeConsumer = subscribeConsumer;
+            return this;
+        }
+
+        public BuilderForMono<I, R> setSubscribeErrorConsumer(Consumer<? super Throwable> subscribeErrorConsumer) {
+            this.subscribeErrorConsumer = subscribeErrorConsumer;
+            return this;
+        }
+
+        public BuilderForMono<I, R> setSubscribeOnScheduler(Scheduler subscribeOnScheduler) {
+            this.subscribeOnScheduler = subscribeOnScheduler;
+            return this;
+        }
+
+        public BuilderForMono<I, R> setLogActivity(boolean logActivity) {
+            this.loggingInfoBuilder.setLogActivity(logActivity);
+            return this;
+        }
+
+        public BuilderForMono<I, R> setInputLoggingDescription(String inputDescription) {
+            this.loggingInfoBuilder.setInputDescription(inputDescription);
+            this.setLogActivity(true);
+            return this;
+        }
+
+        public BuilderForMono<I, R> setLoggerDecorator(Function<Logger, Logger> loggerDecorator) {
+            this.loggingInfoBuilder.setLoggerDecorator(loggerDecorator);
+            this.setLogActivity(true);
+            return this;
+        }
+
+        public SequentialInput<I, R> build() {
+            final InputProcessingRunner<I, R> inputProcessingRunner;
+            final LoggingInfo loggingInfo = this.loggingInfoBuilder.build();
+            if (this.processingMonoCreator != null) {
+                inputProcessingRunner = new InputProcessingMonoRunner<>(this.input, this.processingMonoCreator, this.subscribeConsumer, this.subscribeErrorConsumer, loggingInfo, this.subscribeOnScheduler);
+            } else {
+                throw new IllegalStateException("Cannot set inputProcessingRunner!");
+            }
+
+            return new SequentialInput<>(this.input, this.inputQueueResolver, inputProcessingRunner, loggingInfo);
+        }
+
+    }
+
+
+    public static class BuilderForRunnable<I> extends Builder<I, Void> {
+
+        private final Runnable inputProcessing;
+        private Consumer<? super Throwable> errorConsumer;
+        private Scheduler scheduler;
+
+        public BuilderForRunnable(I input, InputQueueResolver<I> inputQueueResolver, Runnable inputProcessing) {
+            super(input, inputQueueResolver);
+            this.inputProcessing = inputProcessing;
+        }
+
+        public BuilderForRunnable<I> setErrorConsumer(Consumer<? super Throwable> errorConsumer) {
+            this.errorConsumer = errorConsumer;
+            return this;
+        }
+
+        public BuilderForRunnable<I> setScheduler(Scheduler scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        public BuilderForRunnable<I> setLogActivity(boolean logActivity) {
+            this.loggingInfoBuilder.setLogActivity(logActivity);
+            return this;
+        }
+
+        public BuilderForRunnable<I> setInputLoggingDescription(String inputDescription) {
+            this.loggingInfoBuilder.setInputDescription(inputDescription);
+            this.setLogActivity(true);
+            return this;
+        }
+
+        public BuilderForRunnable<I> setLoggerDecorator(Function<Logger, Logger> loggerDecorator) {
+            this.loggingInfoBuilder.setLoggerDecorator(loggerDecorator);
+            this.setLogActivity(true);
+            return this;
+        }
+
+        public SequentialInput<I, Void> build() {
+            final InputProcessingRunner<I, Void> inputProcessingRunner;
+            final LoggingInfo loggingInfo = this.loggingInfoBuilder.build();
+            if (this.inputProcessing != null) {
+                inputProcessingRunner = new InputProcessingRunnableRunner<>(this.input, this.inputProcessing, this.errorConsumer, loggingInfo, this.scheduler);
+            } else {
+                throw new IllegalStateException("Cannot set inputProcessingRunner!");
+            }
+
+            return new SequentialInput<>(this.input, this.inputQueueResolver, inputProcessingRunner, loggingInfo);
+        }
+
+    }
+
+}
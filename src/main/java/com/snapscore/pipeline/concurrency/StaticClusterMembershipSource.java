@@ -0,0 +1,50 @@
+package com.snapscore.pipeline.concurrency;
+
+import com.snapscore.pipeline.logging.Logger;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Membership defined by a list of node ids known upfront. Useful for tests or fixed deployments.
+ * The members can be changed via {@link #setMemberNodeIds(Set)} which makes it usable as a local stand-in for real coordination.
+ */
+public class StaticClusterMembershipSource implements ClusterMembershipSource {
+
+    private static final Logger logger = Logger.setup(StaticClusterMembershipSource.class);
+
+    private final List<Consumer<Set<String>>> listeners = new CopyOnWriteArrayList<>();
+    private volatile Set<String> memberNodeIds;
+
+    public StaticClusterMembershipSource(Set<String> memberNodeIds) {
+        this.memberNodeIds = Set.copyOf(memberNodeIds);
+    }
+
+    @Override
+    public Set<String> getMemberNodeIds() {
+        return memberNodeIds;
+    }
+
+    @Override
+    public void addMembershipChangeListener(Consumer<Set<String>> membershipChangeListener) {
+        listeners.add(membershipChangeListener);
+    }
+
+    public void setMemberNodeIds(Set<String> memberNodeIdsNew) {
+        Set<String> members = Set.copyOf(memberNodeIdsNew);
+        if (!members.equals(this.memberNodeIds)) {
+            this.memberNodeIds = members;
+            logger.info("Cluster members changed to {}", members);
+            for (Consumer<Set<String>> listener : listeners) {
+                try {
+                    listener.accept(members);
+                } catch (Exception e) {
+                    logger.error("Error notifying membership change listener", e);
+                }
+            }
+        }
+    }
+
+}
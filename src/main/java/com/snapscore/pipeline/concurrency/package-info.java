@@ -33,5 +33,8 @@
  * is defined by the implementation of {@link com.snapscore.pipeline.concurrency.InputProcessingRunner}.
  * We can create chained async operations in both {@link com.snapscore.pipeline.concurrency.InputProcessingFluxRunner}
  * and {@link com.snapscore.pipeline.concurrency.InputProcessingCallableRunner}
+ * For inputs producing at most a single value the leaner {@link com.snapscore.pipeline.concurrency.InputProcessingFutureRunner},
+ * {@link com.snapscore.pipeline.concurrency.InputProcessingMonoRunner} and {@link com.snapscore.pipeline.concurrency.InputProcessingRunnableRunner}
+ * avoid creating a chain of Reactor operators for every processed input
  */
 package com.snapscore.pipeline.concurrency;
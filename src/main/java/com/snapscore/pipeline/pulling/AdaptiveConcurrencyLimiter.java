@@ -0,0 +1,110 @@
+package com.snapscore.pipeline.pulling;
+
+/**
+ * Limits the number of requests in flight to a single host and adapts the limit to the measured round trip times
+ * (gradient algorithm - the limit follows the ratio between the long-term average RTT and the latest RTT):
+ * <br> - while the latest RTT is not worse than the long-term average the limit grows by about sqrt(limit) per sample
+ * <br> - when the host slows down (e.g. because it queues our requests) the latest RTT grows and the limit shrinks by up to a half per sample
+ * <br> - the limit does not grow while less than half of it is used so that it does not drift away during quiet periods
+ *
+ * Failed requests are sampled the same way - a request that timed out reports a long RTT and thus decreases the limit.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    public static final int MIN_LIMIT_DEFAULT = 1;
+    public static final int INITIAL_LIMIT_DEFAULT = 10;
+    public static final int MAX_LIMIT_DEFAULT = 200;
+
+    private static final double SMOOTHING = 0.2;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final int LONG_RTT_WINDOW = 600;
+    private static final double LONG_RTT_FACTOR = 2.0 / (LONG_RTT_WINDOW + 1);
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+
+    // all below guarded by "this"
+    private double limit;
+    private int inFlight;
+    private double longRttNanos;
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit <= 0 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must be positive and minLimit <= initialLimit <= maxLimit! initialLimit = " + initialLimit + "; minLimit = " + minLimit + "; maxLimit = " + maxLimit);
+        }
+        this.name = name;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    public AdaptiveConcurrencyLimiter(String name) {
+        this(name, INITIAL_LIMIT_DEFAULT, MIN_LIMIT_DEFAULT, MAX_LIMIT_DEFAULT);
+    }
+
+    public synchronized boolean hasCapacity() {
+        return inFlight < (int) limit;
+    }
+
+    /**
+     * @return false if the limit of requests in flight has been reached
+     */
+    public synchronized boolean tryAcquire() {
+        if (inFlight < (int) limit) {
+            inFlight++;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized void release() {
+        if (inFlight > 0) {
+            inFlight--;
+        }
+    }
+
+    /**
+     * @param rttNanos how long a single attempt of a request acquired from this limiter took
+     */
+    public synchronized void onRttSample(long rttNanos) {
+        final double rtt = Math.max(1L, rttNanos);
+        if (longRttNanos == 0.0) {
+            longRttNanos = rtt;
+        } else {
+            longRttNanos += (rtt - longRttNanos) * LONG_RTT_FACTOR;
+        }
+        if (longRttNanos / rtt > 2.0) {
+            // the host got much faster -> let the long-term average catch up sooner
+            longRttNanos *= 0.95;
+        }
+        final double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, longRttNanos / rtt));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        if (newLimit > limit && inFlight < limit / 2) {
+            return; // not using the limit -> no evidence it could be higher
+        }
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveConcurrencyLimiter{" +
+                "name='" + name + '\'' +
+                ", limit=" + getLimit() +
+                ", inFlight=" + getInFlight() +
+                '}';
+    }
+}
@@ -0,0 +1,77 @@
+package com.snapscore.pipeline.pulling;
+
+import java.time.Duration;
+
+/**
+ * Pull interval of a request that adapts to how often the pulled data changes: it shrinks towards the minimum
+ * while the data keeps changing and grows towards the maximum while it does not.
+ *
+ * Before each pull the interval is adapted based on the results received since the previous pull. Only results that are not
+ * {@link PullResult#isUnchanged()} count as changes - so a pull that failed, has not completed yet or whose unchanged
+ * result was not emitted by the {@link PullingSchedulerQueueImpl} makes the interval grow.
+ *
+ * Each instance holds the state of a single scheduled pulling.
+ */
+public class AdaptivePullInterval {
+
+    public static final double SHRINK_FACTOR_DEFAULT = 0.5;
+    public static final double GROWTH_FACTOR_DEFAULT = 1.5;
+
+    private final long minIntervalNanos;
+    private final long maxIntervalNanos;
+    private final double shrinkFactor;
+    private final double growthFactor;
+    // all below guarded by "this"
+    private long intervalNanos;
+    private boolean pulledBefore;
+    private boolean changedSincePreviousPull;
+
+    /**
+     * @param shrinkFactor the interval is multiplied by it after the data changed; between 0 and 1
+     * @param growthFactor the interval is multiplied by it after the data did not change; greater than 1
+     */
+    public AdaptivePullInterval(Duration minInterval, Duration initialInterval, Duration maxInterval, double shrinkFactor, double growthFactor) {
+        if (minInterval.isNegative() || minInterval.isZero() || minInterval.compareTo(maxInterval) > 0
+                || initialInterval.compareTo(minInterval) < 0 || initialInterval.compareTo(maxInterval) > 0) {
+            throw new IllegalArgumentException("Invalid pull intervals! min = " + minInterval + "; initial = " + initialInterval + "; max = " + maxInterval);
+        }
+        if (shrinkFactor <= 0.0 || shrinkFactor >= 1.0 || growthFactor <= 1.0) {
+            throw new IllegalArgumentException("Invalid interval factors! shrinkFactor = " + shrinkFactor + "; growthFactor = " + growthFactor);
+        }
+        this.minIntervalNanos = minInterval.toNanos();
+        this.maxIntervalNanos = maxInterval.toNanos();
+        this.shrinkFactor = shrinkFactor;
+        this.growthFactor = growthFactor;
+        this.intervalNanos = initialInterval.toNanos();
+    }
+
+    public AdaptivePullInterval(Duration minInterval, Duration initialInterval, Duration maxInterval) {
+        this(minInterval, initialInterval, maxInterval, SHRINK_FACTOR_DEFAULT, GROWTH_FACTOR_DEFAULT);
+    }
+
+    synchronized void onPullResult(PullResult pullResult) {
+        if (!pullResult.isUnchanged()) {
+            changedSincePreviousPull = true;
+        }
+    }
+
+    /**
+     * Called when the request is being pulled
+     *
+     * @return the delay until the next pull
+     */
+    synchronized Duration nextInterval() {
+        if (pulledBefore) {
+            double adapted = intervalNanos * (changedSincePreviousPull ? shrinkFactor : growthFactor);
+            intervalNanos = (long) Math.max(minIntervalNanos, Math.min(maxIntervalNanos, adapted));
+        }
+        pulledBefore = true;
+        changedSincePreviousPull = false;
+        return Duration.ofNanos(intervalNanos);
+    }
+
+    public synchronized Duration getInterval() {
+        return Duration.ofNanos(intervalNanos);
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.snapscore.pipeline.pulling;
+
+import com.snapscore.pipeline.pulling.http.RateLimitHeaders;
+import com.snapscore.pipeline.pulling.http.RateLimitObserver;
+
+import java.util.List;
+
+/**
+ * Feeds the rate limit information of responses back to the {@link AdaptiveRequestsPerSecondCounter}s that limit the requests.
+ * All adaptive counters applying to a request are adapted - the global one and the ones of its {@link RequestRateLimits}.
+ * Counters of other types are left as they are.
+ *
+ * Register it with the callback factory of the http client used by the queue having the same counters.
+ */
+public class AdaptiveRateLimitObserver implements RateLimitObserver {
+
+    private final RequestsPerSecondCounter globalCounter;
+    private final RequestRateLimits requestRateLimits;
+
+    public AdaptiveRateLimitObserver(RequestsPerSecondCounter globalCounter, RequestRateLimits requestRateLimits) {
+        this.globalCounter = globalCounter;
+        this.requestRateLimits = requestRateLimits;
+    }
+
+    public AdaptiveRateLimitObserver(RequestsPerSecondCounter globalCounter) {
+        this(globalCounter, RequestRateLimits.NONE);
+    }
+
+    @Override
+    public void observeRateLimit(FeedRequest feedRequest, RateLimitHeaders rateLimitHeaders) {
+        adapt(globalCounter, rateLimitHeaders);
+        List<RequestsPerSecondCounter> rateLimitCounters = requestRateLimits.resolveCountersFor(feedRequest);
+        for (int idx = 0; idx < rateLimitCounters.size(); idx++) {
+            adapt(rateLimitCounters.get(idx), rateLimitHeaders);
+        }
+    }
+
+    private void adapt(RequestsPerSecondCounter counter, RateLimitHeaders rateLimitHeaders) {
+        if (counter instanceof AdaptiveRequestsPerSecondCounter adaptiveCounter) {
+            if (rateLimitHeaders.isRateLimited()) {
+                adaptiveCounter.onRateLimited(rateLimitHeaders.retryAfter() != null ? rateLimitHeaders.retryAfter() : rateLimitHeaders.resetAfter());
+            } else {
+                if (rateLimitHeaders.statusCode() >= 200 && rateLimitHeaders.statusCode() < 300) {
+                    adaptiveCounter.onSuccess();
+                }
+                if (rateLimitHeaders.hasRemaining()) {
+                    adaptiveCounter.onRemainingQuota(rateLimitHeaders.remaining(), rateLimitHeaders.resetAfter());
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,167 @@
+package com.snapscore.pipeline.pulling;
+
+import com.snapscore.pipeline.logging.Logger;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.LongSupplier;
+
+/**
+ * Requests per second limiter whose limit follows the feedback of the provider (AIMD - additive increase, multiplicative decrease):
+ * <br> - when the provider rate limits us the limit is multiplied by the decrease factor (at most once per second so that a batch
+ * of responses to requests sent at the old rate does not collapse it) and no requests are permitted until Retry-After passes
+ * <br> - each successful response increases the limit by additiveIncrease / limit, i.e. by additiveIncrease per second of requests sent at the limit
+ * <br> - when the provider reports its remaining quota the limit is lowered so that the quota lasts until its window resets
+ *
+ * Requests are spaced evenly (no bursts) so that the throughput stays just under the real limit of the provider.
+ * The feedback is usually delivered by {@link AdaptiveRateLimitObserver}.
+ */
+public class AdaptiveRequestsPerSecondCounter implements RequestsPerSecondCounter {
+
+    private static final Logger logger = Logger.setup(AdaptiveRequestsPerSecondCounter.class);
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    public static final double DECREASE_FACTOR_DEFAULT = 0.5;
+    public static final double ADDITIVE_INCREASE_DEFAULT = 1.0;
+
+    private final String name;
+    private final double minLimit;
+    private final double maxLimit;
+    private final double decreaseFactor;
+    private final double additiveIncrease;
+    private final LongSupplier nanoTimeSupplier;
+
+    // all below guarded by "this"
+    private double limit;
+    private long theoreticalArrivalNanos;
+    private long pausedUntilNanos;
+    private long lastDecreaseNanos;
+
+    /**
+     * FOR TESTING PURPOSES ONLY
+     * package private access is intentional
+     *
+     * @param nanoTimeSupplier helps testability
+     */
+    AdaptiveRequestsPerSecondCounter(String name, double initialLimit, double minLimit, double maxLimit, double decreaseFactor, double additiveIncrease, LongSupplier nanoTimeSupplier) {
+        if (minLimit <= 0 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must be positive and minLimit <= initialLimit <= maxLimit! initialLimit = " + initialLimit + "; minLimit = " + minLimit + "; maxLimit = " + maxLimit);
+        }
+        if (decreaseFactor <= 0 || decreaseFactor >= 1) {
+            throw new IllegalArgumentException("Decrease factor must be between 0 and 1! decreaseFactor = " + decreaseFactor);
+        }
+        this.name = name;
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.decreaseFactor = decreaseFactor;
+        this.additiveIncrease = additiveIncrease;
+        this.nanoTimeSupplier = nanoTimeSupplier;
+        final long now = nanoTimeSupplier.getAsLong();
+        this.theoreticalArrivalNanos = now;
+        this.pausedUntilNanos = now;
+        this.lastDecreaseNanos = now - NANOS_PER_SECOND;
+    }
+
+    public AdaptiveRequestsPerSecondCounter(String name, double initialLimit, double minLimit, double maxLimit) {
+        this(name, initialLimit, minLimit, maxLimit, DECREASE_FACTOR_DEFAULT, ADDITIVE_INCREASE_DEFAULT, System::nanoTime);
+    }
+
+    @Override
+    public synchronized boolean incrementIfRequestWithinLimitAndGet() {
+        final long now = nanoTimeSupplier.getAsLong();
+        if (now - Math.max(theoreticalArrivalNanos, pausedUntilNanos) < 0L) {
+            return false;
+        }
+        theoreticalArrivalNanos = now + emissionIntervalNanos();
+        return true;
+    }
+
+    @Override
+    public synchronized Duration getDelayUntilNextPermit() {
+        final long now = nanoTimeSupplier.getAsLong();
+        return Duration.ofNanos(Math.max(0L, Math.max(theoreticalArrivalNanos, pausedUntilNanos) - now));
+    }
+
+    @Override
+    public boolean incrementIfRequestWithinLimitAndGet(LocalDateTime now) {
+        return incrementIfRequestWithinLimitAndGet();
+    }
+
+    @Override
+    public Duration getDelayUntilNextPermit(LocalDateTime now) {
+        return getDelayUntilNextPermit();
+    }
+
+    /**
+     * The provider accepted a request
+     */
+    public synchronized void onSuccess() {
+        limit = Math.min(maxLimit, limit + additiveIncrease / limit);
+    }
+
+    /**
+     * The provider rejected a request because of its rate limit
+     *
+     * @param retryAfter null if the provider did not say
+     */
+    public synchronized void onRateLimited(Duration retryAfter) {
+        final long now = nanoTimeSupplier.getAsLong();
+        if (now - lastDecreaseNanos >= NANOS_PER_SECOND) {
+            lastDecreaseNanos = now;
+            double previousLimit = limit;
+            limit = Math.max(minLimit, limit * decreaseFactor);
+            logger.decorateSetup(mdc -> mdc.analyticsId("rate_limit_decreased")).info("Rate limited by provider - decreasing requests per second limit {} from {} to {}", name, String.format("%.2f", previousLimit), String.format("%.2f", limit));
+        }
+        if (retryAfter != null) {
+            pauseUntil(now + retryAfter.toNanos());
+        }
+        // the decreased limit applies from now on
+        theoreticalArrivalNanos = Math.max(theoreticalArrivalNanos, now + emissionIntervalNanos());
+    }
+
+    /**
+     * @param remaining  requests the provider still accepts until its window resets
+     * @param resetAfter null if the provider did not say when its window resets
+     */
+    public synchronized void onRemainingQuota(long remaining, Duration resetAfter) {
+        if (resetAfter == null) {
+            return;
+        }
+        final long now = nanoTimeSupplier.getAsLong();
+        if (remaining <= 0L) {
+            pauseUntil(now + resetAfter.toNanos());
+        } else if (!resetAfter.isZero()) {
+            double quotaLimit = remaining * (double) NANOS_PER_SECOND / resetAfter.toNanos();
+            if (quotaLimit < limit) {
+                limit = Math.max(minLimit, quotaLimit);
+            }
+        }
+    }
+
+    public synchronized double getLimit() {
+        return limit;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private void pauseUntil(long untilNanos) {
+        if (untilNanos - pausedUntilNanos > 0L) {
+            pausedUntilNanos = untilNanos;
+        }
+    }
+
+    private long emissionIntervalNanos() {
+        return (long) (NANOS_PER_SECOND / limit);
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveRequestsPerSecondCounter{" +
+                "name='" + name + '\'' +
+                ", limit=" + getLimit() +
+                '}';
+    }
+}
@@ -0,0 +1,95 @@
+package com.snapscore.pipeline.pulling;
+
+import com.snapscore.pipeline.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Remembers which callers received the data of the last changed result of each request. The conditional request validators
+ * and the content digests are kept per request, not per caller, so a {@link PullResult#isUnchanged()} result only means
+ * "unchanged" for these callers - any other caller (a new one, or a scheduled pulling whose consumer failed to process
+ * the previous result) must still get the data.
+ *
+ * Callers are identified by their result consumer - scheduled pullings pass the same consumer on each pull.
+ * A caller counts as having received the data once its consumer returned without throwing.
+ */
+class BodyRecipients {
+
+    private static final Logger logger = Logger.setup(BodyRecipients.class);
+
+    public static final int MAX_ENTRIES_DEFAULT = 100_000;
+    // callers beyond the limit are forgotten, oldest first - they just get the data again on their next unchanged result
+    static final int MAX_RECIPIENTS_PER_REQUEST = 16;
+
+    private final Function<FeedRequest, String> requestKeyMaker;
+    private final int maxEntries;
+    // guarded by "this"; the consumers are compared by identity
+    private final Map<String, List<Consumer<PullResult>>> recipientsByKey = new HashMap<>();
+
+    /**
+     * @param requestKeyMaker identifies requests whose results are shared
+     * @param maxEntries      once reached all remembered recipients are dropped - the following unchanged results are then delivered
+     *                        to all callers as if they had not received the data yet
+     */
+    BodyRecipients(Function<FeedRequest, String> requestKeyMaker, int maxEntries) {
+        this.requestKeyMaker = requestKeyMaker;
+        this.maxEntries = maxEntries;
+    }
+
+    synchronized boolean hasReceived(FeedRequest feedRequest, Consumer<PullResult> pullResultConsumer) {
+        List<Consumer<PullResult>> recipients = recipientsByKey.get(requestKeyMaker.apply(feedRequest));
+        if (recipients != null) {
+            for (Consumer<PullResult> recipient : recipients) {
+                if (recipient == pullResultConsumer) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The data of the request changed - only the specified callers hold it now
+     */
+    synchronized void setReceived(FeedRequest feedRequest, List<Consumer<PullResult>> pullResultConsumers) {
+        String key = requestKeyMaker.apply(feedRequest);
+        if (pullResultConsumers.isEmpty()) {
+            recipientsByKey.remove(key);
+            return;
+        }
+        if (recipientsByKey.size() >= maxEntries && !recipientsByKey.containsKey(key)) {
+            logger.warn("Reached the limit of {} remembered result recipients - dropping all of them", maxEntries);
+            recipientsByKey.clear();
+        }
+        List<Consumer<PullResult>> recipients = new ArrayList<>(pullResultConsumers);
+        while (recipients.size() > MAX_RECIPIENTS_PER_REQUEST) {
+            recipients.remove(0);
+        }
+        recipientsByKey.put(key, recipients);
+    }
+
+    /**
+     * The caller received the unchanged data of the request
+     */
+    synchronized void addReceived(FeedRequest feedRequest, Consumer<PullResult> pullResultConsumer) {
+        List<Consumer<PullResult>> recipients = recipientsByKey.get(requestKeyMaker.apply(feedRequest));
+        if (recipients == null) {
+            setReceived(feedRequest, List.of(pullResultConsumer));
+            return;
+        }
+        if (recipients.size() >= MAX_RECIPIENTS_PER_REQUEST) {
+            recipients.remove(0);
+        }
+        recipients.add(pullResultConsumer);
+    }
+
+    synchronized int size() {
+        return recipientsByKey.size();
+    }
+
+}
@@ -0,0 +1,193 @@
+package com.snapscore.pipeline.pulling;
+
+import com.snapscore.pipeline.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * A single enqueued / in-flight request together with all the callers interested in its result.
+ * Duplicate requests arriving before the result is emitted are attached here instead of being sent again
+ * and the result is then fanned out to each of them.
+ *
+ * The pulled data is shared by all the callers so they must not modify it.
+ * Unchanged results are only treated as unchanged for the callers that received the data before - see {@link BodyRecipients}.
+ */
+class CoalescedPull {
+
+    private static final Logger logger = Logger.setup(CoalescedPull.class);
+
+    private final BiConsumer<CoalescedPull, FeedRequest> onCompleted;
+    private final boolean unchangedResultEmitted;
+    // null if unchanged results are treated as unchanged for all the callers
+    private final BodyRecipients bodyRecipients;
+    // called with the not modified request and a new pull for the callers that have not received the data yet
+    private final BiConsumer<FeedRequest, CoalescedPull> bodyRefetcher;
+    // whether the pulled data is known to be what the previous recipients already hold
+    private final boolean refetch;
+    // all below guarded by "this"
+    private final List<Subscriber> subscribers = new ArrayList<>(1);
+    private boolean completed;
+
+    /**
+     * @param onCompleted called with the request that was actually pulled once the result or the error is about to be emitted
+     *                    - no more callers can be attached then
+     */
+    CoalescedPull(FeedRequest feedRequest, Consumer<PullResult> pullResultConsumer, Consumer<PullError> pullErrorConsumer, BiConsumer<CoalescedPull, FeedRequest> onCompleted) {
+        this(feedRequest, pullResultConsumer, pullErrorConsumer, onCompleted, true);
+    }
+
+    /**
+     * @param unchangedResultEmitted if false the callers are not notified about {@link PullResult#isUnchanged()} results
+     */
+    CoalescedPull(FeedRequest feedRequest, Consumer<PullResult> pullResultConsumer, Consumer<PullError> pullErrorConsumer, BiConsumer<CoalescedPull, FeedRequest> onCompleted, boolean unchangedResultEmitted) {
+        this(feedRequest, pullResultConsumer, pullErrorConsumer, onCompleted, unchangedResultEmitted, null, null);
+    }
+
+    /**
+     * @param bodyRecipients unchanged results are only treated as unchanged for the callers that received the data before
+     * @param bodyRefetcher  must pull the request again without the conditional request validators for the callers that got
+     *                       a not modified result but have not received the data yet
+     */
+    CoalescedPull(FeedRequest feedRequest,
+                  Consumer<PullResult> pullResultConsumer,
+                  Consumer<PullError> pullErrorConsumer,
+                  BiConsumer<CoalescedPull, FeedRequest> onCompleted,
+                  boolean unchangedResultEmitted,
+                  BodyRecipients bodyRecipients,
+                  BiConsumer<FeedRequest, CoalescedPull> bodyRefetcher) {
+        this.onCompleted = onCompleted;
+        this.unchangedResultEmitted = unchangedResultEmitted;
+        this.bodyRecipients = bodyRecipients;
+        this.bodyRefetcher = bodyRefetcher;
+        this.refetch = false;
+        this.subscribers.add(new Subscriber(feedRequest, pullResultConsumer, pullErrorConsumer));
+    }
+
+    private CoalescedPull(CoalescedPull notModifiedPull, List<Subscriber> subscribers) {
+        this.onCompleted = notModifiedPull.onCompleted;
+        this.unchangedResultEmitted = notModifiedPull.unchangedResultEmitted;
+        this.bodyRecipients = notModifiedPull.bodyRecipients;
+        this.bodyRefetcher = notModifiedPull.bodyRefetcher;
+        this.refetch = true;
+        this.subscribers.addAll(subscribers);
+    }
+
+    /**
+     * @return false if the result has already been emitted
+     */
+    synchronized boolean attach(FeedRequest feedRequest, Consumer<PullResult> pullResultConsumer, Consumer<PullError> pullErrorConsumer) {
+        if (completed) {
+            return false;
+        }
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.pullResultConsumer == pullResultConsumer) {
+                return true; // the same caller enqueued the request again - it gets the result once
+            }
+        }
+        subscribers.add(new Subscriber(feedRequest, pullResultConsumer, pullErrorConsumer));
+        return true;
+    }
+
+    synchronized int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * A pooled result is released once all the callers got their own retained duplicate of it
+     */
+    void emitResult(PullResult pullResult) {
+        try {
+            fanOut(pullResult);
+        } finally {
+            pullResult.release();
+        }
+    }
+
+    private void fanOut(PullResult pullResult) {
+        final FeedRequest pulledRequest = pullResult.getFeedRequest();
+        final List<Subscriber> subscribersToNotify = complete(pulledRequest);
+        if (!pullResult.isUnchanged()) {
+            final List<Consumer<PullResult>> recipients = new ArrayList<>(subscribersToNotify.size());
+            for (Subscriber subscriber : subscribersToNotify) {
+                if (notify(subscriber, pullResult)) {
+                    recipients.add(subscriber.pullResultConsumer);
+                }
+            }
+            recordRecipients(pulledRequest, recipients);
+        } else {
+            final List<Subscriber> subscribersWithoutData = new ArrayList<>(0);
+            for (Subscriber subscriber : subscribersToNotify) {
+                if (bodyRecipients == null || bodyRecipients.hasReceived(pulledRequest, subscriber.pullResultConsumer)) {
+                    if (unchangedResultEmitted) {
+                        notify(subscriber, pullResult);
+                    }
+                } else if (pullResult.isNotModified()) {
+                    subscribersWithoutData.add(subscriber);
+                } else if (deliver(subscriber, pullResult.changedForRequest(subscriber.feedRequest))) {
+                    // the data was downloaded but the caller has not received it before
+                    bodyRecipients.addReceived(pulledRequest, subscriber.pullResultConsumer);
+                }
+            }
+            if (!subscribersWithoutData.isEmpty()) {
+                bodyRefetcher.accept(pulledRequest, new CoalescedPull(this, subscribersWithoutData));
+            }
+        }
+    }
+
+    private boolean notify(Subscriber subscriber, PullResult pullResult) {
+        // each caller gets the result for its own request
+        return deliver(subscriber, subscriber.feedRequest == pullResult.getFeedRequest() && !pullResult.isPooled() ? pullResult : pullResult.forRequest(subscriber.feedRequest));
+    }
+
+    /**
+     * @return false if the consumer failed to process the result
+     */
+    private boolean deliver(Subscriber subscriber, PullResult subscriberResult) {
+        try {
+            subscriber.pullResultConsumer.accept(subscriberResult);
+            return true;
+        } catch (Exception e) {
+            logger.decorateSetup(mdc -> mdc.anyId(subscriber.feedRequest.getUuid())).error("Error in pullResultConsumer callback: ", e);
+            return false;
+        }
+    }
+
+    private void recordRecipients(FeedRequest pulledRequest, List<Consumer<PullResult>> recipients) {
+        if (bodyRecipients == null) {
+            return;
+        }
+        if (refetch) {
+            // the data is the same as the one the earlier recipients hold
+            recipients.forEach(recipient -> bodyRecipients.addReceived(pulledRequest, recipient));
+        } else {
+            bodyRecipients.setReceived(pulledRequest, recipients);
+        }
+    }
+
+    void emitError(PullError pullError) {
+        for (Subscriber subscriber : complete(pullError.getFeedRequest())) {
+            try {
+                subscriber.pullErrorConsumer.accept(subscriber.feedRequest == pullError.getFeedRequest() ? pullError : new PullError(subscriber.feedRequest, pullError.getError()));
+            } catch (Exception e) {
+                logger.decorateSetup(mdc -> mdc.anyId(subscriber.feedRequest.getUuid())).error("Error in pullErrorConsumer callback: ", e);
+            }
+        }
+    }
+
+    private List<Subscriber> complete(FeedRequest pulledRequest) {
+        List<Subscriber> subscribersToNotify;
+        synchronized (this) {
+            completed = true;
+            subscribersToNotify = new ArrayList<>(subscribers);
+        }
+        onCompleted.accept(this, pulledRequest);
+        return subscribersToNotify;
+    }
+
+    private record Subscriber(FeedRequest feedRequest, Consumer<PullResult> pullResultConsumer, Consumer<PullError> pullErrorConsumer) {
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.snapscore.pipeline.pulling;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Binary heap ordered by any comparator - O(log n) comparisons per operation.
+ * Used for custom prioritizing comparators and for deadline scheduling.
+ */
+class ComparatorRequestsQueue implements RequestsQueue {
+
+    private final PriorityQueue<QueueFeedRequest> queue;
+
+    ComparatorRequestsQueue(Comparator<QueueFeedRequest> comparator) {
+        this.queue = new PriorityQueue<>(100, comparator);
+    }
+
+    @Override
+    public void add(QueueFeedRequest queueFeedRequest) {
+        queue.add(queueFeedRequest);
+    }
+
+    @Override
+    public QueueFeedRequest peek() {
+        return queue.peek();
+    }
+
+    @Override
+    public QueueFeedRequest poll() {
+        return queue.poll();
+    }
+
+    @Override
+    public void reinsertSkipped(List<QueueFeedRequest> skippedRequests) {
+        queue.addAll(skippedRequests); // the ordering puts them back where they were
+    }
+
+    @Override
+    public boolean remove(QueueFeedRequest queueFeedRequest) {
+        return queue.remove(queueFeedRequest);
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.snapscore.pipeline.pulling;
+
+import com.snapscore.pipeline.logging.Logger;
+import io.netty.buffer.ByteBuf;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+
+/**
+ * Detects responses whose body is the same as the body of the previous pull of the same request - for providers
+ * that do not support conditional requests. Only a CRC32C digest and the length of the last body are kept per request.
+ *
+ * The digest is not collision free - in the very unlikely case of two different bodies of the same length
+ * having the same digest a changed result would be reported as unchanged.
+ *
+ * The digests are kept per request, not per caller - the pulling queue only passes an unchanged result on as unchanged
+ * to the callers that received the data before. All other callers get it as a changed result.
+ */
+public class ContentDigestChangeDetector {
+
+    private static final Logger logger = Logger.setup(ContentDigestChangeDetector.class);
+
+    public static final int MAX_ENTRIES_DEFAULT = 100_000;
+
+    private final Function<FeedRequest, String> requestKeyMaker;
+    private final int maxEntries;
+    private final Map<String, Digest> digestsByKey = new ConcurrentHashMap<>();
+
+    /**
+     * @param requestKeyMaker identifies requests that return the same resource
+     * @param maxEntries      once reached all remembered digests are dropped - the following pulls are then reported as changed
+     */
+    public ContentDigestChangeDetector(Function<FeedRequest, String> requestKeyMaker, int maxEntries) {
+        this.requestKeyMaker = requestKeyMaker;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Requests are identified by their url
+     */
+    public ContentDigestChangeDetector() {
+        this(FeedRequest::getUrl, MAX_ENTRIES_DEFAULT);
+    }
+
+    /**
+     * Remembers the digest of the data as the digest of the last pull of the request
+     *
+     * @return true if the data is the same as the data of the previous pull of the request
+     */
+    boolean isUnchanged(FeedRequest feedRequest, byte[] data) {
+        return isUnchanged(feedRequest, Digest.of(data));
+    }
+
+    /**
+     * Same as {@link #isUnchanged(FeedRequest, byte[])} for the readable bytes of the buffer - they are not copied
+     */
+    boolean isUnchanged(FeedRequest feedRequest, ByteBuf data) {
+        return isUnchanged(feedRequest, Digest.of(data));
+    }
+
+    private boolean isUnchanged(FeedRequest feedRequest, Digest digest) {
+        String key = requestKeyMaker.apply(feedRequest);
+        if (digestsByKey.size() >= maxEntries && !digestsByKey.containsKey(key)) {
+            logger.warn("Reached the limit of {} remembered content digests - dropping all of them", maxEntries);
+            digestsByKey.clear();
+        }
+        return digest.equals(digestsByKey.put(key, digest));
+    }
+
+    public void forget(FeedRequest feedRequest) {
+        digestsByKey.remove(requestKeyMaker.apply(feedRequest));
+    }
+
+    public int size() {
+        return digestsByKey.size();
+    }
+
+
+    private record Digest(long crc, int length) {
+
+        static Digest of(byte[] data) {
+            CRC32C crc32c = new CRC32C();
+            crc32c.update(data, 0, data.length);
+            return new Digest(crc32c.getValue(), data.length);
+        }
+
+        static Digest of(ByteBuf data) {
+            CRC32C crc32c = new CRC32C();
+            crc32c.update(data.nioBuffer());
+            return new Digest(crc32c.getValue(), data.readableBytes());
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.snapscore.pipeline.pulling;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Earliest-deadline-first ordering of the requests in {@link PullingSchedulerQueueImpl}.
+ *
+ * Each request is due its maximum queue wait after it was enqueued. The maximum wait depends on its priority and for requests
+ * pulled periodically it is at most the given fraction of their pull interval so that a pull is sent before the next one is due.
+ * Requests of low priorities thus age - a LOWEST request enqueued long enough ago is sent before HIGHEST requests enqueued later
+ * and is never starved by them. When requests are due at the same time they are ordered by the prioritizing comparator of the queue.
+ */
+public class DeadlineSchedulingPolicy {
+
+    public static final Map<FeedPriorityEnum, Duration> MAX_QUEUE_WAIT_DEFAULTS = Map.of(
+            FeedPriorityEnum.HIGHEST, Duration.ZERO,
+            FeedPriorityEnum.HIGH, Duration.ofSeconds(2),
+            FeedPriorityEnum.MEDIUM, Duration.ofSeconds(10),
+            FeedPriorityEnum.LOW, Duration.ofMinutes(1),
+            FeedPriorityEnum.LOWEST, Duration.ofMinutes(5)
+    );
+    public static final double PULL_INTERVAL_FRACTION_DEFAULT = 0.5;
+
+    private final Map<FeedPriorityEnum, Long> maxQueueWaitMillisByPriority = new EnumMap<>(FeedPriorityEnum.class);
+    private final double pullIntervalFraction;
+
+    /**
+     * @param maxQueueWaitByPriority priorities missing here use {@link #MAX_QUEUE_WAIT_DEFAULTS}
+     * @param pullIntervalFraction   caps the maximum queue wait of requests with a pull interval to this fraction of the interval
+     */
+    public DeadlineSchedulingPolicy(Map<FeedPriorityEnum, Duration> maxQueueWaitByPriority, double pullIntervalFraction) {
+        for (FeedPriorityEnum priority : FeedPriorityEnum.values()) {
+            Duration maxQueueWait = maxQueueWaitByPriority.getOrDefault(priority, MAX_QUEUE_WAIT_DEFAULTS.get(priority));
+            maxQueueWaitMillisByPriority.put(priority, maxQueueWait.toMillis());
+        }
+        this.pullIntervalFraction = pullIntervalFraction;
+    }
+
+    public DeadlineSchedulingPolicy() {
+        this(MAX_QUEUE_WAIT_DEFAULTS, PULL_INTERVAL_FRACTION_DEFAULT);
+    }
+
+    long calculateDueTimestamp(FeedRequest feedRequest, long enqueuedTimestamp) {
+        long maxQueueWaitMillis = maxQueueWaitMillisByPriority.get(feedRequest.getPriority());
+        if (feedRequest instanceof FeedRequestWithInterval feedRequestWithInterval && feedRequestWithInterval.getPullInterval() != null) {
+            maxQueueWaitMillis = Math.min(maxQueueWaitMillis, (long) (feedRequestWithInterval.getPullInterval().toMillis() * pullIntervalFraction));
+        }
+        return enqueuedTimestamp + maxQueueWaitMillis;
+    }
+
+}
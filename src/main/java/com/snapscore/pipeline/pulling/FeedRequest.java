@@ -77,6 +77,15 @@ public class FeedRequest {
     }
 
 
+    /**
+     * @return a new request for the same resource with the header added or replaced
+     */
+    FeedRequest withHttpHeader(String key, String value) {
+        List<FeedRequestHttpHeader> headers = new ArrayList<>(httpHeaders.values());
+        headers.add(new FeedRequestHttpHeader(key, value));
+        return new FeedRequest(feedName, url, urlForLogging, priority, numOfRetries, properties, retryDelaySupplier, headers);
+    }
+
     public FeedName getFeedName() {
         return feedName;
     }
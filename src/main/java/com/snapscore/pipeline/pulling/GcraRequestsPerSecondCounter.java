@@ -0,0 +1,95 @@
+package com.snapscore.pipeline.pulling;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free requests per second limiter implementing the Generic Cell Rate Algorithm (a token bucket expressed as a single timestamp).
+ *
+ * The only state is the theoretical arrival time (TAT) of the next request in nanoseconds, updated by CAS.
+ * A request is allowed if after moving the TAT by one emission interval (1s / limit) it is not more than
+ * burst * emission interval ahead of now. Memory use does not depend on the limit.
+ *
+ * Time is measured by {@link System#nanoTime()} - the LocalDateTime passed to the interface methods is ignored
+ * so callers should prefer the variants without it.
+ */
+public class GcraRequestsPerSecondCounter implements RequestsPerSecondCounter {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final LongSupplier nanoTimeSupplier;
+    private final AtomicLong theoreticalArrivalNanos;
+
+    /**
+     * FOR TESTING PURPOSES ONLY
+     * package private access is intentional
+     *
+     * @param nanoTimeSupplier helps testability
+     */
+    GcraRequestsPerSecondCounter(int requestsPerSecondLimit, int burst, LongSupplier nanoTimeSupplier) {
+        if (requestsPerSecondLimit <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Requests per second limit and burst must be positive! limit = " + requestsPerSecondLimit + "; burst = " + burst);
+        }
+        this.emissionIntervalNanos = NANOS_PER_SECOND / requestsPerSecondLimit;
+        this.burstToleranceNanos = emissionIntervalNanos * burst;
+        this.nanoTimeSupplier = nanoTimeSupplier;
+        this.theoreticalArrivalNanos = new AtomicLong(nanoTimeSupplier.getAsLong());
+    }
+
+    /**
+     * @param burst how many requests can be made at once after the counter was idle for long enough
+     */
+    public GcraRequestsPerSecondCounter(int requestsPerSecondLimit, int burst) {
+        this(requestsPerSecondLimit, burst, System::nanoTime);
+    }
+
+    /**
+     * Allows the whole limit to be used at once - same as {@link RequestsPerSecondCounterImpl}
+     */
+    public GcraRequestsPerSecondCounter(int requestsPerSecondLimit) {
+        this(requestsPerSecondLimit, requestsPerSecondLimit);
+    }
+
+    @Override
+    public boolean incrementIfRequestWithinLimitAndGet() {
+        if (emissionIntervalNanos == 0L) {
+            return true; // limit above one request per nanosecond -> nothing to limit
+        }
+        final long now = nanoTimeSupplier.getAsLong();
+        while (true) {
+            final long tat = theoreticalArrivalNanos.get();
+            final long newTat = Math.max(tat, now) + emissionIntervalNanos;
+            if (newTat - now > burstToleranceNanos) {
+                return false;
+            }
+            if (theoreticalArrivalNanos.compareAndSet(tat, newTat)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public Duration getDelayUntilNextPermit() {
+        if (emissionIntervalNanos == 0L) {
+            return Duration.ZERO;
+        }
+        final long now = nanoTimeSupplier.getAsLong();
+        final long newTat = Math.max(theoreticalArrivalNanos.get(), now) + emissionIntervalNanos;
+        return Duration.ofNanos(Math.max(0L, newTat - now - burstToleranceNanos));
+    }
+
+    @Override
+    public boolean incrementIfRequestWithinLimitAndGet(LocalDateTime now) {
+        return incrementIfRequestWithinLimitAndGet();
+    }
+
+    @Override
+    public Duration getDelayUntilNextPermit(LocalDateTime now) {
+        return getDelayUntilNextPermit();
+    }
+
+}
@@ -0,0 +1,261 @@
+package com.snapscore.pipeline.pulling;
+
+import com.snapscore.pipeline.logging.Logger;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Drives any number of repeated tasks (scheduled pullings) from a single ticking thread.
+ *
+ * Tasks are hashed into a ring of buckets by their deadline - scheduling and cancelling are O(1) and each tick only looks
+ * at the tasks of a single bucket. Tasks whose deadline is more than one turn of the wheel away stay in their bucket
+ * for the remaining rounds. Deadlines are rounded up to the next tick so a task runs up to one tick late.
+ *
+ * The tasks are run on the task executor - by default on the Reactor parallel scheduler, same as the Flux.interval timers.
+ */
+public class HashedTimingWheel {
+
+    private static final Logger logger = Logger.setup(HashedTimingWheel.class);
+
+    public static final Duration TICK_DURATION_DEFAULT = Duration.ofMillis(50);
+    public static final int WHEEL_SIZE_DEFAULT = 512;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Executor taskExecutor;
+    private final Queue<WheelTimeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<WheelTimeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final long startNanos;
+    private final Thread workerThread;
+    private volatile boolean stopped;
+    // accessed by the worker thread only
+    private long tick;
+
+    /**
+     * @param wheelSize    rounded up to a power of two
+     * @param taskExecutor runs the tasks so that the ticking thread is never blocked by them
+     */
+    public HashedTimingWheel(Duration tickDuration, int wheelSize, Executor taskExecutor) {
+        if (tickDuration.isNegative() || tickDuration.isZero() || wheelSize <= 0) {
+            throw new IllegalArgumentException("Invalid timing wheel setup! tickDuration = " + tickDuration + "; wheelSize = " + wheelSize);
+        }
+        this.tickNanos = tickDuration.toNanos();
+        int normalizedWheelSize = Integer.highestOneBit(wheelSize) == wheelSize ? wheelSize : Integer.highestOneBit(wheelSize) << 1;
+        this.wheel = new Bucket[normalizedWheelSize];
+        for (int idx = 0; idx < normalizedWheelSize; idx++) {
+            wheel[idx] = new Bucket();
+        }
+        this.mask = normalizedWheelSize - 1;
+        this.taskExecutor = taskExecutor;
+        this.startNanos = System.nanoTime();
+        this.workerThread = new Thread(this::run, "pulling-timing-wheel");
+        this.workerThread.setDaemon(true);
+        this.workerThread.start();
+    }
+
+    public HashedTimingWheel() {
+        this(TICK_DURATION_DEFAULT, WHEEL_SIZE_DEFAULT, task -> Schedulers.parallel().schedule(task));
+    }
+
+    /**
+     * @param task returns the delay until its next run measured from the time it was due to run now; null if it should not run anymore
+     * @return can be used to cancel all the following runs of the task
+     */
+    public Disposable scheduleRepeatedly(Supplier<Duration> task, Duration initialDelay) {
+        if (stopped) {
+            throw new IllegalStateException("Timing wheel is stopped!");
+        }
+        WheelTimeout timeout = new WheelTimeout(task, System.nanoTime() - startNanos + initialDelay.toNanos(), initialDelay);
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Runs the task at a fixed rate like Flux.interval
+     */
+    public Disposable scheduleAtFixedRate(Runnable task, Duration initialDelay, Duration period) {
+        return scheduleRepeatedly(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.error("Error running scheduled task!", e);
+            }
+            return period;
+        }, initialDelay);
+    }
+
+    public void stop() {
+        stopped = true;
+        workerThread.interrupt();
+    }
+
+    /**
+     * @return number of scheduled tasks; not exact while tasks are being scheduled or run
+     */
+    public int size() {
+        int size = pendingTimeouts.size();
+        for (Bucket bucket : wheel) {
+            size += bucket.size;
+        }
+        return size;
+    }
+
+    private void run() {
+        while (!stopped) {
+            final long tickDeadlineNanos = tickNanos * (tick + 1);
+            long sleepNanos = startNanos + tickDeadlineNanos - System.nanoTime();
+            while (sleepNanos > 0 && !stopped) {
+                LockSupport.parkNanos(sleepNanos);
+                sleepNanos = startNanos + tickDeadlineNanos - System.nanoTime();
+            }
+            if (stopped) {
+                break;
+            }
+            try {
+                removeCancelledTimeouts();
+                transferPendingTimeouts();
+                expireTimeouts(wheel[(int) (tick & mask)]);
+            } catch (Exception e) {
+                logger.error("Error in timing wheel tick!", e);
+            }
+            tick++;
+        }
+        logger.info("Timing wheel stopped");
+    }
+
+    private void removeCancelledTimeouts() {
+        WheelTimeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void transferPendingTimeouts() {
+        WheelTimeout timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            if (timeout.isDisposed()) {
+                continue;
+            }
+            final long dueTick = Math.max((timeout.deadlineNanos + tickNanos - 1) / tickNanos - 1, tick); // the tick whose end is the first one not before the deadline
+            timeout.remainingRounds = (dueTick - tick) / wheel.length;
+            wheel[(int) (dueTick & mask)].add(timeout);
+        }
+    }
+
+    private void expireTimeouts(Bucket bucket) {
+        WheelTimeout timeout = bucket.head;
+        while (timeout != null) {
+            WheelTimeout next = timeout.next;
+            if (timeout.isDisposed()) {
+                bucket.remove(timeout);
+            } else if (timeout.remainingRounds <= 0) {
+                bucket.remove(timeout);
+                final WheelTimeout expired = timeout;
+                taskExecutor.execute(() -> runTask(expired));
+            } else {
+                timeout.remainingRounds--;
+            }
+            timeout = next;
+        }
+    }
+
+    private void runTask(WheelTimeout timeout) {
+        Duration nextDelay;
+        try {
+            nextDelay = timeout.task.get();
+        } catch (Exception e) {
+            logger.error("Error running scheduled task! It will be run again after the same delay", e);
+            nextDelay = timeout.lastDelay;
+        }
+        if (nextDelay != null && !timeout.isDisposed() && !stopped) {
+            timeout.lastDelay = nextDelay;
+            timeout.deadlineNanos += nextDelay.toNanos();
+            pendingTimeouts.add(timeout);
+        }
+    }
+
+
+    private final class WheelTimeout implements Disposable {
+
+        private final Supplier<Duration> task;
+        private final AtomicBoolean cancelled = new AtomicBoolean(false);
+        // relative to the start of the wheel; only changed while the timeout is neither pending nor in a bucket
+        private long deadlineNanos;
+        private Duration lastDelay;
+        // all below accessed by the worker thread only
+        private long remainingRounds;
+        private Bucket bucket;
+        private WheelTimeout prev;
+        private WheelTimeout next;
+
+        private WheelTimeout(Supplier<Duration> task, long deadlineNanos, Duration initialDelay) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+            this.lastDelay = initialDelay;
+        }
+
+        @Override
+        public void dispose() {
+            if (cancelled.compareAndSet(false, true)) {
+                cancelledTimeouts.add(this);
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return cancelled.get();
+        }
+    }
+
+
+    /**
+     * Doubly linked list so that cancelled timeouts are removed in O(1)
+     */
+    private static final class Bucket {
+
+        private WheelTimeout head;
+        private WheelTimeout tail;
+        private volatile int size;
+
+        private void add(WheelTimeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+            size++;
+        }
+
+        private void remove(WheelTimeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            size--;
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.snapscore.pipeline.pulling;
+
+import com.snapscore.pipeline.pulling.http.HttpClientConfig;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Creates an {@link AdaptiveConcurrencyLimiter} for each host requests are sent to by {@link PullingSchedulerQueueImpl}.
+ * Requests beyond the limit of their host stay in the queue (without blocking requests to other hosts) instead of waiting
+ * inside the http client.
+ */
+public class HostConcurrencyLimits {
+
+    public static final HostConcurrencyLimits NONE = new HostConcurrencyLimits(null);
+
+    private final Function<String, AdaptiveConcurrencyLimiter> limiterFactory;
+    private final Map<String, AdaptiveConcurrencyLimiter> limitersByHost = new ConcurrentHashMap<>();
+
+    /**
+     * @param limiterFactory creates the limiter of the given host
+     */
+    public HostConcurrencyLimits(Function<String, AdaptiveConcurrencyLimiter> limiterFactory) {
+        this.limiterFactory = limiterFactory;
+    }
+
+    /**
+     * Each host gets a limiter with the default limits bounded by the limit of requests per host of the http client
+     * so that the measured round trip times do not include waiting inside the http client
+     *
+     * @param maxRequestsPerHost the {@link HttpClientConfig#maxRequestsPerHost()} of the http client the requests are sent by
+     */
+    public HostConcurrencyLimits(int maxRequestsPerHost) {
+        this(host -> new AdaptiveConcurrencyLimiter(host,
+                Math.min(AdaptiveConcurrencyLimiter.INITIAL_LIMIT_DEFAULT, maxRequestsPerHost),
+                Math.min(AdaptiveConcurrencyLimiter.MIN_LIMIT_DEFAULT, maxRequestsPerHost),
+                Math.min(AdaptiveConcurrencyLimiter.MAX_LIMIT_DEFAULT, maxRequestsPerHost)));
+    }
+
+    /**
+     * Each host gets a limiter with the default limits bounded by {@link HttpClientConfig#MAX_REQUESTS_PER_HOST_DEFAULT}
+     */
+    public HostConcurrencyLimits() {
+        this(HttpClientConfig.MAX_REQUESTS_PER_HOST_DEFAULT);
+    }
+
+    /**
+     * @return null if the request is not limited
+     */
+    AdaptiveConcurrencyLimiter resolveLimiterFor(FeedRequest feedRequest) {
+        if (limiterFactory == null) {
+            return null;
+        }
+        String host = RequestRateLimits.hostOf(feedRequest.getUrl());
+        return host != null ? limitersByHost.computeIfAbsent(host, limiterFactory) : null;
+    }
+
+    public Map<String, AdaptiveConcurrencyLimiter> getLimitersByHost() {
+        return Map.copyOf(limitersByHost);
+    }
+
+}
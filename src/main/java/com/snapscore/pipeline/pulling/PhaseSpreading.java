@@ -0,0 +1,70 @@
+package com.snapscore.pipeline.pulling;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Spreads the pulls of scheduled pullings with the same interval over the whole interval so that they do not all
+ * hit the queue and the provider at the same time.
+ *
+ * The phase offset delays the first pull by a part of the interval derived from the scheduled pulling key only - the same key
+ * always gets the same offset, also after a restart as long as the key's toString() does not change.
+ * The jitter additionally moves each single pull by a random part of the interval without changing the average pull rate.
+ */
+public class PhaseSpreading {
+
+    public static final PhaseSpreading NONE = new PhaseSpreading(false, 0.0);
+
+    private final boolean phaseOffsetEnabled;
+    private final double jitterFraction;
+
+    /**
+     * @param phaseOffsetEnabled whether the first pull is delayed by the offset of the scheduled pulling key
+     * @param jitterFraction     each pull is delayed by a random duration up to this fraction of the interval; between 0 and 1
+     */
+    public PhaseSpreading(boolean phaseOffsetEnabled, double jitterFraction) {
+        if (jitterFraction < 0.0 || jitterFraction > 1.0) {
+            throw new IllegalArgumentException("Jitter fraction must be between 0 and 1! jitterFraction = " + jitterFraction);
+        }
+        this.phaseOffsetEnabled = phaseOffsetEnabled;
+        this.jitterFraction = jitterFraction;
+    }
+
+    /**
+     * Phase offset without jitter
+     */
+    public PhaseSpreading() {
+        this(true, 0.0);
+    }
+
+    /**
+     * @return between zero (inclusive) and the interval (exclusive)
+     */
+    Duration phaseOffset(Object scheduledPullingKey, Duration pullInterval) {
+        if (!phaseOffsetEnabled || pullInterval.isZero() || pullInterval.isNegative()) {
+            return Duration.ZERO;
+        }
+        double fraction = (mix(String.valueOf(scheduledPullingKey).hashCode()) >>> 11) * 0x1.0p-53;
+        return Duration.ofNanos((long) (pullInterval.toNanos() * fraction));
+    }
+
+    boolean hasJitter() {
+        return jitterFraction > 0.0;
+    }
+
+    /**
+     * @return random duration between zero and the jitter fraction of the interval
+     */
+    Duration jitter(Duration pullInterval) {
+        long maxJitterNanos = (long) (pullInterval.toNanos() * jitterFraction);
+        return maxJitterNanos > 0 ? Duration.ofNanos(ThreadLocalRandom.current().nextLong(maxJitterNanos)) : Duration.ZERO;
+    }
+
+    // spreads similar hash codes (e.g. of keys differing in a single digit) over the whole range of long values
+    private static long mix(long value) {
+        long mixed = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        mixed = (mixed ^ (mixed >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return mixed ^ (mixed >>> 33);
+    }
+
+}
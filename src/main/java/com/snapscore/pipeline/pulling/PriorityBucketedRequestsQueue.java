@@ -0,0 +1,100 @@
+package com.snapscore.pipeline.pulling;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * One FIFO deque per {@link FeedPriorityEnum} - O(1) enqueueing and dequeueing without any comparisons.
+ *
+ * Equivalent to {@link FeedRequest#DEFAULT_PRIORITY_COMPARATOR} except that requests of the same priority are ordered by the time
+ * they were enqueued instead of the time their {@link FeedRequest} was created.
+ */
+class PriorityBucketedRequestsQueue implements RequestsQueue {
+
+    // indexed by the scheduling order of the priority so that the most urgent bucket comes first
+    private final ArrayDeque<QueueFeedRequest>[] buckets;
+    private final int[] bucketIndexByPriorityOrdinal;
+    private int size;
+    // lowest index of a bucket that can be non-empty; the bucket count if all are empty
+    private int firstBucketIdx;
+
+    @SuppressWarnings("unchecked")
+    PriorityBucketedRequestsQueue() {
+        FeedPriorityEnum[] priorities = FeedPriorityEnum.values();
+        FeedPriorityEnum[] prioritiesBySchedulingOrder = priorities.clone();
+        Arrays.sort(prioritiesBySchedulingOrder, Comparator.comparingInt(FeedPriorityEnum::getSchedulingOrder));
+        this.buckets = new ArrayDeque[priorities.length];
+        this.bucketIndexByPriorityOrdinal = new int[priorities.length];
+        for (int idx = 0; idx < prioritiesBySchedulingOrder.length; idx++) {
+            buckets[idx] = new ArrayDeque<>();
+            bucketIndexByPriorityOrdinal[prioritiesBySchedulingOrder[idx].ordinal()] = idx;
+        }
+        this.firstBucketIdx = buckets.length;
+    }
+
+    @Override
+    public void add(QueueFeedRequest queueFeedRequest) {
+        int bucketIdx = bucketIndexOf(queueFeedRequest);
+        buckets[bucketIdx].addLast(queueFeedRequest);
+        firstBucketIdx = Math.min(firstBucketIdx, bucketIdx);
+        size++;
+    }
+
+    @Override
+    public QueueFeedRequest peek() {
+        ArrayDeque<QueueFeedRequest> bucket = firstNonEmptyBucket();
+        return bucket != null ? bucket.peekFirst() : null;
+    }
+
+    @Override
+    public QueueFeedRequest poll() {
+        ArrayDeque<QueueFeedRequest> bucket = firstNonEmptyBucket();
+        if (bucket == null) {
+            return null;
+        }
+        size--;
+        return bucket.pollFirst();
+    }
+
+    @Override
+    public void reinsertSkipped(List<QueueFeedRequest> skippedRequests) {
+        for (int idx = skippedRequests.size() - 1; idx >= 0; idx--) {
+            QueueFeedRequest queueFeedRequest = skippedRequests.get(idx);
+            int bucketIdx = bucketIndexOf(queueFeedRequest);
+            buckets[bucketIdx].addFirst(queueFeedRequest);
+            firstBucketIdx = Math.min(firstBucketIdx, bucketIdx);
+            size++;
+        }
+    }
+
+    @Override
+    public boolean remove(QueueFeedRequest queueFeedRequest) {
+        if (buckets[bucketIndexOf(queueFeedRequest)].remove(queueFeedRequest)) {
+            size--;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private ArrayDeque<QueueFeedRequest> firstNonEmptyBucket() {
+        while (firstBucketIdx < buckets.length) {
+            if (!buckets[firstBucketIdx].isEmpty()) {
+                return buckets[firstBucketIdx];
+            }
+            firstBucketIdx++;
+        }
+        return null;
+    }
+
+    private int bucketIndexOf(QueueFeedRequest queueFeedRequest) {
+        return bucketIndexByPriorityOrdinal[queueFeedRequest.getFeedRequest().getPriority().ordinal()];
+    }
+
+}
@@ -1,24 +1,129 @@
 package com.snapscore.pipeline.pulling;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
 import java.util.Arrays;
 import java.util.Objects;
 
 public class PullResult {
 
+    // the data of results the provider reported as not modified - compared by identity
+    private static final byte[] NOT_DOWNLOADED = new byte[0];
+
     private final FeedRequest feedRequest;
     private final byte[] data;
+    // set instead of the data if the pulling queue reads the responses into pooled buffers
+    private final ByteBuf pooledData;
+    private final boolean unchanged;
 
     public PullResult(FeedRequest feedRequest, byte[] data) {
+        this(feedRequest, data, false);
+    }
+
+    private PullResult(FeedRequest feedRequest, byte[] data, boolean unchanged) {
+        this(feedRequest, data, null, unchanged);
+    }
+
+    private PullResult(FeedRequest feedRequest, byte[] data, ByteBuf pooledData, boolean unchanged) {
         this.feedRequest = feedRequest;
         this.data = data;
+        this.pooledData = pooledData;
+        this.unchanged = unchanged;
+    }
+
+    /**
+     * Takes over the buffer - it is released by {@link #release()}
+     */
+    static PullResult pooled(FeedRequest feedRequest, ByteBuf pooledData, boolean unchanged) {
+        return new PullResult(feedRequest, null, pooledData, unchanged);
+    }
+
+    /**
+     * The provider reported that the data did not change since the previous pull of the request - no data was downloaded
+     */
+    public static PullResult unchanged(FeedRequest feedRequest) {
+        return new PullResult(feedRequest, NOT_DOWNLOADED, true);
+    }
+
+    /**
+     * The data was downloaded but it is the same as the data of the previous pull of the request
+     */
+    static PullResult unchanged(FeedRequest feedRequest, byte[] data) {
+        return new PullResult(feedRequest, data, true);
+    }
+
+    /**
+     * @return the same result for another request to the same resource
+     */
+    PullResult forRequest(FeedRequest otherFeedRequest) {
+        return copyFor(otherFeedRequest, unchanged);
+    }
+
+    /**
+     * @return the same data as a changed result for another request to the same resource - for a caller that has not received it yet
+     */
+    PullResult changedForRequest(FeedRequest otherFeedRequest) {
+        return copyFor(otherFeedRequest, false);
+    }
+
+    private PullResult copyFor(FeedRequest otherFeedRequest, boolean unchanged) {
+        if (pooledData != null) {
+            // each result must be released on its own
+            return new PullResult(otherFeedRequest, null, pooledData.retainedDuplicate(), unchanged);
+        }
+        return new PullResult(otherFeedRequest, data, unchanged);
+    }
+
+    /**
+     * @return whether the result is {@link #isUnchanged()} without any data because the provider did not send it again
+     */
+    boolean isNotModified() {
+        return unchanged && pooledData == null && data == NOT_DOWNLOADED;
     }
 
     public FeedRequest getFeedRequest() {
         return feedRequest;
     }
 
+    /**
+     * @return empty if the result is {@link #isUnchanged()} because the provider did not send the data again;
+     * a copy of the pooled data if the result {@link #isPooled()}
+     */
     public byte[] getData() {
-        return data;
+        return pooledData != null ? ByteBufUtil.getBytes(pooledData) : data;
+    }
+
+    /**
+     * @return whether the data is held in a pooled buffer that must be released by calling {@link #release()}
+     */
+    public boolean isPooled() {
+        return pooledData != null;
+    }
+
+    /**
+     * The readable bytes of the buffer are the data. It is only valid until the result is released - it must be retained
+     * if it is used afterwards
+     *
+     * @return null unless the result {@link #isPooled()}
+     */
+    public ByteBuf getPooledData() {
+        return pooledData;
+    }
+
+    /**
+     * Must be called exactly once after a pooled result has been processed so that its buffer returns to the pool.
+     * Pooled results that get garbage collected without being released are reported by the Netty ResourceLeakDetector.
+     * Does nothing if the result is not pooled
+     */
+    public void release() {
+        if (pooledData != null) {
+            pooledData.release();
+        }
+    }
+
+    public boolean isUnchanged() {
+        return unchanged;
     }
 
     @Override
@@ -26,14 +131,17 @@ public class PullResult {
         if (this == o) return true;
         if (!(o instanceof PullResult)) return false;
         PullResult that = (PullResult) o;
-        return Objects.equals(feedRequest, that.feedRequest) &&
-                Arrays.equals(data, that.data);
+        return unchanged == that.unchanged &&
+                Objects.equals(feedRequest, that.feedRequest) &&
+                Arrays.equals(data, that.data) &&
+                Objects.equals(pooledData, that.pooledData);
     }
 
     @Override
     public int hashCode() {
         int result = Objects.hash(feedRequest);
         result = 31 * result + Arrays.hashCode(data);
+        result = 31 * result + Objects.hashCode(pooledData);
         return result;
     }
 
@@ -42,6 +150,8 @@ public class PullResult {
         return "PullResult{" +
                 "feedRequest=" + feedRequest +
                 ", data=" + data +
+                ", pooledData=" + pooledData +
+                ", unchanged=" + unchanged +
                 '}';
     }
 }
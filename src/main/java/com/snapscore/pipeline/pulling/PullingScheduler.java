@@ -75,6 +75,17 @@ public interface PullingScheduler {
                   Consumer<PullResult> pullResultConsumer,
                   Consumer<PullError> pullErrorConsumer);
 
+    /**
+     * Same as {@link #pullOnce(FeedRequest, Consumer, Consumer)} but for large responses - the consumer parses the body
+     * from a stream while it is being downloaded instead of getting all of it at once. See {@link StreamPullResult}.
+     * Implementations that cannot stream the response pass the downloaded data on as a stream once the pull is done
+     */
+    default void pullOnceStreaming(FeedRequest feedRequest,
+                                   Consumer<StreamPullResult> streamPullResultConsumer,
+                                   Consumer<PullError> pullErrorConsumer) {
+        pullOnce(feedRequest, StreamPullResult.consumingDownloadedData(streamPullResultConsumer), pullErrorConsumer);
+    }
+
 
     /**
      * Can be used for pulling some data for a predefined number of times after which pulling will stop
@@ -9,6 +9,7 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -18,9 +19,29 @@ public class PullingSchedulerImpl implements PullingScheduler {
     private static final Logger logger = Logger.setup(PullingSchedulerImpl.class);
 
     private final PullingSchedulerQueue pullingSchedulerQueue;
+    // null if each scheduled pulling has its own Reactor timer
+    private final HashedTimingWheel timingWheel;
+    private final PhaseSpreading phaseSpreading;
+
+    /**
+     * @param timingWheel    drives all the scheduled pullings from a single thread; pullNumberOfTimes() still uses Reactor timers
+     * @param phaseSpreading spreads the pulls of the scheduled pullings over their interval; only the phase offset is applied to adaptive pullings
+     */
+    public PullingSchedulerImpl(PullingSchedulerQueue pullingSchedulerQueue, HashedTimingWheel timingWheel, PhaseSpreading phaseSpreading) {
+        this.pullingSchedulerQueue = pullingSchedulerQueue;
+        this.timingWheel = timingWheel;
+        this.phaseSpreading = phaseSpreading;
+    }
+
+    /**
+     * @param timingWheel drives all the scheduled pullings from a single thread; pullNumberOfTimes() still uses Reactor timers
+     */
+    public PullingSchedulerImpl(PullingSchedulerQueue pullingSchedulerQueue, HashedTimingWheel timingWheel) {
+        this(pullingSchedulerQueue, timingWheel, PhaseSpreading.NONE);
+    }
 
     public PullingSchedulerImpl(PullingSchedulerQueue pullingSchedulerQueue) {
-        this.pullingSchedulerQueue = pullingSchedulerQueue;
+        this(pullingSchedulerQueue, null);
     }
 
 
@@ -31,10 +52,12 @@ public class PullingSchedulerImpl implements PullingScheduler {
                                                                           Consumer<PullError> pullErrorConsumer,
                                                                           Duration pullInterval,
                                                                           Duration initialDelay) {
-        Disposable disposable = Flux.interval(initialDelay, pullInterval)
-                .map(pullingCycleNo -> createFeedRequests(feedRequestSupplier))
-                .map(feedRequests -> startPullingFeeds(scheduledPullingKey, feedRequests, pullResultConsumer, pullErrorConsumer))
-                .subscribe(logger::info);
+        Disposable disposable = scheduleAtFixedRate(
+                () -> startPullingFeeds(scheduledPullingKey, createFeedRequests(feedRequestSupplier), pullResultConsumer, pullErrorConsumer),
+                scheduledPullingKey,
+                initialDelay,
+                pullInterval
+        );
         return new ScheduledDynamicRequests<>(scheduledPullingKey, disposable, pullInterval);
     }
 
@@ -54,9 +77,12 @@ public class PullingSchedulerImpl implements PullingScheduler {
                                                                       Consumer<PullError> pullErrorConsumer,
                                                                       Duration pullInterval,
                                                                       Duration initialDelay) {
-        Disposable disposable = Flux.interval(initialDelay, pullInterval)
-                .map(pullingCycleNo -> startPullingFeeds(scheduledPullingKey, feedRequests, pullResultConsumer, pullErrorConsumer))
-                .subscribe(logger::info);
+        Disposable disposable = scheduleAtFixedRate(
+                () -> startPullingFeeds(scheduledPullingKey, feedRequests, pullResultConsumer, pullErrorConsumer),
+                scheduledPullingKey,
+                initialDelay,
+                pullInterval
+        );
         return new ScheduledFixedRequests<>(scheduledPullingKey, disposable, pullInterval, feedRequests);
     }
 
@@ -76,15 +102,51 @@ public class PullingSchedulerImpl implements PullingScheduler {
                                                                     Consumer<PullResult> pullResultConsumer,
                                                                     Consumer<PullError> pullErrorConsumer,
                                                                     Duration initialDelay) {
-        Disposable disposable = Flux.interval(initialDelay, feedRequest.getPullInterval())
-                .map(pullingCycleNo -> {
+        Disposable disposable = scheduleAtFixedRate(
+                () -> {
                     pullingSchedulerQueue.enqueueForPulling(feedRequest, pullResultConsumer, pullErrorConsumer);
                     return "Scheduled pulling of " + feedRequest;
-                })
-                .subscribe(logger::info);
+                },
+                scheduledPullingKey,
+                initialDelay,
+                feedRequest.getPullInterval()
+        );
         return new ScheduledFixedRequest<>(scheduledPullingKey, feedRequest, disposable);
     }
 
+    /**
+     * Schedules pulling at an interval that shrinks while the pulled data keeps changing and grows while it does not.
+     * Works best with the change detection of {@link PullingSchedulerQueueImpl} (conditional requests or content digests)
+     * that makes results with unchanged data {@link PullResult#isUnchanged()}
+     *
+     * @param scheduledPullingKey  a unique key chosen to identify the created one scheduledPulling
+     * @param adaptivePullInterval holds the current interval of this scheduled pulling only
+     * @param pullResultConsumer   consumes and processes the pulled data - if there are any
+     * @param pullErrorConsumer
+     * @param initialDelay         initial delay before pulling can start
+     * @return ScheduledAdaptiveRequest which can be used to cancel the scheduled pulling
+     */
+    public <K> ScheduledAdaptiveRequest<K> schedulePullingAdaptiveRequest(K scheduledPullingKey,
+                                                                          FeedRequest feedRequest,
+                                                                          AdaptivePullInterval adaptivePullInterval,
+                                                                          Consumer<PullResult> pullResultConsumer,
+                                                                          Consumer<PullError> pullErrorConsumer,
+                                                                          Duration initialDelay) {
+        // the same consumer instance is used for each pull so that a pull still in progress is not repeated
+        Consumer<PullResult> observingResultConsumer = pullResult -> {
+            adaptivePullInterval.onPullResult(pullResult);
+            pullResultConsumer.accept(pullResult);
+        };
+        Supplier<Duration> pullTask = () -> {
+            Duration nextPullDelay = adaptivePullInterval.nextInterval();
+            pullingSchedulerQueue.enqueueForPulling(feedRequest, observingResultConsumer, pullErrorConsumer);
+            logger.info("Scheduled pulling of {}; next pull in {}", feedRequest, nextPullDelay);
+            return nextPullDelay;
+        };
+        Disposable disposable = scheduleRepeatedly(pullTask, initialDelay.plus(phaseSpreading.phaseOffset(scheduledPullingKey, adaptivePullInterval.getInterval())));
+        return new ScheduledAdaptiveRequest<>(scheduledPullingKey, feedRequest, disposable, adaptivePullInterval);
+    }
+
     @Override
     public <K> ScheduledFixedBoundedRequest<K> pullNumberOfTimes(K scheduledPullingKey,
                                                                  FeedRequestWithInterval feedRequest,
@@ -113,6 +175,40 @@ public class PullingSchedulerImpl implements PullingScheduler {
         return new ScheduledFixedBoundedRequest<>(scheduledPullingKey, feedRequest, disposable, repeatTimes);
     }
 
+    /**
+     * @param task returns the message to be logged after each run
+     */
+    private Disposable scheduleAtFixedRate(Supplier<String> task, Object scheduledPullingKey, Duration initialDelay, Duration period) {
+        final Duration firstDelay = initialDelay.plus(phaseSpreading.phaseOffset(scheduledPullingKey, period));
+        if (phaseSpreading.hasJitter()) {
+            // each pull is moved by its own jitter relative to the fixed rate schedule so that the jitter does not accumulate
+            final AtomicReference<Duration> currentJitter = new AtomicReference<>(phaseSpreading.jitter(period));
+            return scheduleRepeatedly(() -> {
+                logger.info(task.get());
+                Duration nextJitter = phaseSpreading.jitter(period);
+                return period.minus(currentJitter.getAndSet(nextJitter)).plus(nextJitter);
+            }, firstDelay.plus(currentJitter.get()));
+        }
+        if (timingWheel != null) {
+            return timingWheel.scheduleAtFixedRate(() -> logger.info(task.get()), firstDelay, period);
+        }
+        return Flux.interval(firstDelay, period)
+                .map(pullingCycleNo -> task.get())
+                .subscribe(logger::info);
+    }
+
+    /**
+     * @param task returns the delay until its next run
+     */
+    private Disposable scheduleRepeatedly(Supplier<Duration> task, Duration initialDelay) {
+        if (timingWheel != null) {
+            return timingWheel.scheduleRepeatedly(task, initialDelay);
+        }
+        return Mono.delay(initialDelay)
+                .thenMany(Mono.defer(() -> Mono.delay(task.get())).repeat())
+                .subscribe();
+    }
+
     // must be synchronized -> is called from multiple threads and accesses data that is not thread-safe and operations on it need to be atomic
     @Override
     public synchronized void pullOnce(FeedRequest feedRequest,
@@ -121,4 +217,11 @@ public class PullingSchedulerImpl implements PullingScheduler {
         pullingSchedulerQueue.enqueueForPulling(feedRequest, pullResultConsumer, pullErrorConsumer);
     }
 
+    @Override
+    public void pullOnceStreaming(FeedRequest feedRequest,
+                                  Consumer<StreamPullResult> streamPullResultConsumer,
+                                  Consumer<PullError> pullErrorConsumer) {
+        pullingSchedulerQueue.enqueueForStreamPulling(feedRequest, streamPullResultConsumer, pullErrorConsumer);
+    }
+
 }
@@ -11,6 +11,16 @@ public interface PullingSchedulerQueue {
     void enqueueForPulling(FeedRequest feedRequest,
                            Consumer<PullResult> pullResultConsumer,
                            Consumer<PullError> pullErrorConsumer);
-    
+
+    /**
+     * Same as {@link #enqueueForPulling(FeedRequest, Consumer, Consumer)} but the result is consumed as a stream while
+     * it is being downloaded - see {@link StreamPullResult}. Implementations that cannot stream the response pass
+     * the downloaded data on as a stream once the pull is done
+     */
+    default void enqueueForStreamPulling(FeedRequest feedRequest,
+                                         Consumer<StreamPullResult> streamPullResultConsumer,
+                                         Consumer<PullError> pullErrorConsumer) {
+        enqueueForPulling(feedRequest, StreamPullResult.consumingDownloadedData(streamPullResultConsumer), pullErrorConsumer);
+    }
 
 }
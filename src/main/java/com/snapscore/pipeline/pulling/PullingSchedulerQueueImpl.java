@@ -1,20 +1,33 @@
 package com.snapscore.pipeline.pulling;
 
 import com.snapscore.pipeline.logging.Logger;
+import com.snapscore.pipeline.pulling.http.ConditionalRequestValidators;
+import com.snapscore.pipeline.pulling.http.FailedRequestException;
 import com.snapscore.pipeline.pulling.http.HttpClient;
-import reactor.core.publisher.Flux;
+import io.netty.buffer.ByteBuf;
+import reactor.core.Disposable;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 import reactor.util.retry.Retry;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.Queue;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 public class PullingSchedulerQueueImpl implements PullingSchedulerQueue {
@@ -22,62 +35,102 @@ public class PullingSchedulerQueueImpl implements PullingSchedulerQueue {
     private static final Logger logger = Logger.setup(PullingSchedulerQueueImpl.class);
 
     private final HttpClient httpClient;
-    private final Queue<QueueFeedRequest> requestsQueue;
+    // guarded by "this"
+    private final RequestsQueue requestsQueue;
+    // creates the queues of parked requests ordered the same way as requestsQueue
+    private final Supplier<RequestsQueue> requestsQueueFactory;
+    // requests skipped because their host reached its limit of requests in flight by the limiter of the host; guarded by "this"
+    private final Map<AdaptiveConcurrencyLimiter, RequestsQueue> concurrencyLimitedRequests = new HashMap<>();
+    // requests skipped because of any of the RequestRateLimits by the counter that blocked them for the longest time; guarded by "this"
+    private final Map<RequestsPerSecondCounter, RequestsQueue> rateLimitedRequests = new HashMap<>();
     private final WaitingRequestsTracker waitingRequestsTracker;
     private final RequestsPerSecondCounter requestsPerSecondCounter;
+    private final RequestRateLimits requestRateLimits;
+    private final HostConcurrencyLimits hostConcurrencyLimits;
+    // null if requests are ordered only by the prioritizing comparator
+    private final DeadlineSchedulingPolicy deadlineSchedulingPolicy;
+    private final boolean unchangedResultsEmitted;
+    // null if the pulled data is not checked for changes
+    private final ContentDigestChangeDetector contentDigestChangeDetector;
+    private final BodyRecipients bodyRecipients;
+    private final boolean pooledResultBuffers;
+    private final QueueWaitStatistics queueWaitStatistics = new QueueWaitStatistics();
+    // enqueued and in-flight requests by their deduplication key so that duplicates can share their result
+    private final Map<String, CoalescedPull> coalescedPullsByKey = new ConcurrentHashMap<>();
+    // requests that are enqueued but not sent yet by their url; guarded by "this"
+    private final Map<String, QueuedPull> queuedPullsByUrl = new HashMap<>();
 
+    /**
+     * DEPRECATED requests are not dispatched periodically anymore
+     */
+    @Deprecated
     public static final Duration PERIODIC_PULL_NEXT_TRIGGER_INTERVAL = Duration.ofMillis(5);
-    private final Duration periodicPullNextTriggerInterval;
+    public static final Duration MAX_DISPATCH_WAKE_UP_DELAY = Duration.ofSeconds(1);
+    private static final Duration MIN_DISPATCH_WAKE_UP_DELAY = Duration.ofMillis(1);
+    private final Duration maxDispatchWakeUpDelay;
+    // null if the requests per second counter should use its own clock
     private volatile Supplier<LocalDateTime> nowSupplier;
+    // guarded by "this"; wakes up the dispatching when the requests per second limit allows sending the next enqueued request
+    private Disposable dispatchWakeUp;
+    // guarded by "this"
+    private long dispatchWakeUpDueNanos;
 
     public PullingSchedulerQueueImpl(HttpClient httpClient,
                                      WaitingRequestsTracker waitingRequestsTracker,
                                      RequestsPerSecondCounter requestsPerSecondCounter,
                                      Comparator<FeedRequest> requestsPrioritizingComparator) {
-        this(
-                httpClient,
-                waitingRequestsTracker,
-                requestsPerSecondCounter,
-                requestsPrioritizingComparator,
-                PERIODIC_PULL_NEXT_TRIGGER_INTERVAL, // sensible default
-                LocalDateTime::now
-        );
+        this(newBuilder(httpClient, waitingRequestsTracker, requestsPerSecondCounter)
+                .setRequestsPrioritizingComparator(requestsPrioritizingComparator));
     }
 
     /**
      * FOR TESTING PURPOSES ONLY
      * package private access is intentional
-     *
-     * @param periodicPullNextTriggerInterval helps testability
-     * @param nowSupplier              helps testability
      */
     PullingSchedulerQueueImpl(HttpClient httpClient,
                               WaitingRequestsTracker waitingRequestsTracker,
                               RequestsPerSecondCounter requestsPerSecondCounter,
                               Comparator<FeedRequest> requestsPrioritizingComparator,
-                              Duration periodicPullNextTriggerInterval,
+                              Duration maxDispatchWakeUpDelay,
                               Supplier<LocalDateTime> nowSupplier) {
-        this.httpClient = httpClient;
-        this.waitingRequestsTracker = waitingRequestsTracker;
-        this.requestsPerSecondCounter = requestsPerSecondCounter;
-        this.requestsQueue = new PriorityBlockingQueue<>(100, QueueFeedRequest.makeComparatorFrom(requestsPrioritizingComparator));
-        this.periodicPullNextTriggerInterval = periodicPullNextTriggerInterval;
-        this.nowSupplier = nowSupplier;
-        schedulePeriodicPullNextTrigger();
+        this(newBuilder(httpClient, waitingRequestsTracker, requestsPerSecondCounter)
+                .setRequestsPrioritizingComparator(requestsPrioritizingComparator)
+                .setMaxDispatchWakeUpDelay(maxDispatchWakeUpDelay)
+                .setNowSupplier(nowSupplier));
     }
 
+    private PullingSchedulerQueueImpl(Builder builder) {
+        this.httpClient = builder.httpClient;
+        this.waitingRequestsTracker = builder.waitingRequestsTracker;
+        this.requestsPerSecondCounter = builder.requestsPerSecondCounter;
+        this.requestRateLimits = builder.requestRateLimits;
+        this.hostConcurrencyLimits = builder.hostConcurrencyLimits;
+        this.deadlineSchedulingPolicy = builder.deadlineSchedulingPolicy;
+        this.unchangedResultsEmitted = builder.unchangedResultsEmitted;
+        this.contentDigestChangeDetector = builder.contentDigestChangeDetector;
+        this.pooledResultBuffers = builder.pooledResultBuffers;
+        this.bodyRecipients = new BodyRecipients(waitingRequestsTracker::getDeduplicationKey, BodyRecipients.MAX_ENTRIES_DEFAULT);
+        if (deadlineSchedulingPolicy != null) {
+            final Comparator<QueueFeedRequest> comparator = QueueFeedRequest.makeDeadlineComparatorFrom(builder.requestsPrioritizingComparator);
+            this.requestsQueueFactory = () -> new ComparatorRequestsQueue(comparator);
+        } else if (builder.requestsPrioritizingComparator == FeedRequest.DEFAULT_PRIORITY_COMPARATOR) {
+            this.requestsQueueFactory = PriorityBucketedRequestsQueue::new;
+        } else {
+            final Comparator<QueueFeedRequest> comparator = QueueFeedRequest.makeComparatorFrom(builder.requestsPrioritizingComparator);
+            this.requestsQueueFactory = () -> new ComparatorRequestsQueue(comparator);
+        }
+        this.requestsQueue = requestsQueueFactory.get();
+        this.maxDispatchWakeUpDelay = builder.maxDispatchWakeUpDelay;
+        this.nowSupplier = builder.nowSupplier;
+    }
 
-    private void schedulePeriodicPullNextTrigger() {
-        Flux.interval(periodicPullNextTriggerInterval, periodicPullNextTriggerInterval)
-                .doOnNext(num -> {
-//                    jsonLog.debug("Running regular trigger of pullNext()");
-                    this.dequeueNextAndPull();
-                })
-                .onErrorResume(throwable -> {
-                    logger.warn("Error in scheduled trigger of pullNext()", throwable);
-                    return Mono.empty();
-                })
-                .subscribe();
+    /**
+     * @param requestsPerSecondCounter global limit of all requests sent from the queue
+     */
+    public static Builder newBuilder(HttpClient httpClient,
+                                     WaitingRequestsTracker waitingRequestsTracker,
+                                     RequestsPerSecondCounter requestsPerSecondCounter) {
+        return new Builder(httpClient, waitingRequestsTracker, requestsPerSecondCounter);
     }
 
 
@@ -89,18 +142,177 @@ public class PullingSchedulerQueueImpl implements PullingSchedulerQueue {
         dequeueNextAndPull();
     }
 
+    /**
+     * Streamed pulls are never coalesced with each other - a stream can be read by a single consumer only - so they are not
+     * tracked as awaiting response and each of them is sent. If a regular pull of the same request is already enqueued or in flight
+     * the caller gets its downloaded data as a stream instead. Conditional requests and content digests are not used for streamed pulls
+     */
+    @Override
+    public void enqueueForStreamPulling(FeedRequest feedRequest,
+                                        Consumer<StreamPullResult> streamPullResultConsumer,
+                                        Consumer<PullError> pullErrorConsumer) {
+        enqueueStreamRequest(feedRequest, streamPullResultConsumer, pullErrorConsumer);
+        dequeueNextAndPull();
+    }
+
+    /**
+     * must be synchronized -> is called from multiple threads and accesses data that is not thread-safe and operations on it need to be atomic
+     */
+    private synchronized void enqueueStreamRequest(FeedRequest feedRequest, Consumer<StreamPullResult> streamPullResultConsumer, Consumer<PullError> pullErrorConsumer) {
+        final CoalescedPull coalescedPull = coalescedPullsByKey.get(waitingRequestsTracker.getDeduplicationKey(feedRequest));
+        if (coalescedPull != null && coalescedPull.attach(feedRequest, StreamPullResult.consumingDownloadedData(streamPullResultConsumer), pullErrorConsumer)) {
+            logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid()).analyticsId("coalescing_duplicate_request")).info("FeedRequest already enqueued for pulling - will get its result as a stream: {}; ", feedRequest.toStringBasicInfo());
+            return;
+        }
+        final long enqueuedTimestamp = System.currentTimeMillis();
+        requestsQueue.add(QueueFeedRequest.forStreamPulling(feedRequest, streamPullResultConsumer, pullErrorConsumer, enqueuedTimestamp, calculateDueTimestamp(feedRequest, enqueuedTimestamp),
+                requestRateLimits.resolveCountersFor(feedRequest), hostConcurrencyLimits.resolveLimiterFor(feedRequest)));
+        logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid())).info("New enqueued streamed request info: {}", feedRequest.toStringBasicInfo());
+        logEnqueuedRequestCount();
+    }
+
     /**
      * must be synchronized -> is called from multiple threads and accesses data that is not thread-safe and operations on it need to be atomic
      */
     private synchronized void enqueueRequest(FeedRequest feedRequest, Consumer<PullResult> pullResultConsumer, Consumer<PullError> pullErrorConsumer) {
+        final String key = waitingRequestsTracker.getDeduplicationKey(feedRequest);
         if (shouldMakeRequest(feedRequest)) {
-            requestsQueue.add(new QueueFeedRequest(feedRequest, pullResultConsumer, pullErrorConsumer, System.currentTimeMillis()));
+            final QueuedPull queuedPull = queuedPullsByUrl.get(feedRequest.getUrl());
+            if (queuedPull != null && isSameRequestIgnoringPriority(queuedPull.queueFeedRequest().getFeedRequest(), feedRequest)) {
+                mergeIntoQueued(queuedPull, feedRequest, pullResultConsumer, pullErrorConsumer);
+                return;
+            }
+            final long enqueuedTimestamp = System.currentTimeMillis();
+            final CoalescedPull coalescedPull = new CoalescedPull(feedRequest, pullResultConsumer, pullErrorConsumer,
+                    (completed, pulledRequest) -> coalescedPullsByKey.remove(waitingRequestsTracker.getDeduplicationKey(pulledRequest), completed), unchangedResultsEmitted,
+                    bodyRecipients, this::refetchBody);
+            coalescedPullsByKey.put(key, coalescedPull);
+            addToQueue(feedRequest, coalescedPull, enqueuedTimestamp, calculateDueTimestamp(feedRequest, enqueuedTimestamp));
             waitingRequestsTracker.trackAwaitingResponse(feedRequest);
             logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid())).info("New enqueued request info: {}", feedRequest.toStringBasicInfo());
             logEnqueuedRequestCount();
         } else {
-            logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid()).analyticsId("ignoring_duplicate_request")).info("FeedRequest already enqueued for pulling - ignoring: {}; ", feedRequest.toStringBasicInfo());
+            CoalescedPull coalescedPull = coalescedPullsByKey.get(key);
+            if (coalescedPull != null && coalescedPull.attach(feedRequest, pullResultConsumer, pullErrorConsumer)) {
+                logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid()).analyticsId("coalescing_duplicate_request")).info("FeedRequest already enqueued for pulling - will share its result: {}; ", feedRequest.toStringBasicInfo());
+            } else {
+                logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid()).analyticsId("ignoring_duplicate_request")).info("FeedRequest already enqueued for pulling - ignoring: {}; ", feedRequest.toStringBasicInfo());
+            }
+        }
+    }
+
+    /**
+     * The provider reported the data as not modified but some callers of the pull have not received it yet - e.g. they joined
+     * a pull that was sent as a conditional request. The request is pulled again for them without the conditional request validators
+     */
+    private void refetchBody(FeedRequest notModifiedRequest, CoalescedPull coalescedPull) {
+        if (ConditionalRequestValidators.isUnconditional(notModifiedRequest)) {
+            logger.decorateSetup(mdc -> mdc.anyId(notModifiedRequest.getUuid())).warn("Not modified response to an unconditional request: {}", notModifiedRequest.toStringBasicInfo());
+            coalescedPull.emitError(new PullError(notModifiedRequest, new FailedRequestException(notModifiedRequest)));
+            return;
+        }
+        enqueueRefetch(notModifiedRequest.withHttpHeader(ConditionalRequestValidators.CACHE_CONTROL, ConditionalRequestValidators.NO_CACHE), coalescedPull);
+        dequeueNextAndPull();
+    }
+
+    /**
+     * must be synchronized -> is called from multiple threads and accesses data that is not thread-safe and operations on it need to be atomic
+     */
+    private synchronized void enqueueRefetch(FeedRequest unconditionalRequest, CoalescedPull coalescedPull) {
+        final long enqueuedTimestamp = System.currentTimeMillis();
+        coalescedPullsByKey.put(waitingRequestsTracker.getDeduplicationKey(unconditionalRequest), coalescedPull);
+        addToQueue(unconditionalRequest, coalescedPull, enqueuedTimestamp, calculateDueTimestamp(unconditionalRequest, enqueuedTimestamp));
+        waitingRequestsTracker.trackAwaitingResponse(unconditionalRequest);
+        logger.decorateSetup(mdc -> mdc.anyId(unconditionalRequest.getUuid()).analyticsId("refetching_not_modified_request")).info("Not modified data not received by all callers yet - enqueued request without validators: {}", unconditionalRequest.toStringBasicInfo());
+        logEnqueuedRequestCount();
+    }
+
+    /**
+     * must be called while holding the lock on "this"
+     *
+     * The request to the same url is not sent yet - the caller just joins it. If the new request is more urgent the queued one
+     * is re-prioritized first so that a single provider call still meets the latency the urgent caller needs.
+     */
+    private void mergeIntoQueued(QueuedPull queuedPull, FeedRequest feedRequest, Consumer<PullResult> pullResultConsumer, Consumer<PullError> pullErrorConsumer) {
+        final QueueFeedRequest queued = queuedPull.queueFeedRequest();
+        final FeedRequest queuedRequest = queued.getFeedRequest();
+        if (feedRequest.getSchedulingOrder() < queuedRequest.getSchedulingOrder() && removeFromQueue(queued)) {
+            final CoalescedPull coalescedPull = queuedPull.coalescedPull();
+            coalescedPullsByKey.remove(waitingRequestsTracker.getDeduplicationKey(queuedRequest), coalescedPull);
+            waitingRequestsTracker.untrackProcessed(queuedRequest);
+            coalescedPull.attach(feedRequest, pullResultConsumer, pullErrorConsumer);
+            coalescedPullsByKey.put(waitingRequestsTracker.getDeduplicationKey(feedRequest), coalescedPull);
+            // the request keeps its original enqueued time so that the queue wait statistics stay correct
+            final long dueTimestamp = Math.min(queued.getDueTimestamp(), calculateDueTimestamp(feedRequest, System.currentTimeMillis()));
+            addToQueue(feedRequest, coalescedPull, queued.getEnqueuedTimestamp(), dueTimestamp);
+            waitingRequestsTracker.trackAwaitingResponse(feedRequest);
+            logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid()).analyticsId("upgrading_queued_request_priority")).info("Request to the same url already enqueued with lower priority {} - upgraded it to {}: {}; ", queuedRequest.getPriority(), feedRequest.getPriority(), feedRequest.toStringBasicInfo());
+        } else {
+            queuedPull.coalescedPull().attach(feedRequest, pullResultConsumer, pullErrorConsumer);
+            logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid()).analyticsId("coalescing_duplicate_request")).info("Request to the same url already enqueued with priority {} - will share its result: {}; ", queuedRequest.getPriority(), feedRequest.toStringBasicInfo());
+        }
+    }
+
+    /**
+     * must be called while holding the lock on "this"
+     */
+    private void addToQueue(FeedRequest feedRequest, CoalescedPull coalescedPull, long enqueuedTimestamp, long dueTimestamp) {
+        final QueueFeedRequest queueFeedRequest = new QueueFeedRequest(feedRequest, coalescedPull::emitResult, coalescedPull::emitError, enqueuedTimestamp, dueTimestamp, requestRateLimits.resolveCountersFor(feedRequest), hostConcurrencyLimits.resolveLimiterFor(feedRequest));
+        requestsQueue.add(queueFeedRequest);
+        queuedPullsByUrl.put(feedRequest.getUrl(), new QueuedPull(queueFeedRequest, coalescedPull));
+    }
+
+    /**
+     * must be called while holding the lock on "this"
+     */
+    private void removeFromQueuedPulls(QueueFeedRequest queueFeedRequest) {
+        final String url = queueFeedRequest.getFeedRequest().getUrl();
+        final QueuedPull queuedPull = queuedPullsByUrl.get(url);
+        if (queuedPull != null && queuedPull.queueFeedRequest() == queueFeedRequest) {
+            queuedPullsByUrl.remove(url);
+        }
+    }
+
+    /**
+     * must be called while holding the lock on "this"
+     *
+     * The request might be parked because of its limits - the queues of parked requests are only looked up by its limiter and counters
+     */
+    private boolean removeFromQueue(QueueFeedRequest queueFeedRequest) {
+        if (requestsQueue.remove(queueFeedRequest)) {
+            return true;
+        }
+        if (queueFeedRequest.getConcurrencyLimiter() != null && removeParked(concurrencyLimitedRequests, queueFeedRequest.getConcurrencyLimiter(), queueFeedRequest)) {
+            return true;
+        }
+        final List<RequestsPerSecondCounter> rateLimitCounters = queueFeedRequest.getRateLimitCounters();
+        for (int idx = 0; idx < rateLimitCounters.size(); idx++) {
+            if (removeParked(rateLimitedRequests, rateLimitCounters.get(idx), queueFeedRequest)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long calculateDueTimestamp(FeedRequest feedRequest, long enqueuedTimestamp) {
+        return deadlineSchedulingPolicy != null ? deadlineSchedulingPolicy.calculateDueTimestamp(feedRequest, enqueuedTimestamp) : enqueuedTimestamp;
+    }
+
+    /**
+     * Requests to the same url are considered the same if they also send the same headers - their priority, properties
+     * and feed name do not affect the response
+     */
+    static boolean isSameRequestIgnoringPriority(FeedRequest feedRequest1, FeedRequest feedRequest2) {
+        if (!Objects.equals(feedRequest1.getUrl(), feedRequest2.getUrl()) || feedRequest1.httpHeaders.size() != feedRequest2.httpHeaders.size()) {
+            return false;
+        }
+        for (FeedRequestHttpHeader header : feedRequest1.httpHeaders.values()) {
+            FeedRequestHttpHeader otherHeader = feedRequest2.httpHeaders.get(header.getKey());
+            if (otherHeader == null || !Objects.equals(header.getValue(), otherHeader.getValue())) {
+                return false;
+            }
         }
+        return true;
     }
 
     boolean shouldMakeRequest(FeedRequest feedRequest) {
@@ -122,76 +334,456 @@ public class PullingSchedulerQueueImpl implements PullingSchedulerQueue {
 
     /**
      * must be synchronized -> is called from multiple threads and accesses data that is not thread-safe and operations on it need to be atomic
+     *
+     * Dispatching is event driven: it runs when a request is enqueued and when the requests per second limit allows sending
+     * the next request that could not be sent before - there is no periodic polling of the queue.
+     *
+     * Requests blocked by any of the {@link RequestRateLimits} are parked by the counter that blocks them so that the requests behind them
+     * get a chance to be sent. They are put back into the queue one by one once the counter has a permit available again. The same applies
+     * to requests whose host has reached its limit of requests in flight - they are parked by the limiter of the host until one of its
+     * requests completes. Blocked requests are therefore not looked at again until their limit frees up. The global limit stops
+     * the dispatching altogether.
      */
     private synchronized void dequeueNextAndPull() {
         try {
-            QueueFeedRequest nextQueueRequest = requestsQueue.peek();
-            while (nextQueueRequest != null && requestsPerSecondCounter.incrementIfRequestWithinLimitAndGet(nowSupplier.get())) {
-                requestsQueue.poll(); // remove from queue head
-                scheduleSinglePull(nextQueueRequest.getFeedRequest(),
-                        nextQueueRequest.getPullResultConsumer(),
-                        nextQueueRequest.getPullErrorConsumer(),
-                        nextQueueRequest.getEnqueuedTimestamp()
-                );
-                nextQueueRequest = requestsQueue.peek();
+            dispatchQueued();
+        } catch (Exception e) {
+            logger.error("Error pulling next request!", e);
+        }
+    }
+
+    /**
+     * must be called while holding the lock on "this"
+     *
+     * @return false if the global limit has been reached
+     */
+    private boolean dispatchQueued() {
+        QueueFeedRequest nextQueueRequest = requestsQueue.peek();
+        while (nextQueueRequest != null) {
+            if (dispatch(nextQueueRequest) == DispatchOutcome.GLOBAL_LIMIT_REACHED) {
+                // sleep until the next request can be sent
+                scheduleDispatchWakeUp(getDelayUntilNextPermit());
+                return false;
+            }
+            nextQueueRequest = requestsQueue.peek();
+        }
+        return true;
+    }
+
+    /**
+     * must be called while holding the lock on "this"
+     *
+     * @param queueFeedRequest the head of the queue; it stays there only if the global limit has been reached
+     */
+    private DispatchOutcome dispatch(QueueFeedRequest queueFeedRequest) {
+        final RequestsPerSecondCounter blockingCounter = getLongestBlockingCounter(queueFeedRequest.getRateLimitCounters());
+        if (blockingCounter != null) {
+            requestsQueue.poll();
+            park(rateLimitedRequests, blockingCounter, queueFeedRequest);
+            scheduleDispatchWakeUp(getDelayUntilNextPermit(blockingCounter));
+            return DispatchOutcome.PARKED;
+        }
+        final AdaptiveConcurrencyLimiter concurrencyLimiter = queueFeedRequest.getConcurrencyLimiter();
+        if (concurrencyLimiter != null && !concurrencyLimiter.tryAcquire()) {
+            requestsQueue.poll();
+            park(concurrencyLimitedRequests, concurrencyLimiter, queueFeedRequest); // a request of the host is in flight -> its completion unparks it
+            return DispatchOutcome.PARKED;
+        }
+        if (!isRequestWithinLimit()) {
+            if (concurrencyLimiter != null) {
+                concurrencyLimiter.release(); // the request stays enqueued
             }
+            return DispatchOutcome.GLOBAL_LIMIT_REACHED;
+        }
+        requestsQueue.poll();
+        removeFromQueuedPulls(queueFeedRequest);
+        acquirePermits(queueFeedRequest.getRateLimitCounters());
+        queueWaitStatistics.record(queueFeedRequest.getFeedRequest().getPriority(), System.currentTimeMillis() - queueFeedRequest.getEnqueuedTimestamp());
+        if (queueFeedRequest.getStreamPullResultConsumer() != null) {
+            scheduleSingleStreamPull(queueFeedRequest, concurrencyLimiter);
+        } else {
+            scheduleSinglePull(queueFeedRequest, concurrencyLimiter);
+        }
+        return DispatchOutcome.SENT;
+    }
+
+    /**
+     * must be called while holding the lock on "this"
+     */
+    private <K> void park(Map<K, RequestsQueue> parkedRequests, K limit, QueueFeedRequest queueFeedRequest) {
+        parkedRequests.computeIfAbsent(limit, key -> requestsQueueFactory.get()).add(queueFeedRequest);
+    }
+
+    /**
+     * must be called while holding the lock on "this"
+     *
+     * Puts the most urgent request parked by the limit back into the queue where it is dispatched along with the other enqueued requests
+     *
+     * @return false if there is no request parked by the limit
+     */
+    private <K> boolean unparkNext(Map<K, RequestsQueue> parkedRequests, K limit) {
+        final RequestsQueue parked = parkedRequests.get(limit);
+        if (parked == null) {
+            return false;
+        }
+        final QueueFeedRequest queueFeedRequest = parked.poll();
+        if (parked.size() == 0) {
+            parkedRequests.remove(limit);
+        }
+        if (queueFeedRequest == null) {
+            return false;
+        }
+        requestsQueue.reinsertSkipped(List.of(queueFeedRequest));
+        return true;
+    }
+
+    /**
+     * must be called while holding the lock on "this"
+     */
+    private <K> boolean removeParked(Map<K, RequestsQueue> parkedRequests, K limit, QueueFeedRequest queueFeedRequest) {
+        final RequestsQueue parked = parkedRequests.get(limit);
+        if (parked == null || !parked.remove(queueFeedRequest)) {
+            return false;
+        }
+        if (parked.size() == 0) {
+            parkedRequests.remove(limit);
+        }
+        return true;
+    }
+
+    /**
+     * must be synchronized -> is called from multiple threads and accesses data that is not thread-safe and operations on it need to be atomic
+     *
+     * A request parked by the limiter is always preceded by a request of the same host that is in flight, so the parked requests
+     * cannot get stuck: the requests are unparked while the limiter has capacity which keeps at least one of them on its way
+     * to being sent (or parked by a rate limit) until the next release.
+     */
+    private synchronized void onConcurrencyLimiterReleased(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        try {
+            while (concurrencyLimiter.hasCapacity() && unparkNext(concurrencyLimitedRequests, concurrencyLimiter)) {
+                if (!dispatchQueued()) {
+                    return; // the wake-up dispatches the unparked request
+                }
+            }
+            dispatchQueued(); // requests enqueued meanwhile
         } catch (Exception e) {
             logger.error("Error pulling next request!", e);
         }
     }
 
-    private void scheduleSinglePull(FeedRequest request,
-                                    Consumer<PullResult> pullResultConsumer,
-                                    Consumer<PullError> pullErrorConsumer,
-                                    long enqueuedTimestamp) {
+    /**
+     * must be called while holding the lock on "this"
+     *
+     * Unparks requests of the counters that have a permit available again one by one - each of them uses up a permit of the counter
+     * unless another limit blocks it. Counters that are still blocking get another wake-up.
+     *
+     * @return false if the global limit has been reached
+     */
+    private boolean unparkRateLimitedRequests() {
+        if (rateLimitedRequests.isEmpty()) {
+            return true;
+        }
+        for (RequestsPerSecondCounter counter : new ArrayList<>(rateLimitedRequests.keySet())) {
+            Duration delay = getDelayUntilNextPermit(counter);
+            while (delay.isZero() && unparkNext(rateLimitedRequests, counter)) {
+                if (!dispatchQueued()) {
+                    return false;
+                }
+                delay = getDelayUntilNextPermit(counter);
+            }
+            if (!delay.isZero() && rateLimitedRequests.containsKey(counter)) {
+                scheduleDispatchWakeUp(delay);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * must be called while holding the lock on "this"
+     */
+    private void scheduleDispatchWakeUp(Duration delay) {
+        final long delayNanos = boundDispatchWakeUpDelay(delay).toNanos();
+        final long dueNanos = System.nanoTime() + delayNanos;
+        if (dispatchWakeUp != null && !dispatchWakeUp.isDisposed()) {
+            if (dispatchWakeUpDueNanos - dueNanos <= 0L) {
+                return; // already going to wake up in time
+            }
+            dispatchWakeUp.dispose();
+        }
+        dispatchWakeUpDueNanos = dueNanos;
+        dispatchWakeUp = Schedulers.parallel().schedule(this::onDispatchWakeUp, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private synchronized void onDispatchWakeUp() {
+        dispatchWakeUp = null;
+        try {
+            if (unparkRateLimitedRequests()) {
+                dispatchQueued();
+            }
+        } catch (Exception e) {
+            logger.error("Error pulling next request!", e);
+        }
+    }
+
+    private boolean isRequestWithinLimit() {
+        Supplier<LocalDateTime> nowSupplier = this.nowSupplier;
+        return nowSupplier != null ? requestsPerSecondCounter.incrementIfRequestWithinLimitAndGet(nowSupplier.get()) : requestsPerSecondCounter.incrementIfRequestWithinLimitAndGet();
+    }
+
+    private Duration getDelayUntilNextPermit() {
+        Supplier<LocalDateTime> nowSupplier = this.nowSupplier;
+        return nowSupplier != null ? requestsPerSecondCounter.getDelayUntilNextPermit(nowSupplier.get()) : requestsPerSecondCounter.getDelayUntilNextPermit();
+    }
+
+    private Duration getDelayUntilNextPermit(RequestsPerSecondCounter counter) {
+        Supplier<LocalDateTime> nowSupplier = this.nowSupplier;
+        return nowSupplier != null ? counter.getDelayUntilNextPermit(nowSupplier.get()) : counter.getDelayUntilNextPermit();
+    }
+
+    /**
+     * @return zero if all the counters have a permit available, otherwise the longest of their delays
+     */
+    private Duration getDelayUntilNextPermit(List<RequestsPerSecondCounter> rateLimitCounters) {
+        Duration maxDelay = Duration.ZERO;
+        for (int idx = 0; idx < rateLimitCounters.size(); idx++) {
+            Duration delay = getDelayUntilNextPermit(rateLimitCounters.get(idx));
+            if (delay.compareTo(maxDelay) > 0) {
+                maxDelay = delay;
+            }
+        }
+        return maxDelay;
+    }
+
+    /**
+     * @return null if all the counters have a permit available, otherwise the counter with the longest delay
+     */
+    private RequestsPerSecondCounter getLongestBlockingCounter(List<RequestsPerSecondCounter> rateLimitCounters) {
+        RequestsPerSecondCounter blockingCounter = null;
+        Duration maxDelay = Duration.ZERO;
+        for (int idx = 0; idx < rateLimitCounters.size(); idx++) {
+            RequestsPerSecondCounter counter = rateLimitCounters.get(idx);
+            Duration delay = getDelayUntilNextPermit(counter);
+            if (delay.compareTo(maxDelay) > 0) {
+                maxDelay = delay;
+                blockingCounter = counter;
+            }
+        }
+        return blockingCounter;
+    }
+
+    /**
+     * must be called while holding the lock on "this" right after {@link #getDelayUntilNextPermit(List)} returned zero for the same counters
+     */
+    private void acquirePermits(List<RequestsPerSecondCounter> rateLimitCounters) {
+        for (int idx = 0; idx < rateLimitCounters.size(); idx++) {
+            RequestsPerSecondCounter counter = rateLimitCounters.get(idx);
+            Supplier<LocalDateTime> nowSupplier = this.nowSupplier;
+            boolean acquired = nowSupplier != null ? counter.incrementIfRequestWithinLimitAndGet(nowSupplier.get()) : counter.incrementIfRequestWithinLimitAndGet();
+            if (!acquired) {
+                logger.warn("Rate limit counter ran out of permits between checking and acquiring them - is it shared with another queue? {}", counter);
+            }
+        }
+    }
+
+    /**
+     * Used for retries which are not queued - same check-then-acquire as for the queued requests
+     */
+    private synchronized boolean isRequestWithinLimit(List<RequestsPerSecondCounter> rateLimitCounters) {
+        if (!getDelayUntilNextPermit(rateLimitCounters).isZero() || !isRequestWithinLimit()) {
+            return false;
+        }
+        acquirePermits(rateLimitCounters);
+        return true;
+    }
+
+    private Duration boundDispatchWakeUpDelay(Duration delay) {
+        if (delay.compareTo(MIN_DISPATCH_WAKE_UP_DELAY) < 0) {
+            return MIN_DISPATCH_WAKE_UP_DELAY;
+        } else if (delay.compareTo(maxDispatchWakeUpDelay) > 0) {
+            return maxDispatchWakeUpDelay;
+        } else {
+            return delay;
+        }
+    }
+
+    private void scheduleSinglePull(QueueFeedRequest queueFeedRequest, AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        final FeedRequest request = queueFeedRequest.getFeedRequest();
+        if (pooledResultBuffers) {
+            scheduleSinglePull(request,
+                    httpClient::getPooledAsync,
+                    pooledData -> toPullResult(request, pooledData),
+                    queueFeedRequest.getPullResultConsumer(),
+                    Schedulers.parallel(),
+                    queueFeedRequest,
+                    concurrencyLimiter,
+                    true,
+                    false);
+            return;
+        }
+        scheduleSinglePull(request,
+                httpClient::getAsync,
+                rawData -> toPullResult(request, rawData),
+                queueFeedRequest.getPullResultConsumer(),
+                Schedulers.parallel(), // emitted results need to be published on parallel scheduler so we do not execute pulled data processing on the httpClient's own threadpool
+                queueFeedRequest,
+                concurrencyLimiter,
+                true,
+                false);
+    }
+
+    private void scheduleSingleStreamPull(QueueFeedRequest queueFeedRequest, AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        final FeedRequest request = queueFeedRequest.getFeedRequest();
+        final Consumer<StreamPullResult> streamPullResultConsumer = queueFeedRequest.getStreamPullResultConsumer();
+        scheduleSinglePull(request,
+                httpClient::getStreamAsync,
+                stream -> new StreamPullResult(request, stream),
+                streamPullResult -> consumeAndClose(streamPullResult, streamPullResultConsumer, queueFeedRequest.getPullErrorConsumer()),
+                Schedulers.boundedElastic(), // the consumer blocks while reading the stream
+                queueFeedRequest,
+                concurrencyLimiter,
+                false,
+                true);
+    }
+
+    private <T, R> void scheduleSinglePull(FeedRequest request,
+                                           Function<FeedRequest, CompletableFuture<T>> requestSender,
+                                           Function<T, R> resultMapper,
+                                           Consumer<R> resultConsumer,
+                                           Scheduler resultScheduler,
+                                           QueueFeedRequest queueFeedRequest,
+                                           AdaptiveConcurrencyLimiter concurrencyLimiter,
+                                           boolean trackedAwaitingResponse,
+                                           boolean resultHoldsConnection) {
 
         AtomicBoolean isRetry = new AtomicBoolean(false);
+        final List<RequestsPerSecondCounter> rateLimitCounters = queueFeedRequest.getRateLimitCounters();
 
-        Mono.just(request)
-                .map(request0 -> handleRequestIfRetried(isRetry, request0))
-                .flatMap(canProceed -> Mono.fromFuture(httpClient.getAsync(request))) // if we got here it means that the previous step passed and emmited 'true'
-                .publishOn(Schedulers.parallel())   // emitted results need to be published on parallel scheduler so we do not execute pulled data processing on the httpClient's own threadpool
+        Mono<T> response = Mono.just(request)
+                .flatMap(request0 -> handleRequestIfRetried(isRetry, request0, rateLimitCounters, trackedAwaitingResponse))
+                .flatMap(withinLimit -> sendRequest(request, requestSender, concurrencyLimiter)) // if we got here it means that the previous step passed and emitted 'true'
                 .onErrorMap(error -> {
                     logRequestError(request, error);
-                    waitingRequestsTracker.untrackProcessed(request);   // if an error happened and will be retried at some point, we want to untrack the request so that other requests coming in for the same url do not get ignored
+                    untrackProcessed(request, trackedAwaitingResponse);   // if an error happened and will be retried at some point, we want to untrack the request so that other requests coming in for the same url do not get ignored
                     return error;
                 })
                 .retryWhen(Retry.backoff(request.getNumOfRetries(), request.getRetryBackoff()))
                 .onErrorResume(error -> {
                     logDroppingRetrying(request, error);
                     logEnqueuedRequestCount();
-                    notifyOnErrorCallback(request, pullErrorConsumer, error);
+                    notifyOnErrorCallback(request, queueFeedRequest.getPullErrorConsumer(), error);
                     return Mono.empty();
                     // note - do not untrack request here, it should already be untracked by onErrorMap() above
-                })
+                });
+        if (!resultHoldsConnection) {
+            // the request (including its retries) is held in flight until its response has arrived - the result is processed
+            // on the resultScheduler so the time its consumer takes does not count against the host
+            response = response.doFinally(signal -> releaseConcurrencyLimiter(concurrencyLimiter));
+        }
+        Mono<R> result = response
+                .publishOn(resultScheduler)
                 .doOnNext(data -> {
-                    waitingRequestsTracker.untrackProcessed(request);
+                    untrackProcessed(request, trackedAwaitingResponse);
                     logEnqueuedRequestCount();
-                    logRequestProcessed(request, enqueuedTimestamp);
+                    logRequestProcessed(request, queueFeedRequest.getEnqueuedTimestamp());
                 })
-                .map(rawData -> new PullResult(request, rawData))
-                .subscribe(pullResultConsumer);
+                .map(resultMapper);
+        if (resultHoldsConnection) {
+            // the body is still being downloaded while the consumer reads it - the request is in flight until it is consumed
+            result = result.doFinally(signal -> releaseConcurrencyLimiter(concurrencyLimiter));
+        }
+        result.subscribe(resultConsumer);
     }
 
+    private void untrackProcessed(FeedRequest request, boolean trackedAwaitingResponse) {
+        if (trackedAwaitingResponse) {
+            waitingRequestsTracker.untrackProcessed(request);
+        }
+    }
+
+    /**
+     * Failures of the consumer - typically the download breaking off while the stream is being read - are passed on to the pullErrorConsumer
+     */
+    private void consumeAndClose(StreamPullResult streamPullResult, Consumer<StreamPullResult> streamPullResultConsumer, Consumer<PullError> pullErrorConsumer) {
+        try (InputStream ignored = streamPullResult.getData()) {
+            try {
+                streamPullResultConsumer.accept(streamPullResult);
+            } catch (Exception e) {
+                logger.decorateSetup(mdc -> mdc.anyId(streamPullResult.getFeedRequest().getUuid())).warn("Error while consuming pulled stream: {}", streamPullResult.getFeedRequest().toStringBasicInfo(), e);
+                notifyOnErrorCallback(streamPullResult.getFeedRequest(), pullErrorConsumer, e);
+            }
+        } catch (IOException e) {
+            logger.decorateSetup(mdc -> mdc.anyId(streamPullResult.getFeedRequest().getUuid())).warn("Error closing pulled stream: {}", streamPullResult.getFeedRequest().toStringBasicInfo(), e);
+        }
+    }
+
+    private PullResult toPullResult(FeedRequest request, byte[] rawData) {
+        if (rawData == HttpClient.NOT_MODIFIED) {
+            return PullResult.unchanged(request);
+        }
+        if (contentDigestChangeDetector != null && contentDigestChangeDetector.isUnchanged(request, rawData)) {
+            logger.decorateSetup(mdc -> mdc.anyId(request.getUuid()).analyticsId("pulled_data_unchanged")).info("Pulled data did not change since the previous pull: {}", request.toStringBasicInfo());
+            return PullResult.unchanged(request, rawData);
+        }
+        return new PullResult(request, rawData);
+    }
+
+    private <T> Mono<T> sendRequest(FeedRequest request, Function<FeedRequest, CompletableFuture<T>> requestSender, AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        if (concurrencyLimiter == null) {
+            return Mono.fromFuture(requestSender.apply(request));
+        }
+        final long startNanos = System.nanoTime();
+        return Mono.fromFuture(requestSender.apply(request))
+                .doOnSuccess(data -> concurrencyLimiter.onRttSample(System.nanoTime() - startNanos))
+                .doOnError(error -> concurrencyLimiter.onRttSample(System.nanoTime() - startNanos));
+    }
 
-    // returns true if te request is within limit. The returned value has no affect though on subsequent items in the Mono chain
-    private Mono<Boolean> handleRequestIfRetried(AtomicBoolean isRetry, FeedRequest request) {
+    private void releaseConcurrencyLimiter(AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        if (concurrencyLimiter != null) {
+            concurrencyLimiter.release();
+            onConcurrencyLimiterReleased(concurrencyLimiter); // requests to the same host might be waiting
+        }
+    }
+
+
+    /**
+     * Releases the buffer if no result can be made of it - nobody else would
+     */
+    private PullResult toPullResult(FeedRequest request, ByteBuf pooledData) {
+        if (pooledData == HttpClient.NOT_MODIFIED_BUFFER) {
+            return PullResult.unchanged(request);
+        }
+        try {
+            if (contentDigestChangeDetector != null && contentDigestChangeDetector.isUnchanged(request, pooledData)) {
+                logger.decorateSetup(mdc -> mdc.anyId(request.getUuid()).analyticsId("pulled_data_unchanged")).info("Pulled data did not change since the previous pull: {}", request.toStringBasicInfo());
+                return PullResult.pooled(request, pooledData, true);
+            }
+            return PullResult.pooled(request, pooledData, false);
+        } catch (RuntimeException e) {
+            pooledData.release();
+            throw e;
+        }
+    }
+
+    // emits true once the request is within limit - a retry over the limit is delayed until it gets its permits
+    private Mono<Boolean> handleRequestIfRetried(AtomicBoolean isRetry, FeedRequest request, List<RequestsPerSecondCounter> rateLimitCounters, boolean trackedAwaitingResponse) {
         // done like this with AtomicBoolean because when we poll requests from requestsQueue
         // we have checked that they are within limit so that is ok ...
         // ... but when requests fail and are retried by the Reactor Flux we need to check again
         // the retry because it happens at some later point and we might have run out of rqs / sec for that moment
         // ->>> WE NEED TO MAKE SURE THAT RETRIED REQUEST ALSO RESPECT THE RQs/SEC LIMIT + THAT THEY ARE TRACKED CORRECTLY
         if (isRetry.get()) {
-            if (requestsPerSecondCounter.incrementIfRequestWithinLimitAndGet(nowSupplier.get())) {
+            if (isRequestWithinLimit(rateLimitCounters)) {
                 logRetry(request);
-                waitingRequestsTracker.trackAwaitingResponse(request);
+                if (trackedAwaitingResponse) {
+                    waitingRequestsTracker.trackAwaitingResponse(request);
+                }
                 return Mono.just(true);
             } else {
                 // repeat until we are within limit ...
                 logDelayedRetry(request);
                 return Mono.just(false)
-                        .delayElement(periodicPullNextTriggerInterval)
-                        .flatMap(dummy -> handleRequestIfRetried(isRetry, request)); // call this method again ... kind of recursively ... until we are within limit at some point
+                        .delayElement(boundDispatchWakeUpDelay(maxOf(getDelayUntilNextPermit(), getDelayUntilNextPermit(rateLimitCounters))))
+                        .flatMap(dummy -> handleRequestIfRetried(isRetry, request, rateLimitCounters, trackedAwaitingResponse)); // call this method again ... kind of recursively ... until we are within limit at some point
 
             }
         } else {
@@ -200,6 +792,10 @@ public class PullingSchedulerQueueImpl implements PullingSchedulerQueue {
         }
     }
 
+    private static Duration maxOf(Duration delay1, Duration delay2) {
+        return delay1.compareTo(delay2) >= 0 ? delay1 : delay2;
+    }
+
     private void notifyOnErrorCallback(FeedRequest request, Consumer<PullError> pullErrorConsumer, Throwable error) {
         try {
             pullErrorConsumer.accept(new PullError(request, error));
@@ -234,6 +830,13 @@ public class PullingSchedulerQueueImpl implements PullingSchedulerQueue {
     }
 
 
+    /**
+     * @return how long requests of each priority waited in the queue before being sent
+     */
+    public QueueWaitStatistics getQueueWaitStatistics() {
+        return queueWaitStatistics;
+    }
+
     /**
      * FOR TESTING PURPOSES ONLY.
      * Needed so we are able to test changes of behaviour based on the passage of time
@@ -242,4 +845,130 @@ public class PullingSchedulerQueueImpl implements PullingSchedulerQueue {
     void setNowSupplier(Supplier<LocalDateTime> nowSupplierNew) {
         this.nowSupplier = nowSupplierNew;
     }
+
+
+    public static class Builder {
+
+        private final HttpClient httpClient;
+        private final WaitingRequestsTracker waitingRequestsTracker;
+        private final RequestsPerSecondCounter requestsPerSecondCounter;
+        private Comparator<FeedRequest> requestsPrioritizingComparator = FeedRequest.DEFAULT_PRIORITY_COMPARATOR;
+        private RequestRateLimits requestRateLimits = RequestRateLimits.NONE;
+        private HostConcurrencyLimits hostConcurrencyLimits = HostConcurrencyLimits.NONE;
+        private DeadlineSchedulingPolicy deadlineSchedulingPolicy;
+        private Duration maxDispatchWakeUpDelay = MAX_DISPATCH_WAKE_UP_DELAY;
+        private Supplier<LocalDateTime> nowSupplier;
+        private boolean unchangedResultsEmitted = false;
+        private ContentDigestChangeDetector contentDigestChangeDetector;
+        private boolean pooledResultBuffers = false;
+
+        private Builder(HttpClient httpClient, WaitingRequestsTracker waitingRequestsTracker, RequestsPerSecondCounter requestsPerSecondCounter) {
+            this.httpClient = httpClient;
+            this.waitingRequestsTracker = waitingRequestsTracker;
+            this.requestsPerSecondCounter = requestsPerSecondCounter;
+        }
+
+        /**
+         * @param requestsPrioritizingComparator with {@link FeedRequest#DEFAULT_PRIORITY_COMPARATOR} the requests are kept in per-priority
+         *                                       FIFO queues; any other comparator needs a heap with O(log n) comparisons per request
+         */
+        public Builder setRequestsPrioritizingComparator(Comparator<FeedRequest> requestsPrioritizingComparator) {
+            this.requestsPrioritizingComparator = requestsPrioritizingComparator;
+            return this;
+        }
+
+        /**
+         * @param requestRateLimits additional per host / feed / property limits; a request that is blocked by any of them
+         *                          is skipped so that requests enqueued after it can be sent in the meantime
+         */
+        public Builder setRequestRateLimits(RequestRateLimits requestRateLimits) {
+            this.requestRateLimits = requestRateLimits;
+            return this;
+        }
+
+        /**
+         * @param hostConcurrencyLimits limits the number of requests in flight per host; requests beyond the limit stay enqueued
+         */
+        public Builder setHostConcurrencyLimits(HostConcurrencyLimits hostConcurrencyLimits) {
+            this.hostConcurrencyLimits = hostConcurrencyLimits;
+            return this;
+        }
+
+        /**
+         * @param deadlineSchedulingPolicy orders requests by their due time; the prioritizing comparator then only breaks ties
+         */
+        public Builder setDeadlineSchedulingPolicy(DeadlineSchedulingPolicy deadlineSchedulingPolicy) {
+            this.deadlineSchedulingPolicy = deadlineSchedulingPolicy;
+            return this;
+        }
+
+        /**
+         * FOR TESTING PURPOSES ONLY
+         * package private access is intentional
+         *
+         * @param maxDispatchWakeUpDelay the longest time the dispatching sleeps while there are enqueued requests - a safety net in case
+         *                               the requests per second counter reports a longer delay than needed (e.g. due to a changed system time)
+         */
+        Builder setMaxDispatchWakeUpDelay(Duration maxDispatchWakeUpDelay) {
+            this.maxDispatchWakeUpDelay = maxDispatchWakeUpDelay;
+            return this;
+        }
+
+        /**
+         * FOR TESTING PURPOSES ONLY
+         * package private access is intentional
+         *
+         * @param nowSupplier helps testability; if null the requests per second counter uses its own clock
+         */
+        Builder setNowSupplier(Supplier<LocalDateTime> nowSupplier) {
+            this.nowSupplier = nowSupplier;
+            return this;
+        }
+
+        /**
+         * @param unchangedResultsEmitted whether the consumers get {@link PullResult#isUnchanged()} results when the http client
+         *                                reports that the data did not change since the previous pull (see ConditionalRequestValidators)
+         *                                or the {@link ContentDigestChangeDetector} finds the same data; such results are not emitted by default.
+         *                                Either way a consumer that has not processed the data of the request yet still gets it
+         */
+        public Builder setUnchangedResultsEmitted(boolean unchangedResultsEmitted) {
+            this.unchangedResultsEmitted = unchangedResultsEmitted;
+            return this;
+        }
+
+        /**
+         * @param contentDigestChangeDetector makes results with the same data as the previous pull of the request {@link PullResult#isUnchanged()}
+         *                                    so that their processing can be skipped; null by default
+         */
+        public Builder setContentDigestChangeDetector(ContentDigestChangeDetector contentDigestChangeDetector) {
+            this.contentDigestChangeDetector = contentDigestChangeDetector;
+            return this;
+        }
+
+        /**
+         * @param pooledResultBuffers whether the responses are read into pooled buffers instead of newly allocated arrays (see {@link HttpClient#getPooledAsync(FeedRequest)});
+         *                            the consumers then get {@link PullResult#isPooled()} results which they must release. False by default
+         */
+        public Builder setPooledResultBuffers(boolean pooledResultBuffers) {
+            this.pooledResultBuffers = pooledResultBuffers;
+            return this;
+        }
+
+        public PullingSchedulerQueueImpl build() {
+            return new PullingSchedulerQueueImpl(this);
+        }
+    }
+
+
+    private record QueuedPull(QueueFeedRequest queueFeedRequest, CoalescedPull coalescedPull) {
+    }
+
+    private enum DispatchOutcome {
+        SENT,
+        // taken out of the queue until its limit frees up
+        PARKED,
+        // left at the head of the queue
+        GLOBAL_LIMIT_REACHED
+    }
+
 }
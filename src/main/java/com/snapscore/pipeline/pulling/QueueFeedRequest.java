@@ -1,24 +1,68 @@
 package com.snapscore.pipeline.pulling;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 import java.util.function.Consumer;
 
 public class QueueFeedRequest {
 
     private final FeedRequest feedRequest;
     private final Consumer<PullResult> pullResultConsumer;
+    // set instead of the pullResultConsumer for streamed pulls
+    private final Consumer<StreamPullResult> streamPullResultConsumer;
     private final Consumer<PullError> pullErrorConsumer;
     private final long enqueuedTimestamp;
+    // the request should be sent by then; equal to enqueuedTimestamp unless deadline scheduling is used
+    private final long dueTimestamp;
+    // resolved once on enqueueing so that the url does not need to be parsed again on each dispatch attempt
+    private final List<RequestsPerSecondCounter> rateLimitCounters;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
 
     public QueueFeedRequest(FeedRequest feedRequest,
                             Consumer<PullResult> pullResultConsumer,
                             Consumer<PullError> pullErrorConsumer,
                             long enqueuedTimestamp) {
+        this(feedRequest, pullResultConsumer, pullErrorConsumer, enqueuedTimestamp, enqueuedTimestamp, Collections.emptyList(), null);
+    }
+
+    QueueFeedRequest(FeedRequest feedRequest,
+                     Consumer<PullResult> pullResultConsumer,
+                     Consumer<PullError> pullErrorConsumer,
+                     long enqueuedTimestamp,
+                     long dueTimestamp,
+                     List<RequestsPerSecondCounter> rateLimitCounters,
+                     AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this(feedRequest, pullResultConsumer, null, pullErrorConsumer, enqueuedTimestamp, dueTimestamp, rateLimitCounters, concurrencyLimiter);
+    }
+
+    private QueueFeedRequest(FeedRequest feedRequest,
+                             Consumer<PullResult> pullResultConsumer,
+                             Consumer<StreamPullResult> streamPullResultConsumer,
+                             Consumer<PullError> pullErrorConsumer,
+                             long enqueuedTimestamp,
+                             long dueTimestamp,
+                             List<RequestsPerSecondCounter> rateLimitCounters,
+                             AdaptiveConcurrencyLimiter concurrencyLimiter) {
         this.feedRequest = feedRequest;
         this.pullResultConsumer = pullResultConsumer;
+        this.streamPullResultConsumer = streamPullResultConsumer;
         this.pullErrorConsumer = pullErrorConsumer;
         this.enqueuedTimestamp = enqueuedTimestamp;
+        this.dueTimestamp = dueTimestamp;
+        this.rateLimitCounters = rateLimitCounters;
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    static QueueFeedRequest forStreamPulling(FeedRequest feedRequest,
+                                             Consumer<StreamPullResult> streamPullResultConsumer,
+                                             Consumer<PullError> pullErrorConsumer,
+                                             long enqueuedTimestamp,
+                                             long dueTimestamp,
+                                             List<RequestsPerSecondCounter> rateLimitCounters,
+                                             AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        return new QueueFeedRequest(feedRequest, null, streamPullResultConsumer, pullErrorConsumer, enqueuedTimestamp, dueTimestamp, rateLimitCounters, concurrencyLimiter);
     }
 
     public FeedRequest getFeedRequest() {
@@ -29,6 +73,13 @@ public class QueueFeedRequest {
         return pullResultConsumer;
     }
 
+    /**
+     * @return null unless the request is pulled as a stream - the pull result consumer is null then
+     */
+    public Consumer<StreamPullResult> getStreamPullResultConsumer() {
+        return streamPullResultConsumer;
+    }
+
     public Consumer<PullError> getPullErrorConsumer() {
         return pullErrorConsumer;
     }
@@ -37,6 +88,24 @@ public class QueueFeedRequest {
         return enqueuedTimestamp;
     }
 
+    public long getDueTimestamp() {
+        return dueTimestamp;
+    }
+
+    /**
+     * @return counters of the {@link RequestRateLimits} that apply to this request in addition to the global one
+     */
+    List<RequestsPerSecondCounter> getRateLimitCounters() {
+        return rateLimitCounters;
+    }
+
+    /**
+     * @return null if the number of requests in flight to the host of this request is not limited
+     */
+    AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
     public int getSchedulingOrder() {
         return feedRequest.getPriority().getSchedulingOrder();
     }
@@ -49,4 +118,11 @@ public class QueueFeedRequest {
         return (qr1, qr2) -> feedRequestComparator.compare(qr1.getFeedRequest(), qr2.getFeedRequest());
     }
 
+    /**
+     * Orders by the due timestamp first; the feed request comparator only breaks ties
+     */
+    public static Comparator<QueueFeedRequest> makeDeadlineComparatorFrom(Comparator<FeedRequest> feedRequestComparator) {
+        return Comparator.comparingLong(QueueFeedRequest::getDueTimestamp).thenComparing(makeComparatorFrom(feedRequestComparator));
+    }
+
 }
@@ -0,0 +1,61 @@
+package com.snapscore.pipeline.pulling;
+
+import com.snapscore.pipeline.utils.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * How long requests waited in {@link PullingSchedulerQueueImpl} from being enqueued until being sent, per priority
+ */
+public class QueueWaitStatistics {
+
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    // filled once in the constructor, only the histograms are updated afterwards
+    private final Map<FeedPriorityEnum, LatencyHistogram> histogramsByPriority = new EnumMap<>(FeedPriorityEnum.class);
+
+    QueueWaitStatistics() {
+        for (FeedPriorityEnum priority : FeedPriorityEnum.values()) {
+            histogramsByPriority.put(priority, new LatencyHistogram());
+        }
+    }
+
+    void record(FeedPriorityEnum priority, long waitMillis) {
+        histogramsByPriority.get(priority).recordNanos(waitMillis * NANOS_PER_MILLI);
+    }
+
+    public long getCount(FeedPriorityEnum priority) {
+        return histogramsByPriority.get(priority).getCount();
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     */
+    public long getPercentileMillis(FeedPriorityEnum priority, double percentile) {
+        return histogramsByPriority.get(priority).getPercentileNanos(percentile) / NANOS_PER_MILLI;
+    }
+
+    public long getMaxMillis(FeedPriorityEnum priority) {
+        return histogramsByPriority.get(priority).getMaxNanos() / NANOS_PER_MILLI;
+    }
+
+    public void reset() {
+        histogramsByPriority.values().forEach(LatencyHistogram::reset);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("QueueWaitStatistics{");
+        for (FeedPriorityEnum priority : FeedPriorityEnum.values()) {
+            if (getCount(priority) > 0) {
+                sb.append(priority)
+                        .append(": count=").append(getCount(priority))
+                        .append(", p50=").append(getPercentileMillis(priority, 50)).append("ms")
+                        .append(", p99=").append(getPercentileMillis(priority, 99)).append("ms")
+                        .append(", max=").append(getMaxMillis(priority)).append("ms; ");
+            }
+        }
+        return sb.append('}').toString();
+    }
+}
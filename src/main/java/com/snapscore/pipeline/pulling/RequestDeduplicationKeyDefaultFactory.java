@@ -8,6 +8,7 @@ public class RequestDeduplicationKeyDefaultFactory implements Function<FeedReque
     public String apply(FeedRequest feedRequest) {
         // priority needs to be taken into account as well so that two requests to the same URL both go through
         // If the second incoming request has higher priority it must not considered a duplicate and thus ignored
+        // (while the first request is still enqueued PullingSchedulerQueueImpl upgrades its priority instead of sending both)
         return feedRequest.getUrl() + "_" + feedRequest.getPriority().name();
     }
 
@@ -0,0 +1,160 @@
+package com.snapscore.pipeline.pulling;
+
+import com.snapscore.pipeline.logging.Logger;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Rate limits applied on top of the global {@link RequestsPerSecondCounter} of {@link PullingSchedulerQueueImpl}:
+ * per host, per {@link FeedName} and per value of a selected {@link FeedRequestProperties} property.
+ * A request is only sent when every level that applies to it has a permit available.
+ *
+ * The counters need to report {@link RequestsPerSecondCounter#getDelayUntilNextPermit()} precisely
+ * (as {@link GcraRequestsPerSecondCounter} and {@link RequestsPerSecondCounterImpl} do) because the availability of permits
+ * on all levels is checked before any of them is taken. Counters not overriding {@link RequestsPerSecondCounter#getDelayUntilNextPermit(LocalDateTime)}
+ * are therefore rejected. Each counter should only be used by a single queue.
+ */
+public class RequestRateLimits {
+
+    private static final Logger logger = Logger.setup(RequestRateLimits.class);
+
+    public static final RequestRateLimits NONE = newBuilder().build();
+
+    private final Map<String, RequestsPerSecondCounter> countersByHost;
+    private final Supplier<RequestsPerSecondCounter> defaultHostCounterFactory;
+    private final Map<FeedName, RequestsPerSecondCounter> countersByFeedName;
+    private final Enum<?> propertyType;
+    private final Map<Object, RequestsPerSecondCounter> countersByPropertyValue;
+
+    private RequestRateLimits(Builder builder) {
+        this.countersByHost = new ConcurrentHashMap<>(builder.countersByHost);
+        this.defaultHostCounterFactory = builder.defaultHostCounterFactory;
+        this.countersByFeedName = Map.copyOf(builder.countersByFeedName);
+        this.propertyType = builder.propertyType;
+        this.countersByPropertyValue = Map.copyOf(builder.countersByPropertyValue);
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * @return counters of all levels that apply to the request ordered from the host level to the most specific level; empty if there are no limits for it
+     */
+    List<RequestsPerSecondCounter> resolveCountersFor(FeedRequest feedRequest) {
+        if (this == NONE) {
+            return Collections.emptyList();
+        }
+        List<RequestsPerSecondCounter> counters = new ArrayList<>(3);
+        getHostCounter(feedRequest).ifPresent(counters::add);
+        RequestsPerSecondCounter feedCounter = feedRequest.getFeedName() != null ? countersByFeedName.get(feedRequest.getFeedName()) : null;
+        if (feedCounter != null) {
+            counters.add(feedCounter);
+        }
+        if (propertyType != null && feedRequest.getProperties() != null) {
+            feedRequest.getProperties().getPropertyValue(propertyType, Object.class)
+                    .map(countersByPropertyValue::get)
+                    .ifPresent(counters::add);
+        }
+        return counters.isEmpty() ? Collections.emptyList() : counters;
+    }
+
+    private Optional<RequestsPerSecondCounter> getHostCounter(FeedRequest feedRequest) {
+        if (countersByHost.isEmpty() && defaultHostCounterFactory == null) {
+            return Optional.empty();
+        }
+        String host = hostOf(feedRequest.getUrl());
+        if (host == null) {
+            return Optional.empty();
+        }
+        if (defaultHostCounterFactory != null) {
+            return Optional.of(countersByHost.computeIfAbsent(host, h -> defaultHostCounterFactory.get()));
+        } else {
+            return Optional.ofNullable(countersByHost.get(host));
+        }
+    }
+
+    static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host != null ? host.toLowerCase() : null;
+        } catch (Exception e) {
+            logger.warn("Cannot resolve host of url {} - host rate limit not applied", url);
+            return null;
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the counter relies on the default {@link RequestsPerSecondCounter#getDelayUntilNextPermit(LocalDateTime)}
+     * which never reports zero and would keep all requests limited by it blocked forever
+     */
+    static RequestsPerSecondCounter requireDelayUntilNextPermitReported(RequestsPerSecondCounter counter) {
+        Objects.requireNonNull(counter, "counter");
+        try {
+            if (counter.getClass().getMethod("getDelayUntilNextPermit", LocalDateTime.class).getDeclaringClass() == RequestsPerSecondCounter.class) {
+                throw new IllegalArgumentException("Counter " + counter.getClass().getName() + " cannot be used as a request rate limit because it does not override getDelayUntilNextPermit(LocalDateTime)!");
+            }
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e); // cannot happen as the method is declared by the interface
+        }
+        return counter;
+    }
+
+
+    public static class Builder {
+
+        private final Map<String, RequestsPerSecondCounter> countersByHost = new ConcurrentHashMap<>();
+        private Supplier<RequestsPerSecondCounter> defaultHostCounterFactory;
+        private final Map<FeedName, RequestsPerSecondCounter> countersByFeedName = new ConcurrentHashMap<>();
+        private Enum<?> propertyType;
+        private final Map<Object, RequestsPerSecondCounter> countersByPropertyValue = new ConcurrentHashMap<>();
+
+        private Builder() {
+        }
+
+        public Builder setHostLimit(String host, RequestsPerSecondCounter counter) {
+            this.countersByHost.put(host.toLowerCase(), requireDelayUntilNextPermitReported(counter));
+            return this;
+        }
+
+        /**
+         * @param counterFactory creates a counter for each host that has no limit set explicitly; it is called once right away to validate the counters it creates
+         */
+        public Builder setDefaultHostLimit(Supplier<RequestsPerSecondCounter> counterFactory) {
+            requireDelayUntilNextPermitReported(counterFactory.get());
+            this.defaultHostCounterFactory = counterFactory;
+            return this;
+        }
+
+        public Builder setFeedLimit(FeedName feedName, RequestsPerSecondCounter counter) {
+            this.countersByFeedName.put(feedName, requireDelayUntilNextPermitReported(counter));
+            return this;
+        }
+
+        /**
+         * Limits requests having the specified value of the property. Only a single property type can be limited.
+         */
+        public Builder setPropertyLimit(Enum<?> propertyType, Object propertyValue, RequestsPerSecondCounter counter) {
+            if (this.propertyType != null && !this.propertyType.equals(propertyType)) {
+                throw new IllegalArgumentException("Rate limits are already set for property " + this.propertyType + "; cannot set them also for " + propertyType);
+            }
+            this.propertyType = propertyType;
+            this.countersByPropertyValue.put(propertyValue, requireDelayUntilNextPermitReported(counter));
+            return this;
+        }
+
+        public RequestRateLimits build() {
+            return new RequestRateLimits(this);
+        }
+    }
+
+}
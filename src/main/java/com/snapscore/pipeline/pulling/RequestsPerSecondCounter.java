@@ -1,9 +1,36 @@
 package com.snapscore.pipeline.pulling;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 
 public interface RequestsPerSecondCounter {
 
+    Duration DELAY_UNTIL_NEXT_PERMIT_UNKNOWN = Duration.ofMillis(5);
+
     boolean incrementIfRequestWithinLimitAndGet(LocalDateTime now);
 
+    /**
+     * Used to sleep exactly until the next request can be made instead of checking the limit periodically.
+     * The default does not know the state of the counter and only tells to check the limit again after {@link #DELAY_UNTIL_NEXT_PERMIT_UNKNOWN}
+     * - counters not overriding it can only be used as the global counter of {@link PullingSchedulerQueueImpl}
+     * and are rejected by {@link RequestRateLimits}
+     *
+     * @return how long it takes from now until a request will be within the limit; zero if a request can be made right now
+     */
+    default Duration getDelayUntilNextPermit(LocalDateTime now) {
+        return DELAY_UNTIL_NEXT_PERMIT_UNKNOWN;
+    }
+
+    /**
+     * Evaluates the limit against the current time. Implementations measuring the time on their own override this
+     * so that no LocalDateTime needs to be created for each call
+     */
+    default boolean incrementIfRequestWithinLimitAndGet() {
+        return incrementIfRequestWithinLimitAndGet(LocalDateTime.now());
+    }
+
+    default Duration getDelayUntilNextPermit() {
+        return getDelayUntilNextPermit(LocalDateTime.now());
+    }
+
 }
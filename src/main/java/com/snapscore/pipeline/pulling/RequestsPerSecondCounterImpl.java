@@ -1,5 +1,6 @@
 package com.snapscore.pipeline.pulling;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -52,6 +53,14 @@ public class RequestsPerSecondCounterImpl implements RequestsPerSecondCounter {
         }
     }
 
+    @Override
+    public synchronized Duration getDelayUntilNextPermit(LocalDateTime now) {
+        int idxOfCorrespondingRequestInPrevSecond = calcNextRequestPerSecondCount() - 1;
+        LocalDateTime prevCorrespondingRequestTime = requestsTimesWithinSecond[idxOfCorrespondingRequestInPrevSecond];
+        long millisLeft = MILLIS_BETWEEN_CORRESPOND_RQS_IN_TWO_CONSECUTIVE_SECONDS - calcMillisBetween(prevCorrespondingRequestTime, now);
+        return Duration.ofMillis(Math.max(0L, millisLeft));
+    }
+
     private void incrementRqsPerSecCount(LocalDateTime now) {
         // order of updates matters here!
         updateRequestsPerSecondCounter();
@@ -0,0 +1,36 @@
+package com.snapscore.pipeline.pulling;
+
+import java.util.List;
+
+/**
+ * Queue of the requests waiting in {@link PullingSchedulerQueueImpl} to be sent.
+ * Implementations are not thread-safe - all access is guarded by the lock of the owning {@link PullingSchedulerQueueImpl}.
+ */
+interface RequestsQueue {
+
+    void add(QueueFeedRequest queueFeedRequest);
+
+    /**
+     * @return the request to be sent next or null if the queue is empty
+     */
+    QueueFeedRequest peek();
+
+    QueueFeedRequest poll();
+
+    /**
+     * Puts back requests that were polled but could not be sent yet so that they keep their original position
+     *
+     * @param skippedRequests in the order they were polled
+     */
+    void reinsertSkipped(List<QueueFeedRequest> skippedRequests);
+
+    /**
+     * Linear in the number of queued requests - meant for rare operations only
+     *
+     * @return false if the request is not in the queue
+     */
+    boolean remove(QueueFeedRequest queueFeedRequest);
+
+    int size();
+
+}
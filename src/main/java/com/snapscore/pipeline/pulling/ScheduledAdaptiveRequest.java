@@ -0,0 +1,36 @@
+package com.snapscore.pipeline.pulling;
+
+import reactor.core.Disposable;
+
+import java.time.Duration;
+
+/**
+ * encapsulates request that is pulled at an {@link AdaptivePullInterval}
+ */
+public class ScheduledAdaptiveRequest<K> extends ScheduledPulling<K> {
+
+    private final FeedRequest feedRequest;
+    private final AdaptivePullInterval adaptivePullInterval;
+
+    public ScheduledAdaptiveRequest(K scheduledPullingKey,
+                                    FeedRequest feedRequest,
+                                    Disposable disposable,
+                                    AdaptivePullInterval adaptivePullInterval) {
+        super(scheduledPullingKey, disposable, adaptivePullInterval.getInterval());
+        this.feedRequest = feedRequest;
+        this.adaptivePullInterval = adaptivePullInterval;
+    }
+
+    public FeedRequest getFeedRequest() {
+        return feedRequest;
+    }
+
+    /**
+     * @return the current pull interval
+     */
+    @Override
+    public Duration getPullInterval() {
+        return adaptivePullInterval.getInterval();
+    }
+
+}
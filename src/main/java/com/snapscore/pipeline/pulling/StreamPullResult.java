@@ -0,0 +1,54 @@
+package com.snapscore.pipeline.pulling;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Result of a streamed pull - the body is read from the stream while it is still being downloaded so it can be parsed
+ * incrementally without ever holding all of it in memory.
+ *
+ * The stream is only valid while the result consumer runs - it is closed as soon as the consumer returns.
+ * Reading from it blocks so the consumers are run on the Reactor bounded elastic scheduler.
+ */
+public class StreamPullResult {
+
+    private final FeedRequest feedRequest;
+    private final InputStream data;
+
+    public StreamPullResult(FeedRequest feedRequest, InputStream data) {
+        this.feedRequest = feedRequest;
+        this.data = data;
+    }
+
+    /**
+     * For pulls that are not streamed - passes the already downloaded data of each result on as a stream
+     * and releases the result afterwards
+     */
+    static Consumer<PullResult> consumingDownloadedData(Consumer<StreamPullResult> streamPullResultConsumer) {
+        return pullResult -> {
+            try {
+                if (!pullResult.isNotModified()) {
+                    streamPullResultConsumer.accept(new StreamPullResult(pullResult.getFeedRequest(), new ByteArrayInputStream(pullResult.getData())));
+                }
+            } finally {
+                pullResult.release();
+            }
+        };
+    }
+
+    public FeedRequest getFeedRequest() {
+        return feedRequest;
+    }
+
+    public InputStream getData() {
+        return data;
+    }
+
+    @Override
+    public String toString() {
+        return "StreamPullResult{" +
+                "feedRequest=" + feedRequest +
+                '}';
+    }
+}
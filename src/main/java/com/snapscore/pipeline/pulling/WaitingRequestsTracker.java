@@ -20,4 +20,11 @@ public interface WaitingRequestsTracker {
 
     int countOfRequestsAwaitingResponse();
 
+    /**
+     * @return the identifier under which the request is tracked - requests with the same key are duplicates
+     */
+    default String getDeduplicationKey(FeedRequest feedRequest) {
+        return feedRequest.getUrl();
+    }
+
 }
@@ -67,6 +67,11 @@ public class WaitingRequestsTrackerImpl implements WaitingRequestsTracker {
         return requestsAwaitingToBePulledByUrlMap.size();
     }
 
+    @Override
+    public String getDeduplicationKey(FeedRequest feedRequest) {
+        return makeKey(feedRequest);
+    }
+
     private String makeKey(FeedRequest feedRequest) {
         try {
             return deduplicatingFeedRequestKeyMaker.apply(feedRequest);
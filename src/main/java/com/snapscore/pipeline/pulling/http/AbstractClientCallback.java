@@ -2,25 +2,81 @@ package com.snapscore.pipeline.pulling.http;
 
 import com.snapscore.pipeline.logging.Logger;
 import com.snapscore.pipeline.pulling.FeedRequest;
+import com.snapscore.pipeline.pulling.FeedRequestHttpHeader;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import reactor.core.publisher.MonoSink;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.SocketTimeoutException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 public abstract class AbstractClientCallback implements ClientCallback {
 
     private static final Logger logger = Logger.setup(AbstractClientCallback.class);
 
+    protected static final int STATUS_NOT_MODIFIED = 304;
+    // used when the length of the body is not known up front; the buffer grows as needed
+    protected static final int RESPONSE_BUFFER_INITIAL_CAPACITY_DEFAULT = 8 * 1024;
+    protected static final int RESPONSE_BUFFER_INITIAL_CAPACITY_MAX = 16 * 1024 * 1024;
+    private static final int READ_CHUNK_SIZE = 8 * 1024;
+
     protected final FeedRequest feedRequest;
+    // exactly one of the emitters is set - the pooled one if the body is read into a pooled buffer
     protected final MonoSink<byte[]> emitter;
+    protected final MonoSink<ByteBuf> pooledEmitter;
     protected final Optional<PullingStatisticsService> pullingStatisticsService;
+    protected final List<RateLimitObserver> rateLimitObservers;
+    // null if conditional requests are not used
+    protected final ConditionalRequestValidators conditionalRequestValidators;
+    // null if the response encoding is not negotiated by the callback
+    protected final ResponseCompression responseCompression;
+    // validators of the response whose body is being read - recorded only once the body has been emitted
+    private volatile Map<String, String> pendingValidators;
 
-    public AbstractClientCallback(FeedRequest feedRequest,
-                                  MonoSink<byte[]> emitter,
-                                  PullingStatisticsService pullingStatisticsService) {
+    protected AbstractClientCallback(FeedRequest feedRequest,
+                                     MonoSink<byte[]> emitter,
+                                     MonoSink<ByteBuf> pooledEmitter,
+                                     PullingStatisticsService pullingStatisticsService,
+                                     List<RateLimitObserver> rateLimitObservers,
+                                     ConditionalRequestValidators conditionalRequestValidators,
+                                     ResponseCompression responseCompression) {
         this.feedRequest = feedRequest;
         this.emitter = emitter;
+        this.pooledEmitter = pooledEmitter;
         this.pullingStatisticsService = Optional.ofNullable(pullingStatisticsService);
+        this.rateLimitObservers = rateLimitObservers == null ? List.of() : rateLimitObservers;
+        this.conditionalRequestValidators = conditionalRequestValidators;
+        this.responseCompression = responseCompression;
+    }
+
+    public AbstractClientCallback(FeedRequest feedRequest,
+                                  MonoSink<byte[]> emitter,
+                                  PullingStatisticsService pullingStatisticsService,
+                                  List<RateLimitObserver> rateLimitObservers,
+                                  ConditionalRequestValidators conditionalRequestValidators) {
+        this(feedRequest, emitter, null, pullingStatisticsService, rateLimitObservers, conditionalRequestValidators, null);
+    }
+
+    public AbstractClientCallback(FeedRequest feedRequest,
+                                  MonoSink<byte[]> emitter,
+                                  PullingStatisticsService pullingStatisticsService,
+                                  List<RateLimitObserver> rateLimitObservers) {
+        this(feedRequest, emitter, pullingStatisticsService, rateLimitObservers, null);
+    }
+
+    public AbstractClientCallback(FeedRequest feedRequest,
+                                  MonoSink<byte[]> emitter,
+                                  PullingStatisticsService pullingStatisticsService) {
+        this(feedRequest, emitter, pullingStatisticsService, List.of());
     }
 
     public AbstractClientCallback(FeedRequest feedRequest,
@@ -32,12 +88,164 @@ public abstract class AbstractClientCallback implements ClientCallback {
     public void handleSuccessfulResponse(byte[] responseData) {
         if (responseData != null) {
             emitResponseData(responseData);
+            recordPendingConditionalRequestValidators();
         } else {
             logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid())).warn("Received data from responseData is null! {}", feedRequest.toStringBasicInfo());
             emitFailedRequestException();
         }
     }
 
+    /**
+     * Takes over the buffer - the http client releases it if the result is not awaited anymore
+     */
+    protected void handleSuccessfulResponse(ByteBuf responseData) {
+        responseData.touch(feedRequest); // reported by the leak detector if the buffer is never released
+        pooledEmitter.success(responseData);
+        recordPendingConditionalRequestValidators();
+    }
+
+    protected boolean isPooled() {
+        return pooledEmitter != null;
+    }
+
+    /**
+     * @param contentLength of the response body; negative if not known
+     */
+    protected ByteBuf allocateResponseBuffer(long contentLength) {
+        int initialCapacity = contentLength >= 0 && contentLength <= RESPONSE_BUFFER_INITIAL_CAPACITY_MAX ? (int) contentLength : RESPONSE_BUFFER_INITIAL_CAPACITY_DEFAULT;
+        return PooledByteBufAllocator.DEFAULT.heapBuffer(initialCapacity);
+    }
+
+    /**
+     * Reads the whole body into a pooled buffer - blocks while the body is being received
+     *
+     * @param contentLength of the body; negative if not known
+     */
+    protected ByteBuf readIntoPooledBuffer(InputStream body, long contentLength) throws IOException {
+        ByteBuf responseData = allocateResponseBuffer(contentLength);
+        try {
+            while (responseData.writeBytes(body, READ_CHUNK_SIZE) != -1) {
+                // the buffer grows as needed until the whole body is read
+            }
+            return responseData;
+        } catch (IOException | RuntimeException e) {
+            responseData.release();
+            throw e;
+        }
+    }
+
+    protected boolean isCompressionNegotiated() {
+        return responseCompression != null;
+    }
+
+    /**
+     * Decodes the body while it is being read and emits it. Blocks while the body is being received so it must not be
+     * called on an event loop. The whole body is always consumed and the body stream closed
+     *
+     * @param contentEncoding value of the Content-Encoding response header; may be null
+     * @param contentLength   of the received body; negative if not known
+     */
+    protected void readAndEmitDecodedBody(InputStream body, String contentEncoding, long contentLength) throws IOException {
+        final CountingInputStream encodedBody = new CountingInputStream(body);
+        final boolean identity = ResponseCompression.isIdentity(contentEncoding);
+        ByteBuf pooledData = null;
+        byte[] data = null;
+        try (InputStream decodedBody = responseCompression.decode(contentEncoding, encodedBody)) {
+            if (isPooled()) {
+                pooledData = readIntoPooledBuffer(decodedBody, identity ? contentLength : -1);
+            } else {
+                data = decodedBody.readAllBytes();
+            }
+            encodedBody.transferTo(OutputStream.nullOutputStream()); // anything after the end of the encoded data so that the connection can be reused
+        } catch (IOException | RuntimeException e) {
+            if (pooledData != null) {
+                pooledData.release();
+            }
+            throw e;
+        }
+        final long uncompressedBytes = pooledData != null ? pooledData.readableBytes() : data.length;
+        if (!identity) {
+            logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid())).debug("Decoded {} response of {} bytes to {} bytes: {}", contentEncoding, encodedBody.getCount(), uncompressedBytes, feedRequest.toStringBasicInfo());
+        }
+        pullingStatisticsService.ifPresent(service -> service.recordResponseBytesFor(feedRequest.getFeedName(), encodedBody.getCount(), uncompressedBytes));
+        if (pooledData != null) {
+            handleSuccessfulResponse(pooledData);
+        } else {
+            handleSuccessfulResponse(data);
+        }
+    }
+
+    /**
+     * The body remembered by the caller from the previous pull is still valid
+     */
+    protected void handleNotModifiedResponse() {
+        logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid()).analyticsId("request_not_modified")).info("Not modified response for request: {}", feedRequest.toStringBasicInfo());
+        pullingStatisticsService.ifPresent(service -> service.recordSuccessfulPullFor(feedRequest.getFeedName()));
+        if (isPooled()) {
+            pooledEmitter.success(HttpClient.NOT_MODIFIED_BUFFER);
+        } else {
+            emitter.success(HttpClient.NOT_MODIFIED);
+        }
+    }
+
+    protected boolean isNotModified(int statusCode) {
+        return statusCode == STATUS_NOT_MODIFIED && conditionalRequestValidators != null;
+    }
+
+    @Override
+    public void addRequestHeaders(BiConsumer<String, String> headerSetter) {
+        addConditionalHeaders(headerSetter);
+        if (responseCompression != null && !hasRequestHeader(ResponseCompression.ACCEPT_ENCODING)) {
+            headerSetter.accept(ResponseCompression.ACCEPT_ENCODING, responseCompression.getAcceptEncoding());
+        }
+    }
+
+    private boolean hasRequestHeader(String name) {
+        for (FeedRequestHttpHeader httpHeader : feedRequest.getHttpHeaders()) {
+            if (name.equalsIgnoreCase(httpHeader.getKey())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void addConditionalHeaders(BiConsumer<String, String> headerSetter) {
+        if (conditionalRequestValidators != null) {
+            conditionalRequestValidators.addConditionalHeaders(feedRequest, headerSetter);
+        }
+    }
+
+    /**
+     * Must be called for each successful response before its body is read so that the next pull of the request can be sent
+     * as a conditional request. The validators are only recorded once the body has been emitted - if reading it fails
+     * the next pull must not be answered with not modified
+     *
+     * @param headerLookup returns the value of the response header with the given name or null
+     */
+    protected void recordConditionalRequestValidators(Function<String, String> headerLookup) {
+        if (conditionalRequestValidators == null) {
+            return;
+        }
+        Map<String, String> validators = new HashMap<>(2);
+        validators.put(ConditionalRequestValidators.ETAG, headerLookup.apply(ConditionalRequestValidators.ETAG));
+        validators.put(ConditionalRequestValidators.LAST_MODIFIED, headerLookup.apply(ConditionalRequestValidators.LAST_MODIFIED));
+        pendingValidators = validators;
+    }
+
+    private void recordPendingConditionalRequestValidators() {
+        Map<String, String> validators = pendingValidators;
+        if (validators == null) {
+            return;
+        }
+        pendingValidators = null;
+        try {
+            conditionalRequestValidators.record(feedRequest, validators::get);
+        } catch (Exception e) {
+            logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid())).warn("Error while recording the response validators", e);
+        }
+    }
+
     @Override
     public void handleUnsuccessfulResponse(int statusCode) {
         logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid()).analyticsId("resp_status_" + statusCode)).warn("Request not successful, response code = {}; request: {}", statusCode, feedRequest.toStringBasicInfo());
@@ -55,14 +263,44 @@ public abstract class AbstractClientCallback implements ClientCallback {
         emitFailedRequestException();
     }
 
+    /**
+     * Must be called for every response before its data or failure is emitted so that retries already see the adapted limits
+     *
+     * @param headerLookup returns the value of the response header with the given name or null
+     */
+    protected void observeRateLimit(int statusCode, Function<String, String> headerLookup) {
+        if (rateLimitObservers.isEmpty()) {
+            return;
+        }
+        try {
+            RateLimitHeaders rateLimitHeaders = RateLimitHeaders.parse(statusCode, headerLookup, System.currentTimeMillis());
+            if (rateLimitHeaders.isRateLimited()) {
+                logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid()).analyticsId("request_rate_limited")).warn("Request rate limited by provider: {}; {}", rateLimitHeaders, feedRequest.toStringBasicInfo());
+            }
+            for (RateLimitObserver rateLimitObserver : rateLimitObservers) {
+                rateLimitObserver.observeRateLimit(feedRequest, rateLimitHeaders);
+            }
+        } catch (Exception e) {
+            logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid())).warn("Error while observing the response rate limit", e);
+        }
+    }
+
     @Override
     public void emitResponseData(byte[] responseData) {
-        emitter.success(responseData);
+        if (isPooled()) {
+            pooledEmitter.success(Unpooled.wrappedBuffer(responseData));
+        } else {
+            emitter.success(responseData);
+        }
     }
 
     @Override
     public void emitFailedRequestException() {
-        emitter.error(new FailedRequestException(feedRequest));
+        if (isPooled()) {
+            pooledEmitter.error(new FailedRequestException(feedRequest));
+        } else {
+            emitter.error(new FailedRequestException(feedRequest));
+        }
     }
 
 }
@@ -1,5 +1,7 @@
 package com.snapscore.pipeline.pulling.http;
 
+import java.util.function.BiConsumer;
+
 public interface ClientCallback {
 
     // implementations must emit the received data
@@ -15,4 +17,14 @@ public interface ClientCallback {
 
     void emitFailedRequestException();
 
+    /**
+     * Called by the http client while building the request
+     */
+    default void addRequestHeaders(BiConsumer<String, String> headerSetter) {
+        addConditionalHeaders(headerSetter);
+    }
+
+    default void addConditionalHeaders(BiConsumer<String, String> headerSetter) {
+    }
+
 }
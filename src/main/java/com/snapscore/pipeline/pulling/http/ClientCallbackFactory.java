@@ -1,10 +1,29 @@
 package com.snapscore.pipeline.pulling.http;
 
 import com.snapscore.pipeline.pulling.FeedRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
 import reactor.core.publisher.MonoSink;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 public interface ClientCallbackFactory<T> {
 
     T createCallback(FeedRequest feedRequest, MonoSink<byte[]> emitter);
 
+    /**
+     * The callback reads the response body into a pooled buffer - see {@link HttpClient#getPooledAsync(FeedRequest)}.
+     * By default the callback of {@link #createCallback(FeedRequest, MonoSink)} is used and the downloaded array is wrapped
+     */
+    default T createPooledCallback(FeedRequest feedRequest, MonoSink<ByteBuf> pooledEmitter) {
+        AtomicReference<T> callback = new AtomicReference<>();
+        Disposable emission = Mono.<byte[]>create(emitter -> callback.set(createCallback(feedRequest, emitter))) // the callback is created right away on subscription
+                .map(data -> data == HttpClient.NOT_MODIFIED ? HttpClient.NOT_MODIFIED_BUFFER : Unpooled.wrappedBuffer(data))
+                .subscribe(pooledEmitter::success, pooledEmitter::error, pooledEmitter::success);
+        pooledEmitter.onCancel(emission);
+        return callback.get();
+    }
+
 }
@@ -0,0 +1,122 @@
+package com.snapscore.pipeline.pulling.http;
+
+import com.snapscore.pipeline.logging.Logger;
+import com.snapscore.pipeline.pulling.FeedRequest;
+import com.snapscore.pipeline.pulling.FeedRequestHttpHeader;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Remembers the ETag / Last-Modified validators of the last successful response of each request so that the next pull
+ * of the same request is sent as a conditional GET (If-None-Match / If-Modified-Since). If the provider then responds
+ * with 304 Not Modified the http clients emit {@link HttpClient#NOT_MODIFIED} instead of downloading the body again.
+ *
+ * The validators are shared by all callers pulling the same request - the pulling queue only passes a not modified result on
+ * to the callers that received the body before and pulls the request again with "Cache-Control: no-cache" for the others.
+ * Requests with that header are never sent as conditional requests.
+ */
+public class ConditionalRequestValidators {
+
+    private static final Logger logger = Logger.setup(ConditionalRequestValidators.class);
+
+    public static final int MAX_ENTRIES_DEFAULT = 100_000;
+    static final String ETAG = "ETag";
+    static final String LAST_MODIFIED = "Last-Modified";
+    static final String IF_NONE_MATCH = "If-None-Match";
+    static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    public static final String CACHE_CONTROL = "Cache-Control";
+    public static final String NO_CACHE = "no-cache";
+
+    private final Function<FeedRequest, String> requestKeyMaker;
+    private final int maxEntries;
+    private final Map<String, Validators> validatorsByKey = new ConcurrentHashMap<>();
+
+    /**
+     * @param requestKeyMaker identifies requests that return the same resource
+     * @param maxEntries      once reached all remembered validators are dropped - the following pulls just download the full bodies again
+     */
+    public ConditionalRequestValidators(Function<FeedRequest, String> requestKeyMaker, int maxEntries) {
+        this.requestKeyMaker = requestKeyMaker;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Requests are identified by their url
+     */
+    public ConditionalRequestValidators() {
+        this(FeedRequest::getUrl, MAX_ENTRIES_DEFAULT);
+    }
+
+    /**
+     * Does nothing if no validators are known for the request, the request sets conditional headers itself or it {@link #isUnconditional(FeedRequest)}
+     */
+    void addConditionalHeaders(FeedRequest feedRequest, BiConsumer<String, String> headerSetter) {
+        Validators validators = validatorsByKey.get(requestKeyMaker.apply(feedRequest));
+        if (validators == null || hasConditionalHeader(feedRequest) || isUnconditional(feedRequest)) {
+            return;
+        }
+        if (validators.etag() != null) {
+            headerSetter.accept(IF_NONE_MATCH, validators.etag());
+        }
+        if (validators.lastModified() != null) {
+            headerSetter.accept(IF_MODIFIED_SINCE, validators.lastModified());
+        }
+    }
+
+    /**
+     * To be called for each successful response once its body has been emitted
+     *
+     * @param headerLookup returns the value of the header with the given name (case insensitive) or null
+     */
+    void record(FeedRequest feedRequest, Function<String, String> headerLookup) {
+        String key = requestKeyMaker.apply(feedRequest);
+        String etag = headerLookup.apply(ETAG);
+        String lastModified = headerLookup.apply(LAST_MODIFIED);
+        if (etag == null && lastModified == null) {
+            validatorsByKey.remove(key);
+            return;
+        }
+        if (validatorsByKey.size() >= maxEntries && !validatorsByKey.containsKey(key)) {
+            logger.warn("Reached the limit of {} remembered conditional request validators - dropping all of them", maxEntries);
+            validatorsByKey.clear();
+        }
+        validatorsByKey.put(key, new Validators(etag, lastModified));
+    }
+
+    public void forget(FeedRequest feedRequest) {
+        validatorsByKey.remove(requestKeyMaker.apply(feedRequest));
+    }
+
+    public int size() {
+        return validatorsByKey.size();
+    }
+
+    /**
+     * @return whether the request asks for the full body with "Cache-Control: no-cache"
+     */
+    public static boolean isUnconditional(FeedRequest feedRequest) {
+        for (FeedRequestHttpHeader httpHeader : feedRequest.getHttpHeaders()) {
+            if (CACHE_CONTROL.equalsIgnoreCase(httpHeader.getKey()) && httpHeader.getValue() != null && httpHeader.getValue().toLowerCase().contains(NO_CACHE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasConditionalHeader(FeedRequest feedRequest) {
+        for (FeedRequestHttpHeader httpHeader : feedRequest.getHttpHeaders()) {
+            if (IF_NONE_MATCH.equalsIgnoreCase(httpHeader.getKey()) || IF_MODIFIED_SINCE.equalsIgnoreCase(httpHeader.getKey())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private record Validators(String etag, String lastModified) {
+    }
+
+}
@@ -1,12 +1,50 @@
 package com.snapscore.pipeline.pulling.http;
 
 import com.snapscore.pipeline.pulling.FeedRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.concurrent.CompletableFuture;
 
 public interface HttpClient {
 
+    /**
+     * Returned instead of the response body if the provider responded 304 Not Modified to a conditional request
+     * (see {@link ConditionalRequestValidators}) - must be compared by identity
+     */
+    byte[] NOT_MODIFIED = new byte[0];
+
+    /**
+     * Same as {@link #NOT_MODIFIED} for {@link #getPooledAsync(FeedRequest)} - must be compared by identity; releasing it does nothing
+     */
+    ByteBuf NOT_MODIFIED_BUFFER = Unpooled.unreleasableBuffer(Unpooled.buffer(0, 0));
+
     CompletableFuture<byte[]> getAsync(FeedRequest feedRequest);
 
+    /**
+     * Same as {@link #getAsync(FeedRequest)} but the body is read into a heap buffer of the Netty pooled allocator instead of
+     * a newly allocated array. The caller must release the buffer once it has been processed - buffers that get garbage collected
+     * without being released are reported by the Netty ResourceLeakDetector (see the io.netty.leakDetection.level system property).
+     * The default implementation just wraps the downloaded array.
+     */
+    default CompletableFuture<ByteBuf> getPooledAsync(FeedRequest feedRequest) {
+        return getAsync(feedRequest).thenApply(data -> data == NOT_MODIFIED ? NOT_MODIFIED_BUFFER : Unpooled.wrappedBuffer(data));
+    }
+
+    /**
+     * Completes as soon as a successful response starts arriving so that the body can be parsed incrementally
+     * without ever holding all of it in memory. The stream must always be closed by the caller - that releases the connection.
+     *
+     * Requests are sent without conditional headers and do not go through the client callbacks - so they are not
+     * observed by the rate limit / headers observers and not recorded by the pulling statistics.
+     * The default implementation just wraps the fully downloaded body.
+     */
+    default CompletableFuture<InputStream> getStreamAsync(FeedRequest feedRequest) {
+        return getAsync(feedRequest).thenApply(ByteArrayInputStream::new);
+    }
+
     void shutdown();
 
 }
@@ -4,6 +4,11 @@ import java.time.Duration;
 
 public interface HttpClientConfig {
 
+    int MAX_REQUESTS_PER_HOST_DEFAULT = 5; // OkHttp's default
+    int MAX_BUFFERED_STREAM_BYTES_DEFAULT = 1024 * 1024;
+    int HTTP2_MAX_CONCURRENT_STREAMS_DEFAULT = -1;
+    int HTTP2_MAX_CONNECTIONS_DEFAULT = 1;
+
     int getNumberOfThreads();
 
     Duration readTimeout();
@@ -12,4 +17,48 @@ public interface HttpClientConfig {
 
     int port();
 
+    /**
+     * Requests beyond this limit wait inside the http client. When {@link com.snapscore.pipeline.pulling.HostConcurrencyLimits}
+     * are used this should be at least their maximum so that the requests wait in the pulling queue instead
+     * - see {@link com.snapscore.pipeline.pulling.HostConcurrencyLimits#HostConcurrencyLimits(int)}
+     */
+    default int maxRequestsPerHost() {
+        return MAX_REQUESTS_PER_HOST_DEFAULT;
+    }
+
+    /**
+     * Used by clients that stream response bodies from their own event loop ({@link HttpClient#getStreamAsync(com.snapscore.pipeline.pulling.FeedRequest)}):
+     * the download of a body is paused once this many bytes have arrived and not been read yet. The Vert.x client
+     * streams compressed bodies the same way
+     */
+    default int maxBufferedStreamBytes() {
+        return MAX_BUFFERED_STREAM_BYTES_DEFAULT;
+    }
+
+    /**
+     * @return null to leave the protocol to the client - OkHttp negotiates HTTP/2 over TLS by default,
+     * Vert.x uses whatever is set in its HttpClientOptions
+     */
+    default HttpProtocol httpProtocol() {
+        return null;
+    }
+
+    /**
+     * Only used for HTTP/2 connections
+     *
+     * @return maximum number of concurrent requests (streams) multiplexed over a single connection; -1 to use the limit announced by the provider
+     */
+    default int http2MaxConcurrentStreams() {
+        return HTTP2_MAX_CONCURRENT_STREAMS_DEFAULT;
+    }
+
+    /**
+     * Only used for HTTP/2 connections
+     *
+     * @return maximum number of connections to a single provider per request priority
+     */
+    default int http2MaxConnections() {
+        return HTTP2_MAX_CONNECTIONS_DEFAULT;
+    }
+
 }
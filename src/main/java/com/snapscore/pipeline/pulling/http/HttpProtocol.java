@@ -0,0 +1,21 @@
+package com.snapscore.pipeline.pulling.http;
+
+/**
+ * Protocol the http clients use for the provider connections
+ */
+public enum HttpProtocol {
+
+    HTTP_1_1,
+
+    /**
+     * HTTP/2 negotiated with the provider via ALPN over TLS - falls back to HTTP/1.1 for providers that do not support it.
+     * All concurrent requests to a provider are multiplexed over a few connections
+     */
+    HTTP_2,
+
+    /**
+     * HTTP/2 over plain text connections without any negotiation (prior knowledge) - for local / test servers only
+     */
+    H2C
+
+}
@@ -1,18 +1,58 @@
 package com.snapscore.pipeline.pulling.http;
 
 import com.snapscore.pipeline.pulling.FeedRequest;
+import io.netty.buffer.ByteBuf;
 import reactor.core.publisher.MonoSink;
 
+import java.util.List;
+
 public class OkHttpClientCallbackFactoryImpl implements ClientCallbackFactory<OkHttpClientCallback> {
 
     private final PullingStatisticsService pullingStatisticsService;
+    private final List<RateLimitObserver> rateLimitObservers;
+    private final ConditionalRequestValidators conditionalRequestValidators;
+    private final ResponseCompression responseCompression;
 
-    public OkHttpClientCallbackFactoryImpl(PullingStatisticsService pullingStatisticsService) {
+    /**
+     * @param conditionalRequestValidators null if requests should not be sent as conditional requests
+     * @param responseCompression          null if OkHttp's transparent gzip should be used; the compressed / uncompressed
+     *                                     response bytes are only recorded by the pulling statistics if set
+     */
+    public OkHttpClientCallbackFactoryImpl(PullingStatisticsService pullingStatisticsService,
+                                           List<RateLimitObserver> rateLimitObservers,
+                                           ConditionalRequestValidators conditionalRequestValidators,
+                                           ResponseCompression responseCompression) {
         this.pullingStatisticsService = pullingStatisticsService;
+        this.rateLimitObservers = rateLimitObservers;
+        this.conditionalRequestValidators = conditionalRequestValidators;
+        this.responseCompression = responseCompression;
+    }
+
+    /**
+     * @param conditionalRequestValidators null if requests should not be sent as conditional requests
+     */
+    public OkHttpClientCallbackFactoryImpl(PullingStatisticsService pullingStatisticsService,
+                                           List<RateLimitObserver> rateLimitObservers,
+                                           ConditionalRequestValidators conditionalRequestValidators) {
+        this(pullingStatisticsService, rateLimitObservers, conditionalRequestValidators, null);
+    }
+
+    public OkHttpClientCallbackFactoryImpl(PullingStatisticsService pullingStatisticsService,
+                                           List<RateLimitObserver> rateLimitObservers) {
+        this(pullingStatisticsService, rateLimitObservers, null);
+    }
+
+    public OkHttpClientCallbackFactoryImpl(PullingStatisticsService pullingStatisticsService) {
+        this(pullingStatisticsService, List.of());
     }
 
     @Override
     public OkHttpClientCallback createCallback(FeedRequest feedRequest, MonoSink<byte[]> emitter) {
-        return new OkHttpClientCallbackImpl(pullingStatisticsService, feedRequest, emitter);
+        return new OkHttpClientCallbackImpl(pullingStatisticsService, feedRequest, emitter, null, rateLimitObservers, conditionalRequestValidators, responseCompression);
+    }
+
+    @Override
+    public OkHttpClientCallback createPooledCallback(FeedRequest feedRequest, MonoSink<ByteBuf> pooledEmitter) {
+        return new OkHttpClientCallbackImpl(pullingStatisticsService, feedRequest, null, pooledEmitter, rateLimitObservers, conditionalRequestValidators, responseCompression);
     }
 }
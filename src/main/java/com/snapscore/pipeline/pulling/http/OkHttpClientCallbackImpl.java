@@ -2,31 +2,69 @@ package com.snapscore.pipeline.pulling.http;
 
 import com.snapscore.pipeline.logging.Logger;
 import com.snapscore.pipeline.pulling.FeedRequest;
+import io.netty.buffer.ByteBuf;
 import okhttp3.Call;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
 import reactor.core.publisher.MonoSink;
 
 import java.io.IOException;
+import java.util.List;
 
 public class OkHttpClientCallbackImpl extends AbstractClientCallback implements OkHttpClientCallback {
 
     private static final Logger logger = Logger.setup(OkHttpClientCallbackImpl.class);
 
+    OkHttpClientCallbackImpl(PullingStatisticsService pullingStatisticsService,
+                             FeedRequest feedRequest,
+                             MonoSink<byte[]> emitter,
+                             MonoSink<ByteBuf> pooledEmitter,
+                             List<RateLimitObserver> rateLimitObservers,
+                             ConditionalRequestValidators conditionalRequestValidators,
+                             ResponseCompression responseCompression) {
+        super(feedRequest, emitter, pooledEmitter, pullingStatisticsService, rateLimitObservers, conditionalRequestValidators, responseCompression);
+    }
+
+    OkHttpClientCallbackImpl(PullingStatisticsService pullingStatisticsService,
+                             FeedRequest feedRequest,
+                             MonoSink<byte[]> emitter,
+                             List<RateLimitObserver> rateLimitObservers,
+                             ConditionalRequestValidators conditionalRequestValidators) {
+        this(pullingStatisticsService, feedRequest, emitter, null, rateLimitObservers, conditionalRequestValidators, null);
+    }
+
+    OkHttpClientCallbackImpl(PullingStatisticsService pullingStatisticsService,
+                             FeedRequest feedRequest,
+                             MonoSink<byte[]> emitter,
+                             List<RateLimitObserver> rateLimitObservers) {
+        this(pullingStatisticsService, feedRequest, emitter, rateLimitObservers, null);
+    }
+
     OkHttpClientCallbackImpl(PullingStatisticsService pullingStatisticsService,
                              FeedRequest feedRequest,
                              MonoSink<byte[]> emitter) {
-        super(feedRequest, emitter, pullingStatisticsService);
+        this(pullingStatisticsService, feedRequest, emitter, List.of());
     }
 
     @Override
     public void onResponse(Call call, Response response) {
         try {
-            if (response.isSuccessful()) {
+            observeRateLimit(response.code(), response::header);
+            if (isNotModified(response.code())) {
+                handleNotModifiedResponse();
+            } else if (response.isSuccessful()) {
                 logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid()).analyticsId("request_success")).info("Successful response for request: {}", feedRequest.toStringBasicInfo());
                 ResponseBody responseBody = response.body();
                 if (responseBody != null) {
-                    handleSuccessfulResponse(responseBody.bytes());
+                    recordConditionalRequestValidators(response::header);
+                    if (isCompressionNegotiated()) {
+                        // OkHttp does not decode the body itself when the request sets Accept-Encoding
+                        readAndEmitDecodedBody(responseBody.byteStream(), response.header(ResponseCompression.CONTENT_ENCODING), responseBody.contentLength());
+                    } else if (isPooled()) {
+                        handleSuccessfulResponse(readIntoPooledBuffer(responseBody.byteStream(), responseBody.contentLength()));
+                    } else {
+                        handleSuccessfulResponse(responseBody.bytes());
+                    }
                 } else {
                     logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid())).warn("Received responseBody is null! {}", feedRequest.toStringBasicInfo());
                     emitFailedRequestException();
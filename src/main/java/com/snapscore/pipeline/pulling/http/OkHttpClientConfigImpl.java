@@ -6,10 +6,36 @@ public class OkHttpClientConfigImpl implements HttpClientConfig {
 
     private final int numberOfThreads;
     private final Duration readTimeout;
+    private final int maxRequestsPerHost;
+    private final HttpProtocol httpProtocol;
+    private final int http2MaxConcurrentStreams;
 
-    public OkHttpClientConfigImpl(int numberOfThreads, Duration readTimeout) {
+    /**
+     * OkHttp multiplexes all HTTP/2 requests to a host over a single connection and opens another one only when the provider's
+     * stream limit is reached - so the number of connections cannot be configured and the max requests per host also bound the streams
+     *
+     * @param httpProtocol              null to negotiate HTTP/2 over TLS like OkHttp does by default
+     * @param http2MaxConcurrentStreams if set (not -1) the max requests per host are capped by it when HTTP/2 is requested explicitly
+     *                                  (HTTP_2 or H2C) - a negotiated protocol is not known up front
+     */
+    public OkHttpClientConfigImpl(int numberOfThreads, Duration readTimeout, int maxRequestsPerHost, HttpProtocol httpProtocol, int http2MaxConcurrentStreams) {
         this.numberOfThreads = numberOfThreads;
         this.readTimeout = readTimeout;
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        this.httpProtocol = httpProtocol;
+        this.http2MaxConcurrentStreams = http2MaxConcurrentStreams;
+    }
+
+    public OkHttpClientConfigImpl(int numberOfThreads, Duration readTimeout, int maxRequestsPerHost, HttpProtocol httpProtocol) {
+        this(numberOfThreads, readTimeout, maxRequestsPerHost, httpProtocol, HTTP2_MAX_CONCURRENT_STREAMS_DEFAULT);
+    }
+
+    public OkHttpClientConfigImpl(int numberOfThreads, Duration readTimeout, int maxRequestsPerHost) {
+        this(numberOfThreads, readTimeout, maxRequestsPerHost, null);
+    }
+
+    public OkHttpClientConfigImpl(int numberOfThreads, Duration readTimeout) {
+        this(numberOfThreads, readTimeout, MAX_REQUESTS_PER_HOST_DEFAULT);
     }
 
     @Override
@@ -22,6 +48,24 @@ public class OkHttpClientConfigImpl implements HttpClientConfig {
         return readTimeout;
     }
 
+    @Override
+    public int maxRequestsPerHost() {
+        if ((httpProtocol == HttpProtocol.HTTP_2 || httpProtocol == HttpProtocol.H2C) && http2MaxConcurrentStreams > 0) {
+            return Math.min(maxRequestsPerHost, http2MaxConcurrentStreams);
+        }
+        return maxRequestsPerHost;
+    }
+
+    @Override
+    public HttpProtocol httpProtocol() {
+        return httpProtocol;
+    }
+
+    @Override
+    public int http2MaxConcurrentStreams() {
+        return http2MaxConcurrentStreams;
+    }
+
     @Override
     public String host() {
         throw new UnsupportedOperationException("This operation is not supported for OkHttpClient");
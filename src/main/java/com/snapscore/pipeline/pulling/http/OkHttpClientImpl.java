@@ -4,13 +4,21 @@ import com.snapscore.pipeline.logging.Logger;
 import com.snapscore.pipeline.pulling.FeedPriorityEnum;
 import com.snapscore.pipeline.pulling.FeedRequest;
 import com.snapscore.pipeline.pulling.FeedRequestHttpHeader;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
 import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.ConnectionPool;
 import okhttp3.Dispatcher;
+import okhttp3.Protocol;
 import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -19,6 +27,8 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public class OkHttpClientImpl implements HttpClient {
 
@@ -35,15 +45,31 @@ public class OkHttpClientImpl implements HttpClient {
             ExecutorService executorService = Executors.newFixedThreadPool(httpClientConfig.getNumberOfThreads());
             clientExecutorServices.add(executorService);
             Dispatcher dispatcher = new Dispatcher(executorService);
+            dispatcher.setMaxRequestsPerHost(httpClientConfig.maxRequestsPerHost());
             okhttp3.OkHttpClient okHttpClient = new okhttp3.OkHttpClient.Builder()
                     .readTimeout(httpClientConfig.readTimeout().getSeconds(), TimeUnit.SECONDS)
                     .connectionPool(new ConnectionPool(100, 5, TimeUnit.MINUTES))
                     .dispatcher(dispatcher)
+                    .protocols(protocolsFor(httpClientConfig.httpProtocol()))
                     .build();
             clientsByPriorityMap.put(feedPriority, okHttpClient);
         }
     }
 
+    /**
+     * OkHttp multiplexes all HTTP/2 requests to a host over a single connection
+     */
+    static List<Protocol> protocolsFor(HttpProtocol httpProtocol) {
+        if (httpProtocol == null) {
+            return List.of(Protocol.HTTP_2, Protocol.HTTP_1_1); // OkHttp's default
+        }
+        return switch (httpProtocol) {
+            case HTTP_1_1 -> List.of(Protocol.HTTP_1_1);
+            case HTTP_2 -> List.of(Protocol.HTTP_2, Protocol.HTTP_1_1);
+            case H2C -> List.of(Protocol.H2_PRIOR_KNOWLEDGE);
+        };
+    }
+
     @Override
     public CompletableFuture<byte[]> getAsync(FeedRequest feedRequest) {
         Mono<byte[]> mono = Mono.create(emitter -> {
@@ -54,13 +80,52 @@ public class OkHttpClientImpl implements HttpClient {
                 .toFuture();
     }
 
+    @Override
+    public CompletableFuture<ByteBuf> getPooledAsync(FeedRequest feedRequest) {
+        Mono<ByteBuf> mono = Mono.create(emitter -> {
+            OkHttpClientCallback clientCallback = clientCallbackFactory.createPooledCallback(feedRequest, emitter);
+            enqueue(feedRequest, clientCallback);
+        });
+        return mono.publishOn(Schedulers.parallel())
+                .doOnDiscard(ByteBuf.class, ReferenceCountUtil::safeRelease) // emitted after the result is not awaited anymore
+                .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<InputStream> getStreamAsync(FeedRequest feedRequest) {
+        CompletableFuture<InputStream> result = new CompletableFuture<>();
+        Call call = createCall(feedRequest, headerSetter -> {});
+        call.enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                ResponseBody responseBody = response.body();
+                if (response.isSuccessful() && responseBody != null) {
+                    logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid()).analyticsId("request_success")).info("Successful response for streamed request: {}", feedRequest.toStringBasicInfo());
+                    result.complete(responseBody.byteStream()); // closing the stream closes the response
+                } else {
+                    logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid()).analyticsId("resp_status_" + response.code())).warn("Streamed request not successful, response code = {}; request: {}", response.code(), feedRequest.toStringBasicInfo());
+                    response.close();
+                    result.completeExceptionally(new FailedRequestException(feedRequest));
+                }
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid())).warn("Error while sending streamed request: {}", feedRequest.toStringBasicInfo(), e);
+                result.completeExceptionally(new FailedRequestException(feedRequest));
+            }
+        });
+        logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid()).analyticsId("http_client_got_accepted_rq")).info("HttpClient accepted new request: {}", feedRequest.toStringBasicInfo());
+        return result;
+    }
+
     private void enqueue(FeedRequest feedRequest, OkHttpClientCallback responseCallback) {
-        Call call = createCall(feedRequest);
+        Call call = createCall(feedRequest, responseCallback::addRequestHeaders);
         call.enqueue(responseCallback);
         logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid()).analyticsId("http_client_got_accepted_rq")).info("HttpClient accepted new request: {}", feedRequest.toStringBasicInfo());
     }
 
-    private Call createCall(FeedRequest feedRequest) {
+    private Call createCall(FeedRequest feedRequest, Consumer<BiConsumer<String, String>> additionalHeadersSetter) {
         okhttp3.OkHttpClient okHttpClient = clientsByPriorityMap.get(feedRequest.getPriority());
         Request.Builder builder = new Request.Builder()
                 .get()
@@ -69,6 +134,7 @@ public class OkHttpClientImpl implements HttpClient {
         for (FeedRequestHttpHeader httpHeader : feedRequest.getHttpHeaders()) {
             builder.addHeader(httpHeader.getKey(), httpHeader.getValue());
         }
+        additionalHeadersSetter.accept(builder::addHeader);
 
         Request request = builder.build();
 
@@ -14,4 +14,20 @@ public interface PullingStatisticsService {
 
     LocalDateTime getLastFailedPullDt(FeedName feedName);
 
+    /**
+     * Recorded for the successful responses with a body when {@link ResponseCompression} is used
+     *
+     * @param compressedBytes   body bytes as received
+     * @param uncompressedBytes body bytes after decompression
+     */
+    default void recordResponseBytesFor(FeedName feedName, long compressedBytes, long uncompressedBytes) {
+    }
+
+    /**
+     * @return null if nothing was recorded for the feed
+     */
+    default ResponseByteCounts getResponseByteCounts(FeedName feedName) {
+        return null;
+    }
+
 }
@@ -11,6 +11,7 @@ public class PullingStatisticsServiceImpl implements PullingStatisticsService {
 
     private final ConcurrentMap<FeedName, LocalDateTime> lastSuccesfulPullByFeedName = new ConcurrentHashMap<>();
     private final ConcurrentMap<FeedName, LocalDateTime> lastFailedPullByFeedName = new ConcurrentHashMap<>();
+    private final ConcurrentMap<FeedName, ResponseByteCounts> responseByteCountsByFeedName = new ConcurrentHashMap<>();
 
     public PullingStatisticsServiceImpl() {
     }
@@ -35,4 +36,14 @@ public class PullingStatisticsServiceImpl implements PullingStatisticsService {
         return lastFailedPullByFeedName.get(feedName);
     }
 
+    @Override
+    public void recordResponseBytesFor(FeedName feedName, long compressedBytes, long uncompressedBytes) {
+        responseByteCountsByFeedName.computeIfAbsent(feedName, name -> new ResponseByteCounts()).record(compressedBytes, uncompressedBytes);
+    }
+
+    @Override
+    public ResponseByteCounts getResponseByteCounts(FeedName feedName) {
+        return responseByteCountsByFeedName.get(feedName);
+    }
+
 }
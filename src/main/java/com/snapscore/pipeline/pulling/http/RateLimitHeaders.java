@@ -0,0 +1,88 @@
+package com.snapscore.pipeline.pulling.http;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Function;
+
+/**
+ * Rate limit related information sent by a provider with a response.
+ *
+ * Understood headers:
+ * <br> - Retry-After: seconds or an HTTP date
+ * <br> - X-RateLimit-Remaining / RateLimit-Remaining: requests left in the current window
+ * <br> - X-RateLimit-Reset / RateLimit-Reset: seconds until the window resets; values that look like epoch seconds are converted
+ *
+ * @param remaining  {@link #UNKNOWN} if not sent
+ * @param resetAfter null if not sent
+ * @param retryAfter null if not sent
+ */
+public record RateLimitHeaders(int statusCode, long remaining, Duration resetAfter, Duration retryAfter) {
+
+    public static final long UNKNOWN = -1L;
+    public static final int STATUS_TOO_MANY_REQUESTS = 429;
+    private static final int STATUS_SERVICE_UNAVAILABLE = 503;
+    // smaller values of the reset header are deltas in seconds, bigger ones epoch seconds
+    private static final long EPOCH_SECONDS_THRESHOLD = 1_000_000_000L;
+
+    /**
+     * @return true if the provider asks us to slow down
+     */
+    public boolean isRateLimited() {
+        return statusCode == STATUS_TOO_MANY_REQUESTS || (statusCode == STATUS_SERVICE_UNAVAILABLE && retryAfter != null);
+    }
+
+    public boolean hasRemaining() {
+        return remaining != UNKNOWN;
+    }
+
+    /**
+     * @param headerLookup returns the value of the header with the given name (case insensitive) or null
+     */
+    public static RateLimitHeaders parse(int statusCode, Function<String, String> headerLookup, long nowMillis) {
+        long remaining = parseLong(firstNonNull(headerLookup.apply("X-RateLimit-Remaining"), headerLookup.apply("RateLimit-Remaining")));
+        long reset = parseLong(firstNonNull(headerLookup.apply("X-RateLimit-Reset"), headerLookup.apply("RateLimit-Reset")));
+        Duration resetAfter = null;
+        if (reset != UNKNOWN) {
+            resetAfter = reset >= EPOCH_SECONDS_THRESHOLD ? nonNegative(Duration.ofMillis(reset * 1000L - nowMillis)) : Duration.ofSeconds(reset);
+        }
+        return new RateLimitHeaders(statusCode, remaining, resetAfter, parseRetryAfter(headerLookup.apply("Retry-After"), nowMillis));
+    }
+
+    private static Duration parseRetryAfter(String value, long nowMillis) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        long seconds = parseLong(value);
+        if (seconds != UNKNOWN) {
+            return Duration.ofSeconds(seconds);
+        }
+        try {
+            ZonedDateTime retryAt = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+            return nonNegative(Duration.ofMillis(retryAt.toInstant().toEpochMilli() - nowMillis));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static long parseLong(String value) {
+        if (value == null) {
+            return UNKNOWN;
+        }
+        try {
+            long parsed = Long.parseLong(value.trim());
+            return parsed >= 0L ? parsed : UNKNOWN;
+        } catch (NumberFormatException e) {
+            return UNKNOWN;
+        }
+    }
+
+    private static String firstNonNull(String value1, String value2) {
+        return value1 != null ? value1 : value2;
+    }
+
+    private static Duration nonNegative(Duration duration) {
+        return duration.isNegative() ? Duration.ZERO : duration;
+    }
+
+}
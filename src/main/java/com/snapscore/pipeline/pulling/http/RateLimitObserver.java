@@ -0,0 +1,12 @@
+package com.snapscore.pipeline.pulling.http;
+
+import com.snapscore.pipeline.pulling.FeedRequest;
+
+/**
+ * Notified about the rate limit information of each response regardless of the http client used
+ */
+public interface RateLimitObserver {
+
+    void observeRateLimit(FeedRequest feedRequest, RateLimitHeaders rateLimitHeaders);
+
+}
@@ -0,0 +1,173 @@
+package com.snapscore.pipeline.pulling.http;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.ReadStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Blocking InputStream over a Vert.x read stream (a response body) - the chunks are handed over as they arrive.
+ *
+ * The read stream is paused once more than the max buffered bytes have arrived and not been read yet, and resumed
+ * once the reader has caught up to half of it - so a slow reader never makes the whole body pile up in memory.
+ * Closing the stream before the end of the body has been reached calls the abort action (resets the request).
+ */
+class ReadStreamInputStream extends InputStream {
+
+    private final ReadStream<Buffer> readStream;
+    private final int maxBufferedBytes;
+    private final Runnable abortAction;
+
+    // all below guarded by "this"
+    private final Queue<byte[]> chunks = new ArrayDeque<>();
+    private byte[] currentChunk;
+    private int currentChunkPosition;
+    private long bufferedBytes;
+    private boolean paused;
+    private boolean ended;
+    private boolean closed;
+    private Throwable error;
+
+    /**
+     * Must be created on the event loop before the first chunk of the read stream arrives
+     */
+    ReadStreamInputStream(ReadStream<Buffer> readStream, int maxBufferedBytes, Runnable abortAction) {
+        this.readStream = readStream;
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.abortAction = abortAction;
+        readStream.handler(this::onChunk);
+        readStream.endHandler(ignored -> onEnd());
+        readStream.exceptionHandler(this::onError);
+    }
+
+    private void onChunk(Buffer buffer) {
+        boolean pause = false;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            byte[] chunk = buffer.getBytes();
+            if (chunk.length == 0) {
+                return;
+            }
+            chunks.add(chunk);
+            bufferedBytes += chunk.length;
+            if (bufferedBytes > maxBufferedBytes && !paused) {
+                paused = true;
+                pause = true;
+            }
+            notifyAll();
+        }
+        if (pause) {
+            readStream.pause();
+        }
+    }
+
+    private synchronized void onEnd() {
+        ended = true;
+        notifyAll();
+    }
+
+    private synchronized void onError(Throwable throwable) {
+        error = throwable;
+        notifyAll();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        int read = read(single, 0, 1);
+        return read == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || length > bytes.length - offset) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (length == 0) {
+            return 0;
+        }
+        boolean resume = false;
+        int read;
+        synchronized (this) {
+            if (!awaitChunk()) {
+                return -1;
+            }
+            read = Math.min(length, currentChunk.length - currentChunkPosition);
+            System.arraycopy(currentChunk, currentChunkPosition, bytes, offset, read);
+            currentChunkPosition += read;
+            bufferedBytes -= read;
+            if (paused && bufferedBytes <= maxBufferedBytes / 2) {
+                paused = false;
+                resume = true;
+            }
+        }
+        if (resume) {
+            readStream.resume();
+        }
+        return read;
+    }
+
+    @Override
+    public synchronized int available() {
+        return (int) Math.min(Integer.MAX_VALUE, bufferedBytes);
+    }
+
+    @Override
+    public void close() {
+        boolean abort;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            abort = !ended && error == null;
+            chunks.clear();
+            currentChunk = null;
+            bufferedBytes = 0;
+            notifyAll();
+        }
+        if (abort) {
+            abortAction.run();
+        }
+    }
+
+    /**
+     * must be called while holding the lock on "this"
+     *
+     * @return false if the end of the stream has been reached
+     */
+    private boolean awaitChunk() throws IOException {
+        while (true) {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (currentChunk != null && currentChunkPosition < currentChunk.length) {
+                return true;
+            }
+            currentChunk = chunks.poll();
+            currentChunkPosition = 0;
+            if (currentChunk != null) {
+                continue;
+            }
+            if (error != null) {
+                throw new IOException("Error while reading the response body", error);
+            }
+            if (ended) {
+                return false;
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the response body");
+            }
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.snapscore.pipeline.pulling.http;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Body bytes of the successful responses of a single feed as received (compressed) and after decompression
+ */
+public class ResponseByteCounts {
+
+    private final LongAdder responseCount = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder uncompressedBytes = new LongAdder();
+
+    void record(long compressedBytes, long uncompressedBytes) {
+        this.responseCount.increment();
+        this.compressedBytes.add(compressedBytes);
+        this.uncompressedBytes.add(uncompressedBytes);
+    }
+
+    public long getResponseCount() {
+        return responseCount.sum();
+    }
+
+    /**
+     * @return bytes received over the network; same as the uncompressed bytes for responses that were not compressed
+     */
+    public long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    public long getUncompressedBytes() {
+        return uncompressedBytes.sum();
+    }
+
+    /**
+     * @return compressed bytes divided by the uncompressed bytes; 1.0 if nothing was recorded yet
+     */
+    public double getCompressionRatio() {
+        long uncompressed = getUncompressedBytes();
+        return uncompressed > 0 ? (double) getCompressedBytes() / uncompressed : 1.0;
+    }
+
+    @Override
+    public String toString() {
+        return "ResponseByteCounts{" +
+                "responseCount=" + getResponseCount() +
+                ", compressedBytes=" + getCompressedBytes() +
+                ", uncompressedBytes=" + getUncompressedBytes() +
+                '}';
+    }
+}
@@ -0,0 +1,141 @@
+package com.snapscore.pipeline.pulling.http;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Negotiates compressed responses (Accept-Encoding) and decodes them while they are being read - the compressed body
+ * is never held in memory as a whole.
+ *
+ * gzip and deflate are supported out of the box. Other encodings like brotli can be added with a decoder from a library
+ * that supports them, e.g. {@code compression.withEncoding(ResponseCompression.BROTLI, BrotliInputStream::new)}.
+ *
+ * When used the http clients negotiate the encoding themselves - OkHttp's transparent gzip is then not used and
+ * Vert.x HttpClientOptions.setTryUseCompression() should be left disabled.
+ */
+public class ResponseCompression {
+
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+    public static final String BROTLI = "br";
+    public static final String IDENTITY = "identity";
+    static final String ACCEPT_ENCODING = "Accept-Encoding";
+    static final String CONTENT_ENCODING = "Content-Encoding";
+
+    private static final int DECODER_BUFFER_SIZE = 8 * 1024;
+
+    @FunctionalInterface
+    public interface Decoder {
+
+        /**
+         * @return stream of the decoded bytes; closing it must close the encoded stream
+         */
+        InputStream decode(InputStream encoded) throws IOException;
+    }
+
+    // in the order of preference
+    private final Map<String, Decoder> decodersByEncoding;
+    private final String acceptEncoding;
+
+    /**
+     * @param decodersByEncoding the encodings are offered to the provider in the iteration order of the map
+     */
+    public ResponseCompression(Map<String, Decoder> decodersByEncoding) {
+        if (decodersByEncoding.isEmpty()) {
+            throw new IllegalArgumentException("At least one encoding must be supported!");
+        }
+        Map<String, Decoder> normalized = new LinkedHashMap<>();
+        decodersByEncoding.forEach((encoding, decoder) -> normalized.put(encoding.trim().toLowerCase(Locale.ROOT), decoder));
+        this.decodersByEncoding = Collections.unmodifiableMap(normalized);
+        this.acceptEncoding = String.join(", ", normalized.keySet());
+    }
+
+    /**
+     * gzip and deflate
+     */
+    public ResponseCompression() {
+        this(defaultDecoders());
+    }
+
+    /**
+     * @return new instance that also supports the given encoding - offered after the already supported ones
+     */
+    public ResponseCompression withEncoding(String encoding, Decoder decoder) {
+        Map<String, Decoder> extended = new LinkedHashMap<>(decodersByEncoding);
+        extended.put(encoding, decoder);
+        return new ResponseCompression(extended);
+    }
+
+    String getAcceptEncoding() {
+        return acceptEncoding;
+    }
+
+    /**
+     * @param contentEncoding value of the Content-Encoding response header; may be null
+     */
+    static boolean isIdentity(String contentEncoding) {
+        return contentEncoding == null || contentEncoding.isBlank() || IDENTITY.equalsIgnoreCase(contentEncoding.trim());
+    }
+
+    /**
+     * @param contentEncoding value of the Content-Encoding response header - multiple encodings are decoded in the reverse order of their application
+     * @throws IOException if any of the encodings is not supported
+     */
+    InputStream decode(String contentEncoding, InputStream encoded) throws IOException {
+        if (isIdentity(contentEncoding)) {
+            return encoded;
+        }
+        String[] encodings = contentEncoding.split(",");
+        InputStream decoded = encoded;
+        for (int idx = encodings.length - 1; idx >= 0; idx--) {
+            String encoding = encodings[idx].trim().toLowerCase(Locale.ROOT);
+            if (isIdentity(encoding)) {
+                continue;
+            }
+            Decoder decoder = decodersByEncoding.get(encoding);
+            if (decoder == null) {
+                throw new IOException("Unsupported response content encoding: " + contentEncoding);
+            }
+            decoded = decoder.decode(decoded);
+        }
+        return decoded;
+    }
+
+    private static Map<String, Decoder> defaultDecoders() {
+        Map<String, Decoder> decoders = new LinkedHashMap<>();
+        decoders.put(GZIP, encoded -> new GZIPInputStream(encoded, DECODER_BUFFER_SIZE));
+        decoders.put(DEFLATE, ResponseCompression::inflate);
+        return decoders;
+    }
+
+    /**
+     * "deflate" should be zlib wrapped but some servers send the raw deflate stream - both are accepted
+     */
+    private static InputStream inflate(InputStream encoded) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(encoded, DECODER_BUFFER_SIZE);
+        buffered.mark(2);
+        int cmf = buffered.read();
+        int flg = buffered.read();
+        buffered.reset();
+        boolean zlibWrapped = cmf != -1 && flg != -1 && (cmf & 0x0f) == 8 && ((cmf << 8) | flg) % 31 == 0;
+        return new InflaterInputStream(buffered, new Inflater(!zlibWrapped), DECODER_BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inf.end(); // a custom inflater is not ended by the stream itself
+                }
+            }
+        };
+    }
+
+}
@@ -1,30 +1,128 @@
 package com.snapscore.pipeline.pulling.http;
 
 import com.snapscore.pipeline.pulling.FeedRequest;
+import io.netty.buffer.ByteBuf;
 import reactor.core.publisher.MonoSink;
 
 import java.util.List;
 
 public class VertxClientCallbackFactoryImpl implements ClientCallbackFactory<VertxClientCallback> {
 
-    private final PullingStatisticsService pullingStatisticsService;
-    private final int httpResponseBufferSize;
-    private final List<HeadersObserver> headersObservers;
+    final PullingStatisticsService pullingStatisticsService;
+    final int httpResponseBufferSize;
+    final List<HeadersObserver> headersObservers;
+    final List<RateLimitObserver> rateLimitObservers;
+    final ConditionalRequestValidators conditionalRequestValidators;
+    final ResponseCompression responseCompression;
+    final int maxBufferedStreamBytes;
 
     public VertxClientCallbackFactoryImpl(PullingStatisticsService pullingStatisticsService,
                                           int httpResponseBufferSize,
                                           List<HeadersObserver> headersObservers) {
+        this(newBuilder(httpResponseBufferSize)
+                .setPullingStatisticsService(pullingStatisticsService)
+                .setHeadersObservers(headersObservers));
+    }
+
+    public VertxClientCallbackFactoryImpl(int httpResponseBufferSize) {
+        this(newBuilder(httpResponseBufferSize));
+    }
+
+    private VertxClientCallbackFactoryImpl(Builder builder) {
+        this(builder.pullingStatisticsService, builder.httpResponseBufferSize, builder.headersObservers, builder.rateLimitObservers,
+                builder.conditionalRequestValidators, builder.responseCompression, HttpClientConfig.MAX_BUFFERED_STREAM_BYTES_DEFAULT);
+    }
+
+    private VertxClientCallbackFactoryImpl(PullingStatisticsService pullingStatisticsService,
+                                           int httpResponseBufferSize,
+                                           List<HeadersObserver> headersObservers,
+                                           List<RateLimitObserver> rateLimitObservers,
+                                           ConditionalRequestValidators conditionalRequestValidators,
+                                           ResponseCompression responseCompression,
+                                           int maxBufferedStreamBytes) {
         this.pullingStatisticsService = pullingStatisticsService;
         this.httpResponseBufferSize = httpResponseBufferSize;
         this.headersObservers = headersObservers;
+        this.rateLimitObservers = rateLimitObservers;
+        this.conditionalRequestValidators = conditionalRequestValidators;
+        this.responseCompression = responseCompression;
+        this.maxBufferedStreamBytes = maxBufferedStreamBytes;
     }
 
-    public VertxClientCallbackFactoryImpl(int httpResponseBufferSize) {
-        this(null, httpResponseBufferSize, List.of());
+    public static Builder newBuilder(int httpResponseBufferSize) {
+        return new Builder(httpResponseBufferSize);
+    }
+
+    /**
+     * Called by {@link VertxHttpClientImpl} with its {@link HttpClientConfig#maxBufferedStreamBytes()} - compressed bodies
+     * are decoded while they are being streamed
+     */
+    VertxClientCallbackFactoryImpl withMaxBufferedStreamBytes(int maxBufferedStreamBytes) {
+        return new VertxClientCallbackFactoryImpl(pullingStatisticsService, httpResponseBufferSize, headersObservers, rateLimitObservers,
+                conditionalRequestValidators, responseCompression, maxBufferedStreamBytes);
     }
 
     @Override
     public VertxClientCallback createCallback(FeedRequest feedRequest, MonoSink<byte[]> emitter) {
-        return new VertxClientCallbackImpl(pullingStatisticsService, feedRequest, emitter, httpResponseBufferSize, headersObservers);
+        return new VertxClientCallbackImpl(this, feedRequest, emitter, null);
+    }
+
+    @Override
+    public VertxClientCallback createPooledCallback(FeedRequest feedRequest, MonoSink<ByteBuf> pooledEmitter) {
+        return new VertxClientCallbackImpl(this, feedRequest, null, pooledEmitter);
+    }
+
+
+    public static class Builder {
+
+        private final int httpResponseBufferSize;
+        private PullingStatisticsService pullingStatisticsService;
+        private List<HeadersObserver> headersObservers = List.of();
+        private List<RateLimitObserver> rateLimitObservers = List.of();
+        private ConditionalRequestValidators conditionalRequestValidators;
+        private ResponseCompression responseCompression;
+
+        private Builder(int httpResponseBufferSize) {
+            this.httpResponseBufferSize = httpResponseBufferSize;
+        }
+
+        /**
+         * @param pullingStatisticsService null by default
+         */
+        public Builder setPullingStatisticsService(PullingStatisticsService pullingStatisticsService) {
+            this.pullingStatisticsService = pullingStatisticsService;
+            return this;
+        }
+
+        public Builder setHeadersObservers(List<HeadersObserver> headersObservers) {
+            this.headersObservers = headersObservers;
+            return this;
+        }
+
+        public Builder setRateLimitObservers(List<RateLimitObserver> rateLimitObservers) {
+            this.rateLimitObservers = rateLimitObservers;
+            return this;
+        }
+
+        /**
+         * @param conditionalRequestValidators null by default - the requests are then not sent as conditional requests
+         */
+        public Builder setConditionalRequestValidators(ConditionalRequestValidators conditionalRequestValidators) {
+            this.conditionalRequestValidators = conditionalRequestValidators;
+            return this;
+        }
+
+        /**
+         * @param responseCompression null by default - the response encoding is then not negotiated; the compressed / uncompressed
+         *                            response bytes are only recorded by the pulling statistics if set
+         */
+        public Builder setResponseCompression(ResponseCompression responseCompression) {
+            this.responseCompression = responseCompression;
+            return this;
+        }
+
+        public VertxClientCallbackFactoryImpl build() {
+            return new VertxClientCallbackFactoryImpl(this);
+        }
     }
 }
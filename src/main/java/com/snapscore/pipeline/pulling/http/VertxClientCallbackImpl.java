@@ -2,39 +2,37 @@ package com.snapscore.pipeline.pulling.http;
 
 import com.snapscore.pipeline.logging.Logger;
 import com.snapscore.pipeline.pulling.FeedRequest;
+import io.netty.buffer.ByteBuf;
 import io.vertx.core.http.HttpClientResponse;
 import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.InputStream;
 import java.util.List;
 
 public class VertxClientCallbackImpl extends AbstractClientCallback implements VertxClientCallback {
 
     private static final Logger logger = Logger.setup(VertxClientCallbackImpl.class);
 
+    private static final String CONTENT_LENGTH = "Content-Length";
+
     private final int httpResponseBufferSize;
     private final List<HeadersObserver> headersObservers;
+    private final int maxBufferedStreamBytes;
 
-    VertxClientCallbackImpl(PullingStatisticsService pullingStatisticsService,
+    /**
+     * Takes its settings from the factory so that they are not repeated in a long list of positional arguments
+     */
+    VertxClientCallbackImpl(VertxClientCallbackFactoryImpl factory,
                             FeedRequest feedRequest,
                             MonoSink<byte[]> emitter,
-                            int httpResponseBufferSize,
-                            List<HeadersObserver> headersObservers) {
-        super(feedRequest, emitter, pullingStatisticsService);
-        this.httpResponseBufferSize = httpResponseBufferSize;
-        this.headersObservers = headersObservers == null ? List.of() : headersObservers;
-    }
-
-    VertxClientCallbackImpl(PullingStatisticsService pullingStatisticsService,
-                           FeedRequest feedRequest,
-                           MonoSink<byte[]> emitter,
-                           int httpResponseBufferSize) {
-        this(pullingStatisticsService, feedRequest, emitter, httpResponseBufferSize, List.of());
-    }
-
-    VertxClientCallbackImpl(FeedRequest feedRequest,
-                            MonoSink<byte[]> emitter,
-                            int httpResponseBufferSize) {
-        this(null, feedRequest, emitter, httpResponseBufferSize);
+                            MonoSink<ByteBuf> pooledEmitter) {
+        super(feedRequest, emitter, pooledEmitter, factory.pullingStatisticsService, factory.rateLimitObservers,
+                factory.conditionalRequestValidators, factory.responseCompression);
+        this.httpResponseBufferSize = factory.httpResponseBufferSize;
+        this.headersObservers = factory.headersObservers == null ? List.of() : factory.headersObservers;
+        // the download of a compressed body is paused once this many bytes have arrived and not been decoded yet
+        this.maxBufferedStreamBytes = factory.maxBufferedStreamBytes;
     }
 
     @Override
@@ -43,25 +41,35 @@ public class VertxClientCallbackImpl extends AbstractClientCallback implements V
         int statusCode = response.statusCode();
 
         try {
-            if (statusCode >= 200 && statusCode <= 300) {
+            observeRateLimit(statusCode, response::getHeader);
+            if (isNotModified(statusCode)) {
+                handleNotModifiedResponse();
+            } else if (statusCode >= 200 && statusCode <= 300) {
                 logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid()).analyticsId("request_success")).info("Successful response for request: {}", feedRequest.toStringBasicInfo());
-                response.bodyHandler(totalBuffer -> {
-                    if (totalBuffer.getBytes().length == httpResponseBufferSize) {
-                        logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid())).error("It's likely the receive buffer is not enough - currently set to: {} kbytes", httpResponseBufferSize / 1024);
-                    }
-                    byte[] responseData = totalBuffer.getBytes();
-                    if (responseData != null) {
-                        handleSuccessfulResponse(responseData);
-                    } else {
-                        logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid())).warn("Received responseBody is null!");
+                recordConditionalRequestValidators(response::getHeader);
+                if (isCompressionNegotiated()) {
+                    readDecodedBody(response);
+                } else if (isPooled()) {
+                    readIntoPooledBuffer(response);
+                } else {
+                    response.bodyHandler(totalBuffer -> {
+                        if (totalBuffer.length() == httpResponseBufferSize) {
+                            logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid())).error("It's likely the receive buffer is not enough - currently set to: {} kbytes", httpResponseBufferSize / 1024);
+                        }
+                        byte[] responseData = totalBuffer.getBytes(); // copies the whole buffer so it is done only once
+                        if (responseData != null) {
+                            handleSuccessfulResponse(responseData);
+                        } else {
+                            logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid())).warn("Received responseBody is null!");
+                            emitFailedRequestException();
+                        }
+                        pullingStatisticsService.ifPresent(service -> service.recordSuccessfulPullFor(feedRequest.getFeedName()));
+                    });
+                    response.exceptionHandler(throwable -> {
+                        logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid())).error("Error while reading successful response for {}!", feedRequest.toStringBasicInfo(), throwable);
                         emitFailedRequestException();
-                    }
-                    pullingStatisticsService.ifPresent(service -> service.recordSuccessfulPullFor(feedRequest.getFeedName()));
-                });
-                response.exceptionHandler(throwable -> {
-                    logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid())).error("Error while reading successful response for {}!", feedRequest.toStringBasicInfo(), throwable);
-                    emitFailedRequestException();
-                });
+                    });
+                }
             } else {
                 handleUnsuccessfulResponse(response.statusCode());
             }
@@ -76,6 +84,57 @@ public class VertxClientCallbackImpl extends AbstractClientCallback implements V
         }
     }
 
+    /**
+     * The body is decoded while it is being received - on a worker thread because reading it blocks until the next chunk
+     * arrives on the event loop. The download is paused while too many received chunks are waiting to be decoded
+     */
+    private void readDecodedBody(HttpClientResponse response) {
+        final String contentEncoding = response.getHeader(ResponseCompression.CONTENT_ENCODING);
+        final long contentLength = parseContentLength(response.getHeader(CONTENT_LENGTH));
+        // must be created right away on the event loop so that no chunk is missed
+        final InputStream body = new ReadStreamInputStream(response, maxBufferedStreamBytes, () -> response.request().reset());
+        Schedulers.boundedElastic().schedule(() -> {
+            try {
+                readAndEmitDecodedBody(body, contentEncoding, contentLength);
+                pullingStatisticsService.ifPresent(service -> service.recordSuccessfulPullFor(feedRequest.getFeedName()));
+            } catch (Exception e) {
+                logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid())).error("Error while reading successful response for {}!", feedRequest.toStringBasicInfo(), e);
+                emitFailedRequestException();
+            }
+        });
+    }
+
+    /**
+     * The chunks are copied straight from the Netty buffers of the connection into the pooled buffer
+     */
+    private void readIntoPooledBuffer(HttpClientResponse response) {
+        final ByteBuf responseData = allocateResponseBuffer(parseContentLength(response.getHeader(CONTENT_LENGTH)));
+        response.handler(chunk -> responseData.writeBytes(chunk.getByteBuf()));
+        response.endHandler(ignored -> {
+            if (responseData.readableBytes() == httpResponseBufferSize) {
+                logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid())).error("It's likely the receive buffer is not enough - currently set to: {} kbytes", httpResponseBufferSize / 1024);
+            }
+            handleSuccessfulResponse(responseData);
+            pullingStatisticsService.ifPresent(service -> service.recordSuccessfulPullFor(feedRequest.getFeedName()));
+        });
+        response.exceptionHandler(throwable -> {
+            logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid())).error("Error while reading successful response for {}!", feedRequest.toStringBasicInfo(), throwable);
+            responseData.release();
+            emitFailedRequestException();
+        });
+    }
+
+    private static long parseContentLength(String contentLength) {
+        if (contentLength == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentLength.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     @Override
     public void handleException(Throwable e) {
         super.handleException(e);
@@ -7,11 +7,30 @@ public class VertxHttpClientConfigImpl implements HttpClientConfig {
     private final Duration readTimeout;
     private final String host;
     private final int port;
+    private final HttpProtocol httpProtocol;
+    private final int http2MaxConcurrentStreams;
+    private final int http2MaxConnections;
 
-    public VertxHttpClientConfigImpl(Duration readTimeout, String host, int port) {
+    /**
+     * @param httpProtocol              null to use the protocol set in the HttpClientOptions
+     * @param http2MaxConcurrentStreams requests multiplexed over a single HTTP/2 connection; -1 to use the limit announced by the provider
+     * @param http2MaxConnections       HTTP/2 connections per request priority
+     */
+    public VertxHttpClientConfigImpl(Duration readTimeout, String host, int port, HttpProtocol httpProtocol, int http2MaxConcurrentStreams, int http2MaxConnections) {
         this.readTimeout = readTimeout;
         this.host = host;
         this.port = port;
+        this.httpProtocol = httpProtocol;
+        this.http2MaxConcurrentStreams = http2MaxConcurrentStreams;
+        this.http2MaxConnections = http2MaxConnections;
+    }
+
+    public VertxHttpClientConfigImpl(Duration readTimeout, String host, int port, HttpProtocol httpProtocol) {
+        this(readTimeout, host, port, httpProtocol, HTTP2_MAX_CONCURRENT_STREAMS_DEFAULT, HTTP2_MAX_CONNECTIONS_DEFAULT);
+    }
+
+    public VertxHttpClientConfigImpl(Duration readTimeout, String host, int port) {
+        this(readTimeout, host, port, null);
     }
 
     @Override
@@ -34,4 +53,19 @@ public class VertxHttpClientConfigImpl implements HttpClientConfig {
         return port;
     }
 
+    @Override
+    public HttpProtocol httpProtocol() {
+        return httpProtocol;
+    }
+
+    @Override
+    public int http2MaxConcurrentStreams() {
+        return http2MaxConcurrentStreams;
+    }
+
+    @Override
+    public int http2MaxConnections() {
+        return http2MaxConnections;
+    }
+
 }
@@ -4,18 +4,26 @@ import com.snapscore.pipeline.logging.Logger;
 import com.snapscore.pipeline.pulling.FeedPriorityEnum;
 import com.snapscore.pipeline.pulling.FeedRequest;
 import com.snapscore.pipeline.pulling.FeedRequestHttpHeader;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
+import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.VertxOptions;
 import io.vertx.core.http.HttpClientOptions;
 import io.vertx.core.http.HttpClientRequest;
+import io.vertx.core.http.HttpClientResponse;
 import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpVersion;
 import io.vertx.core.http.RequestOptions;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
+import java.io.InputStream;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public class VertxHttpClientImpl implements HttpClient {
 
@@ -32,55 +40,134 @@ public class VertxHttpClientImpl implements HttpClient {
                                HttpClientOptions httpClientOptions,
                                ClientCallbackFactory<VertxClientCallback> clientCallbackFactory) {
         this.httpClientConfig = httpClientConfig;
-        this.clientCallbackFactory = clientCallbackFactory;
+        this.clientCallbackFactory = applyMaxBufferedStreamBytes(clientCallbackFactory, httpClientConfig);
         for (FeedPriorityEnum requestPriority : FeedPriorityEnum.values()) {
-            clients.put(requestPriority, vertx.createHttpClient(httpClientOptions));
+            clients.put(requestPriority, vertx.createHttpClient(applyHttpProtocol(httpClientOptions, httpClientConfig)));
         }
     }
 
+    /**
+     * Compressed bodies are decoded by the callbacks while they are streamed - with the same buffering limit as {@link #getStreamAsync(FeedRequest)}
+     */
+    static ClientCallbackFactory<VertxClientCallback> applyMaxBufferedStreamBytes(ClientCallbackFactory<VertxClientCallback> clientCallbackFactory,
+                                                                                  HttpClientConfig httpClientConfig) {
+        if (clientCallbackFactory instanceof VertxClientCallbackFactoryImpl vertxClientCallbackFactory) {
+            return vertxClientCallbackFactory.withMaxBufferedStreamBytes(httpClientConfig.maxBufferedStreamBytes());
+        }
+        return clientCallbackFactory;
+    }
+
+    /**
+     * With HTTP/2 the concurrent requests to a provider are multiplexed as streams over a few connections instead of
+     * each request occupying a pooled HTTP/1.1 connection
+     */
+    static HttpClientOptions applyHttpProtocol(HttpClientOptions httpClientOptions, HttpClientConfig httpClientConfig) {
+        HttpProtocol httpProtocol = httpClientConfig.httpProtocol();
+        if (httpProtocol == null) {
+            return httpClientOptions;
+        }
+        HttpClientOptions options = new HttpClientOptions(httpClientOptions); // the passed options might be shared with other clients
+        switch (httpProtocol) {
+            case HTTP_1_1 -> options.setProtocolVersion(HttpVersion.HTTP_1_1);
+            case HTTP_2 -> options.setProtocolVersion(HttpVersion.HTTP_2)
+                    .setUseAlpn(true);
+            case H2C -> options.setProtocolVersion(HttpVersion.HTTP_2)
+                    .setUseAlpn(false)
+                    .setHttp2ClearTextUpgrade(false); // prior knowledge - no upgrade request
+        }
+        if (httpProtocol != HttpProtocol.HTTP_1_1) {
+            options.setHttp2MultiplexingLimit(httpClientConfig.http2MaxConcurrentStreams())
+                    .setHttp2MaxPoolSize(httpClientConfig.http2MaxConnections());
+        }
+        return options;
+    }
+
 
     @Override
     public CompletableFuture<byte[]> getAsync(FeedRequest feedRequest) {
 
         Mono<byte[]> mono = Mono.create(emitter -> {
-
             VertxClientCallback clientCallback = clientCallbackFactory.createCallback(feedRequest, emitter);
-            io.vertx.core.http.HttpClient client = clients.get(feedRequest.getPriority());
-
-            RequestOptions requestOptions = new RequestOptions()
-                    .setHost(httpClientConfig.host()) // TODO actually it might be good to have this as part of the request as well and if available then it should overwrite the general config value?
-                    .setPort(httpClientConfig.port()) // TODO actually it might be good to have this as part of the request as well and if available then it should overwrite the general config value?
-                    .setURI(feedRequest.getUrl())
-                    .setTimeout(httpClientConfig.readTimeout().toMillis())
-                    .setMethod(HttpMethod.GET);
-            for (FeedRequestHttpHeader httpHeader : feedRequest.getHttpHeaders()) {
-                requestOptions.addHeader(httpHeader.getKey(), httpHeader.getValue());
-            }
+            sendRequest(feedRequest, clientCallback::addRequestHeaders, clientCallback::onResponse, clientCallback::handleException);
+        });
+        return mono.publishOn(Schedulers.parallel()) // emitted results need to be published on parallel scheduler so we do not execute pulled data processing on the httpClient's own threadpool
+                .toFuture();
+
+    }
 
-            client.request(
-                requestOptions,
-                requestAsyncResult -> {
-                    if (requestAsyncResult.succeeded()) {
-                        HttpClientRequest requestSuccess = requestAsyncResult.result();
-                        requestSuccess.send(responseAsyncResult -> {
-                            if (responseAsyncResult.succeeded()) {
-                                clientCallback.onResponse(responseAsyncResult.result());
-                            } else {
-                                clientCallback.handleException(requestAsyncResult.cause());
-                            }
-                        });
+    @Override
+    public CompletableFuture<ByteBuf> getPooledAsync(FeedRequest feedRequest) {
+        Mono<ByteBuf> mono = Mono.create(emitter -> {
+            VertxClientCallback clientCallback = clientCallbackFactory.createPooledCallback(feedRequest, emitter);
+            sendRequest(feedRequest, clientCallback::addRequestHeaders, clientCallback::onResponse, clientCallback::handleException);
+        });
+        return mono.publishOn(Schedulers.parallel())
+                .doOnDiscard(ByteBuf.class, ReferenceCountUtil::safeRelease) // emitted after the result is not awaited anymore
+                .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<InputStream> getStreamAsync(FeedRequest feedRequest) {
+        CompletableFuture<InputStream> result = new CompletableFuture<>();
+        sendRequest(
+                feedRequest,
+                headerSetter -> {},
+                response -> {
+                    int statusCode = response.statusCode();
+                    if (statusCode >= 200 && statusCode < 300) {
+                        logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid()).analyticsId("request_success")).info("Successful response for streamed request: {}", feedRequest.toStringBasicInfo());
+                        // the body handlers need to be set right away on the event loop, the stream is read on the caller's thread
+                        result.complete(new ReadStreamInputStream(response, httpClientConfig.maxBufferedStreamBytes(), () -> response.request().reset()));
                     } else {
-                        clientCallback.handleException(requestAsyncResult.cause());
+                        logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid()).analyticsId("resp_status_" + statusCode)).warn("Streamed request not successful, response code = {}; request: {}", statusCode, feedRequest.toStringBasicInfo());
+                        result.completeExceptionally(new FailedRequestException(feedRequest));
                     }
+                },
+                error -> {
+                    logger.decorateSetup(mdc -> mdc.anyId(feedRequest.getUuid())).warn("Error while sending streamed request: {}", feedRequest.toStringBasicInfo(), error);
+                    result.completeExceptionally(new FailedRequestException(feedRequest));
                 }
-            );
-
-            logger.decorateSetup(mdc -> mdc.analyticsId("http_client_got_accepted_rq")).info("HttpClient accepted new request: {}", feedRequest.toStringBasicInfo());
+        );
+        return result;
+    }
 
-        });
-        return mono.publishOn(Schedulers.parallel()) // emitted results need to be published on parallel scheduler so we do not execute pulled data processing on the httpClient's own threadpool
-                .toFuture();
+    private void sendRequest(FeedRequest feedRequest,
+                             Consumer<BiConsumer<String, String>> additionalHeadersSetter,
+                             Handler<HttpClientResponse> responseHandler,
+                             Handler<Throwable> exceptionHandler) {
+
+        io.vertx.core.http.HttpClient client = clients.get(feedRequest.getPriority());
+
+        RequestOptions requestOptions = new RequestOptions()
+                .setHost(httpClientConfig.host()) // TODO actually it might be good to have this as part of the request as well and if available then it should overwrite the general config value?
+                .setPort(httpClientConfig.port()) // TODO actually it might be good to have this as part of the request as well and if available then it should overwrite the general config value?
+                .setURI(feedRequest.getUrl())
+                .setTimeout(httpClientConfig.readTimeout().toMillis())
+                .setMethod(HttpMethod.GET);
+        for (FeedRequestHttpHeader httpHeader : feedRequest.getHttpHeaders()) {
+            requestOptions.addHeader(httpHeader.getKey(), httpHeader.getValue());
+        }
+        additionalHeadersSetter.accept(requestOptions::addHeader);
+
+        client.request(
+            requestOptions,
+            requestAsyncResult -> {
+                if (requestAsyncResult.succeeded()) {
+                    HttpClientRequest requestSuccess = requestAsyncResult.result();
+                    requestSuccess.send(responseAsyncResult -> {
+                        if (responseAsyncResult.succeeded()) {
+                            responseHandler.handle(responseAsyncResult.result());
+                        } else {
+                            exceptionHandler.handle(responseAsyncResult.cause());
+                        }
+                    });
+                } else {
+                    exceptionHandler.handle(requestAsyncResult.cause());
+                }
+            }
+        );
 
+        logger.decorateSetup(mdc -> mdc.analyticsId("http_client_got_accepted_rq")).info("HttpClient accepted new request: {}", feedRequest.toStringBasicInfo());
     }
 
     @Override
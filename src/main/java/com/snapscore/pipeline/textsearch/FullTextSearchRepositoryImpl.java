@@ -1,5 +1,7 @@
 package com.snapscore.pipeline.textsearch;
 
+import com.snapscore.pipeline.concurrency.LockContentionMonitor;
+import com.snapscore.pipeline.concurrency.LockContentionStatistics;
 import com.snapscore.pipeline.concurrency.LockingWrapper;
 import com.snapscore.pipeline.logging.Logger;
 import org.apache.commons.collections4.Trie;
@@ -16,7 +18,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 
-public class FullTextSearchRepositoryImpl<T extends FullTextSearchableItem> implements FullTextSearchRepository<T> {
+public class FullTextSearchRepositoryImpl<T extends FullTextSearchableItem> implements FullTextSearchRepository<T>, AutoCloseable {
 
     private static final Logger log = Logger.setup(FullTextSearchRepositoryImpl.class);
 
@@ -42,6 +44,9 @@ public class FullTextSearchRepositoryImpl<T extends FullTextSearchableItem> impl
     private final ReentrantReadWriteLock reentrantReadWriteLock = new ReentrantReadWriteLock(false); // false - important for performance reasons
     private final ReentrantReadWriteLock.ReadLock readLock = reentrantReadWriteLock.readLock();
     private final ReentrantReadWriteLock.WriteLock writeLock = reentrantReadWriteLock.writeLock();
+    // null if the lock contention is not monitored
+    @Nullable
+    private final LockContentionStatistics lockContentionStatistics;
 
     @Nullable
     private final SynonymsDictionary synonymsDictionary;
@@ -65,9 +70,38 @@ public class FullTextSearchRepositoryImpl<T extends FullTextSearchableItem> impl
     public FullTextSearchRepositoryImpl(String cacheName,
                                         @Nullable SynonymsDictionary synonymsDictionary,
                                         @Nullable FullTextSearchableItemFactory<T> fullTextSearchableItemFactory) {
+        this(cacheName, synonymsDictionary, fullTextSearchableItemFactory, false);
+    }
+
+    /**
+     * @param lockContentionMonitored if true the contention of the repository lock is tracked by {@link LockContentionMonitor} under {@link #lockNameOf(String)}
+     *                                until the repository is closed; the cacheName must then be unique
+     */
+    public FullTextSearchRepositoryImpl(String cacheName,
+                                        @Nullable SynonymsDictionary synonymsDictionary,
+                                        @Nullable FullTextSearchableItemFactory<T> fullTextSearchableItemFactory,
+                                        boolean lockContentionMonitored) {
         this.cacheName = cacheName;
         this.synonymsDictionary = synonymsDictionary;
         this.fullTextSearchableItemFactory = fullTextSearchableItemFactory;
+        this.lockContentionStatistics = lockContentionMonitored ? LockContentionMonitor.register(lockNameOf(cacheName), reentrantReadWriteLock) : null;
+    }
+
+    /**
+     * @return name under which the contention of the lock of a repository is tracked by {@link LockContentionMonitor}
+     */
+    public static String lockNameOf(String cacheName) {
+        return "FullTextSearchRepository-" + cacheName;
+    }
+
+    /**
+     * Stops monitoring the lock contention of this repository - the repository itself can still be used
+     */
+    @Override
+    public void close() {
+        if (lockContentionStatistics != null) {
+            LockContentionMonitor.unregister(lockContentionStatistics);
+        }
     }
 
     /**
@@ -5,20 +5,29 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
 import static com.snapscore.pipeline.concurrency.TestSupport.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class ConcurrentSequentialProcessorTest {
 
@@ -214,4 +223,216 @@ public class ConcurrentSequentialProcessorTest {
         };
     }
 
+    @Test
+    public void testThatMessagesOfMultipleEntitiesAreProcessedSequentiallyAndInCorrectOrderInLeanRunners() throws Exception {
+
+        // given
+        final ConcurrentSequentialProcessor sequentialProcessor = new ConcurrentSequentialProcessorImpl("test-sequentialProcessor");
+        final Map<Integer, TestMessage> prevProcessedTestMessageMap = new ConcurrentHashMap<>();
+        final int entityCount = 10;
+        final int messageCount = 1000;
+        final AtomicBoolean correctOrder = new AtomicBoolean(true);
+        IntStream.range(1, entityCount + 1).forEach(entityId -> prevProcessedTestMessageMap.put(entityId, new TestMessage(entityId, 0)));
+
+        final Consumer<TestMessage> assertion = m -> {
+            boolean isCorrectNextMessage = prevProcessedTestMessageMap.get(m.entityId).messageNo + 1 == m.messageNo;
+            prevProcessedTestMessageMap.put(m.entityId, m);
+            if (!isCorrectNextMessage) {
+                correctOrder.set(false);
+            }
+        };
+
+        final List<SequentialInput<TestMessage, ?>> sequentialInputData = new ArrayList<>();
+        for (int messageNo = 1; messageNo <= messageCount; messageNo++) {
+            for (int entityId = 1; entityId <= entityCount; entityId++) {
+                final TestMessage testMessage = new TestMessage(entityId, messageNo);
+                // cycle through all lean runner types so that they are interleaved within the same queues
+                switch (messageNo % 3) {
+                    case 0 -> sequentialInputData.add(SequentialInput.newBuilderForFuture(testMessage, new TestInputQueueResolver(),
+                                    () -> CompletableFuture.supplyAsync(() -> testMessage, executorService))
+                            .setResultConsumer(assertion)
+                            .setLogActivity(false)
+                            .build());
+                    case 1 -> sequentialInputData.add(SequentialInput.newBuilderForMono(testMessage, new TestInputQueueResolver(),
+                                    (TestMessage m) -> Mono.just(m).publishOn(Schedulers.parallel()))
+                            .setSubscribeConsumer(assertion)
+                            .setLogActivity(false)
+                            .build());
+                    default -> sequentialInputData.add(SequentialInput.newBuilderForRunnable(testMessage, new TestInputQueueResolver(),
+                                    () -> assertion.accept(testMessage))
+                            .setLogActivity(false)
+                            .build());
+                }
+            }
+        }
+
+        // when
+        sequentialInputData.forEach(sequentialProcessor::processSequentiallyAsync);
+
+        sequentialProcessor.awaitProcessingCompletion(Duration.ofMillis(5000));
+
+        // then
+        assertTrue("Error in processed message order!", correctOrder.get());
+        assertEquals(0L, sequentialProcessor.getTotalUnprocessedInputs());
+    }
+
+    @Test
+    public void testThatFailingLeanRunnersDoNotBlockTheirQueue() throws Exception {
+
+        // given
+        final ConcurrentSequentialProcessor sequentialProcessor = new ConcurrentSequentialProcessorImpl("test-sequentialProcessor");
+        final TestMessage testMessage = new TestMessage(1, 1);
+        final AtomicInteger errorCount = new AtomicInteger();
+
+        // when
+        sequentialProcessor.processSequentiallyAsync(SequentialInput.newBuilderForFuture(testMessage, new TestInputQueueResolver(),
+                        () -> CompletableFuture.<TestMessage>failedFuture(new RuntimeException("expected")))
+                .setErrorConsumer(e -> errorCount.incrementAndGet())
+                .build());
+        sequentialProcessor.processSequentiallyAsync(SequentialInput.newBuilderForFuture(testMessage, new TestInputQueueResolver(),
+                        (Supplier<CompletableFuture<TestMessage>>) () -> {
+                            throw new RuntimeException("expected");
+                        })
+                .setErrorConsumer(e -> errorCount.incrementAndGet())
+                .build());
+        sequentialProcessor.processSequentiallyAsync(SequentialInput.newBuilderForMono(testMessage, new TestInputQueueResolver(),
+                        (TestMessage m) -> Mono.<TestMessage>error(new RuntimeException("expected")))
+                .setSubscribeErrorConsumer(e -> errorCount.incrementAndGet())
+                .build());
+        sequentialProcessor.processSequentiallyAsync(SequentialInput.newBuilderForRunnable(testMessage, new TestInputQueueResolver(),
+                        () -> {
+                            throw new RuntimeException("expected");
+                        })
+                .setErrorConsumer(e -> errorCount.incrementAndGet())
+                .build());
+
+        sequentialProcessor.awaitProcessingCompletion(Duration.ofMillis(2000));
+
+        // then
+        assertEquals(0L, sequentialProcessor.getTotalUnprocessedInputs());
+        assertEquals(4, errorCount.get());
+    }
+
+    @Test
+    public void testThatResizingInputQueuesWhileProcessingPreservesOrder() throws Exception {
+
+        // given
+        final ConcurrentSequentialProcessorImpl sequentialProcessor = new ConcurrentSequentialProcessorImpl(3, "test-sequentialProcessor");
+        final Map<Integer, Integer> prevProcessedMessageNoMap = new ConcurrentHashMap<>();
+        final int entityCount = 20;
+        final int messageCount = 1000;
+        final AtomicBoolean correctOrder = new AtomicBoolean(true);
+
+        // when
+        for (int messageNo = 1; messageNo <= messageCount; messageNo++) {
+            for (int entityId = 1; entityId <= entityCount; entityId++) {
+                final TestMessage testMessage = new TestMessage(entityId, messageNo);
+                sequentialProcessor.processSequentiallyAsync(SequentialInput.newBuilderForRunnable(testMessage, new TestInputQueueResolver(), () -> {
+                            int prevMessageNo = prevProcessedMessageNoMap.getOrDefault(testMessage.entityId, 0);
+                            prevProcessedMessageNoMap.put(testMessage.entityId, testMessage.messageNo);
+                            if (prevMessageNo + 1 != testMessage.messageNo) {
+                                correctOrder.set(false);
+                            }
+                        })
+                        .setLogActivity(false)
+                        .build());
+            }
+            if (messageNo == messageCount / 2) {
+                assertTrue(sequentialProcessor.resizeInputQueues(7));
+            }
+        }
+
+        sequentialProcessor.awaitProcessingCompletion(Duration.ofMillis(5000));
+
+        // then
+        assertTrue("Error in processed message order!", correctOrder.get());
+        assertEquals(7, sequentialProcessor.getInputQueueCount());
+        assertFalse(sequentialProcessor.isResizeInProgress());
+        assertEquals(0L, sequentialProcessor.getTotalUnprocessedInputs());
+    }
+
+    @Test
+    public void testThatUncompletedJournaledInputsAreReplayedInOrderOnStartup() throws Exception {
+
+        // given
+        final Path journalPath = Files.createTempFile("input-journal", ".dat");
+        final List<String> processed = new CopyOnWriteArrayList<>();
+        final InputJournalCodec codec = new InputJournalCodec() {
+            @Override
+            public byte[] encode(SequentialInput<?, ?> sequentialInput) {
+                TestMessage testMessage = (TestMessage) sequentialInput.getInput();
+                return (testMessage.entityId + ":" + testMessage.messageNo).getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public SequentialInput<?, ?> decode(byte[] serializedInput) {
+                String[] parts = new String(serializedInput, StandardCharsets.UTF_8).split(":");
+                TestMessage testMessage = new TestMessage(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+                return SequentialInput.newBuilderForRunnable(testMessage, new TestInputQueueResolver(), () -> processed.add(testMessage.entityId + ":" + testMessage.messageNo)).build();
+            }
+        };
+        // simulates a crash with unprocessed inputs left in the journal
+        final MemoryMappedInputJournal crashedJournal = new MemoryMappedInputJournal(journalPath);
+        crashedJournal.append("1:1".getBytes(StandardCharsets.UTF_8));
+        final long completedEntryId = crashedJournal.append("2:1".getBytes(StandardCharsets.UTF_8));
+        crashedJournal.append("1:2".getBytes(StandardCharsets.UTF_8));
+        crashedJournal.append("1:3".getBytes(StandardCharsets.UTF_8));
+        crashedJournal.complete(completedEntryId);
+        crashedJournal.close();
+
+        // when
+        final MemoryMappedInputJournal journal = new MemoryMappedInputJournal(journalPath);
+        final ConcurrentSequentialProcessor sequentialProcessor = ConcurrentSequentialProcessorImpl.createJournaled(10, "test-sequentialProcessor", journal, codec);
+        sequentialProcessor.awaitProcessingCompletion(Duration.ofMillis(3000));
+
+        // then
+        assertEquals(List.of("1:1", "1:2", "1:3"), processed);
+        assertEquals(0, journal.getUncompletedEntryCount());
+        journal.close();
+        Files.deleteIfExists(journalPath);
+    }
+
+    @Test
+    public void testThatShutdownReturnsInputsNotProcessedWithinTimeoutAndRejectsNewInputs() throws Exception {
+
+        // given
+        final ConcurrentSequentialProcessor sequentialProcessor = new ConcurrentSequentialProcessorImpl(10, "test-sequentialProcessor");
+        final CountDownLatch blockingLatch = new CountDownLatch(1);
+        final AtomicInteger processedCount = new AtomicInteger();
+        final int entityId = 1;
+        sequentialProcessor.processSequentiallyAsync(SequentialInput.newBuilderForRunnable(new TestMessage(entityId, 1), new TestInputQueueResolver(), () -> {
+            try {
+                blockingLatch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            processedCount.incrementAndGet();
+        }).build());
+        for (int messageNo = 2; messageNo <= 5; messageNo++) {
+            sequentialProcessor.processSequentiallyAsync(SequentialInput.newBuilderForRunnable(new TestMessage(entityId, messageNo), new TestInputQueueResolver(), processedCount::incrementAndGet).build());
+        }
+
+        // when
+        final Map<Integer, List<SequentialInput<?, ?>>> unprocessedInputs = sequentialProcessor.shutdown(Duration.ofMillis(200));
+        blockingLatch.countDown();
+        sequentialProcessor.awaitProcessingCompletion(Duration.ofMillis(3000));
+
+        // then
+        assertTrue(sequentialProcessor.isShutdown());
+        assertEquals(1, unprocessedInputs.size());
+        final List<SequentialInput<?, ?>> unprocessedOfEntity = unprocessedInputs.values().iterator().next();
+        assertEquals(4, unprocessedOfEntity.size());
+        for (int i = 0; i < unprocessedOfEntity.size(); i++) {
+            assertEquals(i + 2, ((TestMessage) unprocessedOfEntity.get(i).getInput()).messageNo);
+        }
+        assertEquals("The input being processed on shutdown must be left to finish", 1, processedCount.get());
+        assertEquals(0L, sequentialProcessor.getTotalUnprocessedInputs());
+        try {
+            sequentialProcessor.processSequentiallyAsync(SequentialInput.newBuilderForRunnable(new TestMessage(entityId, 6), new TestInputQueueResolver(), processedCount::incrementAndGet).build());
+            fail("Input must be rejected after shutdown");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+    }
+
 }
@@ -0,0 +1,65 @@
+package com.snapscore.pipeline.concurrency;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ConsistentHashRingTest {
+
+    @Test
+    public void testThatKeysAreSpreadEvenlyAcrossNodes() {
+
+        // given
+        final List<String> nodeIds = List.of("node-1", "node-2", "node-3", "node-4");
+        final ConsistentHashRing ring = new ConsistentHashRing(nodeIds);
+        final int keyCount = 100_000;
+
+        // when
+        final Map<String, Integer> keyCountByNode = new HashMap<>();
+        for (int key = 0; key < keyCount; key++) {
+            keyCountByNode.merge(ring.getNodeFor(String.valueOf(key)), 1, Integer::sum);
+        }
+
+        // then
+        final int expectedPerNode = keyCount / nodeIds.size();
+        for (String nodeId : nodeIds) {
+            final int count = keyCountByNode.getOrDefault(nodeId, 0);
+            assertTrue("Uneven distribution for " + nodeId + ": " + count, Math.abs(count - expectedPerNode) < expectedPerNode * 0.25);
+        }
+    }
+
+    @Test
+    public void testThatOnlyKeysOfNewNodeMoveWhenNodeIsAdded() {
+
+        // given
+        final ConsistentHashRing ringBefore = new ConsistentHashRing(List.of("node-1", "node-2", "node-3"));
+        final ConsistentHashRing ringAfter = new ConsistentHashRing(List.of("node-1", "node-2", "node-3", "node-4"));
+        final int keyCount = 100_000;
+
+        // when
+        int movedCount = 0;
+        for (int key = 0; key < keyCount; key++) {
+            final String ownerBefore = ringBefore.getNodeFor(String.valueOf(key));
+            final String ownerAfter = ringAfter.getNodeFor(String.valueOf(key));
+            if (!ownerBefore.equals(ownerAfter)) {
+                movedCount++;
+                assertEquals("Keys must only move to the new node", "node-4", ownerAfter);
+            }
+        }
+
+        // then
+        assertTrue("Too many keys moved: " + movedCount, movedCount < keyCount * 0.4);
+    }
+
+    @Test
+    public void testThatEmptyRingHasNoOwner() {
+        final ConsistentHashRing ring = new ConsistentHashRing(List.of());
+        assertTrue(ring.isEmpty());
+        assertNull(ring.getNodeFor("key"));
+    }
+
+}
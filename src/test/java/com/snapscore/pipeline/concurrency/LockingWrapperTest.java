@@ -5,9 +5,17 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
 import java.util.function.Supplier;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
 public class LockingWrapperTest {
 
     Map<Integer, Integer> map = new HashMap<>();
@@ -15,6 +23,7 @@ public class LockingWrapperTest {
     private final ReentrantReadWriteLock reentrantReadWriteLock = new ReentrantReadWriteLock();
     private final ReentrantReadWriteLock.WriteLock writeLock = reentrantReadWriteLock.writeLock();
     private final ReentrantReadWriteLock.ReadLock readLock = reentrantReadWriteLock.readLock();
+    private final StampedLock stampedLock = new StampedLock();
     private final Random random = new Random(1000);
 
     @Before
@@ -29,6 +38,127 @@ public class LockingWrapperTest {
     public void testLockedReadingVsNotLockedReadingPerformance() {
         timeUnlockedAccess();
         timeLockedAccess();
+        timeOptimisticAccess();
+    }
+
+    @Test
+    public void testThatOptimisticReadIsRepeatedUnderReadLockWhenWriteHappensDuringRead() {
+
+        // given
+        final AtomicInteger supplierCalls = new AtomicInteger();
+        final Supplier<Optional<Integer>> supplier = () -> {
+            Integer value = map.get(1);
+            if (supplierCalls.incrementAndGet() == 1) {
+                writeInAnotherThread(() -> map.put(1, 100));
+            }
+            return Optional.ofNullable(value);
+        };
+
+        // when
+        Optional<Integer> result = LockingWrapper.optimisticGetOptional(stampedLock, supplier, "error");
+
+        // then
+        assertEquals(2, supplierCalls.get());
+        assertEquals(Optional.of(100), result);
+    }
+
+    @Test
+    public void testThatErrorCausedByConcurrentWriteIsIgnoredAndReadIsRepeated() {
+
+        // given
+        final AtomicInteger supplierCalls = new AtomicInteger();
+        final Supplier<List<Integer>> supplier = () -> {
+            if (supplierCalls.incrementAndGet() == 1) {
+                writeInAnotherThread(() -> map.put(1, 100));
+                throw new ConcurrentModificationException();
+            }
+            return List.of(map.get(1));
+        };
+
+        // when
+        List<Integer> result = LockingWrapper.optimisticGetList(stampedLock, supplier, "error");
+
+        // then
+        assertEquals(List.of(100), result);
+    }
+
+    @Test
+    public void testThatErrorWithoutConcurrentWriteReturnsEmptyResult() {
+
+        // when
+        List<Integer> result = LockingWrapper.optimisticGetList(stampedLock, () -> {
+            throw new IllegalStateException("test");
+        }, "error");
+
+        // then
+        assertEquals(Collections.emptyList(), result);
+    }
+
+    @Test
+    public void testThatContentionOfRegisteredLockIsMeasured() throws Exception {
+
+        // given
+        final ReentrantReadWriteLock monitoredLock = new ReentrantReadWriteLock();
+        final LockContentionStatistics statistics = LockContentionMonitor.register("test-lock", monitoredLock, 1);
+        final CountDownLatch writeLockHeld = new CountDownLatch(1);
+        final Thread writer = new Thread(() -> LockingWrapper.lockAndWrite(monitoredLock.writeLock(), v -> {
+            writeLockHeld.countDown();
+            sleep(100);
+        }, null, "error"));
+
+        // when
+        writer.start();
+        writeLockHeld.await();
+        LockingWrapper.lockAndGetOptional(monitoredLock.readLock(), () -> Optional.of(1), "error");
+        writer.join();
+
+        // then
+        assertEquals(2, statistics.getSampledAcquisitions());
+        assertEquals(1, statistics.getContendedAcquisitions());
+        assertTrue(statistics.getWaitTimeMaxMicros() >= 50_000);
+        assertTrue(statistics.getHoldTimeMaxMicros() >= 50_000);
+        assertEquals(statistics, LockContentionMonitor.getStatistics().get("test-lock"));
+        LockContentionMonitor.unregister("test-lock");
+    }
+
+    @Test
+    public void testThatLockNamesMustBeUniqueUntilUnregistered() {
+
+        // given
+        final LockContentionStatistics statistics = LockContentionMonitor.register("unique-lock", new ReentrantReadWriteLock());
+
+        // when
+        try {
+            LockContentionMonitor.register("unique-lock", new StampedLock());
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        LockContentionMonitor.unregister(statistics);
+
+        // then
+        assertNull(LockContentionMonitor.getStatistics().get("unique-lock"));
+        final LockContentionStatistics newStatistics = LockContentionMonitor.register("unique-lock", new StampedLock());
+        assertEquals(newStatistics, LockContentionMonitor.getStatistics().get("unique-lock"));
+        LockContentionMonitor.unregister(newStatistics);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeInAnotherThread(Runnable write) {
+        Thread writer = new Thread(() -> LockingWrapper.lockAndWrite(stampedLock, v -> write.run(), null, "error"));
+        writer.start();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     private void timeUnlockedAccess() {
@@ -57,6 +187,19 @@ public class LockingWrapperTest {
         System.out.println("Locked access took millis: " + (end - start));
     }
 
+    private void timeOptimisticAccess() {
+        long start = System.currentTimeMillis();
+
+        Runnable runnable = () -> {
+            for (int j = 0; j < 100000; j++) {
+                Optional<Integer> value = LockingWrapper.optimisticGetOptional(stampedLock, () -> Optional.ofNullable(map.get(random.nextInt())), "error");
+            }
+        };
+        executeInParallel(runnable);
+        long end = System.currentTimeMillis();
+        System.out.println("Optimistic access took millis: " + (end - start));
+    }
+
     private void executeInParallel(Runnable runnable) {
         List<Thread> threadList = new ArrayList<>();
         for (int i = 0; i < 100; i++) {
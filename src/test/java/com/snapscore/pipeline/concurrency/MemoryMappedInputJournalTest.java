@@ -0,0 +1,150 @@
+package com.snapscore.pipeline.concurrency;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class MemoryMappedInputJournalTest {
+
+    private Path journalPath;
+
+    @Before
+    public void setUp() throws Exception {
+        journalPath = Files.createTempFile("input-journal", ".dat");
+        Files.delete(journalPath);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(journalPath);
+    }
+
+    @Test
+    public void testThatUncompletedEntriesAreRecoveredInAppendOrderAfterReopening() {
+
+        // given
+        final MemoryMappedInputJournal journal = new MemoryMappedInputJournal(journalPath, 4096);
+        final long entryId1 = journal.append(bytes("input-1"));
+        final long entryId2 = journal.append(bytes("input-2"));
+        journal.append(bytes("input-3"));
+        journal.complete(entryId2);
+        journal.close();
+
+        // when
+        final MemoryMappedInputJournal reopenedJournal = new MemoryMappedInputJournal(journalPath, 4096);
+        final List<InputJournal.Entry> uncompleted = reopenedJournal.readUncompleted();
+
+        // then
+        assertEquals(List.of("input-1", "input-3"), toStrings(uncompleted));
+        assertEquals(entryId1, uncompleted.get(0).getEntryId());
+        final long entryId4 = reopenedJournal.append(bytes("input-4"));
+        assertTrue("Entry ids must not be reused", entryId4 > uncompleted.get(1).getEntryId());
+        reopenedJournal.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThatInitialCapacityMustBePositive() {
+        new MemoryMappedInputJournal(journalPath, 0);
+    }
+
+    @Test
+    public void testThatJournalIsTruncatedWhenAllEntriesAreCompleted() {
+
+        // given
+        final MemoryMappedInputJournal journal = new MemoryMappedInputJournal(journalPath, 4096);
+        final long entryId1 = journal.append(bytes("input-1"));
+        final long entryId2 = journal.append(bytes("input-2"));
+
+        // when
+        journal.complete(entryId1);
+        journal.complete(entryId2);
+        journal.append(bytes("input-3"));
+        journal.close();
+
+        // then
+        final MemoryMappedInputJournal reopenedJournal = new MemoryMappedInputJournal(journalPath, 4096);
+        assertEquals(List.of("input-3"), toStrings(reopenedJournal.readUncompleted()));
+        reopenedJournal.close();
+    }
+
+    @Test
+    public void testThatFullJournalKeepsUncompletedEntriesWhenRewritten() {
+
+        // given
+        final int capacity = 1024;
+        final MemoryMappedInputJournal journal = new MemoryMappedInputJournal(journalPath, capacity);
+        final long oldestEntryId = journal.append(bytes("never-completed"));
+
+        // when
+        for (int i = 0; i < 1000; i++) {
+            long entryId = journal.append(bytes("input-" + i));
+            if (i % 10 != 0) {
+                journal.complete(entryId);
+            }
+        }
+        journal.close();
+
+        // then
+        final MemoryMappedInputJournal reopenedJournal = new MemoryMappedInputJournal(journalPath, capacity);
+        final List<InputJournal.Entry> uncompleted = reopenedJournal.readUncompleted();
+        assertEquals(101, uncompleted.size());
+        assertEquals(oldestEntryId, uncompleted.get(0).getEntryId());
+        assertEquals("never-completed", new String(uncompleted.get(0).getSerializedInput(), StandardCharsets.UTF_8));
+        assertEquals("input-990", new String(uncompleted.get(100).getSerializedInput(), StandardCharsets.UTF_8));
+        assertTrue(reopenedJournal.getCapacityBytes() > capacity);
+        reopenedJournal.close();
+    }
+
+    @Test
+    public void testThatEntriesAreRecoveredInOrderOfTheirReservedIdsAndEntriesCompletedBeforeAppendingAreNotWritten() {
+
+        // given
+        final MemoryMappedInputJournal journal = new MemoryMappedInputJournal(journalPath, 4096);
+        final long entryId1 = journal.reserveEntryId();
+        final long entryId2 = journal.reserveEntryId();
+        final long entryId3 = journal.reserveEntryId();
+
+        // when the entries are written in another order than their ids were reserved in ...
+        journal.append(entryId2, bytes("input-2"));
+        journal.complete(entryId3);
+        journal.append(entryId3, bytes("input-3"));
+        journal.append(entryId1, bytes("input-1"));
+        journal.close();
+
+        // then
+        final MemoryMappedInputJournal reopenedJournal = new MemoryMappedInputJournal(journalPath, 4096);
+        final List<InputJournal.Entry> uncompleted = reopenedJournal.readUncompleted();
+        assertEquals(List.of("input-1", "input-2"), toStrings(uncompleted));
+        assertEquals(List.of(entryId1, entryId2), uncompleted.stream().map(InputJournal.Entry::getEntryId).collect(Collectors.toList()));
+        reopenedJournal.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThatEntryIdCannotBeAppendedTwice() {
+        final MemoryMappedInputJournal journal = new MemoryMappedInputJournal(journalPath, 4096);
+        try {
+            final long entryId = journal.reserveEntryId();
+            journal.append(entryId, bytes("input-1"));
+            journal.append(entryId, bytes("input-1"));
+        } finally {
+            journal.close();
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> toStrings(List<InputJournal.Entry> entries) {
+        return entries.stream().map(e -> new String(e.getSerializedInput(), StandardCharsets.UTF_8)).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,211 @@
+package com.snapscore.pipeline.concurrency;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class PartitionedSequentialProcessorTest {
+
+    private static final String LOCAL_NODE = "node-1";
+    private static final String OTHER_NODE = "node-2";
+
+    @Test
+    public void testThatInputsAreProcessedLocallyOnlyForOwnedPartitions() throws Exception {
+
+        // given
+        final StaticClusterMembershipSource membershipSource = new StaticClusterMembershipSource(Set.of(LOCAL_NODE, OTHER_NODE));
+        final List<String> forwardedKeys = new CopyOnWriteArrayList<>();
+        final NonOwnedInputHandler forwardingHandler = (ownerNodeId, partitionKey, sequentialInput) -> {
+            assertEquals(OTHER_NODE, ownerNodeId);
+            forwardedKeys.add(partitionKey);
+            return true;
+        };
+        final PartitionedSequentialProcessor partitionedProcessor = new PartitionedSequentialProcessor("test-partitionedProcessor",
+                LOCAL_NODE, new ConcurrentSequentialProcessorImpl("test-sequentialProcessor"), membershipSource, forwardingHandler, 64, Duration.ZERO);
+        final AtomicInteger processedCount = new AtomicInteger();
+        final int keyCount = 1000;
+
+        // when
+        int ownedCount = 0;
+        for (int key = 0; key < keyCount; key++) {
+            final String partitionKey = String.valueOf(key);
+            if (partitionedProcessor.isOwnedLocally(partitionKey)) {
+                ownedCount++;
+            }
+            assertTrue(partitionedProcessor.processSequentiallyAsync(partitionKey, createInput(partitionKey, processedCount)));
+        }
+        partitionedProcessor.getProcessor().awaitProcessingCompletion(Duration.ofMillis(3000));
+
+        // then
+        assertTrue(ownedCount > 0 && ownedCount < keyCount);
+        assertEquals(ownedCount, processedCount.get());
+        assertEquals(keyCount - ownedCount, forwardedKeys.size());
+        forwardedKeys.forEach(key -> assertFalse(partitionedProcessor.isOwnedLocally(key)));
+    }
+
+    @Test
+    public void testThatNonOwnedInputsAreRejectedByDefault() {
+
+        // given
+        final StaticClusterMembershipSource membershipSource = new StaticClusterMembershipSource(Set.of(OTHER_NODE));
+        final PartitionedSequentialProcessor partitionedProcessor = new PartitionedSequentialProcessor("test-partitionedProcessor",
+                LOCAL_NODE, new ConcurrentSequentialProcessorImpl("test-sequentialProcessor"), membershipSource, Duration.ZERO);
+
+        // when
+        final boolean accepted = partitionedProcessor.processSequentiallyAsync("1", createInput("1", new AtomicInteger()));
+
+        // then
+        assertFalse(accepted);
+        assertEquals(0, partitionedProcessor.getOwnedPartitionsCount());
+        assertEquals(OTHER_NODE, partitionedProcessor.getOwnerOf("1"));
+    }
+
+    @Test
+    public void testThatInputsOfGainedPartitionsAreHeldBackUntilHandoverAndThenProcessed() throws Exception {
+
+        // given
+        final StaticClusterMembershipSource membershipSource = new StaticClusterMembershipSource(Set.of(OTHER_NODE));
+        final PartitionedSequentialProcessor partitionedProcessor = new PartitionedSequentialProcessor("test-partitionedProcessor",
+                LOCAL_NODE, new ConcurrentSequentialProcessorImpl("test-sequentialProcessor"), membershipSource, (o, k, i) -> false,
+                PartitionedSequentialProcessor.PARTITION_COUNT_DEFAULT, Duration.ofMillis(300));
+        final AtomicInteger processedCount = new AtomicInteger();
+
+        // when
+        membershipSource.setMemberNodeIds(Set.of(LOCAL_NODE));
+        assertTrue(partitionedProcessor.processSequentiallyAsync("1", createInput("1", processedCount)));
+        Thread.sleep(100);
+
+        // then
+        assertEquals("Input must not be processed before the handover delay passes", 0, processedCount.get());
+        Thread.sleep(500);
+        partitionedProcessor.getProcessor().awaitProcessingCompletion(Duration.ofMillis(3000));
+        assertEquals(1, processedCount.get());
+        assertEquals(PartitionedSequentialProcessor.PARTITION_COUNT_DEFAULT, partitionedProcessor.getOwnedPartitionsCount());
+    }
+
+    @Test
+    public void testThatInputsAwaitingHandoverOfLostPartitionsArePassedOnWithTheirPartitionKey() {
+
+        // given
+        final StaticClusterMembershipSource membershipSource = new StaticClusterMembershipSource(Set.of(OTHER_NODE));
+        final List<String> forwardedKeys = new CopyOnWriteArrayList<>();
+        final NonOwnedInputHandler forwardingHandler = (ownerNodeId, partitionKey, sequentialInput) -> {
+            assertEquals(OTHER_NODE, ownerNodeId);
+            forwardedKeys.add(partitionKey);
+            return true;
+        };
+        final PartitionedSequentialProcessor partitionedProcessor = new PartitionedSequentialProcessor("test-partitionedProcessor",
+                LOCAL_NODE, new ConcurrentSequentialProcessorImpl("test-sequentialProcessor"), membershipSource, forwardingHandler,
+                PartitionedSequentialProcessor.PARTITION_COUNT_DEFAULT, Duration.ofMinutes(1));
+        final AtomicInteger processedCount = new AtomicInteger();
+
+        // when
+        membershipSource.setMemberNodeIds(Set.of(LOCAL_NODE));
+        assertTrue(partitionedProcessor.processSequentiallyAsync("1", createInput("1", processedCount)));
+        membershipSource.setMemberNodeIds(Set.of(OTHER_NODE));
+
+        // then
+        assertEquals(List.of("1"), forwardedKeys);
+        assertEquals(0, processedCount.get());
+    }
+
+    @Test
+    public void testThatLostPartitionsKeepDrainingAlreadyAcceptedInputs() throws Exception {
+
+        // given
+        final StaticClusterMembershipSource membershipSource = new StaticClusterMembershipSource(Set.of(LOCAL_NODE));
+        final PartitionedSequentialProcessor partitionedProcessor = new PartitionedSequentialProcessor("test-partitionedProcessor",
+                LOCAL_NODE, new ConcurrentSequentialProcessorImpl("test-sequentialProcessor"), membershipSource, (o, k, i) -> false,
+                PartitionedSequentialProcessor.PARTITION_COUNT_DEFAULT, Duration.ZERO);
+        final AtomicInteger processedCount = new AtomicInteger();
+        final String partitionKey = "1";
+        final int partition = partitionedProcessor.getPartitionOf(partitionKey);
+        final SequentialInput<String, Void> slowInput = SequentialInput.newBuilderForRunnable(partitionKey, new TestInputQueueResolver(), () -> {
+            sleep(300);
+            processedCount.incrementAndGet();
+        }).build();
+
+        // when
+        assertTrue(partitionedProcessor.processSequentiallyAsync(partitionKey, slowInput));
+        membershipSource.setMemberNodeIds(Set.of(OTHER_NODE));
+
+        // then
+        assertTrue(partitionedProcessor.getDrainingPartitions().contains(partition));
+        assertFalse("New inputs of lost partition must not be accepted", partitionedProcessor.processSequentiallyAsync(partitionKey, createInput(partitionKey, processedCount)));
+        partitionedProcessor.getProcessor().awaitProcessingCompletion(Duration.ofMillis(3000));
+        assertEquals(1, processedCount.get());
+        assertTrue(partitionedProcessor.getDrainingPartitions().isEmpty());
+    }
+
+    @Test
+    public void testThatInputsRejectedAfterShutdownDoNotKeepLostPartitionsDraining() {
+
+        // given
+        final StaticClusterMembershipSource membershipSource = new StaticClusterMembershipSource(Set.of(LOCAL_NODE));
+        final PartitionedSequentialProcessor partitionedProcessor = new PartitionedSequentialProcessor("test-partitionedProcessor",
+                LOCAL_NODE, new ConcurrentSequentialProcessorImpl("test-sequentialProcessor"), membershipSource, Duration.ZERO);
+        partitionedProcessor.getProcessor().shutdown(Duration.ofMillis(100));
+
+        // when
+        assertThrows(RejectedExecutionException.class, () -> partitionedProcessor.processSequentiallyAsync("1", createInput("1", new AtomicInteger())));
+        membershipSource.setMemberNodeIds(Set.of(OTHER_NODE));
+
+        // then
+        assertTrue(partitionedProcessor.getDrainingPartitions().isEmpty());
+    }
+
+    @Test
+    public void testThatInputsRemovedOnShutdownDoNotKeepLostPartitionsDraining() throws Exception {
+
+        // given
+        final StaticClusterMembershipSource membershipSource = new StaticClusterMembershipSource(Set.of(LOCAL_NODE));
+        final PartitionedSequentialProcessor partitionedProcessor = new PartitionedSequentialProcessor("test-partitionedProcessor",
+                LOCAL_NODE, new ConcurrentSequentialProcessorImpl("test-sequentialProcessor"), membershipSource, Duration.ZERO);
+        final AtomicInteger processedCount = new AtomicInteger();
+        final String partitionKey = "1";
+        final SequentialInput<String, Void> slowInput = SequentialInput.newBuilderForRunnable(partitionKey, new TestInputQueueResolver(), () -> {
+            sleep(300);
+            processedCount.incrementAndGet();
+        }).build();
+        assertTrue(partitionedProcessor.processSequentiallyAsync(partitionKey, slowInput));
+        assertTrue(partitionedProcessor.processSequentiallyAsync(partitionKey, createInput(partitionKey, processedCount)));
+
+        // when the input waiting behind the slow one is removed ...
+        final Map<Integer, List<SequentialInput<?, ?>>> unprocessedInputs = partitionedProcessor.getProcessor().shutdownNow();
+        membershipSource.setMemberNodeIds(Set.of(OTHER_NODE));
+        partitionedProcessor.getProcessor().awaitProcessingCompletion(Duration.ofMillis(3000));
+
+        // ... then the partition is drained once the slow input finishes
+        assertEquals(1, unprocessedInputs.values().stream().mapToInt(List::size).sum());
+        assertEquals(1, processedCount.get());
+        assertTrue(partitionedProcessor.getDrainingPartitions().isEmpty());
+    }
+
+    private SequentialInput<String, Void> createInput(String partitionKey, AtomicInteger processedCount) {
+        return SequentialInput.newBuilderForRunnable(partitionKey, new TestInputQueueResolver(), processedCount::incrementAndGet).build();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class TestInputQueueResolver extends InputQueueResolver<String> {
+        @Override
+        public int getQueueIdxFor(String input, int inputQueueCount) {
+            return calcIdx(inputQueueCount, input);
+        }
+    }
+
+}
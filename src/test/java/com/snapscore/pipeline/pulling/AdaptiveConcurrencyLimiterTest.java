@@ -0,0 +1,113 @@
+package com.snapscore.pipeline.pulling;
+
+import com.snapscore.pipeline.pulling.http.HttpClientConfig;
+import org.junit.Test;
+
+import static com.snapscore.pipeline.pulling.TestData.MATCH_DETAIL_FEED_NAME;
+import static org.junit.Assert.*;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    private static final long RTT_NANOS = 50_000_000L;
+
+    @Test
+    public void requestsBeyondLimitAreNotAcquired() {
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 2, 1, 10);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.hasCapacity());
+        assertFalse(limiter.tryAcquire());
+
+        limiter.release();
+        assertTrue(limiter.hasCapacity());
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    public void limitGrowsWhileRttIsStableAndLimitIsUsed() {
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 10, 1, 100);
+
+        for (int count = 0; count < 50; count++) {
+            acquireAll(limiter);
+            limiter.onRttSample(RTT_NANOS);
+        }
+
+        assertTrue("Limit should grow: " + limiter, limiter.getLimit() > 20);
+    }
+
+    @Test
+    public void limitDoesNotGrowWhenNotUsed() {
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 10, 1, 100);
+        limiter.tryAcquire();
+
+        for (int count = 0; count < 50; count++) {
+            limiter.onRttSample(RTT_NANOS);
+        }
+
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    public void limitShrinksWhenRttGrows() {
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 50, 1, 100);
+        for (int count = 0; count < 100; count++) {
+            acquireAll(limiter);
+            limiter.onRttSample(RTT_NANOS);
+        }
+        int stableLimit = limiter.getLimit();
+
+        // the host slows down - e.g. reads start timing out
+        for (int count = 0; count < 20; count++) {
+            limiter.onRttSample(RTT_NANOS * 20);
+        }
+
+        assertTrue("Limit should shrink: " + limiter, limiter.getLimit() < stableLimit / 2);
+        assertTrue(limiter.getLimit() >= 1);
+    }
+
+    @Test
+    public void hostConcurrencyLimitsCreateOneLimiterPerHost() {
+
+        HostConcurrencyLimits hostConcurrencyLimits = new HostConcurrencyLimits();
+
+        AdaptiveConcurrencyLimiter limiter1 = hostConcurrencyLimits.resolveLimiterFor(FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "http://host1.com/feed_1").build());
+        AdaptiveConcurrencyLimiter limiter2 = hostConcurrencyLimits.resolveLimiterFor(FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "http://host1.com/feed_2").build());
+        AdaptiveConcurrencyLimiter limiter3 = hostConcurrencyLimits.resolveLimiterFor(FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "http://host2.com/feed_1").build());
+
+        assertSame(limiter1, limiter2);
+        assertNotSame(limiter1, limiter3);
+        assertEquals("host1.com", limiter1.getName());
+        assertNull(HostConcurrencyLimits.NONE.resolveLimiterFor(FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "http://host1.com/feed_1").build()));
+    }
+
+    @Test
+    public void hostConcurrencyLimitsAreBoundedByLimitOfRequestsPerHostOfHttpClient() {
+
+        FeedRequest feedRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "http://host1.com/feed_1").build();
+
+        AdaptiveConcurrencyLimiter defaultLimiter = new HostConcurrencyLimits().resolveLimiterFor(feedRequest);
+        AdaptiveConcurrencyLimiter boundedLimiter = new HostConcurrencyLimits(3).resolveLimiterFor(feedRequest);
+        AdaptiveConcurrencyLimiter unboundedLimiter = new HostConcurrencyLimits(1000).resolveLimiterFor(feedRequest);
+
+        assertEquals(HttpClientConfig.MAX_REQUESTS_PER_HOST_DEFAULT, defaultLimiter.getLimit());
+        assertEquals(3, boundedLimiter.getLimit());
+        assertEquals(AdaptiveConcurrencyLimiter.INITIAL_LIMIT_DEFAULT, unboundedLimiter.getLimit());
+        for (int count = 0; count < 50; count++) {
+            acquireAll(boundedLimiter);
+            boundedLimiter.onRttSample(RTT_NANOS);
+        }
+        assertEquals(3, boundedLimiter.getLimit());
+    }
+
+    private static void acquireAll(AdaptiveConcurrencyLimiter limiter) {
+        while (limiter.tryAcquire()) {
+            // use the whole limit
+        }
+    }
+
+}
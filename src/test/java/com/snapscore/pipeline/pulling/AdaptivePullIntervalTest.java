@@ -0,0 +1,57 @@
+package com.snapscore.pipeline.pulling;
+
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static com.snapscore.pipeline.pulling.TestData.MATCH_DETAIL_FEED_NAME;
+import static org.junit.Assert.*;
+
+public class AdaptivePullIntervalTest {
+
+    private final FeedRequest feedRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "url_1").build();
+
+    @Test
+    public void firstPullUsesTheInitialInterval() {
+
+        AdaptivePullInterval adaptivePullInterval = new AdaptivePullInterval(Duration.ofSeconds(1), Duration.ofSeconds(8), Duration.ofSeconds(60));
+
+        assertEquals(Duration.ofSeconds(8), adaptivePullInterval.nextInterval());
+    }
+
+    @Test
+    public void intervalShrinksToTheMinimumWhileDataChanges() {
+
+        AdaptivePullInterval adaptivePullInterval = new AdaptivePullInterval(Duration.ofSeconds(1), Duration.ofSeconds(8), Duration.ofSeconds(60));
+        adaptivePullInterval.nextInterval();
+
+        adaptivePullInterval.onPullResult(new PullResult(feedRequest, "data_1".getBytes()));
+        assertEquals(Duration.ofSeconds(4), adaptivePullInterval.nextInterval());
+        adaptivePullInterval.onPullResult(new PullResult(feedRequest, "data_2".getBytes()));
+        assertEquals(Duration.ofSeconds(2), adaptivePullInterval.nextInterval());
+        adaptivePullInterval.onPullResult(new PullResult(feedRequest, "data_3".getBytes()));
+        assertEquals(Duration.ofSeconds(1), adaptivePullInterval.nextInterval());
+        adaptivePullInterval.onPullResult(new PullResult(feedRequest, "data_4".getBytes()));
+        assertEquals(Duration.ofSeconds(1), adaptivePullInterval.nextInterval());
+    }
+
+    @Test
+    public void intervalGrowsToTheMaximumWhileDataDoesNotChange() {
+
+        AdaptivePullInterval adaptivePullInterval = new AdaptivePullInterval(Duration.ofSeconds(1), Duration.ofSeconds(20), Duration.ofSeconds(60));
+        adaptivePullInterval.nextInterval();
+
+        adaptivePullInterval.onPullResult(PullResult.unchanged(feedRequest));
+        assertEquals(Duration.ofSeconds(30), adaptivePullInterval.nextInterval());
+        // no result at all (suppressed, failed or not completed yet) counts as unchanged
+        assertEquals(Duration.ofSeconds(45), adaptivePullInterval.nextInterval());
+        assertEquals(Duration.ofSeconds(60), adaptivePullInterval.nextInterval());
+        assertEquals(Duration.ofSeconds(60), adaptivePullInterval.getInterval());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void initialIntervalMustBeWithinBounds() {
+        new AdaptivePullInterval(Duration.ofSeconds(5), Duration.ofSeconds(1), Duration.ofSeconds(60));
+    }
+
+}
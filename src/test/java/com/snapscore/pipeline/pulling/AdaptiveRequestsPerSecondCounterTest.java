@@ -0,0 +1,131 @@
+package com.snapscore.pipeline.pulling;
+
+import com.snapscore.pipeline.pulling.http.RateLimitHeaders;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.snapscore.pipeline.pulling.TestData.MATCH_DETAIL_FEED_NAME;
+import static org.junit.Assert.*;
+
+public class AdaptiveRequestsPerSecondCounterTest {
+
+    private final AtomicLong nanoTime = new AtomicLong(1_000_000_000L);
+
+    @Test
+    public void requestsAreSpacedEvenlyByLimit() {
+
+        AdaptiveRequestsPerSecondCounter counter = newCounter(10);
+
+        assertTrue(counter.incrementIfRequestWithinLimitAndGet());
+        assertFalse(counter.incrementIfRequestWithinLimitAndGet());
+        assertEquals(Duration.ofMillis(100), counter.getDelayUntilNextPermit());
+
+        advance(Duration.ofMillis(100));
+        assertTrue(counter.incrementIfRequestWithinLimitAndGet());
+    }
+
+    @Test
+    public void limitIsDecreasedMultiplicativelyAndPausedOnRateLimiting() {
+
+        AdaptiveRequestsPerSecondCounter counter = newCounter(10);
+
+        counter.onRateLimited(Duration.ofSeconds(2));
+
+        assertEquals(5.0, counter.getLimit(), 0.001);
+        assertEquals(Duration.ofSeconds(2), counter.getDelayUntilNextPermit());
+        advance(Duration.ofMillis(1999));
+        assertFalse(counter.incrementIfRequestWithinLimitAndGet());
+        advance(Duration.ofMillis(1));
+        assertTrue(counter.incrementIfRequestWithinLimitAndGet());
+        assertEquals(Duration.ofMillis(200), counter.getDelayUntilNextPermit());
+    }
+
+    @Test
+    public void limitIsDecreasedOnlyOncePerSecond() {
+
+        AdaptiveRequestsPerSecondCounter counter = newCounter(16);
+
+        counter.onRateLimited(null);
+        counter.onRateLimited(null);
+        counter.onRateLimited(null);
+        assertEquals(8.0, counter.getLimit(), 0.001);
+
+        advance(Duration.ofSeconds(1));
+        counter.onRateLimited(null);
+        assertEquals(4.0, counter.getLimit(), 0.001);
+    }
+
+    @Test
+    public void limitNeverLeavesItsBounds() {
+
+        AdaptiveRequestsPerSecondCounter counter = new AdaptiveRequestsPerSecondCounter("test", 4, 2, 5, 0.5, 1.0, nanoTime::get);
+
+        for (int count = 0; count < 10; count++) {
+            advance(Duration.ofSeconds(1));
+            counter.onRateLimited(null);
+        }
+        assertEquals(2.0, counter.getLimit(), 0.001);
+
+        for (int count = 0; count < 1000; count++) {
+            counter.onSuccess();
+        }
+        assertEquals(5.0, counter.getLimit(), 0.001);
+    }
+
+    @Test
+    public void limitIsIncreasedAdditivelyBySuccesses() {
+
+        AdaptiveRequestsPerSecondCounter counter = new AdaptiveRequestsPerSecondCounter("test", 10, 1, 100, 0.5, 1.0, nanoTime::get);
+
+        // a second of requests sent at the limit raises the limit by about one
+        for (int count = 0; count < 10; count++) {
+            counter.onSuccess();
+        }
+        assertEquals(11.0, counter.getLimit(), 0.1);
+    }
+
+    @Test
+    public void remainingQuotaIsSpreadUntilReset() {
+
+        AdaptiveRequestsPerSecondCounter counter = newCounter(10);
+
+        counter.onRemainingQuota(20, Duration.ofSeconds(10));
+        assertEquals(2.0, counter.getLimit(), 0.001);
+
+        counter.onRemainingQuota(0, Duration.ofSeconds(3));
+        assertEquals(Duration.ofSeconds(3), counter.getDelayUntilNextPermit());
+    }
+
+    @Test
+    public void observerAdaptsOnlyAdaptiveCountersOfRequest() {
+
+        AdaptiveRequestsPerSecondCounter globalCounter = newCounter(10);
+        AdaptiveRequestsPerSecondCounter hostCounter = newCounter(10);
+        AdaptiveRequestsPerSecondCounter otherHostCounter = newCounter(10);
+        RequestRateLimits requestRateLimits = RequestRateLimits.newBuilder()
+                .setHostLimit("host.com", hostCounter)
+                .setHostLimit("other.host.com", otherHostCounter)
+                .setFeedLimit(MATCH_DETAIL_FEED_NAME, new RequestsPerSecondCounterImpl(10))
+                .build();
+        AdaptiveRateLimitObserver observer = new AdaptiveRateLimitObserver(globalCounter, requestRateLimits);
+
+        FeedRequest feedRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "http://host.com/feed").build();
+        observer.observeRateLimit(feedRequest, new RateLimitHeaders(429, RateLimitHeaders.UNKNOWN, null, Duration.ofSeconds(1)));
+
+        assertEquals(5.0, globalCounter.getLimit(), 0.001);
+        assertEquals(5.0, hostCounter.getLimit(), 0.001);
+        assertEquals(10.0, otherHostCounter.getLimit(), 0.001);
+        assertEquals(Duration.ofSeconds(1), hostCounter.getDelayUntilNextPermit());
+    }
+
+    private AdaptiveRequestsPerSecondCounter newCounter(double initialLimit) {
+        return new AdaptiveRequestsPerSecondCounter("test", initialLimit, 1, 100, 0.5, 1.0, nanoTime::get);
+    }
+
+    private void advance(Duration duration) {
+        nanoTime.addAndGet(duration.toNanos());
+    }
+
+}
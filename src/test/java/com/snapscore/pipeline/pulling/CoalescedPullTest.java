@@ -0,0 +1,218 @@
+package com.snapscore.pipeline.pulling;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static com.snapscore.pipeline.pulling.TestData.MATCH_DETAIL_FEED_NAME;
+import static org.junit.Assert.*;
+
+public class CoalescedPullTest {
+
+    private final FeedRequest feedRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "http://some.host.com/feed").build();
+    private final FeedRequest duplicateRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.HIGH, 1, "http://some.host.com/feed").build();
+
+    @Test
+    public void resultIsFannedOutToAllAttachedCallersWithTheirOwnRequests() {
+
+        List<PullResult> firstResults = new ArrayList<>();
+        List<PullResult> duplicateResults = new ArrayList<>();
+        AtomicInteger completedCount = new AtomicInteger();
+        CoalescedPull coalescedPull = new CoalescedPull(feedRequest, firstResults::add, e -> fail(), (c, r) -> completedCount.incrementAndGet());
+
+        assertTrue(coalescedPull.attach(duplicateRequest, duplicateResults::add, e -> fail()));
+        assertEquals(2, coalescedPull.getSubscriberCount());
+
+        byte[] data = {1, 2, 3};
+        PullResult pullResult = new PullResult(feedRequest, data);
+        coalescedPull.emitResult(pullResult);
+
+        assertEquals(1, completedCount.get());
+        assertEquals(1, firstResults.size());
+        assertSame(pullResult, firstResults.get(0));
+        assertEquals(1, duplicateResults.size());
+        assertSame(duplicateRequest, duplicateResults.get(0).getFeedRequest());
+        assertSame(data, duplicateResults.get(0).getData());
+    }
+
+    @Test
+    public void errorIsFannedOutToAllAttachedCallers() {
+
+        List<PullError> errors = new ArrayList<>();
+        CoalescedPull coalescedPull = new CoalescedPull(feedRequest, r -> fail(), errors::add, (c, r) -> {});
+        coalescedPull.attach(duplicateRequest, r -> fail(), errors::add);
+
+        coalescedPull.emitError(new PullError(feedRequest, new RuntimeException("test")));
+
+        assertEquals(2, errors.size());
+        assertSame(feedRequest, errors.get(0).getFeedRequest());
+        assertSame(duplicateRequest, errors.get(1).getFeedRequest());
+    }
+
+    @Test
+    public void sameCallerEnqueuingAgainGetsTheResultOnlyOnce() {
+
+        List<PullResult> results = new ArrayList<>();
+        Consumer<PullResult> resultConsumer = results::add;
+        CoalescedPull coalescedPull = new CoalescedPull(feedRequest, resultConsumer, e -> {}, (c, r) -> {});
+
+        assertTrue(coalescedPull.attach(duplicateRequest, resultConsumer, e -> {}));
+        coalescedPull.emitResult(new PullResult(feedRequest, new byte[0]));
+
+        assertEquals(1, coalescedPull.getSubscriberCount());
+        assertEquals(1, results.size());
+    }
+
+    @Test
+    public void unchangedResultCompletesThePullWithoutNotifyingCallersUnlessEmitted() {
+
+        AtomicInteger completedCount = new AtomicInteger();
+        CoalescedPull coalescedPull = new CoalescedPull(feedRequest, r -> fail(), e -> fail(), (c, r) -> completedCount.incrementAndGet(), false);
+        coalescedPull.emitResult(PullResult.unchanged(feedRequest));
+        assertEquals(1, completedCount.get());
+
+        List<PullResult> results = new ArrayList<>();
+        coalescedPull = new CoalescedPull(feedRequest, results::add, e -> fail(), (c, r) -> {}, true);
+        coalescedPull.attach(duplicateRequest, results::add, e -> fail());
+        coalescedPull.emitResult(PullResult.unchanged(feedRequest));
+        assertEquals(2, results.size());
+        assertTrue(results.get(1).isUnchanged());
+        assertSame(duplicateRequest, results.get(1).getFeedRequest());
+    }
+
+    @Test
+    public void nothingCanBeAttachedOnceTheResultWasEmitted() {
+
+        CoalescedPull coalescedPull = new CoalescedPull(feedRequest, r -> {}, e -> {}, (c, r) -> {});
+        coalescedPull.emitResult(new PullResult(feedRequest, new byte[0]));
+
+        assertFalse(coalescedPull.attach(duplicateRequest, r -> fail(), e -> fail()));
+    }
+
+    @Test
+    public void failingCallerDoesNotPreventOthersFromGettingTheResult() {
+
+        List<PullResult> results = new ArrayList<>();
+        CoalescedPull coalescedPull = new CoalescedPull(feedRequest, r -> { throw new IllegalStateException("test"); }, e -> {}, (c, r) -> {});
+        coalescedPull.attach(duplicateRequest, results::add, e -> {});
+
+        coalescedPull.emitResult(new PullResult(feedRequest, new byte[0]));
+
+        assertEquals(1, results.size());
+    }
+
+    @Test
+    public void pooledResultIsReleasedOnceEveryCallerReleasedItsOwnDuplicate() {
+
+        List<PullResult> results = new ArrayList<>();
+        CoalescedPull coalescedPull = new CoalescedPull(feedRequest, results::add, e -> fail(), (c, r) -> {});
+        coalescedPull.attach(duplicateRequest, results::add, e -> fail());
+
+        ByteBuf pooledData = Unpooled.wrappedBuffer(new byte[]{1, 2, 3});
+        coalescedPull.emitResult(PullResult.pooled(feedRequest, pooledData, false));
+
+        assertEquals(2, results.size());
+        assertSame(feedRequest, results.get(0).getFeedRequest());
+        assertSame(duplicateRequest, results.get(1).getFeedRequest());
+        assertEquals(2, pooledData.refCnt());
+        assertArrayEquals(new byte[]{1, 2, 3}, results.get(1).getData());
+
+        results.get(0).release();
+        assertEquals(1, pooledData.refCnt());
+        results.get(1).release();
+        assertEquals(0, pooledData.refCnt());
+    }
+
+    @Test
+    public void pooledUnchangedResultIsReleasedIfNotEmitted() {
+
+        CoalescedPull coalescedPull = new CoalescedPull(feedRequest, r -> fail(), e -> fail(), (c, r) -> {}, false);
+
+        ByteBuf pooledData = Unpooled.wrappedBuffer(new byte[]{1, 2, 3});
+        coalescedPull.emitResult(PullResult.pooled(feedRequest, pooledData, true));
+
+        assertEquals(0, pooledData.refCnt());
+    }
+
+    @Test
+    public void notModifiedResultIsRefetchedForCallersThatHaveNotReceivedTheDataYet() {
+
+        // given
+        BodyRecipients bodyRecipients = new BodyRecipients(FeedRequest::getUrl, BodyRecipients.MAX_ENTRIES_DEFAULT);
+        List<CoalescedPull> refetches = new ArrayList<>();
+        List<PullResult> scheduledResults = new ArrayList<>();
+        List<PullResult> newCallerResults = new ArrayList<>();
+        Consumer<PullResult> scheduledConsumer = scheduledResults::add;
+        Consumer<PullResult> newCallerConsumer = newCallerResults::add;
+        CoalescedPull firstPull = new CoalescedPull(feedRequest, scheduledConsumer, e -> fail(), (c, r) -> {}, false, bodyRecipients, (r, c) -> refetches.add(c));
+        firstPull.emitResult(new PullResult(feedRequest, new byte[]{1}));
+
+        // when
+        CoalescedPull notModifiedPull = new CoalescedPull(feedRequest, scheduledConsumer, e -> fail(), (c, r) -> {}, false, bodyRecipients, (r, c) -> refetches.add(c));
+        notModifiedPull.attach(duplicateRequest, newCallerConsumer, e -> fail());
+        notModifiedPull.emitResult(PullResult.unchanged(feedRequest));
+
+        // then
+        assertEquals(1, scheduledResults.size());
+        assertTrue(newCallerResults.isEmpty());
+        assertEquals(1, refetches.size());
+        assertEquals(1, refetches.get(0).getSubscriberCount());
+
+        FeedRequest unconditionalRequest = feedRequest.withHttpHeader("Cache-Control", "no-cache");
+        refetches.get(0).emitResult(new PullResult(unconditionalRequest, new byte[]{1}));
+        assertEquals(1, newCallerResults.size());
+        assertSame(duplicateRequest, newCallerResults.get(0).getFeedRequest());
+        // the refetched data is the same so the earlier recipient keeps counting as one
+        assertTrue(bodyRecipients.hasReceived(feedRequest, scheduledConsumer));
+        assertTrue(bodyRecipients.hasReceived(feedRequest, newCallerConsumer));
+    }
+
+    @Test
+    public void callerWhoseConsumerFailedToProcessTheChangedResultIsNotTreatedAsHavingTheData() {
+
+        // given
+        BodyRecipients bodyRecipients = new BodyRecipients(FeedRequest::getUrl, BodyRecipients.MAX_ENTRIES_DEFAULT);
+        Consumer<PullResult> failingConsumer = r -> { throw new IllegalStateException("test"); };
+        CoalescedPull coalescedPull = new CoalescedPull(feedRequest, failingConsumer, e -> fail(), (c, r) -> {}, false, bodyRecipients, (r, c) -> fail());
+
+        // when
+        coalescedPull.emitResult(new PullResult(feedRequest, new byte[]{1}));
+
+        // then
+        assertFalse(bodyRecipients.hasReceived(feedRequest, failingConsumer));
+    }
+
+    @Test
+    public void downloadedUnchangedDataIsDeliveredAsChangedToCallersThatHaveNotReceivedItYet() {
+
+        // given
+        BodyRecipients bodyRecipients = new BodyRecipients(FeedRequest::getUrl, BodyRecipients.MAX_ENTRIES_DEFAULT);
+        List<PullResult> scheduledResults = new ArrayList<>();
+        List<PullResult> newCallerResults = new ArrayList<>();
+        Consumer<PullResult> scheduledConsumer = scheduledResults::add;
+        Consumer<PullResult> newCallerConsumer = newCallerResults::add;
+        new CoalescedPull(feedRequest, scheduledConsumer, e -> fail(), (c, r) -> {}, false, bodyRecipients, (r, c) -> fail())
+                .emitResult(new PullResult(feedRequest, new byte[]{1}));
+
+        // when
+        CoalescedPull coalescedPull = new CoalescedPull(feedRequest, scheduledConsumer, e -> fail(), (c, r) -> {}, false, bodyRecipients, (r, c) -> fail());
+        coalescedPull.attach(duplicateRequest, newCallerConsumer, e -> fail());
+        ByteBuf pooledData = Unpooled.wrappedBuffer(new byte[]{1});
+        coalescedPull.emitResult(PullResult.pooled(feedRequest, pooledData, true));
+
+        // then
+        assertEquals(1, scheduledResults.size());
+        assertEquals(1, newCallerResults.size());
+        assertFalse(newCallerResults.get(0).isUnchanged());
+        assertArrayEquals(new byte[]{1}, newCallerResults.get(0).getData());
+        assertTrue(bodyRecipients.hasReceived(feedRequest, newCallerConsumer));
+        newCallerResults.get(0).release();
+        assertEquals(0, pooledData.refCnt());
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.snapscore.pipeline.pulling;
+
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import static com.snapscore.pipeline.pulling.TestData.MATCH_DETAIL_FEED_NAME;
+import static org.junit.Assert.*;
+
+public class ContentDigestChangeDetectorTest {
+
+    private final FeedRequest feedRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "url_1").build();
+
+    @Test
+    public void sameDataAsInThePreviousPullIsUnchanged() {
+
+        ContentDigestChangeDetector detector = new ContentDigestChangeDetector();
+
+        assertFalse(detector.isUnchanged(feedRequest, "data_1".getBytes()));
+        assertTrue(detector.isUnchanged(feedRequest, "data_1".getBytes()));
+        assertFalse(detector.isUnchanged(feedRequest, "data_2".getBytes()));
+        assertFalse(detector.isUnchanged(feedRequest, "data_1".getBytes()));
+    }
+
+    @Test
+    public void dataIsComparedPerRequestKey() {
+
+        ContentDigestChangeDetector detector = new ContentDigestChangeDetector();
+        FeedRequest otherRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "url_2").build();
+        FeedRequest samePathOtherPriority = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.HIGHEST, 1, "url_1").build();
+
+        assertFalse(detector.isUnchanged(feedRequest, "data".getBytes()));
+        assertFalse(detector.isUnchanged(otherRequest, "data".getBytes()));
+        assertTrue(detector.isUnchanged(samePathOtherPriority, "data".getBytes()));
+    }
+
+    @Test
+    public void forgottenRequestIsChanged() {
+
+        ContentDigestChangeDetector detector = new ContentDigestChangeDetector();
+        detector.isUnchanged(feedRequest, "data".getBytes());
+        detector.forget(feedRequest);
+
+        assertFalse(detector.isUnchanged(feedRequest, "data".getBytes()));
+    }
+
+    @Test
+    public void allDigestsAreDroppedOnceTheLimitIsReached() {
+
+        ContentDigestChangeDetector detector = new ContentDigestChangeDetector(FeedRequest::getUrl, 2);
+        for (int requestNo = 1; requestNo <= 3; requestNo++) {
+            detector.isUnchanged(FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "url_" + requestNo).build(), "data".getBytes());
+        }
+
+        assertEquals(1, detector.size());
+    }
+
+    @Test
+    public void pooledDataHasTheSameDigestAsTheSameArray() {
+
+        ContentDigestChangeDetector detector = new ContentDigestChangeDetector();
+
+        assertFalse(detector.isUnchanged(feedRequest, new byte[]{1, 2, 3}));
+        assertTrue(detector.isUnchanged(feedRequest, Unpooled.wrappedBuffer(new byte[]{1, 2, 3})));
+        assertFalse(detector.isUnchanged(feedRequest, Unpooled.wrappedBuffer(new byte[]{1, 2, 4})));
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.snapscore.pipeline.pulling;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.PriorityBlockingQueue;
+
+import static com.snapscore.pipeline.pulling.TestData.MATCH_DETAIL_FEED_NAME;
+import static org.junit.Assert.assertEquals;
+
+public class DeadlineSchedulingPolicyTest {
+
+    private static final long NOW = 1_000_000L;
+
+    private final DeadlineSchedulingPolicy policy = new DeadlineSchedulingPolicy();
+
+    @Test
+    public void dueTimeIsDerivedFromPriority() {
+
+        assertEquals(NOW, policy.calculateDueTimestamp(createFeedRequest(FeedPriorityEnum.HIGHEST), NOW));
+        assertEquals(NOW + 10_000L, policy.calculateDueTimestamp(createFeedRequest(FeedPriorityEnum.MEDIUM), NOW));
+        assertEquals(NOW + 300_000L, policy.calculateDueTimestamp(createFeedRequest(FeedPriorityEnum.LOWEST), NOW));
+    }
+
+    @Test
+    public void dueTimeIsCappedByPullInterval() {
+
+        FeedRequestWithInterval frequentRequest = FeedRequestWithInterval.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.LOWEST, 1, "url_1", Duration.ofSeconds(4)).build();
+        FeedRequestWithInterval rareRequest = FeedRequestWithInterval.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.HIGH, 1, "url_2", Duration.ofHours(1)).build();
+
+        assertEquals(NOW + 2_000L, policy.calculateDueTimestamp(frequentRequest, NOW));
+        assertEquals(NOW + 2_000L, policy.calculateDueTimestamp(rareRequest, NOW));
+    }
+
+    @Test
+    public void missingPrioritiesUseDefaults() {
+
+        DeadlineSchedulingPolicy customPolicy = new DeadlineSchedulingPolicy(Map.of(FeedPriorityEnum.LOWEST, Duration.ofSeconds(30)), 1.0);
+
+        assertEquals(NOW + 30_000L, customPolicy.calculateDueTimestamp(createFeedRequest(FeedPriorityEnum.LOWEST), NOW));
+        assertEquals(NOW + 60_000L, customPolicy.calculateDueTimestamp(createFeedRequest(FeedPriorityEnum.LOW), NOW));
+    }
+
+    @Test
+    public void lowPriorityRequestsAgeAheadOfLaterHighPriorityRequests() {
+
+        Queue<QueueFeedRequest> requestsQueue = new PriorityBlockingQueue<>(100, QueueFeedRequest.makeDeadlineComparatorFrom(FeedRequest.DEFAULT_PRIORITY_COMPARATOR));
+
+        QueueFeedRequest oldLowest = createQueueRequest(FeedPriorityEnum.LOWEST, NOW);
+        QueueFeedRequest newHighest = createQueueRequest(FeedPriorityEnum.HIGHEST, NOW + 300_001L);
+        QueueFeedRequest newLowest = createQueueRequest(FeedPriorityEnum.LOWEST, NOW + 300_001L);
+        QueueFeedRequest sameDueHigh = createQueueRequest(FeedPriorityEnum.HIGH, NOW + 298_000L);
+        requestsQueue.add(newLowest);
+        requestsQueue.add(newHighest);
+        requestsQueue.add(oldLowest);
+        requestsQueue.add(sameDueHigh);
+
+        assertEquals(sameDueHigh, requestsQueue.poll()); // due at the same time as oldLowest but has a higher priority
+        assertEquals(oldLowest, requestsQueue.poll());
+        assertEquals(newHighest, requestsQueue.poll());
+        assertEquals(newLowest, requestsQueue.poll());
+    }
+
+    @Test
+    public void queueWaitStatisticsAreRecordedPerPriority() {
+
+        QueueWaitStatistics statistics = new QueueWaitStatistics();
+        for (int waitMillis = 1; waitMillis <= 100; waitMillis++) {
+            statistics.record(FeedPriorityEnum.LOW, waitMillis);
+        }
+        statistics.record(FeedPriorityEnum.HIGHEST, 0);
+
+        assertEquals(100, statistics.getCount(FeedPriorityEnum.LOW));
+        assertEquals(1, statistics.getCount(FeedPriorityEnum.HIGHEST));
+        assertEquals(0, statistics.getCount(FeedPriorityEnum.MEDIUM));
+        assertEquals(100, statistics.getMaxMillis(FeedPriorityEnum.LOW));
+        long p50 = statistics.getPercentileMillis(FeedPriorityEnum.LOW, 50);
+        assertEquals(50.0, p50, 50 * 0.125);
+    }
+
+    private FeedRequest createFeedRequest(FeedPriorityEnum priority) {
+        return FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, priority, 1, "url_" + priority).build();
+    }
+
+    private QueueFeedRequest createQueueRequest(FeedPriorityEnum priority, long enqueuedTimestamp) {
+        FeedRequest feedRequest = createFeedRequest(priority);
+        return new QueueFeedRequest(feedRequest, null, null, enqueuedTimestamp, policy.calculateDueTimestamp(feedRequest, enqueuedTimestamp), Collections.emptyList(), null);
+    }
+
+}
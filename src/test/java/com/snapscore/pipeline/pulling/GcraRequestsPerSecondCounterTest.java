@@ -0,0 +1,130 @@
+package com.snapscore.pipeline.pulling;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.Assert.*;
+
+public class GcraRequestsPerSecondCounterTest {
+
+    private final AtomicLong nanoTime = new AtomicLong(1_000_000_000L);
+
+    @Test
+    public void wholeLimitCanBeUsedAtOnceByDefault() {
+
+        GcraRequestsPerSecondCounter counter = new GcraRequestsPerSecondCounter(10, 10, nanoTime::get);
+
+        for (int count = 1; count <= 10; count++) {
+            assertTrue("Request " + count + " must be within limit!", counter.incrementIfRequestWithinLimitAndGet());
+        }
+        assertFalse(counter.incrementIfRequestWithinLimitAndGet());
+    }
+
+    @Test
+    public void requestsArePermittedAgainAtLimitRateAfterBurstIsUsedUp() {
+
+        GcraRequestsPerSecondCounter counter = new GcraRequestsPerSecondCounter(10, 2, nanoTime::get);
+
+        assertTrue(counter.incrementIfRequestWithinLimitAndGet());
+        assertTrue(counter.incrementIfRequestWithinLimitAndGet());
+        assertFalse(counter.incrementIfRequestWithinLimitAndGet());
+        assertEquals(Duration.ofMillis(100), counter.getDelayUntilNextPermit());
+
+        advance(Duration.ofMillis(99));
+        assertFalse(counter.incrementIfRequestWithinLimitAndGet());
+        advance(Duration.ofMillis(1));
+        assertEquals(Duration.ZERO, counter.getDelayUntilNextPermit());
+        assertTrue(counter.incrementIfRequestWithinLimitAndGet());
+        assertFalse(counter.incrementIfRequestWithinLimitAndGet());
+    }
+
+    @Test
+    public void burstIsRestoredAfterIdlePeriod() {
+
+        GcraRequestsPerSecondCounter counter = new GcraRequestsPerSecondCounter(10, 5, nanoTime::get);
+        for (int count = 1; count <= 5; count++) {
+            assertTrue(counter.incrementIfRequestWithinLimitAndGet());
+        }
+        assertFalse(counter.incrementIfRequestWithinLimitAndGet());
+
+        advance(Duration.ofSeconds(10));
+
+        for (int count = 1; count <= 5; count++) {
+            assertTrue(counter.incrementIfRequestWithinLimitAndGet());
+        }
+        assertFalse(counter.incrementIfRequestWithinLimitAndGet());
+    }
+
+    @Test
+    public void passedDateTimeIsIgnored() {
+
+        GcraRequestsPerSecondCounter counter = new GcraRequestsPerSecondCounter(1, 1, nanoTime::get);
+
+        assertTrue(counter.incrementIfRequestWithinLimitAndGet(LocalDateTime.now()));
+        assertFalse(counter.incrementIfRequestWithinLimitAndGet(LocalDateTime.now().plusYears(1)));
+    }
+
+    @Test
+    public void veryHighLimitIsNeverReached() {
+
+        GcraRequestsPerSecondCounter counter = new GcraRequestsPerSecondCounter(Integer.MAX_VALUE, 1, nanoTime::get);
+
+        for (int count = 1; count <= 1000; count++) {
+            assertTrue(counter.incrementIfRequestWithinLimitAndGet());
+        }
+    }
+
+    @Ignore
+    @Test
+    public void contendedThroughputComparedToRequestsPerSecondCounterImpl() throws Exception {
+        final int threadCount = 16;
+        final Duration measuredDuration = Duration.ofSeconds(5);
+        for (int round = 0; round < 3; round++) { // the first rounds serve as warm-up
+            long implOps = measureThroughput(new RequestsPerSecondCounterImpl(100_000), threadCount, measuredDuration);
+            long gcraOps = measureThroughput(new GcraRequestsPerSecondCounter(100_000), threadCount, measuredDuration);
+            System.out.println("Round " + round + "; ops / s with " + threadCount + " threads: RequestsPerSecondCounterImpl = " + implOps / measuredDuration.getSeconds() + "; GcraRequestsPerSecondCounter = " + gcraOps / measuredDuration.getSeconds());
+        }
+    }
+
+    private long measureThroughput(RequestsPerSecondCounter counter, int threadCount, Duration measuredDuration) throws InterruptedException {
+        final LongAdder ops = new LongAdder();
+        final CountDownLatch start = new CountDownLatch(1);
+        final long endNanos = System.nanoTime() + measuredDuration.toNanos();
+        final List<Thread> threads = new ArrayList<>();
+        for (int threadNo = 0; threadNo < threadCount; threadNo++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long count = 0;
+                while (System.nanoTime() < endNanos) {
+                    counter.incrementIfRequestWithinLimitAndGet();
+                    count++;
+                }
+                ops.add(count);
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return ops.sum();
+    }
+
+    private void advance(Duration duration) {
+        nanoTime.addAndGet(duration.toNanos());
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.snapscore.pipeline.pulling;
+
+import org.junit.After;
+import org.junit.Test;
+import reactor.core.Disposable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class HashedTimingWheelTest {
+
+    private final HashedTimingWheel timingWheel = new HashedTimingWheel(Duration.ofMillis(1), 8, Runnable::run);
+
+    @After
+    public void tearDown() {
+        timingWheel.stop();
+    }
+
+    @Test
+    public void taskIsRunRepeatedlyAtFixedRate() throws InterruptedException {
+
+        CountDownLatch runs = new CountDownLatch(5);
+        Disposable disposable = timingWheel.scheduleAtFixedRate(runs::countDown, Duration.ZERO, Duration.ofMillis(5));
+
+        assertTrue(runs.await(1, TimeUnit.SECONDS));
+        disposable.dispose();
+        assertTrue(disposable.isDisposed());
+    }
+
+    @Test
+    public void taskIsNotRunBeforeItsDelayEvenIfItIsLongerThanOneTurnOfTheWheel() throws InterruptedException {
+
+        long startNanos = System.nanoTime();
+        CountDownLatch run = new CountDownLatch(1);
+        AtomicInteger elapsedMillis = new AtomicInteger();
+        timingWheel.scheduleRepeatedly(() -> {
+            elapsedMillis.set((int) TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            run.countDown();
+            return null;
+        }, Duration.ofMillis(50)); // more than 6 turns of a wheel with 8 buckets of 1ms
+
+        assertTrue(run.await(1, TimeUnit.SECONDS));
+        assertTrue("Run after " + elapsedMillis.get() + " ms", elapsedMillis.get() >= 50);
+    }
+
+    @Test
+    public void cancelledTaskIsNotRunAnymore() throws InterruptedException {
+
+        AtomicInteger runs = new AtomicInteger();
+        Disposable disposable = timingWheel.scheduleAtFixedRate(runs::incrementAndGet, Duration.ofMillis(20), Duration.ofMillis(20));
+        disposable.dispose();
+
+        Thread.sleep(100);
+        assertEquals(0, runs.get());
+        assertEquals(0, timingWheel.size());
+    }
+
+    @Test
+    public void taskReturningNullIsNotRunAgain() throws InterruptedException {
+
+        AtomicInteger runs = new AtomicInteger();
+        timingWheel.scheduleRepeatedly(() -> {
+            runs.incrementAndGet();
+            return null;
+        }, Duration.ZERO);
+
+        Thread.sleep(50);
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void manyTasksCanBeScheduledAndCancelled() throws InterruptedException {
+
+        List<Disposable> disposables = new ArrayList<>();
+        AtomicInteger runs = new AtomicInteger();
+        for (int taskNo = 0; taskNo < 20_000; taskNo++) {
+            disposables.add(timingWheel.scheduleAtFixedRate(runs::incrementAndGet, Duration.ofSeconds(10), Duration.ofSeconds(10)));
+        }
+        Thread.sleep(20);
+        assertEquals(20_000, timingWheel.size());
+
+        disposables.forEach(Disposable::dispose);
+        Thread.sleep(20);
+        assertEquals(0, timingWheel.size());
+        assertEquals(0, runs.get());
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.snapscore.pipeline.pulling;
+
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.junit.Assert.*;
+
+public class PhaseSpreadingTest {
+
+    private static final Duration PULL_INTERVAL = Duration.ofSeconds(10);
+
+    @Test
+    public void sameKeyAlwaysGetsTheSameOffsetWithinTheInterval() {
+
+        PhaseSpreading phaseSpreading = new PhaseSpreading();
+
+        Duration offset = phaseSpreading.phaseOffset("match_123", PULL_INTERVAL);
+
+        assertEquals(offset, new PhaseSpreading().phaseOffset("match_123", PULL_INTERVAL));
+        assertFalse(offset.isNegative());
+        assertTrue(offset.compareTo(PULL_INTERVAL) < 0);
+    }
+
+    @Test
+    public void offsetsOfSimilarKeysAreSpreadEvenlyOverTheInterval() {
+
+        PhaseSpreading phaseSpreading = new PhaseSpreading();
+        int[] countsBySecond = new int[10];
+        for (int keyNo = 0; keyNo < 10_000; keyNo++) {
+            countsBySecond[(int) phaseSpreading.phaseOffset("match_" + keyNo, PULL_INTERVAL).getSeconds()]++;
+        }
+
+        for (int second = 0; second < 10; second++) {
+            assertTrue("Second " + second + " has " + countsBySecond[second] + " pulls", countsBySecond[second] > 800 && countsBySecond[second] < 1200);
+        }
+    }
+
+    @Test
+    public void noOffsetNorJitterWithoutPhaseSpreading() {
+
+        assertEquals(Duration.ZERO, PhaseSpreading.NONE.phaseOffset("match_123", PULL_INTERVAL));
+        assertFalse(PhaseSpreading.NONE.hasJitter());
+        assertEquals(Duration.ZERO, PhaseSpreading.NONE.jitter(PULL_INTERVAL));
+    }
+
+    @Test
+    public void jitterIsWithinTheFractionOfTheInterval() {
+
+        PhaseSpreading phaseSpreading = new PhaseSpreading(true, 0.1);
+
+        assertTrue(phaseSpreading.hasJitter());
+        for (int run = 0; run < 1000; run++) {
+            Duration jitter = phaseSpreading.jitter(PULL_INTERVAL);
+            assertFalse(jitter.isNegative());
+            assertTrue(jitter.compareTo(Duration.ofSeconds(1)) < 0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void jitterFractionMustNotExceedTheInterval() {
+        new PhaseSpreading(true, 1.5);
+    }
+
+}
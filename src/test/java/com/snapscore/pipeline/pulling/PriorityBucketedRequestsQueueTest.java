@@ -0,0 +1,125 @@
+package com.snapscore.pipeline.pulling;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.snapscore.pipeline.pulling.TestData.MATCH_DETAIL_FEED_NAME;
+import static org.junit.Assert.*;
+
+public class PriorityBucketedRequestsQueueTest {
+
+    @Test
+    public void requestsAreOrderedByPriorityThenFifo() {
+
+        RequestsQueue queue = new PriorityBucketedRequestsQueue();
+        QueueFeedRequest medium1 = createRequest(FeedPriorityEnum.MEDIUM, 1);
+        QueueFeedRequest lowest1 = createRequest(FeedPriorityEnum.LOWEST, 2);
+        QueueFeedRequest high1 = createRequest(FeedPriorityEnum.HIGH, 3);
+        QueueFeedRequest medium2 = createRequest(FeedPriorityEnum.MEDIUM, 4);
+        QueueFeedRequest highest1 = createRequest(FeedPriorityEnum.HIGHEST, 5);
+        queue.add(medium1);
+        queue.add(lowest1);
+        queue.add(high1);
+        queue.add(medium2);
+        queue.add(highest1);
+
+        assertEquals(5, queue.size());
+        assertSame(highest1, queue.peek());
+        assertSame(highest1, queue.poll());
+        assertSame(high1, queue.poll());
+        assertSame(medium1, queue.poll());
+
+        // a more urgent request added later goes first
+        QueueFeedRequest high2 = createRequest(FeedPriorityEnum.HIGH, 6);
+        queue.add(high2);
+        assertSame(high2, queue.poll());
+        assertSame(medium2, queue.poll());
+        assertSame(lowest1, queue.poll());
+        assertNull(queue.poll());
+        assertNull(queue.peek());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void removedRequestIsNotPolled() {
+
+        RequestsQueue queue = new PriorityBucketedRequestsQueue();
+        QueueFeedRequest high1 = createRequest(FeedPriorityEnum.HIGH, 1);
+        QueueFeedRequest high2 = createRequest(FeedPriorityEnum.HIGH, 2);
+        QueueFeedRequest low1 = createRequest(FeedPriorityEnum.LOW, 3);
+        queue.add(high1);
+        queue.add(high2);
+        queue.add(low1);
+
+        assertTrue(queue.remove(high1));
+        assertFalse(queue.remove(high1));
+        assertEquals(2, queue.size());
+        assertSame(high2, queue.poll());
+        assertSame(low1, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void skippedRequestsKeepTheirPosition() {
+
+        RequestsQueue queue = new PriorityBucketedRequestsQueue();
+        QueueFeedRequest high1 = createRequest(FeedPriorityEnum.HIGH, 1);
+        QueueFeedRequest high2 = createRequest(FeedPriorityEnum.HIGH, 2);
+        QueueFeedRequest high3 = createRequest(FeedPriorityEnum.HIGH, 3);
+        QueueFeedRequest low1 = createRequest(FeedPriorityEnum.LOW, 4);
+        queue.add(high1);
+        queue.add(high2);
+        queue.add(high3);
+        queue.add(low1);
+
+        List<QueueFeedRequest> skipped = new ArrayList<>();
+        skipped.add(queue.poll());
+        skipped.add(queue.poll());
+        assertSame(high3, queue.poll()); // sent
+        skipped.add(queue.poll());
+        queue.reinsertSkipped(skipped);
+
+        assertEquals(3, queue.size());
+        assertSame(high1, queue.poll());
+        assertSame(high2, queue.poll());
+        assertSame(low1, queue.poll());
+    }
+
+    @Ignore // performance test
+    @Test
+    public void compareWithComparatorQueue() {
+
+        final int requestCount = 50_000;
+        List<QueueFeedRequest> requests = new ArrayList<>(requestCount);
+        FeedPriorityEnum[] priorities = FeedPriorityEnum.values();
+        for (int idx = 0; idx < requestCount; idx++) {
+            requests.add(createRequest(priorities[idx % priorities.length], idx));
+        }
+
+        for (int round = 0; round < 10; round++) {
+            long bucketedNanos = fillAndDrain(new PriorityBucketedRequestsQueue(), requests);
+            long comparatorNanos = fillAndDrain(new ComparatorRequestsQueue(QueueFeedRequest.makeComparatorFrom(FeedRequest.DEFAULT_PRIORITY_COMPARATOR)), requests);
+            System.out.println("Fill and drain of " + requestCount + " requests: bucketed = " + bucketedNanos / 1000 + " us; comparator = " + comparatorNanos / 1000 + " us");
+        }
+    }
+
+    private static long fillAndDrain(RequestsQueue queue, List<QueueFeedRequest> requests) {
+        long start = System.nanoTime();
+        for (QueueFeedRequest request : requests) {
+            queue.add(request);
+        }
+        while (queue.poll() != null) {
+            // drain
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static QueueFeedRequest createRequest(FeedPriorityEnum priority, int requestNo) {
+        FeedRequest feedRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, priority, 1, "url_" + requestNo).build();
+        return new QueueFeedRequest(feedRequest, null, null, System.currentTimeMillis());
+    }
+
+}
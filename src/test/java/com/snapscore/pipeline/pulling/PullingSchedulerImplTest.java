@@ -1,6 +1,8 @@
 package com.snapscore.pipeline.pulling;
 
 import com.snapscore.pipeline.pulling.http.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.vertx.core.http.HttpClientOptions;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -10,12 +12,18 @@ import org.mockito.Mockito;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
@@ -23,8 +31,11 @@ import java.util.function.Supplier;
 
 import static com.snapscore.pipeline.pulling.TestData.MATCH_DETAIL_FEED_NAME;
 import static com.snapscore.pipeline.pulling.TestData.STAGE_FIXTURES_FEED_NAME;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class PullingSchedulerImplTest {
 
@@ -262,6 +273,127 @@ public class PullingSchedulerImplTest {
     }
 
 
+    @Test
+    public void testThatRequestsBlockedByHostLimitDoNotBlockRequestsToOtherHosts() throws InterruptedException {
+
+        // given
+        Consumer<PullResult> pullResultConsumerMock = Mockito.mock(Consumer.class);
+
+        LocalDateTime now = LocalDateTime.of(2020, 1, 1, 12, 0, 1);
+        RequestRateLimits requestRateLimits = RequestRateLimits.newBuilder()
+                .setHostLimit("slow.host.com", new RequestsPerSecondCounterImpl(2, now.minus(1000L, ChronoUnit.MILLIS)))
+                .build();
+        RequestsPerSecondCounter requestsPerSecondCounter = new RequestsPerSecondCounterImpl(Integer.MAX_VALUE);
+        final PullingSchedulerQueueImpl pullingSchedulerQueue = PullingSchedulerQueueImpl.newBuilder(httpClientMock, waitingRequestsTracker, requestsPerSecondCounter)
+                .setRequestRateLimits(requestRateLimits)
+                .setMaxDispatchWakeUpDelay(Duration.ofMillis(1000))
+                .setNowSupplier(() -> now)
+                .build();
+        PullingSchedulerImpl pullingScheduler = new PullingSchedulerImpl(pullingSchedulerQueue);
+
+        // when requests to the limited host are enqueued before higher priority requests to another host ...
+        for (int requestNo = 1; requestNo <= 5; requestNo++) {
+            FeedRequest feedRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.HIGH, 1, "http://slow.host.com/feed_" + requestNo).build();
+            pullingScheduler.pullOnce(feedRequest, pullResultConsumerMock, pullError -> {
+            });
+        }
+        for (int requestNo = 1; requestNo <= 5; requestNo++) {
+            FeedRequest feedRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.LOW, 1, "http://fast.host.com/feed_" + requestNo).build();
+            pullingScheduler.pullOnce(feedRequest, pullResultConsumerMock, pullError -> {
+            });
+        }
+        Thread.sleep(200);
+
+        // ... then only the host limit of the slow host is applied and all requests to the other host are sent
+        Mockito.verify(pullResultConsumerMock, Mockito.times(2 + 5)).accept(Mockito.any());
+    }
+
+
+    @Test
+    public void testThatRequestsBlockedByHostLimitAreSentOnceTheHostHasPermitsAgain() throws InterruptedException {
+
+        // given
+        Consumer<PullResult> pullResultConsumerMock = Mockito.mock(Consumer.class);
+
+        LocalDateTime now = LocalDateTime.of(2020, 1, 1, 12, 0, 1);
+        RequestRateLimits requestRateLimits = RequestRateLimits.newBuilder()
+                .setHostLimit("slow.host.com", new RequestsPerSecondCounterImpl(2, now.minus(1000L, ChronoUnit.MILLIS)))
+                .build();
+        final PullingSchedulerQueueImpl pullingSchedulerQueue = PullingSchedulerQueueImpl.newBuilder(httpClientMock, waitingRequestsTracker, new RequestsPerSecondCounterImpl(Integer.MAX_VALUE))
+                .setRequestRateLimits(requestRateLimits)
+                .setMaxDispatchWakeUpDelay(Duration.ofMillis(200))
+                .setNowSupplier(() -> now)
+                .build();
+        PullingSchedulerImpl pullingScheduler = new PullingSchedulerImpl(pullingSchedulerQueue);
+
+        // when more requests are enqueued than the host limit allows ...
+        for (int requestNo = 1; requestNo <= 5; requestNo++) {
+            FeedRequest feedRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "http://slow.host.com/feed_" + requestNo).build();
+            pullingScheduler.pullOnce(feedRequest, pullResultConsumerMock, pullError -> {
+            });
+        }
+        Thread.sleep(200);
+
+        // ... then the requests beyond it wait ...
+        Mockito.verify(pullResultConsumerMock, Mockito.times(2)).accept(Mockito.any());
+
+        // ... until the host has permits again
+        pullingSchedulerQueue.setNowSupplier(() -> now.plusSeconds(1)); // simulates passage of time
+        Thread.sleep(600);
+
+        Mockito.verify(pullResultConsumerMock, Mockito.times(2 + 2)).accept(Mockito.any());
+    }
+
+
+    @Test
+    public void testThatQueuedRequestGetsUpgradedByMoreUrgentRequestToTheSameUrl() throws InterruptedException {
+
+        // given a host that can only be sent a single request ...
+        Consumer<PullResult> pullResultConsumerMock = Mockito.mock(Consumer.class);
+        WaitingRequestsTracker tracker = new WaitingRequestsTrackerImpl(new RequestDeduplicationKeyDefaultFactory());
+
+        LocalDateTime now = LocalDateTime.of(2020, 1, 1, 12, 0, 1);
+        RequestRateLimits requestRateLimits = RequestRateLimits.newBuilder()
+                .setHostLimit("slow.host.com", new RequestsPerSecondCounterImpl(1, now.minus(1000L, ChronoUnit.MILLIS)))
+                .build();
+        final PullingSchedulerQueueImpl pullingSchedulerQueue = PullingSchedulerQueueImpl.newBuilder(httpClientMock, tracker, new RequestsPerSecondCounterImpl(Integer.MAX_VALUE))
+                .setRequestRateLimits(requestRateLimits)
+                .setMaxDispatchWakeUpDelay(Duration.ofMillis(1000))
+                .setNowSupplier(() -> now)
+                .build();
+        PullingSchedulerImpl pullingScheduler = new PullingSchedulerImpl(pullingSchedulerQueue);
+
+        FeedRequest sentRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.LOW, 1, "http://slow.host.com/feed_1").build();
+        FeedRequest lowRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.LOW, 1, "http://slow.host.com/feed_2").build();
+        FeedRequest highestRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.HIGHEST, 1, "http://slow.host.com/feed_2").build();
+
+        // when a more urgent request to the same url comes while the first one still waits in the queue ...
+        pullingScheduler.pullOnce(sentRequest, pullResultConsumerMock, pullError -> {
+        });
+        pullingScheduler.pullOnce(lowRequest, pullResultConsumerMock, pullError -> {
+        });
+        pullingScheduler.pullOnce(highestRequest, pullResultConsumerMock, pullError -> {
+        });
+        Thread.sleep(200);
+
+        // ... then the queued request is replaced by the more urgent one instead of enqueueing a second request to the same url
+        Mockito.verify(pullResultConsumerMock, Mockito.times(1)).accept(Mockito.any());
+        assertEquals(1, tracker.countOfRequestsAwaitingResponse());
+        assertTrue(tracker.isAwaitingResponse(highestRequest));
+    }
+
+    @Test
+    public void testThatRequestsToTheSameUrlAreOnlyTheSameIfTheirHeadersMatch() {
+
+        FeedRequest feedRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.LOW, 1, "url_1").putHeader("key", "value").build();
+
+        assertTrue(PullingSchedulerQueueImpl.isSameRequestIgnoringPriority(feedRequest, FeedRequest.newBuilder(STAGE_FIXTURES_FEED_NAME, FeedPriorityEnum.HIGHEST, 0, "url_1").putHeader("key", "value").build()));
+        assertFalse(PullingSchedulerQueueImpl.isSameRequestIgnoringPriority(feedRequest, FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.LOW, 1, "url_1").putHeader("key", "other").build()));
+        assertFalse(PullingSchedulerQueueImpl.isSameRequestIgnoringPriority(feedRequest, FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.LOW, 1, "url_1").build()));
+        assertFalse(PullingSchedulerQueueImpl.isSameRequestIgnoringPriority(feedRequest, FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.LOW, 1, "url_2").putHeader("key", "value").build()));
+    }
+
+
     @Test
     public void testThatRequestPerSecondLimitIsRespectedWhileThereAreRetriedFailedRequests() throws InterruptedException {
 
@@ -297,6 +429,39 @@ public class PullingSchedulerImplTest {
 
     }
 
+    @Test
+    public void testThatRetryOfFailedRequestWaitsForPermitOfRequestsPerSecondLimit() throws InterruptedException {
+
+        // given a limit of a single request per second ...
+        Consumer<PullResult> pullResultConsumerMock = Mockito.mock(Consumer.class);
+        LocalDateTime now = LocalDateTime.of(2020, 1, 1, 12, 0, 1);
+        HttpClientRespondingOnDemandMock httpClientMock = new HttpClientRespondingOnDemandMock();
+        final PullingSchedulerQueueImpl pullingSchedulerQueue = PullingSchedulerQueueImpl.newBuilder(httpClientMock, waitingRequestsTracker, new RequestsPerSecondCounterImpl(1, now.minus(1000L, ChronoUnit.MILLIS)))
+                .setMaxDispatchWakeUpDelay(Duration.ofMillis(200))
+                .setNowSupplier(() -> now)
+                .build();
+        PullingSchedulerImpl pullingScheduler = new PullingSchedulerImpl(pullingSchedulerQueue);
+        httpClientMock.failFirstAttempts("url_1", 1);
+        FeedRequest feedRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "url_1").setRetryDelaySupplier(rq -> Duration.ZERO).build();
+
+        // when the request fails after using up the permit ...
+        pullingScheduler.pullOnce(feedRequest, pullResultConsumerMock, pullError -> {
+        });
+        Thread.sleep(500);
+
+        // ... then its retry is not sent within the same second ...
+        assertEquals(1, httpClientMock.getInvocationCount("url_1"));
+
+        // ... but only once the limit has a permit again
+        pullingSchedulerQueue.setNowSupplier(() -> now.plusSeconds(1)); // simulates passage of time
+        Thread.sleep(500);
+
+        assertEquals(2, httpClientMock.getInvocationCount("url_1"));
+        httpClientMock.respond("url_1");
+        Thread.sleep(100);
+        Mockito.verify(pullResultConsumerMock, Mockito.times(1)).accept(Mockito.any());
+    }
+
     @Test
     public void testThatDuplicateRequestWillGetIgnored() throws InterruptedException {
 
@@ -313,6 +478,229 @@ public class PullingSchedulerImplTest {
         Mockito.verify(pullResultConsumerMock, Mockito.times(1)).accept(new PullResult(feedRequest, pulledData));
     }
 
+    @Test
+    public void testThatDuplicateRequestFromOtherCallerGetsTheResultToo() throws InterruptedException {
+
+        FeedRequest feedRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "url_1").build();
+        Consumer<PullResult> pullResultConsumerMock1 = Mockito.mock(Consumer.class);
+        Consumer<PullResult> pullResultConsumerMock2 = Mockito.mock(Consumer.class);
+
+        pullingScheduler.pullOnce(feedRequest, pullResultConsumerMock1, pullError -> {
+        });
+        pullingScheduler.pullOnce(feedRequest, pullResultConsumerMock2, pullError -> {
+        });
+
+        Thread.sleep(100);
+
+        Mockito.verify(pullResultConsumerMock1, Mockito.times(1)).accept(new PullResult(feedRequest, pulledData));
+        Mockito.verify(pullResultConsumerMock2, Mockito.times(1)).accept(new PullResult(feedRequest, pulledData));
+    }
+
+
+    @Test
+    public void testThatStreamedPullOfRequestAlreadyInFlightGetsItsDataAsStream() throws InterruptedException {
+
+        // given
+        FeedRequest feedRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 0, "url_1").build();
+        HttpClientRespondingOnDemandMock httpClientMock = new HttpClientRespondingOnDemandMock();
+        PullingSchedulerImpl pullingScheduler = new PullingSchedulerImpl(PullingSchedulerQueueImpl.newBuilder(httpClientMock, waitingRequestsTracker, new RequestsPerSecondCounterImpl(Integer.MAX_VALUE)).build());
+        Consumer<PullResult> pullResultConsumerMock = Mockito.mock(Consumer.class);
+        List<byte[]> streamedData = new CopyOnWriteArrayList<>();
+
+        // when
+        pullingScheduler.pullOnce(feedRequest, pullResultConsumerMock, pullError -> {
+        });
+        Thread.sleep(100);
+        pullingScheduler.pullOnceStreaming(feedRequest, streamPullResult -> {
+            try {
+                streamedData.add(streamPullResult.getData().readAllBytes());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, pullError -> {
+        });
+        httpClientMock.respond("url_1");
+        Thread.sleep(100);
+
+        // then
+        assertEquals(1, httpClientMock.getInvocationCount("url_1"));
+        Mockito.verify(pullResultConsumerMock, Mockito.times(1)).accept(new PullResult(feedRequest, pulledData));
+        assertEquals(1, streamedData.size());
+        assertArrayEquals(pulledData, streamedData.get(0));
+    }
+
+    @Test
+    public void testThatFailureOfStreamConsumerIsPassedToPullErrorConsumer() throws InterruptedException {
+
+        // given
+        FeedRequest feedRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 0, "url_1").build();
+        List<PullError> pullErrors = new CopyOnWriteArrayList<>();
+
+        // when
+        pullingScheduler.pullOnceStreaming(feedRequest, streamPullResult -> {
+            throw new UncheckedIOException(new IOException("connection reset while reading"));
+        }, pullErrors::add);
+        Thread.sleep(100);
+
+        // then
+        assertEquals(1, pullErrors.size());
+        assertTrue(pullErrors.get(0).getError() instanceof UncheckedIOException);
+    }
+
+    @Test
+    public void testThatPooledBufferIsReleasedIfNoResultCanBeMadeOfIt() throws InterruptedException {
+
+        // given
+        FeedRequest feedRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 0, "url_1").build();
+        ByteBuf pooledData = Unpooled.wrappedBuffer(pulledData);
+        HttpClient httpClientMock = new HttpClientMock() {
+            @Override
+            public CompletableFuture<ByteBuf> getPooledAsync(FeedRequest feedRequest) {
+                return CompletableFuture.completedFuture(pooledData);
+            }
+        };
+        ContentDigestChangeDetector failingChangeDetector = new ContentDigestChangeDetector() {
+            @Override
+            boolean isUnchanged(FeedRequest feedRequest, ByteBuf data) {
+                throw new IllegalStateException("test");
+            }
+        };
+        PullingSchedulerImpl pullingScheduler = new PullingSchedulerImpl(PullingSchedulerQueueImpl.newBuilder(httpClientMock, waitingRequestsTracker, new RequestsPerSecondCounterImpl(Integer.MAX_VALUE))
+                .setPooledResultBuffers(true)
+                .setContentDigestChangeDetector(failingChangeDetector)
+                .build());
+
+        // when
+        pullingScheduler.pullOnce(feedRequest, pullResult -> fail(), pullError -> {
+        });
+        Thread.sleep(100);
+
+        // then
+        assertEquals(0, pooledData.refCnt());
+    }
+
+    @Test
+    public void testThatRequestsToHostAtItsConcurrencyLimitWaitUntilOneOfItsRequestsCompletes() throws InterruptedException {
+
+        // given a host that can only be sent two requests at a time ...
+        Consumer<PullResult> pullResultConsumerMock = Mockito.mock(Consumer.class);
+        HttpClientRespondingOnDemandMock httpClientMock = new HttpClientRespondingOnDemandMock();
+        HostConcurrencyLimits hostConcurrencyLimits = new HostConcurrencyLimits(host -> new AdaptiveConcurrencyLimiter(host, 2, 2, 2));
+        final PullingSchedulerQueueImpl pullingSchedulerQueue = PullingSchedulerQueueImpl.newBuilder(httpClientMock, waitingRequestsTracker, new RequestsPerSecondCounterImpl(Integer.MAX_VALUE))
+                .setHostConcurrencyLimits(hostConcurrencyLimits)
+                .build();
+        PullingSchedulerImpl pullingScheduler = new PullingSchedulerImpl(pullingSchedulerQueue);
+
+        // when more requests to it are enqueued before lower priority requests to another host ...
+        for (int requestNo = 1; requestNo <= 4; requestNo++) {
+            FeedRequest feedRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.HIGH, 0, "http://slow.host.com/feed_" + requestNo).build();
+            pullingScheduler.pullOnce(feedRequest, pullResultConsumerMock, pullError -> {
+            });
+        }
+        for (int requestNo = 1; requestNo <= 2; requestNo++) {
+            FeedRequest feedRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.LOW, 0, "http://fast.host.com/feed_" + requestNo).build();
+            pullingScheduler.pullOnce(feedRequest, pullResultConsumerMock, pullError -> {
+            });
+        }
+        Thread.sleep(200);
+
+        // ... then the requests beyond its limit are skipped without blocking the requests to the other host ...
+        assertEquals(1, httpClientMock.getInvocationCount("http://slow.host.com/feed_1"));
+        assertEquals(1, httpClientMock.getInvocationCount("http://slow.host.com/feed_2"));
+        assertEquals(0, httpClientMock.getInvocationCount("http://slow.host.com/feed_3"));
+        assertEquals(0, httpClientMock.getInvocationCount("http://slow.host.com/feed_4"));
+        assertEquals(1, httpClientMock.getInvocationCount("http://fast.host.com/feed_1"));
+        assertEquals(1, httpClientMock.getInvocationCount("http://fast.host.com/feed_2"));
+
+        // ... and the next one is sent as soon as one of its requests completes
+        httpClientMock.respond("http://slow.host.com/feed_1");
+        Thread.sleep(200);
+
+        Mockito.verify(pullResultConsumerMock, Mockito.times(1)).accept(Mockito.any());
+        assertEquals(1, httpClientMock.getInvocationCount("http://slow.host.com/feed_3"));
+        assertEquals(0, httpClientMock.getInvocationCount("http://slow.host.com/feed_4"));
+        assertEquals(2, hostConcurrencyLimits.getLimitersByHost().get("slow.host.com").getInFlight());
+    }
+
+    @Test
+    public void testThatRetriedRequestKeepsItsSlotOfHostConcurrencyLimit() throws InterruptedException {
+
+        // given a host that can only be sent a single request at a time ...
+        Consumer<PullResult> pullResultConsumerMock = Mockito.mock(Consumer.class);
+        HttpClientRespondingOnDemandMock httpClientMock = new HttpClientRespondingOnDemandMock();
+        HostConcurrencyLimits hostConcurrencyLimits = new HostConcurrencyLimits(host -> new AdaptiveConcurrencyLimiter(host, 1, 1, 1));
+        final PullingSchedulerQueueImpl pullingSchedulerQueue = PullingSchedulerQueueImpl.newBuilder(httpClientMock, waitingRequestsTracker, new RequestsPerSecondCounterImpl(Integer.MAX_VALUE))
+                .setHostConcurrencyLimits(hostConcurrencyLimits)
+                .build();
+        PullingSchedulerImpl pullingScheduler = new PullingSchedulerImpl(pullingSchedulerQueue);
+        httpClientMock.failFirstAttempts("http://slow.host.com/feed_1", 2);
+
+        FeedRequest retriedRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.HIGH, 2, "http://slow.host.com/feed_1").setRetryDelaySupplier(rq -> Duration.ZERO).build();
+        FeedRequest waitingRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.HIGH, 0, "http://slow.host.com/feed_2").build();
+
+        // when the first request fails and gets retried ...
+        pullingScheduler.pullOnce(retriedRequest, pullResultConsumerMock, pullError -> {
+        });
+        pullingScheduler.pullOnce(waitingRequest, pullResultConsumerMock, pullError -> {
+        });
+        Thread.sleep(200);
+
+        // ... then the other request is not sent in between its attempts ...
+        assertEquals(3, httpClientMock.getInvocationCount("http://slow.host.com/feed_1"));
+        assertEquals(0, httpClientMock.getInvocationCount("http://slow.host.com/feed_2"));
+        assertEquals(1, hostConcurrencyLimits.getLimitersByHost().get("slow.host.com").getInFlight());
+
+        // ... but only once the retried request completes
+        httpClientMock.respond("http://slow.host.com/feed_1");
+        Thread.sleep(200);
+
+        assertEquals(1, httpClientMock.getInvocationCount("http://slow.host.com/feed_2"));
+    }
+
+
+    @Test
+    public void testThatSlowConsumerDoesNotHoldSlotOfHostConcurrencyLimit() throws InterruptedException {
+
+        // given a host that can only be sent a single request at a time ...
+        CountDownLatch consumerBlocked = new CountDownLatch(1);
+        CountDownLatch consumerReleased = new CountDownLatch(1);
+        Consumer<PullResult> blockingConsumer = pullResult -> {
+            consumerBlocked.countDown();
+            try {
+                consumerReleased.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        HttpClientRespondingOnDemandMock httpClientMock = new HttpClientRespondingOnDemandMock();
+        HostConcurrencyLimits hostConcurrencyLimits = new HostConcurrencyLimits(host -> new AdaptiveConcurrencyLimiter(host, 1, 1, 1));
+        final PullingSchedulerQueueImpl pullingSchedulerQueue = PullingSchedulerQueueImpl.newBuilder(httpClientMock, waitingRequestsTracker, new RequestsPerSecondCounterImpl(Integer.MAX_VALUE))
+                .setHostConcurrencyLimits(hostConcurrencyLimits)
+                .build();
+        PullingSchedulerImpl pullingScheduler = new PullingSchedulerImpl(pullingSchedulerQueue);
+
+        pullingScheduler.pullOnce(FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.HIGH, 0, "http://slow.host.com/feed_1").build(), blockingConsumer, pullError -> {
+        });
+        pullingScheduler.pullOnce(FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.HIGH, 0, "http://slow.host.com/feed_2").build(), pullResult -> {
+        }, pullError -> {
+        });
+        Thread.sleep(200);
+        assertEquals(0, httpClientMock.getInvocationCount("http://slow.host.com/feed_2"));
+
+        // when the response of the first request arrives and its consumer takes long to process it ...
+        httpClientMock.respond("http://slow.host.com/feed_1");
+        assertTrue(consumerBlocked.await(1, TimeUnit.SECONDS));
+        Thread.sleep(200);
+
+        // ... then the next request to the host is sent meanwhile
+        try {
+            assertEquals(1, httpClientMock.getInvocationCount("http://slow.host.com/feed_2"));
+            assertEquals(1, hostConcurrencyLimits.getLimitersByHost().get("slow.host.com").getInFlight());
+        } finally {
+            consumerReleased.countDown();
+        }
+    }
+
 
     @Ignore // keep ignored
     @Test
@@ -439,4 +827,43 @@ public class PullingSchedulerImplTest {
     }
 
 
+    private static class HttpClientRespondingOnDemandMock implements HttpClient {
+
+        private final Map<String, AtomicInteger> invocationCountersByUrl = new ConcurrentHashMap<>();
+        private final Map<String, Integer> failingAttemptsByUrl = new ConcurrentHashMap<>();
+        private final Map<String, CompletableFuture<byte[]>> pendingResponsesByUrl = new ConcurrentHashMap<>();
+
+        @Override
+        public CompletableFuture<byte[]> getAsync(FeedRequest feedRequest) {
+            final String url = feedRequest.getUrl();
+            log.info("Pulling {}", feedRequest.toStringBasicInfo());
+            final int attempt = invocationCountersByUrl.computeIfAbsent(url, key -> new AtomicInteger()).incrementAndGet();
+            if (attempt <= failingAttemptsByUrl.getOrDefault(url, 0)) {
+                return CompletableFuture.failedFuture(new FailedRequestException(feedRequest));
+            }
+            final CompletableFuture<byte[]> response = new CompletableFuture<>();
+            pendingResponsesByUrl.put(url, response);
+            return response;
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        void failFirstAttempts(String url, int failingAttempts) {
+            failingAttemptsByUrl.put(url, failingAttempts);
+        }
+
+        void respond(String url) {
+            pendingResponsesByUrl.remove(url).complete(pulledData);
+        }
+
+        int getInvocationCount(String url) {
+            final AtomicInteger invocationCounter = invocationCountersByUrl.get(url);
+            return invocationCounter != null ? invocationCounter.get() : 0;
+        }
+
+    }
+
+
 }
@@ -0,0 +1,102 @@
+package com.snapscore.pipeline.pulling;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.snapscore.pipeline.pulling.TestData.MATCH_DETAIL_FEED_NAME;
+import static com.snapscore.pipeline.pulling.TestData.STAGE_FIXTURES_FEED_NAME;
+import static org.junit.Assert.*;
+
+public class RequestRateLimitsTest {
+
+    enum PropertyTypes {
+        BOOKMAKER
+    }
+
+    private final AtomicLong nanoTime = new AtomicLong(1_000_000_000L);
+
+    @Test
+    public void noCountersAreResolvedWithoutLimits() {
+
+        FeedRequest feedRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "http://some.host.com/feed").build();
+
+        assertTrue(RequestRateLimits.NONE.resolveCountersFor(feedRequest).isEmpty());
+    }
+
+    @Test
+    public void countersOfAllMatchingLevelsAreResolved() {
+
+        RequestsPerSecondCounter hostCounter = new GcraRequestsPerSecondCounter(10, 10, nanoTime::get);
+        RequestsPerSecondCounter feedCounter = new GcraRequestsPerSecondCounter(5, 5, nanoTime::get);
+        RequestsPerSecondCounter propertyCounter = new GcraRequestsPerSecondCounter(1, 1, nanoTime::get);
+        RequestRateLimits requestRateLimits = RequestRateLimits.newBuilder()
+                .setHostLimit("Some.Host.com", hostCounter)
+                .setFeedLimit(MATCH_DETAIL_FEED_NAME, feedCounter)
+                .setPropertyLimit(PropertyTypes.BOOKMAKER, 7, propertyCounter)
+                .build();
+
+        FeedRequest matchingRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "http://some.host.com:8080/feed?id=1")
+                .putProperty(PropertyTypes.BOOKMAKER, 7)
+                .build();
+        assertEquals(List.of(hostCounter, feedCounter, propertyCounter), requestRateLimits.resolveCountersFor(matchingRequest));
+
+        FeedRequest otherRequest = FeedRequest.newBuilder(STAGE_FIXTURES_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "http://other.host.com/feed")
+                .putProperty(PropertyTypes.BOOKMAKER, 8)
+                .build();
+        assertTrue(requestRateLimits.resolveCountersFor(otherRequest).isEmpty());
+    }
+
+    @Test
+    public void defaultHostLimitCreatesOneCounterPerHost() {
+
+        RequestRateLimits requestRateLimits = RequestRateLimits.newBuilder()
+                .setDefaultHostLimit(() -> new GcraRequestsPerSecondCounter(10, 10, nanoTime::get))
+                .build();
+
+        List<RequestsPerSecondCounter> host1Counters1 = requestRateLimits.resolveCountersFor(FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "http://host1.com/feed_1").build());
+        List<RequestsPerSecondCounter> host1Counters2 = requestRateLimits.resolveCountersFor(FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "https://HOST1.com/feed_2").build());
+        List<RequestsPerSecondCounter> host2Counters = requestRateLimits.resolveCountersFor(FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "http://host2.com/feed_1").build());
+
+        assertEquals(1, host1Counters1.size());
+        assertSame(host1Counters1.get(0), host1Counters2.get(0));
+        assertNotSame(host1Counters1.get(0), host2Counters.get(0));
+    }
+
+    @Test
+    public void urlWithoutHostIsNotHostLimited() {
+
+        RequestRateLimits requestRateLimits = RequestRateLimits.newBuilder()
+                .setDefaultHostLimit(() -> new GcraRequestsPerSecondCounter(10, 10, nanoTime::get))
+                .build();
+
+        assertTrue(requestRateLimits.resolveCountersFor(FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "url_1").build()).isEmpty());
+        assertTrue(requestRateLimits.resolveCountersFor(FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "http://bad host/feed").build()).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void onlySinglePropertyTypeCanBeLimited() {
+
+        RequestRateLimits.newBuilder()
+                .setPropertyLimit(PropertyTypes.BOOKMAKER, 7, new GcraRequestsPerSecondCounter(1))
+                .setPropertyLimit(TestData.FeedDataTypeEnum.MATCH_DETAIL, 7, new GcraRequestsPerSecondCounter(1));
+    }
+
+    @Test
+    public void countersNotReportingDelayUntilNextPermitAreRejected() {
+
+        RequestsPerSecondCounter counterWithDefaultDelay = now -> true;
+
+        assertThrows(IllegalArgumentException.class, () -> RequestRateLimits.newBuilder().setHostLimit("some.host.com", counterWithDefaultDelay));
+        assertThrows(IllegalArgumentException.class, () -> RequestRateLimits.newBuilder().setDefaultHostLimit(() -> counterWithDefaultDelay));
+        assertThrows(IllegalArgumentException.class, () -> RequestRateLimits.newBuilder().setFeedLimit(MATCH_DETAIL_FEED_NAME, counterWithDefaultDelay));
+        assertThrows(IllegalArgumentException.class, () -> RequestRateLimits.newBuilder().setPropertyLimit(PropertyTypes.BOOKMAKER, 7, counterWithDefaultDelay));
+
+        RequestRateLimits.newBuilder()
+                .setHostLimit("some.host.com", new RequestsPerSecondCounterImpl(10))
+                .setFeedLimit(MATCH_DETAIL_FEED_NAME, new AdaptiveRequestsPerSecondCounter("feed", 10, 1, 10))
+                .setPropertyLimit(PropertyTypes.BOOKMAKER, 7, new GcraRequestsPerSecondCounter(1));
+    }
+
+}
@@ -3,6 +3,7 @@ package com.snapscore.pipeline.pulling;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Random;
 
@@ -32,6 +33,23 @@ public class RequestsPerSecondCounterTest {
 
     }
 
+    @Test
+    public void delayUntilNextPermitIsTimeLeftUntilCorrespondingRequestInPrevSecondIsOneSecondOld() {
+
+        int requestsPerSecondLimit = 2;
+        RequestsPerSecondCounter requestsPerSecondCounter = new RequestsPerSecondCounterImpl(requestsPerSecondLimit, prevRequestTime);
+
+        assertEquals(Duration.ZERO, requestsPerSecondCounter.getDelayUntilNextPermit(time));
+        assertTrue(requestsPerSecondCounter.incrementIfRequestWithinLimitAndGet(time));
+        assertTrue(requestsPerSecondCounter.incrementIfRequestWithinLimitAndGet(time.plus(300, MILLIS)));
+
+        assertEquals(Duration.ofMillis(600), requestsPerSecondCounter.getDelayUntilNextPermit(time.plus(400, MILLIS)));
+        assertFalse(requestsPerSecondCounter.incrementIfRequestWithinLimitAndGet(time.plus(999, MILLIS)));
+        assertEquals(Duration.ZERO, requestsPerSecondCounter.getDelayUntilNextPermit(time.plus(1000, MILLIS)));
+        assertTrue(requestsPerSecondCounter.incrementIfRequestWithinLimitAndGet(time.plus(1000, MILLIS)));
+        assertEquals(Duration.ofMillis(300), requestsPerSecondCounter.getDelayUntilNextPermit(time.plus(1000, MILLIS)));
+    }
+
     @Test
     public void isRequestWithinLimitWhenNewRequestTimeAfterOneWholeSecondHasPassed() {
 
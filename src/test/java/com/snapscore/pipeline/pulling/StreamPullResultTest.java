@@ -0,0 +1,53 @@
+package com.snapscore.pipeline.pulling;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static com.snapscore.pipeline.pulling.TestData.MATCH_DETAIL_FEED_NAME;
+import static org.junit.Assert.*;
+
+public class StreamPullResultTest {
+
+    private final FeedRequest feedRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "http://some.host.com/feed").build();
+
+    @Test
+    public void downloadedDataIsPassedOnAsStreamAndPooledResultIsReleased() {
+
+        // given
+        List<byte[]> streamedData = new ArrayList<>();
+        Consumer<PullResult> pullResultConsumer = StreamPullResult.consumingDownloadedData(streamPullResult -> {
+            try {
+                streamedData.add(streamPullResult.getData().readAllBytes());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        ByteBuf pooledData = Unpooled.wrappedBuffer(new byte[]{1, 2, 3});
+
+        // when
+        pullResultConsumer.accept(PullResult.pooled(feedRequest, pooledData, false));
+
+        // then
+        assertEquals(1, streamedData.size());
+        assertArrayEquals(new byte[]{1, 2, 3}, streamedData.get(0));
+        assertEquals(0, pooledData.refCnt());
+    }
+
+    @Test
+    public void notModifiedResultIsNotPassedOnAsEmptyStream() {
+
+        // given
+        Consumer<PullResult> pullResultConsumer = StreamPullResult.consumingDownloadedData(streamPullResult -> fail());
+
+        // when
+        pullResultConsumer.accept(PullResult.unchanged(feedRequest));
+    }
+
+}
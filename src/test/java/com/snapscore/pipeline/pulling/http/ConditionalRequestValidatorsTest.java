@@ -0,0 +1,128 @@
+package com.snapscore.pipeline.pulling.http;
+
+import com.snapscore.pipeline.pulling.FeedPriorityEnum;
+import com.snapscore.pipeline.pulling.FeedRequest;
+import org.junit.Test;
+import reactor.core.publisher.MonoSink;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import static com.snapscore.pipeline.pulling.TestData.MATCH_DETAIL_FEED_NAME;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class ConditionalRequestValidatorsTest {
+
+    private final FeedRequest feedRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "http://some.host.com/feed").build();
+
+    @Test
+    public void noConditionalHeadersAreSentBeforeTheFirstResponse() {
+
+        ConditionalRequestValidators validators = new ConditionalRequestValidators();
+
+        assertTrue(conditionalHeaders(validators, feedRequest).isEmpty());
+    }
+
+    @Test
+    public void validatorsOfTheLastResponseAreSentWithTheNextRequestToTheSameUrl() {
+
+        ConditionalRequestValidators validators = new ConditionalRequestValidators();
+        validators.record(feedRequest, headers(Map.of("etag", "\"v1\"", "last-modified", "Wed, 21 Oct 2015 07:28:00 GMT")));
+
+        // a request with another priority returns the same resource
+        FeedRequest otherRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.HIGHEST, 1, "http://some.host.com/feed").build();
+        Map<String, String> conditionalHeaders = conditionalHeaders(validators, otherRequest);
+
+        assertEquals(2, conditionalHeaders.size());
+        assertEquals("\"v1\"", conditionalHeaders.get("If-None-Match"));
+        assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", conditionalHeaders.get("If-Modified-Since"));
+    }
+
+    @Test
+    public void validatorsAreForgottenIfTheResponseDoesNotHaveThemAnymore() {
+
+        ConditionalRequestValidators validators = new ConditionalRequestValidators();
+        validators.record(feedRequest, headers(Map.of("ETag", "\"v1\"")));
+        validators.record(feedRequest, headers(Map.of()));
+
+        assertEquals(0, validators.size());
+        assertTrue(conditionalHeaders(validators, feedRequest).isEmpty());
+    }
+
+    @Test
+    public void requestsAskingForTheFullBodyAreNotSentAsConditionalRequests() {
+
+        ConditionalRequestValidators validators = new ConditionalRequestValidators();
+        validators.record(feedRequest, headers(Map.of("ETag", "\"v1\"")));
+        FeedRequest unconditionalRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "http://some.host.com/feed").putHeader("cache-control", "No-Cache").build();
+
+        assertTrue(ConditionalRequestValidators.isUnconditional(unconditionalRequest));
+        assertTrue(conditionalHeaders(validators, unconditionalRequest).isEmpty());
+    }
+
+    @Test
+    public void validatorsAreOnlyRecordedOnceTheBodyHasBeenEmitted() {
+
+        ConditionalRequestValidators validators = new ConditionalRequestValidators();
+        @SuppressWarnings("unchecked")
+        MonoSink<byte[]> emitter = mock(MonoSink.class);
+        AbstractClientCallback failedCallback = new TestClientCallback(feedRequest, emitter, validators);
+        failedCallback.recordConditionalRequestValidators(headers(Map.of("ETag", "\"v1\"")));
+        failedCallback.emitFailedRequestException(); // e.g. reading the body failed
+
+        assertEquals(0, validators.size());
+
+        AbstractClientCallback successfulCallback = new TestClientCallback(feedRequest, emitter, validators);
+        successfulCallback.recordConditionalRequestValidators(headers(Map.of("ETag", "\"v1\"")));
+        successfulCallback.handleSuccessfulResponse(new byte[]{1});
+
+        assertEquals(1, validators.size());
+        verify(emitter).success(any());
+    }
+
+    @Test
+    public void conditionalHeadersSetByTheRequestItselfAreNotOverridden() {
+
+        ConditionalRequestValidators validators = new ConditionalRequestValidators();
+        FeedRequest conditionalRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "http://some.host.com/feed").putHeader("if-none-match", "\"v0\"").build();
+        validators.record(conditionalRequest, headers(Map.of("ETag", "\"v1\"")));
+
+        assertTrue(conditionalHeaders(validators, conditionalRequest).isEmpty());
+    }
+
+    @Test
+    public void allValidatorsAreDroppedOnceTheLimitIsReached() {
+
+        ConditionalRequestValidators validators = new ConditionalRequestValidators(FeedRequest::getUrl, 2);
+        for (int requestNo = 1; requestNo <= 3; requestNo++) {
+            validators.record(FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "url_" + requestNo).build(), headers(Map.of("ETag", "\"v1\"")));
+        }
+
+        assertEquals(1, validators.size());
+    }
+
+    private static Map<String, String> conditionalHeaders(ConditionalRequestValidators validators, FeedRequest feedRequest) {
+        Map<String, String> conditionalHeaders = new TreeMap<>();
+        validators.addConditionalHeaders(feedRequest, conditionalHeaders::put);
+        return conditionalHeaders;
+    }
+
+    private static Function<String, String> headers(Map<String, String> headers) {
+        Map<String, String> caseInsensitiveHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        caseInsensitiveHeaders.putAll(headers);
+        return caseInsensitiveHeaders::get;
+    }
+
+    private static class TestClientCallback extends AbstractClientCallback {
+
+        TestClientCallback(FeedRequest feedRequest, MonoSink<byte[]> emitter, ConditionalRequestValidators conditionalRequestValidators) {
+            super(feedRequest, emitter, null, List.of(), conditionalRequestValidators);
+        }
+    }
+
+}
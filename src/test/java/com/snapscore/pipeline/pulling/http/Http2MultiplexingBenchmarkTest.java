@@ -0,0 +1,127 @@
+package com.snapscore.pipeline.pulling.http;
+
+import com.snapscore.pipeline.pulling.FeedPriorityEnum;
+import com.snapscore.pipeline.pulling.FeedRequest;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.Http2Settings;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.snapscore.pipeline.pulling.TestData.MATCH_DETAIL_FEED_NAME;
+
+/**
+ * Compares pulling many feeds concurrently over pooled HTTP/1.1 connections and over multiplexed HTTP/2 (h2c) connections
+ * against a local server that delays each response like a slow provider would
+ */
+public class Http2MultiplexingBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(Http2MultiplexingBenchmarkTest.class);
+
+    private static final int REQUESTS = 2000;
+    private static final int RESPONSE_DELAY_MILLIS = 20;
+    private static final int SERVER_MAX_CONCURRENT_STREAMS = 200;
+    private static final String RESPONSE_BODY = "{\"matches\":[{\"id\":1},{\"id\":2},{\"id\":3}]}".repeat(50);
+
+    private final Vertx vertx = Vertx.vertx();
+    private final AtomicInteger openedConnections = new AtomicInteger();
+    private HttpServer server;
+    private int port;
+
+    @Before
+    public void setUp() throws Exception {
+        // a plain text Vert.x server accepts both HTTP/1.1 and h2c with prior knowledge
+        server = vertx.createHttpServer(new HttpServerOptions()
+                        .setHost("localhost")
+                        .setInitialSettings(new Http2Settings().setMaxConcurrentStreams(SERVER_MAX_CONCURRENT_STREAMS)))
+                .connectionHandler(connection -> openedConnections.incrementAndGet())
+                .requestHandler(request -> vertx.setTimer(RESPONSE_DELAY_MILLIS, timerId -> request.response()
+                        .putHeader("Content-Type", "application/json")
+                        .end(RESPONSE_BODY)))
+                .listen(0)
+                .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        port = server.actualPort();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        vertx.close();
+    }
+
+    @Ignore
+    @Test
+    public void vertxHttp1VersusH2c() throws Exception {
+
+        HttpClientOptions httpClientOptions = new HttpClientOptions()
+                .setKeepAlive(true)
+                .setMaxPoolSize(50)
+                .setTcpNoDelay(true);
+
+        for (HttpProtocol httpProtocol : List.of(HttpProtocol.HTTP_1_1, HttpProtocol.H2C)) {
+            HttpClientConfig httpClientConfig = new VertxHttpClientConfigImpl(Duration.ofSeconds(30), "localhost", port, httpProtocol, SERVER_MAX_CONCURRENT_STREAMS, 1);
+            HttpClient httpClient = new VertxHttpClientImpl(httpClientConfig, httpClientOptions, new VertxClientCallbackFactoryImpl(1024 * 1024));
+            try {
+                benchmark("Vert.x " + httpProtocol, httpClient);
+            } finally {
+                httpClient.shutdown();
+            }
+        }
+    }
+
+    @Ignore
+    @Test
+    public void okHttpHttp1VersusH2c() throws Exception {
+
+        for (HttpProtocol httpProtocol : List.of(HttpProtocol.HTTP_1_1, HttpProtocol.H2C)) {
+            HttpClientConfig httpClientConfig = new OkHttpClientConfigImpl(8, Duration.ofSeconds(30), 50, httpProtocol, SERVER_MAX_CONCURRENT_STREAMS);
+            HttpClient httpClient = new OkHttpClientImpl(httpClientConfig, new OkHttpClientCallbackFactoryImpl(null));
+            try {
+                benchmark("OkHttp " + httpProtocol, httpClient);
+            } finally {
+                httpClient.shutdown();
+            }
+        }
+    }
+
+
+    private void benchmark(String name, HttpClient httpClient) throws Exception {
+
+        pullAll(httpClient); // warm up - opens the connections and lets the JIT kick in
+        openedConnections.set(0);
+
+        long start = System.nanoTime();
+        long bytes = pullAll(httpClient);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        log.info("{}: {} requests ({} bytes) pulled in {} ms ({} req/s) over {} newly opened connections",
+                name, REQUESTS, bytes, elapsedMillis, REQUESTS * 1000L / Math.max(1, elapsedMillis), openedConnections.get());
+    }
+
+    private long pullAll(HttpClient httpClient) throws Exception {
+        List<CompletableFuture<byte[]>> responses = new ArrayList<>(REQUESTS);
+        for (int idx = 0; idx < REQUESTS; idx++) {
+            String url = "http://localhost:" + port + "/feed_" + idx;
+            responses.add(httpClient.getAsync(FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, url).build()));
+        }
+        long bytes = 0;
+        for (CompletableFuture<byte[]> response : responses) {
+            bytes += response.get(60, TimeUnit.SECONDS).length;
+        }
+        return bytes;
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.snapscore.pipeline.pulling.http;
+
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpVersion;
+import okhttp3.Protocol;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HttpProtocolTest {
+
+    private static final Duration READ_TIMEOUT = Duration.ofSeconds(10);
+
+    @Test
+    public void testThatOkHttpProtocolsMatchTheConfiguredProtocol() {
+        assertEquals(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1), OkHttpClientImpl.protocolsFor(null));
+        assertEquals(List.of(Protocol.HTTP_1_1), OkHttpClientImpl.protocolsFor(HttpProtocol.HTTP_1_1));
+        assertEquals(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1), OkHttpClientImpl.protocolsFor(HttpProtocol.HTTP_2));
+        assertEquals(List.of(Protocol.H2_PRIOR_KNOWLEDGE), OkHttpClientImpl.protocolsFor(HttpProtocol.H2C));
+    }
+
+    @Test
+    public void testThatOkHttpMaxRequestsPerHostAreCappedByStreamLimitOnlyForExplicitHttp2() {
+
+        // given
+        int maxRequestsPerHost = 50;
+        int http2MaxConcurrentStreams = 20;
+
+        // when
+        HttpClientConfig http2Config = new OkHttpClientConfigImpl(4, READ_TIMEOUT, maxRequestsPerHost, HttpProtocol.HTTP_2, http2MaxConcurrentStreams);
+        HttpClientConfig h2cConfig = new OkHttpClientConfigImpl(4, READ_TIMEOUT, maxRequestsPerHost, HttpProtocol.H2C, http2MaxConcurrentStreams);
+        HttpClientConfig http1Config = new OkHttpClientConfigImpl(4, READ_TIMEOUT, maxRequestsPerHost, HttpProtocol.HTTP_1_1, http2MaxConcurrentStreams);
+        HttpClientConfig negotiatedConfig = new OkHttpClientConfigImpl(4, READ_TIMEOUT, maxRequestsPerHost, null, http2MaxConcurrentStreams);
+        HttpClientConfig unlimitedStreamsConfig = new OkHttpClientConfigImpl(4, READ_TIMEOUT, maxRequestsPerHost, HttpProtocol.HTTP_2);
+
+        // then
+        assertEquals(http2MaxConcurrentStreams, http2Config.maxRequestsPerHost());
+        assertEquals(http2MaxConcurrentStreams, h2cConfig.maxRequestsPerHost());
+        assertEquals(maxRequestsPerHost, http1Config.maxRequestsPerHost());
+        assertEquals(maxRequestsPerHost, negotiatedConfig.maxRequestsPerHost());
+        assertEquals(maxRequestsPerHost, unlimitedStreamsConfig.maxRequestsPerHost());
+    }
+
+    @Test
+    public void testThatVertxOptionsAreLeftAsTheyAreIfNoProtocolIsConfigured() {
+
+        // given
+        HttpClientOptions httpClientOptions = new HttpClientOptions();
+
+        // when
+        HttpClientOptions appliedOptions = VertxHttpClientImpl.applyHttpProtocol(httpClientOptions, new VertxHttpClientConfigImpl(READ_TIMEOUT, "localhost", 8080));
+
+        // then
+        assertSame(httpClientOptions, appliedOptions);
+    }
+
+    @Test
+    public void testThatVertxOptionsAreCopiedForHttp11() {
+
+        // given
+        HttpClientOptions httpClientOptions = new HttpClientOptions().setProtocolVersion(HttpVersion.HTTP_2);
+
+        // when
+        HttpClientOptions appliedOptions = VertxHttpClientImpl.applyHttpProtocol(httpClientOptions, new VertxHttpClientConfigImpl(READ_TIMEOUT, "localhost", 8080, HttpProtocol.HTTP_1_1));
+
+        // then
+        assertNotSame(httpClientOptions, appliedOptions);
+        assertEquals(HttpVersion.HTTP_1_1, appliedOptions.getProtocolVersion());
+        assertEquals("Passed options must not be modified", HttpVersion.HTTP_2, httpClientOptions.getProtocolVersion());
+    }
+
+    @Test
+    public void testThatVertxHttp2IsNegotiatedViaAlpnWithConfiguredMultiplexing() {
+
+        // given
+        VertxHttpClientConfigImpl httpClientConfig = new VertxHttpClientConfigImpl(READ_TIMEOUT, "localhost", 8080, HttpProtocol.HTTP_2, 100, 2);
+
+        // when
+        HttpClientOptions appliedOptions = VertxHttpClientImpl.applyHttpProtocol(new HttpClientOptions(), httpClientConfig);
+
+        // then
+        assertEquals(HttpVersion.HTTP_2, appliedOptions.getProtocolVersion());
+        assertTrue(appliedOptions.isUseAlpn());
+        assertEquals(100, appliedOptions.getHttp2MultiplexingLimit());
+        assertEquals(2, appliedOptions.getHttp2MaxPoolSize());
+    }
+
+    @Test
+    public void testThatVertxH2cUsesPriorKnowledge() {
+
+        // given
+        VertxHttpClientConfigImpl httpClientConfig = new VertxHttpClientConfigImpl(READ_TIMEOUT, "localhost", 8080, HttpProtocol.H2C, 100, 2);
+
+        // when
+        HttpClientOptions appliedOptions = VertxHttpClientImpl.applyHttpProtocol(new HttpClientOptions(), httpClientConfig);
+
+        // then
+        assertEquals(HttpVersion.HTTP_2, appliedOptions.getProtocolVersion());
+        assertFalse(appliedOptions.isUseAlpn());
+        assertFalse(appliedOptions.isHttp2ClearTextUpgrade());
+        assertEquals(100, appliedOptions.getHttp2MultiplexingLimit());
+        assertEquals(2, appliedOptions.getHttp2MaxPoolSize());
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.snapscore.pipeline.pulling.http;
+
+import com.snapscore.pipeline.pulling.FeedPriorityEnum;
+import com.snapscore.pipeline.pulling.FeedRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import reactor.core.publisher.MonoSink;
+
+import java.util.List;
+
+import static com.snapscore.pipeline.pulling.TestData.MATCH_DETAIL_FEED_NAME;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class OkHttpClientCallbackImplTest {
+
+    private final FeedRequest feedRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "http://some.host.com/feed").build();
+
+    @Test
+    public void testThatBodyIsReadIntoPooledBuffer() {
+
+        // given
+        MonoSink<ByteBuf> pooledEmitter = Mockito.mock(MonoSink.class);
+        OkHttpClientCallbackImpl callback = new OkHttpClientCallbackImpl(null, feedRequest, null, pooledEmitter, List.of(), null, null);
+        byte[] body = "data".getBytes();
+
+        // when
+        callback.onResponse(null, successfulResponse(body));
+
+        // then
+        ArgumentCaptor<ByteBuf> pooledData = ArgumentCaptor.forClass(ByteBuf.class);
+        Mockito.verify(pooledEmitter).success(pooledData.capture());
+        assertArrayEquals(body, ByteBufUtil.getBytes(pooledData.getValue()));
+        pooledData.getValue().release();
+        assertEquals(0, pooledData.getValue().refCnt());
+    }
+
+    @Test
+    public void testThatNotModifiedResponseEmitsSharedEmptyBuffer() {
+
+        // given
+        MonoSink<ByteBuf> pooledEmitter = Mockito.mock(MonoSink.class);
+        OkHttpClientCallbackImpl callback = new OkHttpClientCallbackImpl(null, feedRequest, null, pooledEmitter, List.of(), new ConditionalRequestValidators(), null);
+
+        // when
+        callback.onResponse(null, response(304, null));
+
+        // then
+        Mockito.verify(pooledEmitter).success(HttpClient.NOT_MODIFIED_BUFFER);
+    }
+
+    private static Response successfulResponse(byte[] body) {
+        return response(200, ResponseBody.create(body, MediaType.get("application/json")));
+    }
+
+    private static Response response(int code, ResponseBody body) {
+        return new Response.Builder()
+                .request(new Request.Builder().url("http://some.host.com/feed").build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message("test")
+                .body(body)
+                .build();
+    }
+
+}
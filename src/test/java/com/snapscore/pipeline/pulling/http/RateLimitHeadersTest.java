@@ -0,0 +1,74 @@
+package com.snapscore.pipeline.pulling.http;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class RateLimitHeadersTest {
+
+    private static final long NOW_MILLIS = 1_700_000_000_000L;
+
+    @Test
+    public void missingHeadersAreUnknown() {
+
+        RateLimitHeaders rateLimitHeaders = RateLimitHeaders.parse(200, headers(Map.of()), NOW_MILLIS);
+
+        assertFalse(rateLimitHeaders.isRateLimited());
+        assertFalse(rateLimitHeaders.hasRemaining());
+        assertNull(rateLimitHeaders.resetAfter());
+        assertNull(rateLimitHeaders.retryAfter());
+    }
+
+    @Test
+    public void remainingAndResetInSecondsAreParsed() {
+
+        RateLimitHeaders rateLimitHeaders = RateLimitHeaders.parse(200, headers(Map.of("x-ratelimit-remaining", "42", "X-RateLimit-Reset", "30")), NOW_MILLIS);
+
+        assertEquals(42L, rateLimitHeaders.remaining());
+        assertEquals(Duration.ofSeconds(30), rateLimitHeaders.resetAfter());
+    }
+
+    @Test
+    public void resetInEpochSecondsIsConvertedToDelay() {
+
+        RateLimitHeaders rateLimitHeaders = RateLimitHeaders.parse(200, headers(Map.of("RateLimit-Remaining", "0", "RateLimit-Reset", String.valueOf(NOW_MILLIS / 1000 + 15))), NOW_MILLIS);
+
+        assertEquals(0L, rateLimitHeaders.remaining());
+        assertEquals(Duration.ofSeconds(15), rateLimitHeaders.resetAfter());
+    }
+
+    @Test
+    public void retryAfterInSecondsAndAsDateIsParsed() {
+
+        RateLimitHeaders inSeconds = RateLimitHeaders.parse(429, headers(Map.of("Retry-After", "120")), NOW_MILLIS);
+        assertTrue(inSeconds.isRateLimited());
+        assertEquals(Duration.ofSeconds(120), inSeconds.retryAfter());
+
+        // NOW_MILLIS = Tue, 14 Nov 2023 22:13:20 GMT
+        RateLimitHeaders asDate = RateLimitHeaders.parse(503, headers(Map.of("Retry-After", "Tue, 14 Nov 2023 22:14:00 GMT")), NOW_MILLIS);
+        assertTrue(asDate.isRateLimited());
+        assertEquals(Duration.ofSeconds(40), asDate.retryAfter());
+    }
+
+    @Test
+    public void invalidValuesAreIgnored() {
+
+        RateLimitHeaders rateLimitHeaders = RateLimitHeaders.parse(503, headers(Map.of("X-RateLimit-Remaining", "many", "Retry-After", "soon")), NOW_MILLIS);
+
+        assertFalse(rateLimitHeaders.hasRemaining());
+        assertNull(rateLimitHeaders.retryAfter());
+        assertFalse(rateLimitHeaders.isRateLimited());
+    }
+
+    private static Function<String, String> headers(Map<String, String> headers) {
+        TreeMap<String, String> caseInsensitiveHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        caseInsensitiveHeaders.putAll(headers);
+        return caseInsensitiveHeaders::get;
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.snapscore.pipeline.pulling.http;
+
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.streams.ReadStream;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ReadStreamInputStreamTest {
+
+    private final ReadStreamMock readStream = new ReadStreamMock();
+    private final AtomicInteger abortCount = new AtomicInteger();
+
+    @Test
+    public void chunksAreReadInOrderUntilTheEndOfTheStream() throws IOException {
+
+        InputStream inputStream = new ReadStreamInputStream(readStream, 1024, abortCount::incrementAndGet);
+        readStream.emit("first,");
+        readStream.emit("second");
+        readStream.end();
+
+        assertEquals("first,second", new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        assertEquals(-1, inputStream.read());
+        inputStream.close();
+        assertEquals(0, abortCount.get());
+    }
+
+    @Test
+    public void readWaitsForTheNextChunk() throws Exception {
+
+        InputStream inputStream = new ReadStreamInputStream(readStream, 1024, abortCount::incrementAndGet);
+        Thread producer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            readStream.emit("late");
+            readStream.end();
+        });
+        producer.start();
+
+        assertEquals("late", new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        producer.join();
+    }
+
+    @Test
+    public void readStreamIsPausedWhileTooManyBytesAreBufferedAndResumedOnceTheyAreRead() throws IOException {
+
+        InputStream inputStream = new ReadStreamInputStream(readStream, 10, abortCount::incrementAndGet);
+        readStream.emit("123456");
+        assertFalse(readStream.paused);
+        readStream.emit("789012");
+        assertTrue(readStream.paused);
+
+        assertEquals(6, inputStream.read(new byte[6], 0, 6));
+        assertTrue(readStream.paused); // 6 bytes still buffered
+        assertEquals(1, inputStream.read(new byte[1], 0, 1));
+        assertFalse(readStream.paused);
+        assertEquals(1, readStream.resumeCount);
+    }
+
+    @Test
+    public void errorOfTheReadStreamIsThrownAfterTheReceivedChunks() throws IOException {
+
+        InputStream inputStream = new ReadStreamInputStream(readStream, 1024, abortCount::incrementAndGet);
+        readStream.emit("partial");
+        readStream.fail(new IllegalStateException("connection reset"));
+
+        assertEquals("partial", new String(inputStream.readNBytes(7), StandardCharsets.UTF_8));
+        try {
+            inputStream.read();
+            fail("IOException expected");
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        inputStream.close();
+        assertEquals(0, abortCount.get());
+    }
+
+    @Test
+    public void closingBeforeTheEndAbortsTheDownloadAndDropsFurtherChunks() throws IOException {
+
+        InputStream inputStream = new ReadStreamInputStream(readStream, 1024, abortCount::incrementAndGet);
+        readStream.emit("some data");
+        inputStream.close();
+        inputStream.close();
+        readStream.emit("more data");
+
+        assertEquals(1, abortCount.get());
+        assertEquals(0, inputStream.available());
+        try {
+            inputStream.read();
+            fail("IOException expected");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+
+    private static class ReadStreamMock implements ReadStream<Buffer> {
+
+        private Handler<Buffer> handler;
+        private Handler<Void> endHandler;
+        private Handler<Throwable> exceptionHandler;
+        private volatile boolean paused;
+        private int resumeCount;
+
+        void emit(String chunk) {
+            handler.handle(Buffer.buffer(chunk.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        void end() {
+            endHandler.handle(null);
+        }
+
+        void fail(Throwable throwable) {
+            exceptionHandler.handle(throwable);
+        }
+
+        @Override
+        public ReadStream<Buffer> exceptionHandler(Handler<Throwable> handler) {
+            this.exceptionHandler = handler;
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> handler(Handler<Buffer> handler) {
+            this.handler = handler;
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> pause() {
+            paused = true;
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> resume() {
+            paused = false;
+            resumeCount++;
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> fetch(long amount) {
+            return this;
+        }
+
+        @Override
+        public ReadStream<Buffer> endHandler(Handler<Void> endHandler) {
+            this.endHandler = endHandler;
+            return this;
+        }
+    }
+
+}
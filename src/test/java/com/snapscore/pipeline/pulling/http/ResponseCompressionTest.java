@@ -0,0 +1,101 @@
+package com.snapscore.pipeline.pulling.http;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ResponseCompressionTest {
+
+    private static final byte[] BODY = "{\"matches\":[{\"id\":1},{\"id\":2},{\"id\":3}]}".repeat(100).getBytes(StandardCharsets.UTF_8);
+
+    private final ResponseCompression compression = new ResponseCompression();
+
+    @Test
+    public void gzipAndDeflateAreOfferedByDefault() {
+        assertEquals("gzip, deflate", compression.getAcceptEncoding());
+    }
+
+    @Test
+    public void additionalEncodingIsOfferedAfterTheDefaultOnes() {
+        ResponseCompression withBrotli = compression.withEncoding(ResponseCompression.BROTLI, encoded -> encoded);
+        assertEquals("gzip, deflate, br", withBrotli.getAcceptEncoding());
+    }
+
+    @Test
+    public void gzipBodyIsDecodedWhileCountingTheCompressedBytes() throws IOException {
+
+        byte[] gzipped = gzip(BODY);
+        CountingInputStream encoded = new CountingInputStream(new ByteArrayInputStream(gzipped));
+
+        try (InputStream decoded = compression.decode("gzip", encoded)) {
+            assertArrayEquals(BODY, decoded.readAllBytes());
+        }
+        assertEquals(gzipped.length, encoded.getCount());
+        assertTrue(gzipped.length < BODY.length);
+    }
+
+    @Test
+    public void zlibWrappedAndRawDeflateBodiesAreBothDecoded() throws IOException {
+
+        assertArrayEquals(BODY, decode("deflate", deflate(BODY, false)));
+        assertArrayEquals(BODY, decode("DEFLATE", deflate(BODY, true)));
+    }
+
+    @Test
+    public void identityBodyIsNotDecoded() throws IOException {
+
+        InputStream body = new ByteArrayInputStream(BODY);
+
+        assertSame(body, compression.decode(null, body));
+        assertSame(body, compression.decode("identity", body));
+    }
+
+    @Test
+    public void multipleEncodingsAreDecodedInReverseOrder() throws IOException {
+        assertArrayEquals(BODY, decode("deflate, gzip", gzip(deflate(BODY, false))));
+    }
+
+    @Test(expected = IOException.class)
+    public void unsupportedEncodingFails() throws IOException {
+        compression.decode("br", new ByteArrayInputStream(BODY));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void atLeastOneEncodingMustBeSupported() {
+        new ResponseCompression(Map.of());
+    }
+
+
+    private byte[] decode(String contentEncoding, byte[] encoded) throws IOException {
+        try (InputStream decoded = compression.decode(contentEncoding, new ByteArrayInputStream(encoded))) {
+            return decoded.readAllBytes();
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(data);
+        }
+        return output.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] data, boolean raw) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(output, new Deflater(Deflater.DEFAULT_COMPRESSION, raw))) {
+            deflate.write(data);
+        }
+        return output.toByteArray();
+    }
+
+}
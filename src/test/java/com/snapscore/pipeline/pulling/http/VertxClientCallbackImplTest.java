@@ -0,0 +1,110 @@
+package com.snapscore.pipeline.pulling.http;
+
+import com.snapscore.pipeline.pulling.FeedPriorityEnum;
+import com.snapscore.pipeline.pulling.FeedRequest;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClientResponse;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import reactor.core.publisher.MonoSink;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+import static com.snapscore.pipeline.pulling.TestData.MATCH_DETAIL_FEED_NAME;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class VertxClientCallbackImplTest {
+
+    private final FeedRequest feedRequest = FeedRequest.newBuilder(MATCH_DETAIL_FEED_NAME, FeedPriorityEnum.MEDIUM, 1, "http://some.host.com/feed").build();
+
+    @Test
+    public void testThatChunksAreCopiedIntoPooledBuffer() {
+
+        // given
+        MonoSink<ByteBuf> pooledEmitter = Mockito.mock(MonoSink.class);
+        HttpClientResponse response = successfulResponseMock();
+        VertxClientCallback callback = VertxClientCallbackFactoryImpl.newBuilder(1024).build().createPooledCallback(feedRequest, pooledEmitter);
+
+        // when
+        callback.onResponse(response);
+        ArgumentCaptor<Handler<Buffer>> chunkHandler = ArgumentCaptor.forClass(Handler.class);
+        ArgumentCaptor<Handler<Void>> endHandler = ArgumentCaptor.forClass(Handler.class);
+        Mockito.verify(response).handler(chunkHandler.capture());
+        Mockito.verify(response).endHandler(endHandler.capture());
+        chunkHandler.getValue().handle(Buffer.buffer("da".getBytes()));
+        chunkHandler.getValue().handle(Buffer.buffer("ta".getBytes()));
+        endHandler.getValue().handle(null);
+
+        // then
+        ArgumentCaptor<ByteBuf> pooledData = ArgumentCaptor.forClass(ByteBuf.class);
+        Mockito.verify(pooledEmitter).success(pooledData.capture());
+        assertArrayEquals("data".getBytes(), ByteBufUtil.getBytes(pooledData.getValue()));
+        pooledData.getValue().release();
+    }
+
+    @Test
+    public void testThatFailedReadEmitsErrorInsteadOfPartialBuffer() {
+
+        // given
+        MonoSink<ByteBuf> pooledEmitter = Mockito.mock(MonoSink.class);
+        HttpClientResponse response = successfulResponseMock();
+        VertxClientCallback callback = VertxClientCallbackFactoryImpl.newBuilder(1024).build().createPooledCallback(feedRequest, pooledEmitter);
+
+        // when
+        callback.onResponse(response);
+        ArgumentCaptor<Handler<Buffer>> chunkHandler = ArgumentCaptor.forClass(Handler.class);
+        ArgumentCaptor<Handler<Throwable>> exceptionHandler = ArgumentCaptor.forClass(Handler.class);
+        Mockito.verify(response).handler(chunkHandler.capture());
+        Mockito.verify(response).exceptionHandler(exceptionHandler.capture());
+        chunkHandler.getValue().handle(Buffer.buffer("da".getBytes()));
+        exceptionHandler.getValue().handle(new IOException("connection reset"));
+
+        // then
+        Mockito.verify(pooledEmitter).error(Mockito.any(FailedRequestException.class));
+        Mockito.verify(pooledEmitter, Mockito.never()).success(Mockito.any());
+    }
+
+    @Test
+    public void testThatVertxHttpClientPassesItsMaxBufferedStreamBytesToCallbackFactory() {
+
+        // given
+        List<RateLimitObserver> rateLimitObservers = List.of((request, rateLimitHeaders) -> {});
+        ResponseCompression responseCompression = new ResponseCompression();
+        VertxClientCallbackFactoryImpl callbackFactory = VertxClientCallbackFactoryImpl.newBuilder(1024)
+                .setRateLimitObservers(rateLimitObservers)
+                .setResponseCompression(responseCompression)
+                .build();
+        HttpClientConfig httpClientConfig = new VertxHttpClientConfigImpl(Duration.ofSeconds(10), "localhost", 8080) {
+            @Override
+            public int maxBufferedStreamBytes() {
+                return 4096;
+            }
+        };
+
+        // when
+        ClientCallbackFactory<VertxClientCallback> appliedFactory = VertxHttpClientImpl.applyMaxBufferedStreamBytes(callbackFactory, httpClientConfig);
+
+        // then
+        assertEquals(HttpClientConfig.MAX_BUFFERED_STREAM_BYTES_DEFAULT, callbackFactory.maxBufferedStreamBytes);
+        VertxClientCallbackFactoryImpl appliedVertxFactory = (VertxClientCallbackFactoryImpl) appliedFactory;
+        assertEquals(4096, appliedVertxFactory.maxBufferedStreamBytes);
+        assertEquals(1024, appliedVertxFactory.httpResponseBufferSize);
+        assertSame(rateLimitObservers, appliedVertxFactory.rateLimitObservers);
+        assertSame(responseCompression, appliedVertxFactory.responseCompression);
+    }
+
+    private static HttpClientResponse successfulResponseMock() {
+        HttpClientResponse response = Mockito.mock(HttpClientResponse.class);
+        Mockito.when(response.statusCode()).thenReturn(200);
+        return response;
+    }
+
+}
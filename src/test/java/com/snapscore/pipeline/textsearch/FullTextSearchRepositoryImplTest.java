@@ -1,5 +1,6 @@
 package com.snapscore.pipeline.textsearch;
 
+import com.snapscore.pipeline.concurrency.LockContentionMonitor;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -9,7 +10,7 @@ import java.util.List;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 public class FullTextSearchRepositoryImplTest {
 
@@ -44,6 +45,20 @@ public class FullTextSearchRepositoryImplTest {
     }
 
 
+    @Test
+    public void lockContentionIsMonitoredOnlyIfEnabledAndUntilClosed() {
+        FullTextSearchRepositoryImpl<TestTeam> notMonitored = new FullTextSearchRepositoryImpl<>("NotMonitoredRepo");
+        assertFalse(LockContentionMonitor.getStatistics().containsKey(FullTextSearchRepositoryImpl.lockNameOf("NotMonitoredRepo")));
+
+        FullTextSearchRepositoryImpl<TestTeam> monitored = new FullTextSearchRepositoryImpl<>("MonitoredRepo", null, null, true);
+        assertTrue(LockContentionMonitor.getStatistics().containsKey(FullTextSearchRepositoryImpl.lockNameOf("MonitoredRepo")));
+
+        monitored.close();
+        notMonitored.close();
+        assertFalse(LockContentionMonitor.getStatistics().containsKey(FullTextSearchRepositoryImpl.lockNameOf("MonitoredRepo")));
+    }
+
+
     @Test
     public void removeItem() {
         // given
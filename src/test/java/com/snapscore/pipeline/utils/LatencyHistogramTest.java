@@ -0,0 +1,51 @@
+package com.snapscore.pipeline.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testThatPercentilesAreWithinBucketPrecision() {
+
+        // given
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        // when
+        for (long nanos = 1; nanos <= 10_000; nanos++) {
+            histogram.recordNanos(nanos * 1_000);
+        }
+
+        // then
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000_000, histogram.getMaxNanos());
+        assertWithinPrecision(5_000_000, histogram.getPercentileNanos(50));
+        assertWithinPrecision(9_900_000, histogram.getPercentileNanos(99));
+        assertEquals(10_000_000, histogram.getPercentileNanos(100));
+    }
+
+    @Test
+    public void testThatEveryValueFallsIntoBucketWithUpperBoundNotSmallerThanTheValue() {
+        for (long value : new long[]{0, 1, 7, 8, 9, 15, 16, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            long upperBound = LatencyHistogram.bucketUpperBoundOf(LatencyHistogram.bucketIndexOf(value));
+            assertTrue("Upper bound " + upperBound + " below value " + value, upperBound >= value);
+            assertTrue("Upper bound " + upperBound + " too far from value " + value, upperBound - value <= value / 8);
+        }
+    }
+
+    @Test
+    public void testThatResetClearsAllValues() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(100);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxNanos());
+        assertEquals(0, histogram.getPercentileNanos(99));
+    }
+
+    private static void assertWithinPrecision(long expected, long actual) {
+        assertTrue("Expected about " + expected + " but was " + actual, Math.abs(actual - expected) <= expected / 8);
+    }
+
+}